@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Supplier;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaProject;
+import org.junit.After;
+import org.junit.Test;
+
+public class ContainerResolverSchedulerTest {
+
+  private static final Object FAMILY = new Object();
+  private static final IPath CONTAINER =
+      new Path("com.google.cloud.tools.eclipse.appengine.libraries/servlet-api");
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final ContainerResolverScheduler scheduler = new ContainerResolverScheduler();
+  private final IJavaProject project = mockProject("/project");
+  private final IJavaProject otherProject = mockProject("/project2");
+
+  @After
+  public void tearDown() throws InterruptedException {
+    release.countDown();
+    Job.getJobManager().join(FAMILY, null);
+  }
+
+  @Test
+  public void testSchedule_pendingRequestsCoalesced() throws InterruptedException {
+    BlockingJobFactory blocker = new BlockingJobFactory();
+    scheduler.schedule(otherProject, null, blocker);
+    blocker.awaitRunning();
+
+    CountingJobFactory first = new CountingJobFactory();
+    CountingJobFactory second = new CountingJobFactory();
+    scheduler.schedule(project, CONTAINER, first);
+    scheduler.schedule(project, CONTAINER, second);
+    assertEquals(1, scheduler.getPendingRequestCount());
+
+    release.countDown();
+    awaitIdle(scheduler);
+    assertEquals(0, first.created.get());
+    assertEquals(1, second.created.get());
+    assertEquals(1, second.runs.get());
+  }
+
+  @Test
+  public void testSchedule_runningJobSuperseded() throws InterruptedException {
+    BlockingJobFactory running = new BlockingJobFactory();
+    scheduler.schedule(project, CONTAINER, running);
+    running.awaitRunning();
+
+    CountingJobFactory next = new CountingJobFactory();
+    scheduler.schedule(project, CONTAINER, next);
+    awaitIdle(scheduler);
+    assertEquals(IStatus.CANCEL, running.job.getResult().getSeverity());
+    assertEquals(1, next.runs.get());
+  }
+
+  @Test
+  public void testSchedule_oneJobAtATime() throws InterruptedException {
+    BlockingJobFactory first = new BlockingJobFactory();
+    CountingJobFactory second = new CountingJobFactory();
+    scheduler.schedule(project, null, first);
+    scheduler.schedule(otherProject, null, second);
+    first.awaitRunning();
+    assertEquals(1, scheduler.getActiveJobCount());
+    assertEquals(1, scheduler.getPendingRequestCount());
+    assertEquals(0, second.created.get());
+
+    release.countDown();
+    awaitIdle(scheduler);
+    assertEquals(1, second.runs.get());
+  }
+
+  @Test
+  public void testSchedule_projectRequestSupersedesContainerRequests()
+      throws InterruptedException {
+    BlockingJobFactory blocker = new BlockingJobFactory();
+    scheduler.schedule(otherProject, null, blocker);
+    blocker.awaitRunning();
+
+    CountingJobFactory container = new CountingJobFactory();
+    CountingJobFactory otherContainer = new CountingJobFactory();
+    CountingJobFactory all = new CountingJobFactory();
+    scheduler.schedule(project, CONTAINER, container);
+    scheduler.schedule(otherProject, CONTAINER, otherContainer);
+    scheduler.schedule(project, null, all);
+    assertEquals(2, scheduler.getPendingRequestCount());
+
+    release.countDown();
+    awaitIdle(scheduler);
+    assertEquals(0, container.created.get());
+    assertEquals(1, otherContainer.runs.get());
+    assertEquals(1, all.runs.get());
+  }
+
+  @Test
+  public void testSchedule_containerRequestCoveredByPendingProjectRequest()
+      throws InterruptedException {
+    BlockingJobFactory blocker = new BlockingJobFactory();
+    scheduler.schedule(otherProject, null, blocker);
+    blocker.awaitRunning();
+
+    CountingJobFactory all = new CountingJobFactory();
+    CountingJobFactory container = new CountingJobFactory();
+    scheduler.schedule(project, null, all);
+    scheduler.schedule(project, CONTAINER, container);
+    assertEquals(1, scheduler.getPendingRequestCount());
+
+    release.countDown();
+    awaitIdle(scheduler);
+    assertEquals(1, all.runs.get());
+    assertEquals(0, container.created.get());
+  }
+
+  private static void awaitIdle(ContainerResolverScheduler scheduler)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (scheduler.getActiveJobCount() > 0 || scheduler.getPendingRequestCount() > 0) {
+      assertTrue("jobs did not finish", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private static IJavaProject mockProject(String path) {
+    IJavaProject project = mock(IJavaProject.class);
+    when(project.getPath()).thenReturn(new Path(path));
+    return project;
+  }
+
+  private static class CountingJobFactory implements Supplier<Job> {
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Override
+    public Job get() {
+      created.incrementAndGet();
+      return new TestJob() {
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+          runs.incrementAndGet();
+          return Status.OK_STATUS;
+        }
+      };
+    }
+  }
+
+  /** Creates a job that runs until it is canceled or the test releases it. */
+  private class BlockingJobFactory implements Supplier<Job> {
+    private final CountDownLatch running = new CountDownLatch(1);
+    private Job job;
+
+    @Override
+    public Job get() {
+      job = new TestJob() {
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+          running.countDown();
+          try {
+            while (!release.await(10, TimeUnit.MILLISECONDS)) {
+              if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+              }
+            }
+          } catch (InterruptedException ex) {
+            return Status.CANCEL_STATUS;
+          }
+          return Status.OK_STATUS;
+        }
+      };
+      return job;
+    }
+
+    private void awaitRunning() throws InterruptedException {
+      assertTrue(running.await(10, TimeUnit.SECONDS));
+    }
+  }
+
+  private abstract static class TestJob extends Job {
+    private TestJob() {
+      super("test resolution");
+    }
+
+    @Override
+    public boolean belongsTo(Object family) {
+      return family == FAMILY;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doThrow;
@@ -29,17 +30,23 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
 import com.google.cloud.tools.eclipse.test.util.ThreadDumpingWatchdog;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
@@ -233,6 +240,54 @@ public class LibraryClasspathContainerInitializerTest {
     fail("classpath entry not found");
   }
 
+  @Test
+  public void testContainsDefinitions() {
+    LibraryClasspathContainer container = newContainer(newLibraryFile("a", "1.2"),
+        newLibraryFile("b", "2.0"));
+    Library library = newLibrary(newLibraryFile("a", "1.0"),
+        newLibraryFile("b", MavenCoordinates.LATEST_VERSION));
+    assertTrue(LibraryClasspathContainerInitializer.containsDefinitions(container,
+        Arrays.asList(library)));
+  }
+
+  @Test
+  public void testContainsDefinitions_missingDependency() {
+    LibraryClasspathContainer container = newContainer(newLibraryFile("a", "1.0"));
+    Library library = newLibrary(newLibraryFile("a", "1.0"), newLibraryFile("b", "1.0"));
+    assertFalse(LibraryClasspathContainerInitializer.containsDefinitions(container,
+        Arrays.asList(library)));
+  }
+
+  @Test
+  public void testContainsDefinitions_olderVersion() {
+    LibraryClasspathContainer container = newContainer(newLibraryFile("a", "1.0"));
+    Library library = newLibrary(newLibraryFile("a", "1.1"));
+    assertFalse(LibraryClasspathContainerInitializer.containsDefinitions(container,
+        Arrays.asList(library)));
+  }
+
+  @Test
+  public void testInitialize_ifDefinitionsChangedContainerRestoredAndResolvedAgain()
+      throws CoreException, IOException, InterruptedException {
+    File artifactFile = temporaryFolder.newFile();
+    IClasspathEntry entry =
+        JavaCore.newLibraryEntry(new Path(artifactFile.getAbsolutePath()), null, null);
+    // a real library, whose direct dependencies the saved container lacks
+    IPath containerPath = new Path(TEST_CONTAINER_PATH + "/objectify");
+    LibraryClasspathContainer container = new LibraryClasspathContainer(containerPath,
+        "test container", Arrays.asList(entry), Collections.<LibraryFile>emptyList());
+    when(serializer.loadContainer(any(IJavaProject.class), any(IPath.class))).thenReturn(container);
+
+    LibraryClasspathContainerInitializer containerInitializer =
+        new LibraryClasspathContainerInitializer(TEST_CONTAINER_PATH, serializer, resolverService);
+    containerInitializer.initialize(containerPath, testProject.getJavaProject());
+
+    assertEquals(container,
+        JavaCore.getClasspathContainer(containerPath, testProject.getJavaProject()));
+    Job.getJobManager().join(LibraryClasspathContainerInitializer.REFRESH_JOB_FAMILY, null);
+    verifyContainerResolvedFromScratch();
+  }
+
   @Test
   public void testComparisonIdUnique() {
     LibraryClasspathContainerInitializer containerInitializer =
@@ -245,6 +300,22 @@ public class LibraryClasspathContainerInitializerTest {
         containerInitializer.getComparisonID(new Path(TEST_CONTAINER_PATH + "/2"), null));
   }
 
+  private static LibraryFile newLibraryFile(String artifactId, String version) {
+    return new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("groupId").setArtifactId(artifactId).setVersion(version).build());
+  }
+
+  private static LibraryClasspathContainer newContainer(LibraryFile... libraryFiles) {
+    return new LibraryClasspathContainer(new Path(TEST_LIBRARY_PATH), "test container",
+        Collections.<IClasspathEntry>emptyList(), Arrays.asList(libraryFiles));
+  }
+
+  private static Library newLibrary(LibraryFile... directDependencies) {
+    Library library = new Library(TEST_LIBRARY_ID);
+    library.setLibraryFiles(Arrays.asList(directDependencies));
+    return library;
+  }
+
   private IStatus verifyContainerResolvedFromScratch() {
     return verify(resolverService).resolveContainer(any(IJavaProject.class), any(IPath.class),
                                                     any(IProgressMonitor.class));
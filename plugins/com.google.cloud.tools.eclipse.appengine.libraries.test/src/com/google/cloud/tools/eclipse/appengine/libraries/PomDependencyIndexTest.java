@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class PomDependencyIndexTest {
+
+  private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+      + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+      + "    <modelVersion>4.0.0</modelVersion>\n"
+      + "    <dependencies>\n"
+      + "        <!-- keep me -->\n"
+      + "        <dependency>\n"
+      + "            <groupId>com.example</groupId>\n"
+      + "            <artifactId>first</artifactId>\n"
+      + "        </dependency>\n"
+      + "        <dependency><groupId>com.example</groupId><artifactId>second</artifactId>"
+      + "<exclusions><exclusion><groupId>other</groupId><artifactId>excluded</artifactId>"
+      + "</exclusion></exclusions></dependency>\n"
+      + "    </dependencies>\n"
+      + "</project>\n";
+
+  private static final List<MavenCoordinates> NONE = Collections.emptyList();
+
+  @Test
+  public void testScan() throws IOException, SAXException {
+    PomDependencyIndex index = PomDependencyIndex.scan(POM);
+    assertEquals(2, index.getKeys().size());
+    assertTrue(index.contains("com.example", "first"));
+    assertTrue(index.contains("com.example", "second"));
+    assertFalse(index.contains("other", "excluded"));
+  }
+
+  @Test
+  public void testEdit_nothing() throws IOException, SAXException {
+    assertEquals(POM, PomDependencyIndex.scan(POM).edit(Collections.<String>emptySet(), NONE));
+  }
+
+  @Test
+  public void testEdit_add() throws IOException, SAXException {
+    String edited = PomDependencyIndex.scan(POM).edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "third", "1.0"),
+            coordinates("com.example", "fourth", MavenCoordinates.LATEST_VERSION)));
+    assertEquals(POM.replace("    </dependencies>\n",
+        "        <dependency>\n"
+            + "            <groupId>com.example</groupId>\n"
+            + "            <artifactId>third</artifactId>\n"
+            + "            <version>1.0</version>\n"
+            + "        </dependency>\n"
+            + "        <dependency>\n"
+            + "            <groupId>com.example</groupId>\n"
+            + "            <artifactId>fourth</artifactId>\n"
+            + "        </dependency>\n"
+            + "    </dependencies>\n"), edited);
+    assertTrue(PomDependencyIndex.scan(edited).contains("com.example", "third"));
+  }
+
+  @Test
+  public void testEdit_remove() throws IOException, SAXException {
+    String edited = PomDependencyIndex.scan(POM).edit(
+        Arrays.asList("com.example:first", "com.example:second"), NONE);
+    assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "    <modelVersion>4.0.0</modelVersion>\n"
+        + "    <dependencies>\n"
+        + "        <!-- keep me -->\n"
+        + "    </dependencies>\n"
+        + "</project>\n", edited);
+  }
+
+  @Test
+  public void testEdit_removeAndAdd() throws IOException, SAXException {
+    String edited = PomDependencyIndex.scan(POM).edit(Arrays.asList("com.example:second"),
+        Arrays.asList(coordinates("com.example", "third", "1.0")));
+    PomDependencyIndex index = PomDependencyIndex.scan(edited);
+    assertEquals(2, index.getKeys().size());
+    assertTrue(index.contains("com.example", "first"));
+    assertTrue(index.contains("com.example", "third"));
+    assertTrue(edited.contains("<!-- keep me -->"));
+  }
+
+  @Test
+  public void testEdit_noDependencies() throws IOException, SAXException {
+    String pom = "<project>\r\n\t<modelVersion>4.0.0</modelVersion>\r\n</project>";
+    String edited = PomDependencyIndex.scan(pom).edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "first", "1.0")));
+    assertEquals("<project>\r\n"
+        + "\t<modelVersion>4.0.0</modelVersion>\r\n"
+        + "\t<dependencies>\r\n"
+        + "\t\t<dependency>\r\n"
+        + "\t\t\t<groupId>com.example</groupId>\r\n"
+        + "\t\t\t<artifactId>first</artifactId>\r\n"
+        + "\t\t\t<version>1.0</version>\r\n"
+        + "\t\t</dependency>\r\n"
+        + "\t</dependencies>\r\n"
+        + "</project>", edited);
+  }
+
+  @Test
+  public void testEdit_emptyDependenciesElement() throws IOException, SAXException {
+    String pom = "<project>\n  <dependencies/>\n</project>\n";
+    String edited = PomDependencyIndex.scan(pom).edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "first", "1.0")));
+    assertEquals("<project>\n"
+        + "  <dependencies>\n"
+        + "    <dependency>\n"
+        + "      <groupId>com.example</groupId>\n"
+        + "      <artifactId>first</artifactId>\n"
+        + "      <version>1.0</version>\n"
+        + "    </dependency>\n"
+        + "  </dependencies>\n"
+        + "</project>\n", edited);
+  }
+
+  @Test
+  public void testScan_otherDependenciesFirst() throws IOException, SAXException {
+    String pom = "<project>\n"
+        + "  <dependencyManagement>\n"
+        + "    <dependencies>\n"
+        + "      <dependency>\n"
+        + "        <groupId>com.example</groupId><artifactId>managed</artifactId>\n"
+        + "      </dependency>\n"
+        + "    </dependencies>\n"
+        + "  </dependencyManagement>\n"
+        + "  <build><plugins><plugin>\n"
+        + "    <dependencies>\n"
+        + "      <dependency>\n"
+        + "        <groupId>com.example</groupId><artifactId>plugin</artifactId>\n"
+        + "      </dependency>\n"
+        + "    </dependencies>\n"
+        + "  </plugin></plugins></build>\n"
+        + "  <dependencies>\n"
+        + "    <dependency>\n"
+        + "      <groupId>com.example</groupId><artifactId>first</artifactId>\n"
+        + "    </dependency>\n"
+        + "  </dependencies>\n"
+        + "</project>\n";
+    PomDependencyIndex index = PomDependencyIndex.scan(pom);
+    assertEquals(1, index.getKeys().size());
+    assertTrue(index.contains("com.example", "first"));
+
+    String edited = index.edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "second", "1.0")));
+    assertEquals(pom.replace("    </dependency>\n  </dependencies>\n",
+        "    </dependency>\n"
+            + "    <dependency>\n"
+            + "      <groupId>com.example</groupId>\n"
+            + "      <artifactId>second</artifactId>\n"
+            + "      <version>1.0</version>\n"
+            + "    </dependency>\n"
+            + "  </dependencies>\n"), edited);
+  }
+
+  @Test
+  public void testEdit_onlyManagedDependencies() throws IOException, SAXException {
+    String pom = "<project>\n"
+        + "  <dependencyManagement>\n"
+        + "    <dependencies>\n"
+        + "      <dependency>\n"
+        + "        <groupId>com.example</groupId><artifactId>managed</artifactId>\n"
+        + "      </dependency>\n"
+        + "    </dependencies>\n"
+        + "  </dependencyManagement>\n"
+        + "</project>\n";
+    PomDependencyIndex index = PomDependencyIndex.scan(pom);
+    assertTrue(index.getKeys().isEmpty());
+
+    String edited = index.edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "first", "1.0")));
+    assertEquals(pom.replace("</project>\n",
+        "  <dependencies>\n"
+            + "    <dependency>\n"
+            + "      <groupId>com.example</groupId>\n"
+            + "      <artifactId>first</artifactId>\n"
+            + "      <version>1.0</version>\n"
+            + "    </dependency>\n"
+            + "  </dependencies>\n"
+            + "</project>\n"), edited);
+  }
+
+  @Test
+  public void testEdit_escapesText() throws IOException, SAXException {
+    String pom = "<project><dependencies></dependencies></project>";
+    String edited = PomDependencyIndex.scan(pom).edit(Collections.<String>emptySet(),
+        Arrays.asList(coordinates("com.example", "a<b", "1.0")));
+    assertTrue(PomDependencyIndex.scan(edited).contains("com.example", "a<b"));
+  }
+
+  @Test
+  public void testGetIndent() throws IOException, SAXException {
+    PomDependencyIndex index = PomDependencyIndex.scan(POM);
+    int dependencies = POM.indexOf("<dependencies>");
+    assertEquals("    ", index.getIndent(dependencies));
+    assertNull(index.getIndent(dependencies + 1));
+  }
+
+  private static MavenCoordinates coordinates(String groupId, String artifactId,
+      String version) {
+    return new MavenCoordinates.Builder().setGroupId(groupId).setArtifactId(artifactId)
+        .setVersion(version).build();
+  }
+}
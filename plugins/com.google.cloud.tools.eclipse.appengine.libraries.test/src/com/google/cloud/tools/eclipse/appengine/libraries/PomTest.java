@@ -16,22 +16,39 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import com.google.cloud.tools.eclipse.util.ArtifactRetriever;
+import com.google.common.io.CharStreams;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import org.apache.maven.artifact.versioning.ArtifactVersion;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -41,6 +58,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -182,58 +201,65 @@ public class PomTest {
   }
 
   @Test
-  public void testRemoveUnusedDependencies_selectAll()
-      throws CoreException, ParserConfigurationException, IOException, SAXException {
+  public void testFindUnusedDependencies_selectAll() {
     LibraryFile file1 = new LibraryFile(coordinates("com.example.group1", "artifact1"));
     LibraryFile file2 = new LibraryFile(coordinates("com.example.group2", "artifact2"));
     Library library1 = newLibrary("id1", file1);
     Library library2 = newLibrary("id2", file1, file2);
-
-    pom.addDependencies(Arrays.asList(library1, library2));
-    InputStream contents = pomFile.getContents();
-    Document actual = parse(contents);
-    NodeList dependenciesList = actual.getElementsByTagName("dependencies");
-    Assert.assertEquals(1, dependenciesList.getLength());
-    Assert.assertTrue(dependenciesList.item(0) instanceof Element);
-    Element dependencies = (Element) dependenciesList.item(0);
-    Assert.assertEquals(2, dependencies.getElementsByTagName("dependency").getLength());
+    Set<String> current = new HashSet<>(
+        Arrays.asList("com.example.group1:artifact1", "com.example.group2:artifact2"));
 
     // no dependencies should be removed
-    Pom.removeUnusedDependencies(dependencies, Arrays.asList(library1, library2),
+    Set<String> unused = Pom.findUnusedDependencies(current, Arrays.asList(library1, library2),
         Arrays.asList(library1, library2));
-    Assert.assertEquals(2, dependencies.getElementsByTagName("dependency").getLength());
+    Assert.assertTrue(unused.isEmpty());
   }
 
   @Test
-  public void testRemoveUnusedDependencies_keepLibrary1()
-      throws CoreException, ParserConfigurationException, IOException, SAXException {
+  public void testFindUnusedDependencies_keepLibrary1() {
     LibraryFile file1 = new LibraryFile(coordinates("com.example.group1", "artifact1"));
     LibraryFile file2 = new LibraryFile(coordinates("com.example.group2", "artifact2"));
     Library library1 = newLibrary("id1", file1);
     Library library2 = newLibrary("id2", file1, file2);
-
-    pom.addDependencies(Arrays.asList(library1, library2));
-    InputStream contents = pomFile.getContents();
-    Document actual = parse(contents);
-    NodeList dependenciesList = actual.getElementsByTagName("dependencies");
-    Assert.assertEquals(1, dependenciesList.getLength());
-    Assert.assertTrue(dependenciesList.item(0) instanceof Element);
-    Element dependencies = (Element) dependenciesList.item(0);
-    Assert.assertEquals(2, dependencies.getElementsByTagName("dependency").getLength());
+    Set<String> current = new HashSet<>(
+        Arrays.asList("com.example.group1:artifact1", "com.example.group2:artifact2"));
 
     // dependencies from library2 should be removed
-    Pom.removeUnusedDependencies(dependencies, Arrays.asList(library1),
+    Set<String> unused = Pom.findUnusedDependencies(current, Arrays.asList(library1),
         Arrays.asList(library1, library2));
-    Assert.assertEquals(1, dependencies.getElementsByTagName("dependency").getLength());
-    Element dependency = getOnlyChild(((Element) dependencies), "dependency");
-    Element groupId = getOnlyChild(dependency, "groupId");
-    Assert.assertEquals("com.example.group1", groupId.getTextContent());
-    Element artifactId = getOnlyChild(dependency, "artifactId");
-    Assert.assertEquals("artifact1", artifactId.getTextContent());
+    Assert.assertEquals(Collections.singleton("com.example.group2:artifact2"), unused);
+  }
+
+  @Test
+  public void testFindUnusedDependencies_removesAll() {
+    LibraryFile file1 = new LibraryFile(coordinates("com.example.group1", "artifact1"));
+    LibraryFile file2 = new LibraryFile(coordinates("com.example.group2", "artifact2"));
+    Library library1 = newLibrary("id1", file1);
+    Library library2 = newLibrary("id2", file1, file2);
+    Set<String> current = new HashSet<>(
+        Arrays.asList("com.example.group1:artifact1", "com.example.group2:artifact2"));
+
+    // all dependencies should be removed
+    Set<String> unused = Pom.findUnusedDependencies(current, Collections.<Library>emptyList(),
+        Arrays.asList(library1, library2));
+    Assert.assertEquals(current, unused);
+  }
+
+  @Test
+  public void testFindUnusedDependencies_libraryNotPresent() {
+    LibraryFile file1 = new LibraryFile(coordinates("com.example.group1", "artifact1"));
+    LibraryFile file2 = new LibraryFile(coordinates("com.example.group2", "artifact2"));
+    Library library2 = newLibrary("id2", file1, file2);
+    Set<String> current = Collections.singleton("com.example.group1:artifact1");
+
+    // library2 was never added, so its dependencies are left alone
+    Set<String> unused = Pom.findUnusedDependencies(current, Collections.<Library>emptyList(),
+        Arrays.asList(library2));
+    Assert.assertTrue(unused.isEmpty());
   }
 
   @Test
-  public void testRemoveUnusedDependencies_removesAll()
+  public void testUpdateDependencies_removesUnused()
       throws CoreException, ParserConfigurationException, IOException, SAXException {
     LibraryFile file1 = new LibraryFile(coordinates("com.example.group1", "artifact1"));
     LibraryFile file2 = new LibraryFile(coordinates("com.example.group2", "artifact2"));
@@ -241,18 +267,41 @@ public class PomTest {
     Library library2 = newLibrary("id2", file1, file2);
 
     pom.addDependencies(Arrays.asList(library1, library2));
-    InputStream contents = pomFile.getContents();
-    Document actual = parse(contents);
-    NodeList dependenciesList = actual.getElementsByTagName("dependencies");
-    Assert.assertEquals(1, dependenciesList.getLength());
-    Assert.assertTrue(dependenciesList.item(0) instanceof Element);
-    Element dependencies = (Element) dependenciesList.item(0);
-    Assert.assertEquals(2, dependencies.getElementsByTagName("dependency").getLength());
+    pom.updateDependencies(Arrays.asList(library1), Arrays.asList(library1, library2));
 
-    // all dependencies should be removed
-    Pom.removeUnusedDependencies(dependencies, Collections.<Library>emptyList(),
-        Arrays.asList(library1, library2));
-    Assert.assertEquals(0, dependencies.getElementsByTagName("dependency").getLength());
+    Document actual = parse(pomFile.getContents());
+    Element dependencies = getOnlyChild(actual.getDocumentElement(), "dependencies");
+    Element dependency = getOnlyChild(dependencies, "dependency");
+    Assert.assertEquals("com.example.group1", getOnlyChild(dependency, "groupId").getTextContent());
+    Assert.assertEquals("artifact1", getOnlyChild(dependency, "artifactId").getTextContent());
+  }
+
+  @Test
+  public void testUpdateDependencies_preservesFormatting() throws CoreException, IOException {
+    String original = new String(
+        Files.readAllBytes(Paths.get("testdata/testpom.xml")), StandardCharsets.UTF_8);
+    Library library = newLibrary("id1",
+        new LibraryFile(coordinates("com.example.group1", "artifact1", "1.0")));
+
+    pom.addDependencies(Arrays.asList(library));
+    pom.updateDependencies(Collections.<Library>emptyList(), Arrays.asList(library));
+
+    // adding and removing again restores the file exactly, apart from the empty element
+    String updated = readPom();
+    Assert.assertEquals(original.replace("</project>",
+        "  <dependencies>\n  </dependencies>\n</project>"), updated);
+  }
+
+  @Test
+  public void testUpdateDependencies_unchangedNotWritten() throws CoreException {
+    Library library = newLibrary("id1",
+        new LibraryFile(coordinates("com.example.group1", "artifact1", "1.0")));
+    pom.addDependencies(Arrays.asList(library));
+    long modificationStamp = pomFile.getModificationStamp();
+
+    pom.addDependencies(Arrays.asList(library));
+    pom.updateDependencies(Arrays.asList(library), Collections.<Library>emptyList());
+    Assert.assertEquals(modificationStamp, pomFile.getModificationStamp());
   }
 
   @Test
@@ -279,6 +328,13 @@ public class PomTest {
     Assert.assertThat(resolved, Matchers.hasItem(library2));
   }
 
+  private String readPom() throws CoreException, IOException {
+    try (Reader reader =
+        new InputStreamReader(pomFile.getContents(), StandardCharsets.UTF_8)) {
+      return CharStreams.toString(reader);
+    }
+  }
+
   private static Document parse(InputStream in)
       throws ParserConfigurationException, IOException, SAXException {
     DocumentBuilder builder = factory.newDocumentBuilder();
@@ -295,6 +351,60 @@ public class PomTest {
     return (Element) children.item(0);
   }
 
+  @Test
+  public void testLookUpBestVersions_concurrent() {
+    // each lookup waits until all lookups have started, so serial lookups would time out
+    final CountDownLatch started = new CountDownLatch(3);
+    ArtifactRetriever retriever = mock(ArtifactRetriever.class);
+    when(retriever.getBestVersion(eq("com.example"), anyString())).thenAnswer(
+        new Answer<ArtifactVersion>() {
+          @Override
+          public ArtifactVersion answer(InvocationOnMock invocation) throws InterruptedException {
+            started.countDown();
+            started.await();
+            return new DefaultArtifactVersion("2." + invocation.getArguments()[1]);
+          }
+        });
+
+    Map<String, ArtifactVersion> versions = Pom.lookUpBestVersions(
+        Arrays.asList(coordinates("com.example", "1"), coordinates("com.example", "2"),
+            coordinates("com.example", "3")),
+        retriever, 30, TimeUnit.SECONDS);
+    Assert.assertEquals(3, versions.size());
+    Assert.assertEquals("2.1", versions.get("com.example:1").toString());
+    Assert.assertEquals("2.3", versions.get("com.example:3").toString());
+  }
+
+  @Test
+  public void testLookUpBestVersions_timeout() {
+    final CountDownLatch never = new CountDownLatch(1);
+    ArtifactRetriever retriever = mock(ArtifactRetriever.class);
+    when(retriever.getBestVersion("com.example", "fast"))
+        .thenReturn(new DefaultArtifactVersion("1.1"));
+    when(retriever.getBestVersion("com.example", "slow")).thenAnswer(
+        new Answer<ArtifactVersion>() {
+          @Override
+          public ArtifactVersion answer(InvocationOnMock invocation) throws InterruptedException {
+            never.await();
+            return null;
+          }
+        });
+
+    Map<String, ArtifactVersion> versions = Pom.lookUpBestVersions(
+        Arrays.asList(coordinates("com.example", "fast"), coordinates("com.example", "slow")),
+        retriever, 200, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(1, versions.size());
+    Assert.assertEquals("1.1", versions.get("com.example:fast").toString());
+  }
+
+  @Test
+  public void testLookUpBestVersions_notFound() {
+    ArtifactRetriever retriever = mock(ArtifactRetriever.class);
+    Map<String, ArtifactVersion> versions = Pom.lookUpBestVersions(
+        Arrays.asList(coordinates("com.example", "missing")), retriever, 30, TimeUnit.SECONDS);
+    Assert.assertTrue(versions.isEmpty());
+  }
+
   private static Library newLibrary(String libraryId, LibraryFile... libraryFiles) {
     Library library = new Library(libraryId);
     library.setLibraryFiles(Arrays.asList(libraryFiles));
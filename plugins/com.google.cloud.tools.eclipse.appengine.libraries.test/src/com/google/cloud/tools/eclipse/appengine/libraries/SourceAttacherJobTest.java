@@ -16,37 +16,35 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
-import org.junit.Before;
+import org.eclipse.jdt.core.JavaCore;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.runners.MockitoJUnitRunner;
 
-@RunWith(MockitoJUnitRunner.class)
 public class SourceAttacherJobTest {
 
-  private SourceAttacherJob attacherJob;
-
-  @SuppressWarnings("unchecked")
-  @Before
-  public void setUp() {
-    IPath path = mock(IPath.class);
-    IJavaProject javaProject = mock(IJavaProject.class);
-    when(javaProject.getProject()).thenReturn(mock(IProject.class));
-    attacherJob = new SourceAttacherJob(javaProject, path, path, mock(Callable.class));
-  }
+  private final List<LibraryClasspathContainer> sourcedContainers = new ArrayList<>();
 
   @SuppressWarnings("unchecked")
   @Test
@@ -55,15 +53,107 @@ public class SourceAttacherJobTest {
     when(validContainer.getClasspathEntries()).thenReturn(new IClasspathEntry[0]);
     when(validContainer.copyWithNewEntries(any(List.class))).thenReturn(validContainer);
 
-    LibraryClasspathContainer newContainer = attacherJob.attachSource(validContainer);
+    LibraryClasspathContainer newContainer =
+        SourceAttacherJob.attachSource(validContainer, Collections.<IPath, IPath>emptyMap());
     assertNotNull(newContainer);
   }
 
   @Test
-  public void testAttachSource_shortCircuitOnGenericClasspathContainer() throws Exception {
-    IClasspathContainer invalidContainer = mock(IClasspathContainer.class);
+  public void testAttachSource_attachesAllSourcesAtOnce() {
+    IClasspathEntry first = JavaCore.newLibraryEntry(new Path("/first.jar"), null, null);
+    IClasspathEntry second = JavaCore.newLibraryEntry(new Path("/second.jar"), null, null);
+    IClasspathEntry third = JavaCore.newLibraryEntry(new Path("/third.jar"), null, null);
+    LibraryClasspathContainer container = new LibraryClasspathContainer(new Path("container"),
+        "description", Arrays.asList(first, second, third),
+        Collections.<LibraryFile>emptyList());
+    Map<IPath, IPath> sourcePaths = new LinkedHashMap<>();
+    sourcePaths.put(new Path("/first.jar"), new Path("/first-sources.jar"));
+    sourcePaths.put(new Path("/third.jar"), new Path("/third-sources.jar"));
+
+    IClasspathEntry[] entries =
+        SourceAttacherJob.attachSource(container, sourcePaths).getClasspathEntries();
+    assertEquals(3, entries.length);
+    assertEquals(new Path("/first-sources.jar"), entries[0].getSourceAttachmentPath());
+    assertNull(entries[1].getSourceAttachmentPath());
+    assertEquals(new Path("/third-sources.jar"), entries[2].getSourceAttachmentPath());
+  }
+
+  @Test
+  public void testResolveSources_skipsFailures() {
+    Map<IPath, Callable<IPath>> providers = new LinkedHashMap<>();
+    providers.put(new Path("/first.jar"), returning(new Path("/first-sources.jar")));
+    providers.put(new Path("/second.jar"), new Callable<IPath>() {
+      @Override
+      public IPath call() throws Exception {
+        throw new Exception("no sources");
+      }
+    });
+    providers.put(new Path("/third.jar"), returning(new Path("/third-sources.jar")));
+    Map<IPath, IPath> sourcePaths = newJob(providers).resolveSources(new NullProgressMonitor());
+    assertEquals(2, sourcePaths.size());
+    assertEquals(new Path("/first-sources.jar"), sourcePaths.get(new Path("/first.jar")));
+    assertEquals(new Path("/third-sources.jar"), sourcePaths.get(new Path("/third.jar")));
+  }
+
+  @Test(expected = OperationCanceledException.class)
+  public void testResolveSources_canceled() {
+    SourceAttacherJob job = newJob(Collections.singletonMap((IPath) new Path("/first.jar"),
+        returning(new Path("/first-sources.jar"))));
+    NullProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    job.resolveSources(monitor);
+  }
+
+  @Test
+  public void testRun_installsSourcedContainerOnce() {
+    Map<IPath, Callable<IPath>> providers = new LinkedHashMap<>();
+    providers.put(new Path("/first.jar"), returning(new Path("/first-sources.jar")));
+    providers.put(new Path("/second.jar"), returning(new Path("/second-sources.jar")));
+
+    IStatus status = newJob(providers).run(new NullProgressMonitor());
+    assertTrue(status.isOK());
+    assertEquals(1, sourcedContainers.size());
+    IClasspathEntry[] entries = sourcedContainers.get(0).getClasspathEntries();
+    assertEquals(new Path("/first-sources.jar"), entries[0].getSourceAttachmentPath());
+    assertEquals(new Path("/second-sources.jar"), entries[1].getSourceAttachmentPath());
+  }
+
+  @Test
+  public void testRun_noSources() {
+    Map<IPath, Callable<IPath>> providers = new LinkedHashMap<>();
+    providers.put(new Path("/first.jar"), new Callable<IPath>() {
+      @Override
+      public IPath call() throws Exception {
+        throw new Exception("no sources");
+      }
+    });
+
+    IStatus status = newJob(providers).run(new NullProgressMonitor());
+    assertTrue(status.isOK());
+    assertTrue(sourcedContainers.isEmpty());
+  }
+
+  /** Returns a job for a container of {@code /first.jar} and {@code /second.jar}. */
+  private SourceAttacherJob newJob(Map<IPath, Callable<IPath>> providers) {
+    IClasspathEntry first = JavaCore.newLibraryEntry(new Path("/first.jar"), null, null);
+    IClasspathEntry second = JavaCore.newLibraryEntry(new Path("/second.jar"), null, null);
+    LibraryClasspathContainer container = new LibraryClasspathContainer(new Path("container"),
+        "description", Arrays.asList(first, second), Collections.<LibraryFile>emptyList());
+    return new SourceAttacherJob(container, providers) {
+      @Override
+      protected void sourcesAttached(LibraryClasspathContainer sourcedContainer,
+          IProgressMonitor monitor) {
+        sourcedContainers.add(sourcedContainer);
+      }
+    };
+  }
 
-    LibraryClasspathContainer newContainer = attacherJob.attachSource(invalidContainer);
-    assertNull(newContainer);
+  private static Callable<IPath> returning(final IPath path) {
+    return new Callable<IPath>() {
+      @Override
+      public IPath call() {
+        return path;
+      }
+    };
   }
 }
@@ -16,7 +16,13 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries.model;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -73,4 +79,122 @@ public class CloudLibrariesTest {
     Assert.assertEquals("appengine", library.getGroup());
     Assert.assertEquals("Objectify", library.getName());
   }
+
+  @Test
+  public void testParseClientApis() throws IOException {
+    String json = "[{\"name\": \"Cloud Example\", \"id\": \"example\","
+        + " \"launchStatus\": \"beta\", \"transports\": [\"grpc\"],"
+        + " \"clients\": ["
+        + "  {\"language\": \"python\", \"infotip\": \"Python\"},"
+        + "  {\"language\": \"java\", \"infotip\": \"Java client\","
+        + "   \"mavenCoordinates\": {\"groupId\": \"com.example\","
+        + "     \"artifactId\": \"example\", \"version\": \"1.2\"}}]},"
+        + " {\"id\": \"second\", \"name\": \"Second\", \"transports\": [\"http\"],"
+        + "  \"clients\": []}]";
+    List<Library> libraries = CloudLibraries.parseClientApis(new StringReader(json));
+    Assert.assertEquals(2, libraries.size());
+
+    Library library = libraries.get(0);
+    Assert.assertEquals("example", library.getId());
+    Assert.assertEquals("Cloud Example", library.getName());
+    Assert.assertEquals("clientapis", library.getGroup());
+    Assert.assertEquals("grpc", library.getTransport());
+    Assert.assertEquals("Java client", library.getToolTip());
+    List<LibraryFile> files = library.getDirectDependencies();
+    Assert.assertEquals(1, files.size());
+    MavenCoordinates coordinates = files.get(0).getMavenCoordinates();
+    Assert.assertEquals("com.example", coordinates.getGroupId());
+    Assert.assertEquals("example", coordinates.getArtifactId());
+    Assert.assertEquals("1.2", coordinates.getVersion());
+
+    Assert.assertEquals("second", libraries.get(1).getId());
+    Assert.assertTrue(libraries.get(1).getDirectDependencies().isEmpty());
+  }
+
+  @Test(expected = IOException.class)
+  public void testParseClientApis_malformed() throws IOException {
+    CloudLibraries.parseClientApis(new StringReader("[{\"id\": \"example\""));
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies() {
+    Map<String, Library> map = newLibraries("a", "b", "c", "d");
+    map.get("a").setLibraryDependencies(Arrays.asList("b"));
+    map.get("b").setLibraryDependencies(Arrays.asList("c"));
+    map.get("c").setLibraryDependencies(Arrays.asList("d"));
+
+    CloudLibraries.resolveTransitiveDependencies(map);
+    Assert.assertEquals(Arrays.asList("b", "c", "d"), map.get("a").getLibraryDependencies());
+    Assert.assertEquals(Arrays.asList("c", "d"), map.get("b").getLibraryDependencies());
+    Assert.assertEquals(Arrays.asList("d"), map.get("c").getLibraryDependencies());
+    Assert.assertTrue(map.get("d").getLibraryDependencies().isEmpty());
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies_diamond() {
+    Map<String, Library> map = newLibraries("a", "b", "c", "d");
+    map.get("a").setLibraryDependencies(Arrays.asList("b", "c"));
+    map.get("b").setLibraryDependencies(Arrays.asList("d"));
+    map.get("c").setLibraryDependencies(Arrays.asList("d"));
+
+    CloudLibraries.resolveTransitiveDependencies(map);
+    Assert.assertEquals(Arrays.asList("b", "c", "d"), map.get("a").getLibraryDependencies());
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies_cycle() {
+    Map<String, Library> map = newLibraries("a", "b", "c");
+    map.get("a").setLibraryDependencies(Arrays.asList("b"));
+    map.get("b").setLibraryDependencies(Arrays.asList("c"));
+    map.get("c").setLibraryDependencies(Arrays.asList("a"));
+
+    CloudLibraries.resolveTransitiveDependencies(map);
+    Assert.assertEquals(Arrays.asList("b", "c"), map.get("a").getLibraryDependencies());
+    Assert.assertFalse(map.get("b").getLibraryDependencies().contains("b"));
+    Assert.assertFalse(map.get("c").getLibraryDependencies().contains("c"));
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies_cycleSameClosureInAnyOrder() {
+    for (List<String> order : Arrays.asList(Arrays.asList("a", "b", "c", "d"),
+        Arrays.asList("b", "a", "d", "c"), Arrays.asList("d", "c", "b", "a"))) {
+      Map<String, Library> map = newLibraries(order.toArray(new String[0]));
+      map.get("a").setLibraryDependencies(Arrays.asList("b"));
+      map.get("b").setLibraryDependencies(Arrays.asList("a", "c"));
+      map.get("d").setLibraryDependencies(Arrays.asList("a"));
+
+      CloudLibraries.resolveTransitiveDependencies(map);
+      Assert.assertEquals(Arrays.asList("b", "c"), map.get("a").getLibraryDependencies());
+      Assert.assertEquals(Arrays.asList("a", "c"), map.get("b").getLibraryDependencies());
+      Assert.assertTrue(map.get("c").getLibraryDependencies().isEmpty());
+      Assert.assertEquals(Arrays.asList("a", "b", "c"), map.get("d").getLibraryDependencies());
+    }
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies_selfDependency() {
+    Map<String, Library> map = newLibraries("a", "b");
+    map.get("a").setLibraryDependencies(Arrays.asList("a", "b"));
+
+    CloudLibraries.resolveTransitiveDependencies(map);
+    Assert.assertEquals(Arrays.asList("b"), map.get("a").getLibraryDependencies());
+  }
+
+  @Test
+  public void testResolveTransitiveDependencies_unknownLibrary() {
+    Map<String, Library> map = newLibraries("a");
+    map.get("a").setLibraryDependencies(Arrays.asList("unknown"));
+
+    CloudLibraries.resolveTransitiveDependencies(map);
+    Assert.assertEquals(Collections.singletonList("unknown"),
+        map.get("a").getLibraryDependencies());
+  }
+
+  private static Map<String, Library> newLibraries(String... ids) {
+    Map<String, Library> map = new LinkedHashMap<>();
+    for (String id : ids) {
+      map.put(id, new Library(id));
+    }
+    return map;
+  }
 }
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -117,6 +118,22 @@ public class LibraryTest {
     assertThat(actual.getMavenCoordinates().getArtifactId(), is("artifactId"));
   }
 
+  @Test
+  public void testGetAllDependencies_sameSnapshot() {
+    MavenCoordinates mavenCoordinates =
+        new MavenCoordinates.Builder().setGroupId("groupId").setArtifactId("artifactId").build();
+    library.setLibraryFiles(Arrays.asList(new LibraryFile(mavenCoordinates)));
+    library.setResolved();
+    assertSame(library.getAllDependencies(), library.getAllDependencies());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetAllDependencies_unmodifiable() {
+    library.setResolved();
+    library.getAllDependencies().add(new LibraryFile(
+        new MavenCoordinates.Builder().setGroupId("groupId").setArtifactId("artifactId").build()));
+  }
+
   @Test
   public void testExportDefaultsToTrue() {
     assertTrue(library.isExport());
@@ -199,6 +216,22 @@ public class LibraryTest {
     assertEquals("19.0.3", actual.get(0).getMavenCoordinates().getVersion());
   }
   
+  @Test
+  public void testResolvedDuplicates_sortedByArtifact() {
+    List<LibraryFile> files = new ArrayList<>();
+    files.add(new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("com.google.guava").setArtifactId("guava").setVersion("19.0").build()));
+    files.add(new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("com.google.api").setArtifactId("gax").setVersion("1.0").build()));
+    files.add(new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("com.google.guava").setArtifactId("guava").setVersion("18.0").build()));
+
+    List<LibraryFile> actual = Library.resolveDuplicates(files);
+    assertEquals(2, actual.size());
+    assertEquals("gax", actual.get(0).getMavenCoordinates().getArtifactId());
+    assertEquals("19.0", actual.get(1).getMavenCoordinates().getVersion());
+  }
+
   @Test
   public void testSetExport() {
     library.setExport(false);
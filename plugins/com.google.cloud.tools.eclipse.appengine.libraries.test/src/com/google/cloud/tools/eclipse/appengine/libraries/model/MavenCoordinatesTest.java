@@ -18,6 +18,7 @@ package com.google.cloud.tools.eclipse.appengine.libraries.model;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -167,4 +168,13 @@ public class MavenCoordinatesTest {
     assertTrue(mavenCoordinates.getClassifier().isEmpty());
   }
 
+  @Test
+  public void testGetComparableVersion() {
+    MavenCoordinates older = new MavenCoordinates.Builder()
+        .setGroupId("g").setArtifactId("a").setVersion("19.0.2").build();
+    MavenCoordinates newer = older.toBuilder().setVersion("19.0.10").build();
+    assertSame(older.getComparableVersion(), older.getComparableVersion());
+    assertTrue(newer.getComparableVersion().compareTo(older.getComparableVersion()) > 0);
+  }
+
 }
@@ -178,6 +178,39 @@ public class LibraryClasspathContainerSerializerTest {
     assertEquals(new JsonParser().parse(serializedContainer), new JsonParser().parse(actual));
   }
 
+  @Test
+  public void testSaveContainer_unchangedNotRewritten() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), anyString(),
+        anyBoolean())).thenReturn(stateFilePath);
+    LibraryClasspathContainerSerializer serializer = new LibraryClasspathContainerSerializer(
+        stateLocationProvider, binaryBaseLocationProvider, sourceBaseLocationProvider);
+    serializer.saveContainer(javaProject, container);
+    assertTrue(stateFilePath.toFile().setLastModified(1000));
+
+    serializer.saveContainer(javaProject, container);
+    assertEquals(1000, stateFilePath.toFile().lastModified());
+  }
+
+  @Test
+  public void testSaveAndLoadWorkspaceContainer() throws IOException {
+    final IPath workspaceState = new Path(stateFolder.newFolder().getAbsolutePath());
+    LibraryClasspathContainerSerializer serializer = new LibraryClasspathContainerSerializer(
+        stateLocationProvider, binaryBaseLocationProvider, sourceBaseLocationProvider,
+        new ArtifactBaseLocationProvider() {
+          @Override
+          public IPath getBaseLocation() {
+            return workspaceState;
+          }
+        });
+    assertNull(serializer.loadWorkspaceContainer(new Path(CONTAINER_PATH)));
+
+    serializer.saveWorkspaceContainer(container);
+    LibraryClasspathContainer containerFromFile =
+        serializer.loadWorkspaceContainer(new Path(CONTAINER_PATH));
+    compare(container, containerFromFile);
+  }
+
   @Test
   public void testSaveContainer_nullStateFileLocationNoError() throws IOException, CoreException {
     LibraryClasspathContainerSerializer serializer = new LibraryClasspathContainerSerializer(
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.ArtifactBaseLocationProvider;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryContainerStateLocationProvider;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.apache.maven.artifact.Artifact;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LibraryClasspathContainerResolverServiceTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final MavenCoordinates declared = newCoordinates("1.0");
+  private final MavenCoordinates latest = newCoordinates("2.0");
+  private LibraryClasspathContainerSerializer serializer;
+  private File jar;
+
+  @Before
+  public void setUp() throws IOException {
+    jar = temporaryFolder.newFile("servlet-2.0.jar");
+    final IPath base = new Path(temporaryFolder.getRoot().getAbsolutePath());
+    ArtifactBaseLocationProvider baseLocationProvider = new ArtifactBaseLocationProvider() {
+      @Override
+      public IPath getBaseLocation() {
+        return base;
+      }
+    };
+    serializer = new LibraryClasspathContainerSerializer(
+        mock(LibraryContainerStateLocationProvider.class), baseLocationProvider,
+        baseLocationProvider, baseLocationProvider);
+  }
+
+  @Test
+  public void testResolveLibraryAttachSourcesSync_floatingVersionReusedAfterRestart()
+      throws CoreException {
+    // resolving updates a floating version to the latest release
+    LibraryFile updatedFile = mock(LibraryFile.class);
+    when(updatedFile.getMavenCoordinates()).thenReturn(latest);
+    when(updatedFile.getDeclaredMavenCoordinates()).thenReturn(declared);
+    when(updatedFile.getFilters()).thenReturn(Collections.<Filter>emptyList());
+    Library library = newLibrary(updatedFile);
+    library.setResolved();
+
+    ILibraryRepositoryService repositoryService = mockRepositoryService();
+    LibraryClasspathContainerResolverService service =
+        new LibraryClasspathContainerResolverService(serializer);
+    service.setRepositoryService(repositoryService);
+    IClasspathEntry[] entries = service.resolveLibraryAttachSourcesSync(library);
+    assertEquals(1, entries.length);
+    assertEquals(jar.getAbsolutePath(), entries[0].getPath().toOSString());
+    service.resolveLibraryAttachSourcesSync(library);
+    verify(repositoryService, times(1))
+        .resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class));
+
+    // the definition read in the next session has the declared version again
+    ILibraryRepositoryService restartedRepositoryService = mockRepositoryService();
+    LibraryClasspathContainerResolverService restarted =
+        new LibraryClasspathContainerResolverService(serializer);
+    restarted.setRepositoryService(restartedRepositoryService);
+    entries = restarted.resolveLibraryAttachSourcesSync(newLibrary(new LibraryFile(declared)));
+    assertEquals(1, entries.length);
+    assertEquals(jar.getAbsolutePath(), entries[0].getPath().toOSString());
+    verify(restartedRepositoryService, never())
+        .resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testResolveLibraryAttachSourcesSync_definitionChanged() throws CoreException {
+    Library library = newLibrary(new LibraryFile(declared));
+    library.setResolved();
+    ILibraryRepositoryService repositoryService = mockRepositoryService();
+    LibraryClasspathContainerResolverService service =
+        new LibraryClasspathContainerResolverService(serializer);
+    service.setRepositoryService(repositoryService);
+    service.resolveLibraryAttachSourcesSync(library);
+
+    Library changed = newLibrary(new LibraryFile(newCoordinates("3.0")));
+    changed.setResolved();
+    LibraryClasspathContainerResolverService restarted =
+        new LibraryClasspathContainerResolverService(serializer);
+    restarted.setRepositoryService(repositoryService);
+    restarted.resolveLibraryAttachSourcesSync(changed);
+    verify(repositoryService, times(2))
+        .resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class));
+  }
+
+  private ILibraryRepositoryService mockRepositoryService() throws CoreException {
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getFile()).thenReturn(jar);
+    when(artifact.getVersion()).thenReturn("2.0");
+    ILibraryRepositoryService repositoryService = mock(ILibraryRepositoryService.class);
+    when(repositoryService.resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class)))
+        .thenReturn(artifact);
+    return repositoryService;
+  }
+
+  private static Library newLibrary(LibraryFile libraryFile) {
+    Library library = new Library("servlet-api");
+    library.setLibraryFiles(Arrays.asList(libraryFile));
+    return library;
+  }
+
+  private static MavenCoordinates newCoordinates(String version) {
+    return new MavenCoordinates.Builder().setGroupId("javax.servlet")
+        .setArtifactId("servlet-api").setVersion(version).build();
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.apache.maven.artifact.Artifact;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatcher;
+
+public class LibraryPrefetcherTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ILibraryRepositoryService repositoryService =
+      mock(ILibraryRepositoryService.class);
+  private final LibraryFile guava = newLibraryFile("com.google.guava", "guava");
+  private final LibraryFile gson = newLibraryFile("com.google.code.gson", "gson");
+  private File mirror;
+  private File manifestFile;
+  private File guavaJar;
+
+  @Before
+  public void setUp() throws IOException, CoreException {
+    mirror = temporaryFolder.newFolder("mirror");
+    manifestFile = new File(mirror, LibraryPrefetcher.MANIFEST_FILE_NAME);
+    guavaJar = mockArtifact(guava, "guava jar");
+    mockArtifact(gson, "gson jar");
+  }
+
+  @Test
+  public void testPrefetch_mirror() throws IOException, CoreException {
+    File guavaSources = temporaryFolder.newFile("guava-sources.jar");
+    when(repositoryService.resolveSourceArtifact(eq(guava), eq("1.0"),
+        any(IProgressMonitor.class))).thenReturn(new Path(guavaSources.getAbsolutePath()));
+
+    IStatus status = new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", guava, gson), newLibrary("b", guava)), mirror,
+        manifestFile, new NullProgressMonitor());
+    assertTrue(status.isOK());
+    verify(repositoryService, times(1)).resolveArtifact(eq(guava), any(IProgressMonitor.class));
+
+    assertEquals("guava jar", read(new File(mirror, "com/google/guava/guava/1.0/guava-1.0.jar")));
+    assertEquals("guava pom", read(new File(mirror, "com/google/guava/guava/1.0/guava-1.0.pom")));
+    assertTrue(new File(mirror, "com/google/guava/guava/1.0/guava-1.0-sources.jar").isFile());
+    assertTrue(new File(mirror, "com/google/code/gson/gson/1.0/gson-1.0.jar").isFile());
+    assertTrue(new File(mirror, "com/google/code/gson/gson/1.0/gson-1.0.pom").isFile());
+    assertTrue(read(new File(mirror, "com/google/guava/guava/maven-metadata.xml"))
+        .contains("<release>1.0</release>"));
+
+    JsonArray artifacts = readManifest().getAsJsonArray("artifacts");
+    assertEquals(2, artifacts.size());
+    JsonObject entry = artifacts.get(0).getAsJsonObject();
+    assertEquals("com.google.guava:guava:jar:1.0", entry.get("coordinates").getAsString());
+    assertEquals("com/google/guava/guava/1.0/guava-1.0.jar", entry.get("path").getAsString());
+    assertEquals("com/google/guava/guava/1.0/guava-1.0.pom", entry.get("pomPath").getAsString());
+    assertEquals("com/google/guava/guava/1.0/guava-1.0-sources.jar",
+        entry.get("sourcePath").getAsString());
+    assertEquals(40, entry.get("sha1").getAsString().length());
+    assertFalse(artifacts.get(1).getAsJsonObject().has("sourcePath"));
+  }
+
+  @Test
+  public void testPrefetch_pomNotInLocalRepository() throws IOException, CoreException {
+    File localPom = new File(guavaJar.getParentFile(), "guava-1.0.pom");
+    assertTrue(localPom.delete());
+    File resolvedPom = temporaryFolder.newFile();
+    Files.write(resolvedPom.toPath(), "resolved pom".getBytes(StandardCharsets.UTF_8));
+    Artifact pomArtifact = mock(Artifact.class);
+    when(pomArtifact.getFile()).thenReturn(resolvedPom);
+    when(repositoryService.resolveArtifact(argThat(new ArgumentMatcher<LibraryFile>() {
+      @Override
+      public boolean matches(Object argument) {
+        return "pom".equals(((LibraryFile) argument).getMavenCoordinates().getType());
+      }
+    }), any(IProgressMonitor.class))).thenReturn(pomArtifact);
+
+    IStatus status = new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", guava)), mirror, manifestFile, new NullProgressMonitor());
+    assertTrue(status.isOK());
+    assertEquals("resolved pom",
+        read(new File(mirror, "com/google/guava/guava/1.0/guava-1.0.pom")));
+  }
+
+  @Test
+  public void testPrefetch_changedMirrorFileReplaced() throws IOException {
+    File mirrored = new File(mirror, "com/google/guava/guava/1.0/guava-1.0.jar");
+    assertTrue(mirrored.getParentFile().mkdirs());
+    // same length, different content
+    Files.write(mirrored.toPath(), "guava JAR".getBytes(StandardCharsets.UTF_8));
+
+    new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", guava)), mirror, manifestFile, new NullProgressMonitor());
+    assertEquals("guava jar", read(mirrored));
+  }
+
+  @Test
+  public void testPrefetch_noMirror() throws IOException {
+    IStatus status = new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", guava)), null, manifestFile, new NullProgressMonitor());
+    assertTrue(status.isOK());
+    assertEquals(1, mirror.list().length);  // only the manifest
+
+    JsonObject entry = readManifest().getAsJsonArray("artifacts").get(0).getAsJsonObject();
+    assertTrue(new File(entry.get("path").getAsString()).isAbsolute());
+  }
+
+  @Test
+  public void testPrefetch_failureReportedOthersFetched() throws IOException, CoreException {
+    LibraryFile missing = newLibraryFile("com.example", "missing");
+    when(repositoryService.resolveArtifact(eq(missing), any(IProgressMonitor.class)))
+        .thenThrow(new CoreException(new Status(IStatus.ERROR, "test", "not found")));
+
+    IStatus status = new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", missing, guava)), mirror, manifestFile,
+        new NullProgressMonitor());
+    assertEquals(IStatus.ERROR, status.getSeverity());
+    assertEquals(1, readManifest().getAsJsonArray("artifacts").size());
+    assertTrue(new File(mirror, "com/google/guava/guava/1.0/guava-1.0.jar").isFile());
+  }
+
+  @Test
+  public void testPrefetch_canceled() {
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    IStatus status = new LibraryPrefetcher(repositoryService).prefetch(
+        Arrays.asList(newLibrary("a", guava)), mirror, manifestFile, monitor);
+    assertEquals(IStatus.CANCEL, status.getSeverity());
+  }
+
+  @Test
+  public void testGetRepositoryPath() {
+    MavenCoordinates coordinates = new MavenCoordinates.Builder().setGroupId("com.example")
+        .setArtifactId("a").setType("war").setClassifier("tests").build();
+    assertEquals("com/example/a/2.0/a-2.0-tests.war",
+        LibraryPrefetcher.getRepositoryPath(coordinates, "2.0", coordinates.getClassifier()));
+    assertEquals("com/example/a/2.0/a-2.0-sources.jar",
+        LibraryPrefetcher.getRepositoryPath(coordinates, "2.0", "sources"));
+    assertEquals("com/example/a/2.0/a-2.0.war",
+        LibraryPrefetcher.getRepositoryPath(coordinates, "2.0", null));
+  }
+
+  @Test
+  public void testWriteMetadata() throws IOException {
+    File artifactDirectory = new File(mirror, "com/google/guava/guava");
+    for (String version : Arrays.asList("1.0", "2.0-SNAPSHOT", "1.10")) {
+      File versionDirectory = new File(artifactDirectory, version);
+      assertTrue(versionDirectory.mkdirs());
+      assertTrue(new File(versionDirectory, "guava-" + version + ".pom").createNewFile());
+    }
+    assertTrue(new File(artifactDirectory, "3.0").mkdirs());  // no POM
+
+    File metadataFile = new File(artifactDirectory, "maven-metadata.xml");
+    LibraryPrefetcher.writeMetadata(metadataFile, guava.getMavenCoordinates());
+    String metadata = read(metadataFile);
+    assertTrue(metadata.contains("<groupId>com.google.guava</groupId>"));
+    assertTrue(metadata.contains("<artifactId>guava</artifactId>"));
+    assertTrue(metadata.contains("<latest>2.0-SNAPSHOT</latest>"));
+    assertTrue(metadata.contains("<release>1.10</release>"));
+    assertTrue(metadata.contains("<version>1.0</version>\n"
+        + "      <version>1.10</version>\n"
+        + "      <version>2.0-SNAPSHOT</version>\n"));
+    assertFalse(metadata.contains("3.0"));
+  }
+
+  /** Creates the artifact and its POM in a directory like that of a local Maven repository. */
+  private File mockArtifact(LibraryFile libraryFile, String content)
+      throws IOException, CoreException {
+    String artifactId = libraryFile.getMavenCoordinates().getArtifactId();
+    File directory = temporaryFolder.newFolder(artifactId);
+    File file = new File(directory, artifactId + "-1.0.jar");
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    Files.write(new File(directory, artifactId + "-1.0.pom").toPath(),
+        (artifactId + " pom").getBytes(StandardCharsets.UTF_8));
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getFile()).thenReturn(file);
+    when(artifact.getVersion()).thenReturn("1.0");
+    when(repositoryService.resolveArtifact(eq(libraryFile), any(IProgressMonitor.class)))
+        .thenReturn(artifact);
+    when(repositoryService.resolveSourceArtifact(eq(libraryFile), anyString(),
+        any(IProgressMonitor.class))).thenReturn(null);
+    return file;
+  }
+
+  private JsonObject readManifest() throws IOException {
+    return new JsonParser().parse(read(manifestFile)).getAsJsonObject();
+  }
+
+  private static String read(File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static Library newLibrary(String id, LibraryFile... libraryFiles) {
+    Library library = new Library(id);
+    library.setLibraryFiles(Arrays.asList(libraryFiles));
+    library.setResolved();
+    return library;
+  }
+
+  private static LibraryFile newLibraryFile(String groupId, String artifactId) {
+    return new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId(groupId).setArtifactId(artifactId).setVersion("1.0").build());
+  }
+}
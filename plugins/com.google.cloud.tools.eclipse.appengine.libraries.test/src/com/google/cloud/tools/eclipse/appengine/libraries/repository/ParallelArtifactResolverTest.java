@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.apache.maven.artifact.Artifact;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ParallelArtifactResolverTest {
+
+  private final ILibraryRepositoryService repositoryService =
+      mock(ILibraryRepositoryService.class);
+  private final LibraryFile first = newLibraryFile("first");
+  private final LibraryFile second = newLibraryFile("second");
+
+  @Test
+  public void testResolve() throws CoreException {
+    Artifact firstArtifact = mock(Artifact.class);
+    Artifact secondArtifact = mock(Artifact.class);
+    when(repositoryService.resolveArtifact(eq(first), any(IProgressMonitor.class)))
+        .thenReturn(firstArtifact);
+    when(repositoryService.resolveArtifact(eq(second), any(IProgressMonitor.class)))
+        .thenReturn(secondArtifact);
+
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, null)) {
+      List<Artifact> artifacts =
+          resolver.resolve(Arrays.asList(second, first), new NullProgressMonitor());
+      assertEquals(2, artifacts.size());
+      assertSame(secondArtifact, artifacts.get(0));
+      assertSame(firstArtifact, artifacts.get(1));
+    }
+  }
+
+  @Test
+  public void testResolve_duplicatesResolvedOnce() throws CoreException {
+    when(repositoryService.resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class)))
+        .thenReturn(mock(Artifact.class));
+    LibraryFile duplicate = newLibraryFile("first");
+
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, null)) {
+      resolver.prefetch(Arrays.asList(first, second));
+      List<Artifact> artifacts =
+          resolver.resolve(Arrays.asList(duplicate, first), new NullProgressMonitor());
+      assertSame(artifacts.get(0), artifacts.get(1));
+    }
+    verify(repositoryService, times(2))
+        .resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testResolve_error() throws CoreException {
+    IStatus error = new Status(IStatus.ERROR, "test", "not found");
+    when(repositoryService.resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class)))
+        .thenThrow(new CoreException(error));
+
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, null)) {
+      resolver.resolve(Arrays.asList(first), new NullProgressMonitor());
+      fail();
+    } catch (CoreException ex) {
+      assertSame(error, ex.getStatus());
+    }
+  }
+
+  @Test
+  public void testResolve_canceled() throws CoreException {
+    final CountDownLatch blocked = new CountDownLatch(1);
+    when(repositoryService.resolveArtifact(any(LibraryFile.class), any(IProgressMonitor.class)))
+        .thenAnswer(new Answer<Artifact>() {
+          @Override
+          public Artifact answer(InvocationOnMock invocation) throws InterruptedException {
+            blocked.await();
+            return null;
+          }
+        });
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, monitor)) {
+      resolver.resolve(Arrays.asList(first), monitor);
+      fail();
+    } catch (OperationCanceledException ex) {
+      // expected
+    } finally {
+      blocked.countDown();
+    }
+  }
+
+  @Test
+  public void testGetKey() {
+    MavenCoordinates coordinates = new MavenCoordinates.Builder()
+        .setGroupId("groupId").setArtifactId("artifactId").setVersion("1").build();
+    MavenCoordinates sources = coordinates.toBuilder().setClassifier("sources").build();
+    assertEquals(ParallelArtifactResolver.getKey(coordinates),
+        ParallelArtifactResolver.getKey(coordinates.toBuilder().build()));
+    assertNotEquals(ParallelArtifactResolver.getKey(coordinates),
+        ParallelArtifactResolver.getKey(sources));
+  }
+
+  private static LibraryFile newLibraryFile(String artifactId) {
+    return new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("groupId").setArtifactId(artifactId).setVersion("1").build());
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContainer;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.SharedContainerRegistry.SharedContainer;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedContainerRegistryTest {
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final SharedContainerRegistry registry = new SharedContainerRegistry();
+  private final IPath containerPath = new Path("container/path");
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+  }
+
+  @Test
+  public void testGet_resolvesOnce() throws CoreException, IOException {
+    CountingResolver resolver = new CountingResolver(newSharedContainer(tempFolder.newFile()));
+    SharedContainer first = registry.get("key", resolver, monitor);
+    SharedContainer second = registry.get("key", resolver, monitor);
+    assertSame(first, second);
+    assertEquals(1, resolver.calls);
+    assertTrue(registry.contains("key"));
+  }
+
+  @Test
+  public void testGet_differentKeys() throws CoreException, IOException {
+    SharedContainer first = registry.get("first",
+        new CountingResolver(newSharedContainer(tempFolder.newFile())), monitor);
+    SharedContainer second = registry.get("second",
+        new CountingResolver(newSharedContainer(tempFolder.newFile())), monitor);
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void testGet_jarDeleted() throws CoreException, IOException {
+    File jar = tempFolder.newFile();
+    CountingResolver resolver = new CountingResolver(newSharedContainer(jar));
+    registry.get("key", resolver, monitor);
+    assertTrue(jar.delete());
+
+    assertFalse(registry.contains("key"));
+    registry.get("key", resolver, monitor);
+    assertEquals(2, resolver.calls);
+  }
+
+  @Test
+  public void testGet_failureNotStored() throws CoreException, IOException {
+    final IStatus error = new Status(IStatus.ERROR, "test", "failed");
+    try {
+      registry.get("key", new Callable<SharedContainer>() {
+        @Override
+        public SharedContainer call() throws CoreException {
+          throw new CoreException(error);
+        }
+      }, monitor);
+      fail();
+    } catch (CoreException ex) {
+      assertSame(error, ex.getStatus());
+    }
+    assertFalse(registry.contains("key"));
+  }
+
+  @Test
+  public void testGet_waitCanceled() throws CoreException, IOException, InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final SharedContainer container = newSharedContainer(tempFolder.newFile());
+    resolveInBackground(new Callable<SharedContainer>() {
+      @Override
+      public SharedContainer call() throws InterruptedException {
+        started.countDown();
+        release.await();
+        return container;
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    monitor.setCanceled(true);
+    try {
+      registry.get("key", new CountingResolver(container), monitor);
+      fail();
+    } catch (OperationCanceledException ex) {
+      assertFalse(registry.contains("key"));  // still resolving
+    }
+  }
+
+  @Test
+  public void testGet_canceledResolutionResolvedAgain()
+      throws CoreException, IOException, InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    resolveInBackground(new Callable<SharedContainer>() {
+      @Override
+      public SharedContainer call() throws InterruptedException {
+        started.countDown();
+        release.await();
+        throw new OperationCanceledException();
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException ex) {
+          // release now
+        }
+        release.countDown();
+      }
+    }.start();
+
+    CountingResolver resolver = new CountingResolver(newSharedContainer(tempFolder.newFile()));
+    assertSame(resolver.container, registry.get("key", resolver, monitor));
+    assertEquals(1, resolver.calls);
+  }
+
+  @Test
+  public void testSharedContainer_setContainer() throws IOException {
+    SharedContainer shared = newSharedContainer(tempFolder.newFile());
+    LibraryClasspathContainer sourced = shared.getContainer()
+        .copyWithNewEntries(Collections.<IClasspathEntry>emptyList());
+    IJavaProject javaProject = mock(IJavaProject.class);
+    shared.addProject(javaProject);
+    shared.setContainer(sourced);
+    assertSame(sourced, shared.getContainer());
+    assertEquals(Arrays.asList(javaProject), shared.getProjects());
+  }
+
+  @Test
+  public void testClear() throws CoreException, IOException {
+    registry.get("key", new CountingResolver(newSharedContainer(tempFolder.newFile())), monitor);
+    registry.clear();
+    assertFalse(registry.contains("key"));
+  }
+
+  @Test
+  public void testGetKey() {
+    List<LibraryFile> files = Arrays.asList(newLibraryFile("a", "1"), newLibraryFile("b", "1"));
+    assertEquals(SharedContainerRegistry.getKey(containerPath, "description", files),
+        SharedContainerRegistry.getKey(containerPath, "description",
+            Arrays.asList(newLibraryFile("a", "1"), newLibraryFile("b", "1"))));
+    assertNotEquals(SharedContainerRegistry.getKey(containerPath, "description", files),
+        SharedContainerRegistry.getKey(containerPath, "description",
+            Arrays.asList(newLibraryFile("a", "1"), newLibraryFile("b", "2"))));
+    assertNotEquals(SharedContainerRegistry.getKey(containerPath, "description", files),
+        SharedContainerRegistry.getKey(new Path("other/path"), "description", files));
+  }
+
+  @Test
+  public void testGetKey_sourceUri() throws URISyntaxException {
+    LibraryFile withoutSource = newLibraryFile("a", "1");
+    LibraryFile withSource = newLibraryFile("a", "1");
+    withSource.setSourceUri(new URI("http://example.com/source"));
+    assertNotEquals(
+        SharedContainerRegistry.getKey(containerPath, "description", Arrays.asList(withSource)),
+        SharedContainerRegistry.getKey(containerPath, "description",
+            Arrays.asList(withoutSource)));
+  }
+
+  private SharedContainer newSharedContainer(File jar) {
+    IClasspathEntry entry = mock(IClasspathEntry.class);
+    when(entry.getEntryKind()).thenReturn(IClasspathEntry.CPE_LIBRARY);
+    when(entry.getPath()).thenReturn(new Path(jar.getAbsolutePath()));
+    LibraryClasspathContainer container = new LibraryClasspathContainer(containerPath,
+        "description", Arrays.asList(entry), Collections.<LibraryFile>emptyList());
+    return new SharedContainer(container, Collections.<IPath, Callable<IPath>>emptyMap());
+  }
+
+  /** Starts resolving the container under {@code "key"} with {@code resolver} on a thread. */
+  private void resolveInBackground(final Callable<SharedContainer> resolver) {
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          registry.get("key", resolver, new NullProgressMonitor());
+        } catch (CoreException | OperationCanceledException ex) {
+          // the test checks the effect on other requests
+        }
+      }
+    }.start();
+  }
+
+  private static LibraryFile newLibraryFile(String artifactId, String version) {
+    return new LibraryFile(new MavenCoordinates.Builder()
+        .setGroupId("groupId").setArtifactId(artifactId).setVersion(version).build());
+  }
+
+  private static class CountingResolver implements Callable<SharedContainer> {
+    private final SharedContainer container;
+    private int calls;
+
+    private CountingResolver(SharedContainer container) {
+      this.container = container;
+    }
+
+    @Override
+    public SharedContainer call() {
+      calls++;
+      return container;
+    }
+  }
+}
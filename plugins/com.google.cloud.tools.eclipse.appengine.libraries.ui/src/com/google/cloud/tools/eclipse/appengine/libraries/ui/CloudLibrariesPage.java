@@ -82,6 +82,7 @@ public class CloudLibrariesPage extends WizardPage
     setTitle(Messages.getString("cloud-platform-libraries-title")); //$NON-NLS-1$
     setDescription(Messages.getString("apiclientlibrariespage-description")); //$NON-NLS-1$
     setImageDescriptor(SharedImages.GCP_WIZARD_IMAGE_DESCRIPTOR);
+    CloudLibraries.loadInBackground();
   }
 
   @Override
@@ -54,6 +54,12 @@ public class LibrarySelectorGroup implements ISelectionProvider {
   /** The user's explicitly selected libraries. */
   private final Collection<Library> explicitSelectedLibraries = new HashSet<>();
 
+  /**
+   * The libraries required by the explicitly selected libraries; recomputed when the explicit
+   * selection changes.
+   */
+  private Collection<Library> requiredLibraries = new HashSet<>();
+
   private final Map<Library, Button> libraryButtons = new LinkedHashMap<>();
   private final ListenerList/* <ISelectedChangeListener> */ listeners = new ListenerList/* <> */();
 
@@ -104,13 +110,14 @@ public class LibrarySelectorGroup implements ISelectionProvider {
    */
   public Collection<Library> getSelectedLibraries() {
     Collection<Library> libraries = new HashSet<>(explicitSelectedLibraries);
-    libraries.addAll(getLibraryDependencies());
+    libraries.addAll(requiredLibraries);
     return libraries;
   }
 
   private Collection<Library> getLibraryDependencies() {
     Collection<Library> dependencies = new HashSet<>();
     for (Library library : explicitSelectedLibraries) {
+      // already the transitive closure, see CloudLibraries
       for (String dependencyId : library.getLibraryDependencies()) {
         Library dependency = CloudLibraries.getLibrary(dependencyId);
         if (dependency != null) {
@@ -122,14 +129,14 @@ public class LibrarySelectorGroup implements ISelectionProvider {
   }
 
   private void updateButtons() {
-    Collection<Library> dependencies = getLibraryDependencies();
+    requiredLibraries = getLibraryDependencies();
     for (Entry<Library, Button> entry : libraryButtons.entrySet()) {
       Library thisLibrary = entry.getKey();
       Button button = entry.getValue();
-      boolean shouldCheck =
-          explicitSelectedLibraries.contains(thisLibrary) || dependencies.contains(thisLibrary);
+      boolean shouldCheck = explicitSelectedLibraries.contains(thisLibrary)
+          || requiredLibraries.contains(thisLibrary);
       button.setSelection(shouldCheck);
-      boolean forcedDependency = dependencies.contains(thisLibrary);
+      boolean forcedDependency = requiredLibraries.contains(thisLibrary);
       button.setEnabled(!forcedDependency);
     }
   }
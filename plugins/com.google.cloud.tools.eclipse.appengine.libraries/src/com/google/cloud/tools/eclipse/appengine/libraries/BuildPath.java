@@ -24,6 +24,7 @@ import com.google.cloud.tools.eclipse.usagetracker.AnalyticsEvents;
 import com.google.cloud.tools.eclipse.util.ClasspathUtil;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -216,7 +217,22 @@ public class BuildPath {
         false);
   }
 
-  public static void runContainerResolverJob(IJavaProject javaProject) {
+  /**
+   * Schedules the resolution of all library containers of {@code javaProject}. A resolution of
+   * the project that is still pending or running, and pending resolutions of its single
+   * containers, are superseded by this one.
+   */
+  public static void runContainerResolverJob(final IJavaProject javaProject) {
+    ContainerResolverScheduler.getInstance().schedule(javaProject, null,
+        new Supplier<Job>() {
+          @Override
+          public Job get() {
+            return createContainerResolverJob(javaProject);
+          }
+        });
+  }
+
+  private static Job createContainerResolverJob(IJavaProject javaProject) {
     IEclipseContext context = EclipseContextFactory.getServiceContext(
         FrameworkUtil.getBundle(BuildPath.class).getBundleContext());
     final IEclipseContext childContext =
@@ -230,7 +246,7 @@ public class BuildPath {
         childContext.dispose();
       }
     });
-    job.schedule();
+    return job;
   }
 
   /**
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Schedules the jobs that resolve library containers, so that a burst of requests, e.g., from
+ * toggling libraries in the selector or importing many projects, does not queue many redundant
+ * resolutions.
+ * <p>
+ * Requests name a project and either one of its containers or all of them. A request replaces
+ * an earlier one for the same project and container whose job has not started yet, and cancels
+ * one whose job is running, running again once it has stopped, since the running job may have
+ * read the state that the new request is about. A request for all containers of a project also
+ * replaces the waiting requests for single containers of that project, and a request for a
+ * single container is dropped while one for all containers is waiting.
+ * <p>
+ * Only one job is scheduled at a time, so the progress view shows a single resolution however
+ * many are requested, and they do not compete for the network. The others wait here, in the
+ * order they were requested, and are only created when they are started.
+ */
+class ContainerResolverScheduler {
+
+  private static final ContainerResolverScheduler instance = new ContainerResolverScheduler();
+
+  /** The job that has been scheduled and has not finished yet, or null. */
+  private Job activeJob;
+  private String activeKey;
+  /** Requests waiting for the active job to finish. */
+  private final Map<String, Supplier<Job>> pendingRequests = new LinkedHashMap<>();
+
+  @VisibleForTesting
+  ContainerResolverScheduler() {
+  }
+
+  /** Returns the scheduler shared by all resolutions in the workspace. */
+  static ContainerResolverScheduler getInstance() {
+    return instance;
+  }
+
+  /**
+   * Requests a resolution of {@code containerPath} in {@code project}, superseding any earlier
+   * request for the same container that has not finished.
+   *
+   * @param containerPath the container to resolve, or null to resolve all library containers of
+   *     {@code project}
+   * @param jobFactory creates the job when it is time to run it; it is not called if this request
+   *     is itself superseded before then
+   */
+  synchronized void schedule(IJavaProject project, IPath containerPath,
+      Supplier<Job> jobFactory) {
+    String projectKey = getKey(project, null);
+    if (containerPath == null) {
+      // covers the waiting requests for single containers
+      Iterator<String> keys = pendingRequests.keySet().iterator();
+      while (keys.hasNext()) {
+        String pendingKey = keys.next();
+        if (pendingKey.startsWith(projectKey) && !pendingKey.equals(projectKey)) {
+          keys.remove();
+        }
+      }
+    } else if (pendingRequests.containsKey(projectKey)) {
+      return;  // the waiting request for all containers covers this one
+    }
+    String key = getKey(project, containerPath);
+    // replaces an earlier pending request, keeping its place in line
+    pendingRequests.put(key, jobFactory);
+    if (activeJob == null) {
+      startNextJob();
+    } else if (key.equals(activeKey)) {
+      // a job that has not started is removed right away, and its done() starts the next one
+      activeJob.cancel();
+    }
+  }
+
+  /** Returns the key of the requests for {@code containerPath}, or all containers if null. */
+  private static String getKey(IJavaProject project, IPath containerPath) {
+    String container = containerPath == null ? "" : containerPath.toString(); //$NON-NLS-1$
+    return project.getPath() + "|" + container; //$NON-NLS-1$
+  }
+
+  /** Returns the number of jobs that have been scheduled and have not finished yet. */
+  @VisibleForTesting
+  synchronized int getActiveJobCount() {
+    return activeJob == null ? 0 : 1;
+  }
+
+  /** Returns the number of requests waiting to be scheduled. */
+  @VisibleForTesting
+  synchronized int getPendingRequestCount() {
+    return pendingRequests.size();
+  }
+
+  private synchronized void finished(Job job) {
+    if (activeJob == job) {
+      activeJob = null;
+      activeKey = null;
+    }
+    startNextJob();
+  }
+
+  private void startNextJob() {
+    Iterator<Map.Entry<String, Supplier<Job>>> iterator = pendingRequests.entrySet().iterator();
+    if (activeJob == null && iterator.hasNext()) {
+      Map.Entry<String, Supplier<Job>> request = iterator.next();
+      iterator.remove();
+      start(request.getKey(), request.getValue().get());
+    }
+  }
+
+  private void start(String key, final Job job) {
+    activeJob = job;
+    activeKey = key;
+    job.addJobChangeListener(new JobChangeAdapter() {
+      @Override
+      public void done(IJobChangeEvent event) {
+        finished(job);
+      }
+    });
+    job.schedule();
+  }
+}
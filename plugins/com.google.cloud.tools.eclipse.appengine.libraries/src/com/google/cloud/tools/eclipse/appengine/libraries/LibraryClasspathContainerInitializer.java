@@ -16,15 +16,30 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.CloudLibraries;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
+import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.ClasspathContainerInitializer;
 import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
@@ -37,8 +52,19 @@ import org.eclipse.jdt.core.JavaCore;
  * <p>
  * The container path is expected to be in the form of &lt;value of
  * {@link LibraryClasspathContainer#CONTAINER_PATH_PREFIX}&gt;/&lt;library ID&gt;
+ * <p>
+ * A container that was saved before is restored as it was saved, without contacting any Maven
+ * repository, so that opening a workspace does not wait for dependency resolution. If the library
+ * definitions now ask for artifacts that the saved container lacks, the container is resolved
+ * again in the background. A saved container whose jars are no longer in the local repository is
+ * not restored; it is resolved right away, like a container that was never saved.
  */
 public class LibraryClasspathContainerInitializer extends ClasspathContainerInitializer {
+
+  /** Family of the jobs that resolve restored containers again. */
+  @VisibleForTesting
+  static final Object REFRESH_JOB_FAMILY = new Object();
+
   @Inject
   private LibraryClasspathContainerSerializer serializer;
   @Inject
@@ -73,13 +99,17 @@ public class LibraryClasspathContainerInitializer extends ClasspathContainerInit
     }
     try {
       LibraryClasspathContainer container = serializer.loadContainer(project, containerPath);
-      if (container != null && jarPathsAreValid(container)) {
-        JavaCore.setClasspathContainer(containerPath,
-                                       new IJavaProject[] {project},
-                                       new IClasspathContainer[] {container},
-                                       new NullProgressMonitor());
-      } else {
+      if (container == null || !jarPathsAreValid(container)) {
+        // nothing usable to restore
         resolverService.resolveContainer(project, containerPath, new NullProgressMonitor());
+        return;
+      }
+      JavaCore.setClasspathContainer(containerPath,
+                                     new IJavaProject[] {project},
+                                     new IClasspathContainer[] {container},
+                                     new NullProgressMonitor());
+      if (!containsDefinitions(container, getLibraries(project, containerPath))) {
+        scheduleRefresh(project, containerPath);
       }
     } catch (IOException ex) {
       throw new CoreException(
@@ -99,6 +129,94 @@ public class LibraryClasspathContainerInitializer extends ClasspathContainerInit
     return true;
   }
 
+  /**
+   * Returns the current definitions of the libraries that the container at
+   * {@code containerPath} holds. Unknown libraries are skipped.
+   */
+  private List<Library> getLibraries(IJavaProject project, IPath containerPath)
+      throws IOException, CoreException {
+    List<String> libraryIds = new ArrayList<>();
+    String libraryId = containerPath.segment(1);
+    if (CloudLibraries.MASTER_CONTAINER_ID.equals(libraryId)) {
+      libraryIds.addAll(serializer.loadLibraryIds(project));
+    } else {
+      libraryIds.add(libraryId);
+    }
+    List<Library> libraries = new ArrayList<>();
+    for (String id : libraryIds) {
+      Library library = CloudLibraries.getLibrary(id);
+      if (library != null) {
+        libraries.add(library);
+      }
+    }
+    return libraries;
+  }
+
+  /**
+   * Returns true if {@code container} has every direct dependency of {@code libraries}, in at
+   * least the version that the definition asks for. Only the definitions are consulted, so
+   * newer releases of dependencies with the {@link MavenCoordinates#LATEST_VERSION latest}
+   * version are not noticed.
+   */
+  @VisibleForTesting
+  static boolean containsDefinitions(LibraryClasspathContainer container,
+      Collection<Library> libraries) {
+    Map<String, String> versions = new HashMap<>();
+    for (LibraryFile libraryFile : container.getLibraryFiles()) {
+      MavenCoordinates coordinates = libraryFile.getMavenCoordinates();
+      versions.put(getKey(coordinates), coordinates.getVersion());
+    }
+    for (Library library : libraries) {
+      for (LibraryFile dependency : library.getDirectDependencies()) {
+        MavenCoordinates coordinates = dependency.getMavenCoordinates();
+        String version = versions.get(getKey(coordinates));
+        if (version == null) {
+          return false;
+        }
+        // a newer version may have been pulled in by another library
+        if (!MavenCoordinates.LATEST_VERSION.equals(coordinates.getVersion())
+            && new ComparableVersion(version)
+                .compareTo(new ComparableVersion(coordinates.getVersion())) < 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static String getKey(MavenCoordinates coordinates) {
+    return coordinates.getGroupId() + ":" + coordinates.getArtifactId();
+  }
+
+  private void scheduleRefresh(final IJavaProject project, final IPath containerPath) {
+    ContainerResolverScheduler.getInstance().schedule(project, containerPath,
+        new Supplier<Job>() {
+          @Override
+          public Job get() {
+            return createRefreshJob(project, containerPath);
+          }
+        });
+  }
+
+  private Job createRefreshJob(final IJavaProject project, final IPath containerPath) {
+    Job job = new Job(Messages.getString("AppEngineLibraryContainerResolverJobName")) { //$NON-NLS-1$
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        if (!project.exists()) {
+          return Status.OK_STATUS;
+        }
+        return resolverService.resolveContainer(project, containerPath, monitor);
+      }
+
+      @Override
+      public boolean belongsTo(Object family) {
+        return family == REFRESH_JOB_FAMILY;
+      }
+    };
+    job.setRule(project.getSchedulingRule());
+    return job;
+  }
+
   @Override
   public Object getComparisonID(IPath containerPath, IJavaProject project) {
     // used to collapse duplicate classpath entries; we use the full path to identify libraries
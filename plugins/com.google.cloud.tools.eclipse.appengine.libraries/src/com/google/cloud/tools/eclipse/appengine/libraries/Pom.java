@@ -20,85 +20,80 @@ import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.util.ArtifactRetriever;
+import com.google.cloud.tools.eclipse.util.jobs.BoundedExecutor;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.base.Verify;
 import com.google.common.collect.Iterables;
+import com.google.common.io.CharStreams;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IStatus;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+/**
+ * The dependencies of a {@code pom.xml}. Changes are made as text edits to the dependencies
+ * concerned, so the rest of the file keeps its formatting and comments, and the file is only
+ * written when something changed.
+ */
 class Pom {
 
-  // todo we're doing enough of this we should import or write some utilities
-  private static final DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-  private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-  
-  static {
-    builderFactory.setNamespaceAware(true);
-  }
-  
-  private Document document;
-  private IFile pomFile;
-  
-  private Pom(Document document, IFile pomFile) {
-    this.document = document;
+  private static final Logger logger = Logger.getLogger(Pom.class.getName());
+
+  /**
+   * How long to wait for the latest versions of new dependencies; the declared versions are used
+   * for those that take longer.
+   */
+  @VisibleForTesting
+  static final long VERSION_LOOKUP_TIMEOUT_SECONDS = 10;
+
+  private final IFile pomFile;
+  private PomDependencyIndex index;
+
+  private Pom(IFile pomFile, String text) throws IOException, SAXException {
     this.pomFile = pomFile;
+    setText(text);
   }
 
   static Pom parse(IFile pomFile) throws SAXException, IOException, CoreException {
     Preconditions.checkState(pomFile.exists(), pomFile.getFullPath() + " does not exist");
-    
-    try {
-      DocumentBuilder builder = builderFactory.newDocumentBuilder();
-      Document document = builder.parse(pomFile.getContents());
-      Pom pom = new Pom(document, pomFile);
-      return pom;
-    } catch (ParserConfigurationException ex) {
-      IStatus status = StatusUtil.error(Pom.class, ex.getMessage(), ex);
-      throw new CoreException(status);
+
+    try (Reader reader =
+        new InputStreamReader(pomFile.getContents(), Charset.forName(pomFile.getCharset()))) {
+      return new Pom(pomFile, CharStreams.toString(reader));
     }
   }
 
+  private void setText(String text) throws IOException, SAXException {
+    index = PomDependencyIndex.scan(text);
+  }
+
   /**
    * Select libraries whose artifacts are satisfied by the pom's dependencies.
    */
   public Collection<Library> resolveLibraries(Collection<Library> availableLibraries) {
-    NodeList dependenciesList = document.getElementsByTagName("dependencies");
-    if (dependenciesList.getLength() == 0) {
-      return Collections.emptyList();
-    }
-    final Element dependencies = (Element) dependenciesList.item(0);
-
     Predicate<LibraryFile> dependencyFound = new Predicate<LibraryFile>() {
       @Override
       public boolean apply(LibraryFile libraryFile) {
@@ -106,7 +101,7 @@ class Pom {
         MavenCoordinates coordinates = libraryFile.getMavenCoordinates();
         String groupId = coordinates.getGroupId();
         String artifactId = coordinates.getArtifactId();
-        return dependencyExists(dependencies, groupId, artifactId);
+        return index.contains(groupId, artifactId);
       }
     };
 
@@ -138,73 +133,104 @@ class Pom {
     // m2e-core/org.eclipse.m2e.core.ui/src/org/eclipse/m2e/core/ui/internal/actions/AddDependencyAction.java
     // m2e-core/org.eclipse.m2e.core.ui/src/org/eclipse/m2e/core/ui/internal/editing/AddDependencyOperation.java
     
-    NodeList dependenciesList = document.getElementsByTagName("dependencies");
-    Element dependencies;
-    if (dependenciesList.getLength() > 0) {
-      dependencies = (Element) dependenciesList.item(0);
-    } else {
-      dependencies = document.createElement("dependencies");
+    // look up the versions of all new dependencies at once rather than one after another
+    Map<String, MavenCoordinates> newDependencies = new LinkedHashMap<>();
+    for (Library library : selectedLibraries) {
+      for (LibraryFile artifact : library.getDirectDependencies()) {
+        MavenCoordinates coordinates = artifact.getMavenCoordinates();
+        String key = getKey(coordinates);
+        if (!newDependencies.containsKey(key)
+            && !index.contains(coordinates.getGroupId(), coordinates.getArtifactId())) {
+          newDependencies.put(key, coordinates);
+        }
+      }
     }
+    Map<String, ArtifactVersion> bestVersions = lookUpBestVersions(newDependencies.values(),
+        ArtifactRetriever.DEFAULT, VERSION_LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 
+    Set<String> unused = new HashSet<>();
     if (removedLibraries != null) {
-      removeUnusedDependencies(dependencies, selectedLibraries, removedLibraries);
+      unused = findUnusedDependencies(index.getKeys(), selectedLibraries, removedLibraries);
     }
 
-    for (Library library : selectedLibraries) {
-      for (LibraryFile artifact : library.getDirectDependencies()) {
-        MavenCoordinates coordinates = artifact.getMavenCoordinates();
-        
-        String groupId = coordinates.getGroupId();
-        String artifactId = coordinates.getArtifactId();
-        
-        if (!dependencyExists(dependencies, groupId, artifactId)) {
-          Element dependency = document.createElement("dependency");
-          Element groupIdElement = document.createElement("groupId");
-          groupIdElement.setTextContent(groupId);
-          dependency.appendChild(groupIdElement);
+    // todo latest version may not be needed anymore.
+    List<MavenCoordinates> added = new ArrayList<>();
+    for (MavenCoordinates coordinates : newDependencies.values()) {
+      ArtifactVersion latestVersion = bestVersions.get(getKey(coordinates));
+      if (latestVersion != null) {
+        coordinates = coordinates.toBuilder().setVersion(latestVersion.toString()).build();
+      }
+      added.add(coordinates);
+    }
 
-          Element artifactIdElement = document.createElement("artifactId");
-          artifactIdElement.setTextContent(artifactId);
-          dependency.appendChild(artifactIdElement);
+    if (unused.isEmpty() && added.isEmpty()) {
+      // leave the file alone so m2e has nothing to reload
+      return;
+    }
+    writeText(index.edit(unused, added));
+  }
 
-          String version = coordinates.getVersion();
-          ArtifactVersion latestVersion =
-              ArtifactRetriever.DEFAULT.getBestVersion(groupId, artifactId);
-          if (latestVersion != null) {
-            version = latestVersion.toString(); 
-          }
-          
-          // todo latest version may not be needed anymore.
-          if (!MavenCoordinates.LATEST_VERSION.equals(version)) {
-            Element versionElement = document.createElement("version");
-            versionElement.setTextContent(version);
-            dependency.appendChild(versionElement);
+  /**
+   * Looks up the best versions of {@code coordinates} concurrently on the
+   * {@link BoundedExecutor}, waiting at most {@code timeout} in total.
+   *
+   * @return the versions found in time, keyed by {@code groupId:artifactId}; artifacts that
+   *     are not found or take too long are left out
+   */
+  @VisibleForTesting
+  static Map<String, ArtifactVersion> lookUpBestVersions(Collection<MavenCoordinates> coordinates,
+      final ArtifactRetriever retriever, long timeout, TimeUnit unit) {
+    Map<String, ArtifactVersion> versions = new HashMap<>();
+    if (coordinates.isEmpty()) {
+      return versions;
+    }
+    Map<String, Callable<ArtifactVersion>> lookups = new LinkedHashMap<>();
+    for (final MavenCoordinates coordinate : coordinates) {
+      lookups.put(getKey(coordinate), new Callable<ArtifactVersion>() {
+        @Override
+        public ArtifactVersion call() {
+          return retriever.getBestVersion(coordinate.getGroupId(), coordinate.getArtifactId());
+        }
+      });
+    }
+
+    try {
+      List<String> keys = new ArrayList<>(lookups.keySet());
+      // cancels the lookups that do not finish in time
+      List<Future<ArtifactVersion>> futures =
+          BoundedExecutor.invokeAll(lookups.values(), timeout, unit);
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          ArtifactVersion version = futures.get(i).get();
+          if (version != null) {
+            versions.put(keys.get(i), version);
           }
-          
-          dependencies.appendChild(dependency);
+        } catch (CancellationException ex) {
+          logger.warning("Timed out looking up the latest version of " + keys.get(i));
+        } catch (ExecutionException ex) {
+          logger.log(Level.WARNING, ex.getMessage(), ex.getCause());
         }
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
     }
-    
-    if (dependencies.getParentNode() == null) {
-      document.getDocumentElement().appendChild(dependencies);
-    }
-    
-    try {
-      writeDocument();
-    } catch (TransformerException ex) {
-      throw new CoreException(null);
-    }   
+    return versions;
+  }
+
+  private static String getKey(MavenCoordinates coordinates) {
+    return coordinates.getGroupId() + ":" + coordinates.getArtifactId(); //$NON-NLS-1$
   }
 
   /**
-   * Remove any dependencies that are not required by the currently selected libraries.
+   * Find the dependencies that are not required by the currently selected libraries.
    * 
+   * @param currentDependencies the {@code groupId:artifactId} keys of the pom's dependencies
    * @param selectedLibraries the currently selected libraries
    * @param removedLibraries previously selected libraries
+   * @return the {@code groupId:artifactId} keys of the dependencies to remove
    */
   @VisibleForTesting
-  static void removeUnusedDependencies(Element dependencies,
+  static Set<String> findUnusedDependencies(Set<String> currentDependencies,
       Collection<Library> selectedLibraries,
       Collection<Library> removedLibraries) {
 
@@ -212,89 +238,42 @@ class Pom {
     Set<String> selectedDependencies = new HashSet<>();
     for (Library library : selectedLibraries) {
       for (LibraryFile libraryFile : library.getDirectDependencies()) {
-        MavenCoordinates coordinates = libraryFile.getMavenCoordinates();
-        String encoded = coordinates.getGroupId() + ":" + coordinates.getArtifactId(); //$NON-NLS-1$
-        selectedDependencies.add(encoded);
+        selectedDependencies.add(getKey(libraryFile.getMavenCoordinates()));
       }
     }
-    Verify.verify(selectedDependencies.isEmpty() == selectedLibraries.isEmpty());
-
-    // the currently specified dependencies (group:artifact -> DOM element)
-    Map<String, Node> currentDependencies = new HashMap<>();
-    NodeList children = dependencies.getChildNodes();
-    for (int i = 0; i < children.getLength(); i++) {
-      Node node = children.item(i);
-      if (node.getNodeType() == Node.ELEMENT_NODE) {
-        Element dependency = (Element) node;
-        String groupId = getValue(dependency, "groupId"); //$NON-NLS-1$
-        String artifactId = getValue(dependency, "artifactId"); //$NON-NLS-1$
-        String encoded = groupId + ":" + artifactId; //$NON-NLS-1$
-        currentDependencies.put(encoded, node);
-      }
-    }
-    Verify.verify(currentDependencies.isEmpty() == (dependencies.getChildNodes().getLength() == 0));
 
     // iterate through each library-to-remove and, providing all of its dependencies are
     // present, then remove the dependencies that are not required by any selected library
-    Set<Node> nodesToRemove = new HashSet<>();
+    Set<String> unused = new HashSet<>();
     for (Library library : removedLibraries) {
       // true if all coordinates for this library are found
       boolean allFound = true;
-      Set<Node> libraryNodes = new HashSet<>();
+      Set<String> libraryDependencies = new HashSet<>();
       for (LibraryFile file : library.getDirectDependencies()) {
-        MavenCoordinates coord = file.getMavenCoordinates();
-        String encoded = coord.getGroupId() + ":" + coord.getArtifactId(); //$NON-NLS-1$
-        allFound &= currentDependencies.containsKey(encoded);
+        String encoded = getKey(file.getMavenCoordinates());
+        allFound &= currentDependencies.contains(encoded);
         // if not required by selected libraries then mark for removal
         if (allFound && !selectedDependencies.contains(encoded)) {
-          libraryNodes.add(currentDependencies.get(encoded));
+          libraryDependencies.add(encoded);
         }
       }
       // all library dependencies were found (i.e., the library was previously specified)
       if (allFound) {
         // remove all unnecessary dependencies
-        nodesToRemove.addAll(libraryNodes);
+        unused.addAll(libraryDependencies);
       }
     }
-
-    for (Node node : nodesToRemove) {
-      dependencies.removeChild(node);
-    }
+    return unused;
   }
 
-  private boolean dependencyExists(Element dependencies, String targetGroupId,
-      String targetArtifactId) {
-    
-    NodeList children = dependencies.getChildNodes();
-    for (int i = 0; i < children.getLength(); i++) {
-      Node node = children.item(i);
-      if (node.getNodeType() == Node.ELEMENT_NODE) {
-        Element dependency = (Element) node;
-        String groupId = getValue(dependency, "groupId");
-        String artifactId = getValue(dependency, "artifactId");
-        if (targetGroupId.equals(groupId) && targetArtifactId.equals(artifactId)) {
-          return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private static String getValue(Element dependency, String childName) {
-    NodeList children = dependency.getElementsByTagName(childName);
-    if (children.getLength() > 0) {
-      return children.item(0).getTextContent();
+  private void writeText(String newText) throws CoreException {
+    try {
+      Charset charset = Charset.forName(pomFile.getCharset());
+      InputStream in = new ByteArrayInputStream(newText.getBytes(charset));
+      pomFile.setContents(in, true, true, null);
+      setText(newText);
+    } catch (IOException | SAXException ex) {
+      throw new CoreException(StatusUtil.error(this, "Cannot update " + pomFile, ex));
     }
-    return null;
-  }
-
-  private void writeDocument() throws CoreException, TransformerException {
-    Transformer transformer = transformerFactory.newTransformer();
-    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
-    transformer.transform(new DOMSource(document), new StreamResult(out));
-    InputStream in = new ByteArrayInputStream(out.toByteArray());
-    
-    pomFile.setContents(in, true, true, null);
   }
 }
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.util.XmlParsers;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.escape.Escaper;
+import com.google.common.xml.XmlEscapers;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The dependencies listed in the text of a pom, found in a single scan: which
+ * {@code groupId:artifactId} pairs the first {@code <dependencies>} element holds, and where those
+ * dependencies and the element itself are in the text. The positions let the pom be changed with
+ * text edits that leave everything else, including formatting and comments, as it was.
+ */
+class PomDependencyIndex {
+
+  private static final Escaper escaper = XmlEscapers.xmlContentEscaper();
+
+  private final String text;
+  private final int[] lineStarts;
+  /** Start and end offsets of each dependency, keyed by {@code groupId:artifactId}. */
+  private final ListMultimap<String, int[]> dependencies = LinkedListMultimap.create();
+
+  private int dependenciesStart = -1;
+  private int dependenciesEnd = -1;
+  /** Offset of {@code </dependencies>}, or -1 if the element is empty-tagged or missing. */
+  private int dependenciesCloseTagStart = -1;
+  private int projectCloseTagStart = -1;
+  private String indentUnit = "  "; //$NON-NLS-1$
+
+  private PomDependencyIndex(String text) {
+    this.text = text;
+    lineStarts = findLineStarts(text);
+  }
+
+  static PomDependencyIndex scan(String text) throws IOException, SAXException {
+    PomDependencyIndex index = new PomDependencyIndex(text);
+    XmlParsers.parse(new InputSource(new StringReader(text)), index.new Scanner());
+    return index;
+  }
+
+  static String getKey(String groupId, String artifactId) {
+    return groupId + ":" + artifactId; //$NON-NLS-1$
+  }
+
+  boolean contains(String groupId, String artifactId) {
+    return dependencies.containsKey(getKey(groupId, artifactId));
+  }
+
+  /** Returns the {@code groupId:artifactId} keys of the dependencies. */
+  Set<String> getKeys() {
+    return Collections.unmodifiableSet(dependencies.keySet());
+  }
+
+  /**
+   * Returns the text with the dependencies whose keys are in {@code removed} deleted and a
+   * dependency for each of {@code added} appended, indented like the existing ones. The version
+   * is omitted for {@link MavenCoordinates#LATEST_VERSION}. Text outside the changed dependencies
+   * is left exactly as it was.
+   */
+  String edit(Collection<String> removed, List<MavenCoordinates> added) {
+    List<Edit> edits = new ArrayList<>();
+    for (String key : removed) {
+      for (int[] range : dependencies.get(key)) {
+        edits.add(removal(range[0], range[1]));
+      }
+    }
+    if (!added.isEmpty()) {
+      edits.add(insertion(added));
+    }
+
+    // apply from the end so earlier offsets stay valid; removals before insertions at one offset
+    Collections.sort(edits, new Comparator<Edit>() {
+      @Override
+      public int compare(Edit edit1, Edit edit2) {
+        if (edit1.start != edit2.start) {
+          return Integer.compare(edit2.start, edit1.start);
+        }
+        return Integer.compare(edit2.end, edit1.end);
+      }
+    });
+    StringBuilder result = new StringBuilder(text);
+    for (Edit edit : edits) {
+      result.replace(edit.start, edit.end, edit.replacement);
+    }
+    return result.toString();
+  }
+
+  /** Removes the dependency, with its whole line(s) if nothing else is on them. */
+  private Edit removal(int start, int end) {
+    int lineEnd = end;
+    while (lineEnd < text.length() && isBlank(text.charAt(lineEnd))) {
+      lineEnd++;
+    }
+    boolean endsLine = lineEnd == text.length() || isLineBreak(text.charAt(lineEnd));
+    if (getIndent(start) != null && endsLine) {
+      if (lineEnd < text.length() - 1 && text.charAt(lineEnd) == '\r'
+          && text.charAt(lineEnd + 1) == '\n') {
+        lineEnd += 2;
+      } else if (lineEnd < text.length()) {
+        lineEnd++;
+      }
+      return new Edit(getLineStart(start), lineEnd, "");
+    }
+    return new Edit(start, end, "");
+  }
+
+  private Edit insertion(List<MavenCoordinates> added) {
+    String lineSeparator = text.contains("\r\n") ? "\r\n" : "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+    if (dependenciesCloseTagStart >= 0) {
+      String dependencyIndent = getDependencyIndent();
+      String blocks = formatDependencies(added, dependencyIndent, lineSeparator);
+      if (getIndent(dependenciesCloseTagStart) != null) {
+        // the closing tag is on its own line
+        return new Edit(getLineStart(dependenciesCloseTagStart),
+            getLineStart(dependenciesCloseTagStart), blocks);
+      }
+      return new Edit(dependenciesCloseTagStart, dependenciesCloseTagStart,
+          lineSeparator + blocks + getIndentOrEmpty(dependenciesStart));
+    }
+
+    if (dependenciesStart >= 0) {
+      // <dependencies/>
+      String indent = getIndentOrEmpty(dependenciesStart);
+      String element = "<dependencies>" + lineSeparator //$NON-NLS-1$
+          + formatDependencies(added, indent + indentUnit, lineSeparator)
+          + indent + "</dependencies>"; //$NON-NLS-1$
+      return new Edit(dependenciesStart, dependenciesEnd, element);
+    }
+
+    String element = indentUnit + "<dependencies>" + lineSeparator //$NON-NLS-1$
+        + formatDependencies(added, indentUnit + indentUnit, lineSeparator)
+        + indentUnit + "</dependencies>" + lineSeparator; //$NON-NLS-1$
+    if (getIndent(projectCloseTagStart) != null) {
+      return new Edit(getLineStart(projectCloseTagStart), getLineStart(projectCloseTagStart),
+          element);
+    }
+    return new Edit(projectCloseTagStart, projectCloseTagStart, lineSeparator + element);
+  }
+
+  private String getDependencyIndent() {
+    for (int[] range : dependencies.values()) {
+      String indent = getIndent(range[0]);
+      if (indent != null) {
+        return indent;
+      }
+    }
+    return getIndentOrEmpty(dependenciesCloseTagStart) + indentUnit;
+  }
+
+  private String formatDependencies(List<MavenCoordinates> added, String indent,
+      String lineSeparator) {
+    String childIndent = indent + indentUnit;
+    StringBuilder blocks = new StringBuilder();
+    for (MavenCoordinates coordinates : added) {
+      blocks.append(indent).append("<dependency>").append(lineSeparator); //$NON-NLS-1$
+      appendElement(blocks, childIndent, "groupId", coordinates.getGroupId(), lineSeparator);
+      appendElement(blocks, childIndent, "artifactId", coordinates.getArtifactId(),
+          lineSeparator);
+      if (!MavenCoordinates.LATEST_VERSION.equals(coordinates.getVersion())) {
+        appendElement(blocks, childIndent, "version", coordinates.getVersion(), lineSeparator);
+      }
+      blocks.append(indent).append("</dependency>").append(lineSeparator); //$NON-NLS-1$
+    }
+    return blocks.toString();
+  }
+
+  private static void appendElement(StringBuilder out, String indent, String name, String value,
+      String lineSeparator) {
+    out.append(indent).append('<').append(name).append('>').append(escaper.escape(value))
+        .append("</").append(name).append('>').append(lineSeparator); //$NON-NLS-1$
+  }
+
+  /**
+   * Returns the whitespace between the start of the line and {@code offset}, or null if there is
+   * other text before {@code offset} on the line.
+   */
+  @VisibleForTesting
+  String getIndent(int offset) {
+    int lineStart = getLineStart(offset);
+    for (int i = lineStart; i < offset; i++) {
+      if (!isBlank(text.charAt(i))) {
+        return null;
+      }
+    }
+    return text.substring(lineStart, offset);
+  }
+
+  private String getIndentOrEmpty(int offset) {
+    String indent = getIndent(offset);
+    return indent == null ? "" : indent;
+  }
+
+  private int getLineStart(int offset) {
+    int i = offset;
+    while (i > 0 && !isLineBreak(text.charAt(i - 1))) {
+      i--;
+    }
+    return i;
+  }
+
+  private static boolean isBlank(char c) {
+    return c == ' ' || c == '\t';
+  }
+
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r';
+  }
+
+  private static int[] findLineStarts(String text) {
+    List<Integer> starts = new ArrayList<>();
+    starts.add(0);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+        starts.add(i + 1);
+      }
+    }
+    int[] result = new int[starts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = starts.get(i);
+    }
+    return result;
+  }
+
+  private static class Edit {
+    private final int start;
+    private final int end;
+    private final String replacement;
+
+    private Edit(int start, int end, String replacement) {
+      this.start = start;
+      this.end = end;
+      this.replacement = replacement;
+    }
+  }
+
+  /**
+   * Records the positions of the dependencies. The parser reports the position just after each
+   * tag; the start of a tag is the last {@code <} before that.
+   */
+  private class Scanner extends DefaultHandler {
+    private Locator locator;
+    private int depth;
+    /** Depth of the indexed {@code <dependencies>} while inside it, otherwise -1. */
+    private int dependenciesDepth = -1;
+    private int dependenciesStartTagEnd;
+    private boolean projectChildSeen;
+    private boolean inProject;
+
+    private int dependencyStart;
+    private String groupId;
+    private String artifactId;
+    private StringBuilder characters;
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+      this.locator = locator;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+        Attributes attributes) {
+      depth++;
+      int tagEnd = getOffset();
+      if (depth == 1) {
+        inProject = "project".equals(localName); //$NON-NLS-1$
+      }
+      if (depth == 2 && !projectChildSeen) {
+        projectChildSeen = true;
+        String indent = getIndent(getTagStart(tagEnd));
+        if (indent != null && !indent.isEmpty()) {
+          indentUnit = indent;
+        }
+      }
+      // only /project/dependencies; those of dependencyManagement, profiles and plugins are not
+      // the project's dependencies
+      if (dependenciesStart < 0 && inProject && depth == 2
+          && "dependencies".equals(localName)) { //$NON-NLS-1$
+        dependenciesStart = getTagStart(tagEnd);
+        dependenciesStartTagEnd = tagEnd;
+        dependenciesDepth = depth;
+      } else if (dependenciesDepth > 0 && depth == dependenciesDepth + 1
+          && "dependency".equals(localName)) { //$NON-NLS-1$
+        dependencyStart = getTagStart(tagEnd);
+        groupId = null;
+        artifactId = null;
+      } else if (dependenciesDepth > 0 && depth == dependenciesDepth + 2
+          && ("groupId".equals(localName) || "artifactId".equals(localName))) { //$NON-NLS-1$ //$NON-NLS-2$
+        characters = new StringBuilder();
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (characters != null) {
+        characters.append(ch, start, length);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+      int tagEnd = getOffset();
+      if (characters != null) {
+        if ("groupId".equals(localName)) { //$NON-NLS-1$
+          groupId = characters.toString().trim();
+        } else {
+          artifactId = characters.toString().trim();
+        }
+        characters = null;
+      } else if (dependenciesDepth > 0 && depth == dependenciesDepth + 1
+          && "dependency".equals(localName)) { //$NON-NLS-1$
+        dependencies.put(getKey(groupId, artifactId), new int[] {dependencyStart, tagEnd});
+      } else if (depth == dependenciesDepth) {
+        dependenciesEnd = tagEnd;
+        if (tagEnd != dependenciesStartTagEnd) {
+          dependenciesCloseTagStart = getTagStart(tagEnd);
+        }
+        dependenciesDepth = -1;
+      }
+      if (depth == 1) {
+        projectCloseTagStart = getTagStart(tagEnd);
+      }
+      depth--;
+    }
+
+    private int getOffset() {
+      int line = Math.min(locator.getLineNumber(), lineStarts.length);
+      return Math.min(lineStarts[line - 1] + locator.getColumnNumber() - 1, text.length());
+    }
+
+    private int getTagStart(int tagEnd) {
+      return text.lastIndexOf('<', tagEnd - 1);
+    }
+  }
+}
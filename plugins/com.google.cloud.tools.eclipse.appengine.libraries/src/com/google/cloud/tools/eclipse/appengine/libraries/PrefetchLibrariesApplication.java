@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.CloudLibraries;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryPrefetcher;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.M2RepositoryService;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless application that fetches all Google Cloud libraries and their sources, so that a
+ * machine or CI image can be prepared before any project needs them. Accepts
+ * {@code -mirror <directory>} to also copy the artifacts into a Maven repository layout, and
+ * {@code -manifest <file>} to choose where the manifest goes; it defaults to the mirror
+ * directory, or the working directory without a mirror.
+ */
+public class PrefetchLibrariesApplication implements IApplication {
+
+  private static final Logger logger =
+      Logger.getLogger(PrefetchLibrariesApplication.class.getName());
+
+  private static final Integer EXIT_ERROR = 1;
+
+  @Override
+  public Object start(IApplicationContext context) {
+    String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+    String mirror = getOption(args, "-mirror"); //$NON-NLS-1$
+    String manifest = getOption(args, "-manifest"); //$NON-NLS-1$
+    File mirrorDirectory = mirror == null ? null : new File(mirror);
+    File manifestFile;
+    if (manifest != null) {
+      manifestFile = new File(manifest);
+    } else {
+      manifestFile = new File(mirrorDirectory, LibraryPrefetcher.MANIFEST_FILE_NAME);
+    }
+
+    IStatus status = new LibraryPrefetcher(new M2RepositoryService()).prefetch(
+        CloudLibraries.getAllLibraries(), mirrorDirectory, manifestFile,
+        new NullProgressMonitor());
+    if (!status.isOK()) {
+      logger.log(Level.SEVERE, status.getMessage(), status.getException());
+      for (IStatus child : status.getChildren()) {
+        logger.log(Level.SEVERE, child.getMessage(), child.getException());
+      }
+      return EXIT_ERROR;
+    }
+    logger.info("Wrote " + manifestFile.getAbsolutePath()); //$NON-NLS-1$
+    return EXIT_OK;
+  }
+
+  @Override
+  public void stop() {
+  }
+
+  /** Returns the value following {@code name} in {@code args}, or null if there is none. */
+  @VisibleForTesting
+  static String getOption(String[] args, String name) {
+    if (args == null) {
+      return null;
+    }
+    for (int i = 0; i < args.length - 1; i++) {
+      if (name.equals(args[i])) {
+        return args[i + 1];
+      }
+    }
+    return null;
+  }
+}
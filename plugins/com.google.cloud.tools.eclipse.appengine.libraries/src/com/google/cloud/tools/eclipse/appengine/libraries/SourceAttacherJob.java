@@ -16,69 +16,74 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries;
 
-import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.util.jobs.BoundedExecutor;
 import com.google.common.annotations.VisibleForTesting;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
 
 /**
- * Job to fill in the source attachment path attribute of an {@link IClasspathEntry}.
+ * Job to fill in the source attachment path attribute of the {@link IClasspathEntry}s of a
+ * container.
  * <p>
- * The {@link IPath} referencing the source artifact is provided by a {@link Callable} object. The
- * job will create a new {@link IClasspathEntry} by copying the original and adding the source
- * attachment path. The {@link LibraryClasspathContainer} associated with the container path will
- * also be replaced with a copy that is identical to the original except for the updated
- * {@link IClasspathEntry}s.
+ * The {@link IPath} referencing the source artifact of each library is provided by a
+ * {@link Callable} object; the source artifacts are resolved in parallel on the
+ * {@link BoundedExecutor}. Once they are all resolved, a copy of the container is created that is
+ * identical to the original except that the entries of the libraries have their source
+ * attachment paths, and is passed to {@link #sourcesAttached}, which installs it wherever the
+ * original is used. A container shared by several projects thus has its sources resolved once,
+ * and each classpath changes only once.
  * <p>
  * If the source resolution or setting the source attachment attribute fails, the job will still
  * return {@link Status#OK_STATUS} as this is not considered an error that the user should be
  * notified of.
  */
-public class SourceAttacherJob extends Job {
+public abstract class SourceAttacherJob extends Job {
 
   private static final Logger logger = Logger.getLogger(SourceAttacherJob.class.getName());
 
-  private final IJavaProject javaProject;
-  private final IPath containerPath;
-  private final IPath libraryPath;
-  private final Callable<IPath> sourceArtifactPathProvider;
-  private final LibraryClasspathContainerSerializer serializer;
+  private final LibraryClasspathContainer container;
+  private final Map<IPath, Callable<IPath>> sourceArtifactPathProviders;
 
-  public SourceAttacherJob(IJavaProject javaProject, IPath containerPath, IPath libraryPath,
-                    Callable<IPath> sourceArtifactPathProvider) {
-    super(Messages.getString("SourceAttachmentDownloaderJobName",
-                             javaProject.getProject().getName()));
-    this.javaProject = javaProject;
-    this.containerPath = containerPath;
-    this.libraryPath = libraryPath;
-    this.sourceArtifactPathProvider = sourceArtifactPathProvider;
-    serializer = new LibraryClasspathContainerSerializer();
-    setRule(javaProject.getSchedulingRule());
+  /**
+   * @param sourceArtifactPathProviders for each library path of the container, provides the path
+   *     of its source artifact
+   */
+  public SourceAttacherJob(LibraryClasspathContainer container,
+      Map<IPath, Callable<IPath>> sourceArtifactPathProviders) {
+    super(Messages.getString("SourceAttachmentDownloaderJobName", container.getDescription()));
+    this.container = container;
+    this.sourceArtifactPathProviders = new LinkedHashMap<>(sourceArtifactPathProviders);
   }
 
   @Override
   protected IStatus run(IProgressMonitor monitor) {
     try {
-      IClasspathContainer container = JavaCore.getClasspathContainer(containerPath, javaProject);
-      LibraryClasspathContainer newContainer = attachSource(container);
-
-      if (newContainer != null) {
-        JavaCore.setClasspathContainer(containerPath, new IJavaProject[]{ javaProject },
-            new IClasspathContainer[]{ newContainer }, monitor);
-        serializer.saveContainer(javaProject, newContainer);
+      Map<IPath, IPath> sourceArtifactPaths = resolveSources(monitor);
+      if (sourceArtifactPaths.isEmpty()) {
+        return Status.OK_STATUS;
       }
+      sourcesAttached(attachSource(container, sourceArtifactPaths), monitor);
+    } catch (OperationCanceledException ex) {
+      return Status.CANCEL_STATUS;
     } catch (Exception ex) {
       // it's not needed to be logged normally
       logger.log(Level.FINE, Messages.getString("SourceAttachmentFailed"), ex);
@@ -86,20 +91,63 @@ public class SourceAttacherJob extends Job {
     return Status.OK_STATUS;  // even if it fails, we should not display an error to the user
   }
 
+  /**
+   * Installs {@code sourcedContainer}, the container with sources attached, in place of the
+   * original container.
+   */
+  protected abstract void sourcesAttached(LibraryClasspathContainer sourcedContainer,
+      IProgressMonitor monitor) throws CoreException;
+
+  /**
+   * Resolves the source artifacts in parallel. Libraries whose source artifact cannot be
+   * resolved are left out of the result.
+   *
+   * @return the paths of the source artifacts, keyed by library path
+   * @throws OperationCanceledException if {@code monitor} is canceled
+   */
   @VisibleForTesting
-  LibraryClasspathContainer attachSource(IClasspathContainer container) throws Exception {
-    if (!(container instanceof LibraryClasspathContainer)) {
-      logger.log(Level.FINE, Messages.getString("ContainerClassUnexpected",
-          container.getClass().getName(), LibraryClasspathContainer.class.getName()));
+  Map<IPath, IPath> resolveSources(IProgressMonitor monitor) {
+    SubMonitor progress = SubMonitor.convert(monitor, sourceArtifactPathProviders.size());
+    Map<IPath, IPath> sourceArtifactPaths = new HashMap<>();
+    if (sourceArtifactPathProviders.isEmpty()) {
+      return sourceArtifactPaths;
+    }
+    Map<IPath, Future<IPath>> futures = new LinkedHashMap<>();
+    try {
+      for (Entry<IPath, Callable<IPath>> entry : sourceArtifactPathProviders.entrySet()) {
+        futures.put(entry.getKey(), BoundedExecutor.submit(entry.getValue()));
+      }
+      for (Entry<IPath, Future<IPath>> entry : futures.entrySet()) {
+        IPath sourceArtifactPath = waitFor(entry.getValue(), progress);
+        if (sourceArtifactPath != null) {
+          sourceArtifactPaths.put(entry.getKey(), sourceArtifactPath);
+        }
+        progress.worked(1);
+      }
+      return sourceArtifactPaths;
+    } finally {
+      BoundedExecutor.cancel(futures.values());
+    }
+  }
+
+  private static IPath waitFor(Future<IPath> future, IProgressMonitor monitor) {
+    try {
+      return BoundedExecutor.waitFor(future, monitor);
+    } catch (ExecutionException ex) {
+      // not all artifacts have sources
+      logger.log(Level.FINE, Messages.getString("SourceAttachmentFailed"), ex.getCause());
       return null;
     }
+  }
 
-    LibraryClasspathContainer libraryClasspathContainer = (LibraryClasspathContainer) container;
-    IPath sourceArtifactPath = sourceArtifactPathProvider.call();
+  @VisibleForTesting
+  static LibraryClasspathContainer attachSource(LibraryClasspathContainer container,
+      Map<IPath, IPath> sourceArtifactPaths) {
     List<IClasspathEntry> newClasspathEntries = new ArrayList<>();
 
-    for (IClasspathEntry entry : libraryClasspathContainer.getClasspathEntries()) {
-      if (!entry.getPath().equals(libraryPath)) {
+    for (IClasspathEntry entry : container.getClasspathEntries()) {
+      IPath sourceArtifactPath = sourceArtifactPaths.get(entry.getPath());
+      if (sourceArtifactPath == null) {
         newClasspathEntries.add(entry);
       } else {
         newClasspathEntries.add(JavaCore.newLibraryEntry(
@@ -108,6 +156,6 @@ public class SourceAttacherJob extends Job {
       }
     }
 
-    return libraryClasspathContainer.copyWithNewEntries(newClasspathEntries);
+    return container.copyWithNewEntries(newClasspathEntries);
   }
-}
\ No newline at end of file
+}
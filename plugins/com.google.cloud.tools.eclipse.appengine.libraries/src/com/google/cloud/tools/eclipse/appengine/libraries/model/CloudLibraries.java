@@ -17,22 +17,34 @@
 package com.google.cloud.tools.eclipse.appengine.libraries.model;
 
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
+import com.google.gson.stream.JsonReader;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonString;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.FrameworkUtil;
 
@@ -54,84 +66,219 @@ public class CloudLibraries {
 
   private static final Logger logger = Logger.getLogger(CloudLibraries.class.getName());
 
-  // Note: LibraryFile versions of Libraries in the map can be updated dynamically, e.g., to latest
-  // available release versions.
-  private static final ImmutableMap<String, Library> libraries = loadLibraryDefinitions();
+  private static final AtomicBoolean loadScheduled = new AtomicBoolean();
+
+  /**
+   * Holds the library definitions, which are only loaded when this class is first used. Reading
+   * the plugin registry and {@code libraries.json} is too slow to do whenever
+   * {@link CloudLibraries} is merely referenced, e.g. for its constants.
+   */
+  private static class LibraryTable {
+    // Note: LibraryFile versions of Libraries in the map can be updated dynamically, e.g., to
+    // latest available release versions.
+    private static final ImmutableMap<String, Library> libraries = loadLibraryDefinitions();
+    private static final ImmutableListMultimap<String, Library> librariesByGroup =
+        indexByGroup(libraries.values());
+  }
+
+  /**
+   * Loads the library definitions in a background job, unless that has been done already, so
+   * that a wizard or page about to list the libraries does not read the plugin registry and
+   * {@code libraries.json} on the UI thread. Callers that ask for libraries before the job is
+   * done wait for it to finish.
+   */
+  public static void loadInBackground() {
+    if (loadScheduled.compareAndSet(false, true)) {
+      Job job = new Job("Loading Cloud library definitions") { //$NON-NLS-1$
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+          getAllLibraries();
+          return Status.OK_STATUS;
+        }
+      };
+      job.setSystem(true);
+      job.schedule();
+    }
+  }
 
   /**
    * Returns libraries in the named group.
    */
   public static List<Library> getLibraries(String group) {
-    List<Library> result = new ArrayList<>();
-    for (Library library : libraries.values()) {
-      if (library.getGroup().equals(group)) {
-        result.add(library);
-      }
+    if (group == null) {
+      return new ArrayList<>();
     }
-    return result;
+    return new ArrayList<>(LibraryTable.librariesByGroup.get(group));
+  }
+
+  /**
+   * Returns all known libraries, in every group.
+   */
+  public static List<Library> getAllLibraries() {
+    return new ArrayList<>(LibraryTable.libraries.values());
   }
 
   /**
    * Returns the library with the specified ID, or null if not found.
    */
   public static Library getLibrary(String id) {
-    return libraries.get(id);
+    return LibraryTable.libraries.get(id);
   }
 
   private static List<Library> loadClientApis() {
     Bundle bundle = FrameworkUtil.getBundle(CloudSdk.class);
     URL url = bundle.getResource("/com/google/cloud/tools/libraries/libraries.json");
-    
-    try (InputStream in = url.openStream()) {
-      JsonReader reader = Json.createReader(in); 
-      JsonObject[] apis = reader.readArray().toArray(new JsonObject[0]); 
-      List<Library> clientApis = new ArrayList<>(apis.length);
-      for (JsonObject api : apis) {
-        String name = api.getString("name");
-        String id = api.getString("id");
-        JsonArray transports = api.getJsonArray("transports");
-        Library library = new Library(id);
-        library.setGroup(CLIENT_APIS_GROUP);
-        library.setName(name);
-        // Currently there is exactly one transport per API.
-        // This might or might not change in the future.
-        library.setTransport(transports.getString(0));
-        JsonArray clients = api.getJsonArray("clients");
-        for (JsonObject client : clients.toArray(new JsonObject[0])) {
-          try {
-            JsonString language = client.getJsonString("language");
-            if (language != null && "java".equals(language.getString())) {
-              String toolTip = client.getString("infotip");
-              library.setToolTip(toolTip);
-              JsonObject coordinates = client.getJsonObject("mavenCoordinates");
-              String groupId = coordinates.getString("groupId");
-              String artifactId = coordinates.getString("artifactId");
-              String versionString = coordinates.getString("version");
-  
-              MavenCoordinates mavenCoordinates = new MavenCoordinates.Builder()
-                  .setGroupId(groupId)
-                  .setArtifactId(artifactId)
-                  .setVersion(versionString)
-                  .build();
-              LibraryFile file = new LibraryFile(mavenCoordinates);
-              List<LibraryFile> libraryFiles = new ArrayList<>();
-              libraryFiles.add(file);
-              library.setLibraryFiles(libraryFiles);
-              break;
+
+    try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+      return parseClientApis(reader);
+    } catch (IOException | IllegalStateException ex) {
+      throw new RuntimeException("Could not read libraries.json", ex);
+    }
+  }
+
+  /**
+   * Reads the client API libraries from the contents of {@code libraries.json} one value at a
+   * time, without building a tree of the whole file.
+   */
+  @VisibleForTesting
+  static List<Library> parseClientApis(Reader in) throws IOException {
+    JsonReader reader = new JsonReader(in);
+    List<Library> clientApis = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      clientApis.add(readClientApi(reader));
+    }
+    reader.endArray();
+    return clientApis;
+  }
+
+  private static Library readClientApi(JsonReader reader) throws IOException {
+    String id = null;
+    String name = null;
+    String transport = null;
+    Client javaClient = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "id":
+          id = reader.nextString();
+          break;
+        case "name":
+          name = reader.nextString();
+          break;
+        case "transports":
+          reader.beginArray();
+          // Currently there is exactly one transport per API.
+          // This might or might not change in the future.
+          while (reader.hasNext()) {
+            if (transport == null) {
+              transport = reader.nextString();
+            } else {
+              reader.skipValue();
             }
-          } catch (ClassCastException ex) {
-            logger.log(Level.SEVERE, "Invalid libraries.json");
           }
-        }
-        clientApis.add(library);
+          reader.endArray();
+          break;
+        case "clients":
+          reader.beginArray();
+          while (reader.hasNext()) {
+            Client client = readClient(reader);
+            if (javaClient == null && "java".equals(client.language)) {
+              javaClient = client;
+            }
+          }
+          reader.endArray();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (id == null) {
+      throw new IOException("Library without id in libraries.json");
+    }
+    Library library = new Library(id);
+    library.setGroup(CLIENT_APIS_GROUP);
+    library.setName(name);
+    if (transport != null) {
+      library.setTransport(transport);
+    }
+    if (javaClient != null) {
+      library.setToolTip(javaClient.toolTip);
+      if (javaClient.coordinates != null) {
+        List<LibraryFile> libraryFiles = new ArrayList<>();
+        libraryFiles.add(new LibraryFile(javaClient.coordinates));
+        library.setLibraryFiles(libraryFiles);
+      } else {
+        logger.log(Level.SEVERE, "Invalid libraries.json: no Maven coordinates for " + id);
+      }
+    }
+    return library;
+  }
+
+  private static Client readClient(JsonReader reader) throws IOException {
+    Client client = new Client();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "language":
+          client.language = reader.nextString();
+          break;
+        case "infotip":
+          client.toolTip = reader.nextString();
+          break;
+        case "mavenCoordinates":
+          client.coordinates = readMavenCoordinates(reader);
+          break;
+        default:
+          reader.skipValue();
       }
-      
-      return clientApis;
-    } catch (IOException ex) {
-      throw new RuntimeException("Could not read libraries.json", ex);
     }
+    reader.endObject();
+    return client;
   }
-  
+
+  private static MavenCoordinates readMavenCoordinates(JsonReader reader) throws IOException {
+    MavenCoordinates.Builder builder = new MavenCoordinates.Builder();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "groupId":
+          builder.setGroupId(reader.nextString());
+          break;
+        case "artifactId":
+          builder.setArtifactId(reader.nextString());
+          break;
+        case "version":
+          builder.setVersion(reader.nextString());
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return builder.build();
+  }
+
+  /** The parts of a client entry in {@code libraries.json} that we use. */
+  private static class Client {
+    private String language;
+    private String toolTip;
+    private MavenCoordinates coordinates;
+  }
+
+  private static ImmutableListMultimap<String, Library> indexByGroup(
+      Collection<Library> libraries) {
+    ImmutableListMultimap.Builder<String, Library> builder = ImmutableListMultimap.builder();
+    for (Library library : libraries) {
+      if (library.getGroup() != null) {
+        builder.put(library.getGroup(), library);
+      }
+    }
+    return builder.build();
+  }
+
   private static ImmutableMap<String, Library> loadLibraryDefinitions() {
     IConfigurationElement[] elements = RegistryFactory.getRegistry().getConfigurationElementsFor(
         "com.google.cloud.tools.eclipse.appengine.libraries"); //$NON-NLS-1$
@@ -156,21 +303,120 @@ public class CloudLibraries {
     return map;
   }
 
-  // Only goes one level deeper, which is all we need for now.
-  // Does not recurse.
-  private static void resolveTransitiveDependencies(ImmutableMap<String, Library> map) {
+  /**
+   * Replaces the library dependencies of each library in {@code map} with their transitive
+   * closure, so that a library lists every library it needs, however indirectly. Each closure is
+   * computed once and shared by the libraries that depend on it. The libraries of a dependency
+   * cycle all need each other, so each of them gets the closure of the whole cycle, less itself.
+   * Cycles and unknown library IDs are logged.
+   */
+  @VisibleForTesting
+  static void resolveTransitiveDependencies(Map<String, Library> map) {
+    Map<String, List<String>> closures = new DependencyClosures(map).compute();
     for (Library library : map.values()) {
-      List<String> directDependencies = library.getLibraryDependencies();
-      List<String> transitiveDependencies = Lists.newArrayList(directDependencies);
-      for (String id : directDependencies) {
-        Library dependency = map.get(id);
-        for (String dependencyId : dependency.getLibraryDependencies()) {
-          if (!transitiveDependencies.contains(dependencyId)) {
-            transitiveDependencies.add(dependencyId);
+      library.setLibraryDependencies(closures.get(library.getId()));
+    }
+  }
+
+  /**
+   * Computes the closures of library dependencies one strongly connected component at a time,
+   * using Tarjan's algorithm, which completes each component after the components it depends
+   * on. A component is a single library or a dependency cycle, so the result does not depend on
+   * which library of a cycle is visited first.
+   */
+  private static class DependencyClosures {
+    private final Map<String, Library> map;
+    private final Map<String, List<String>> closures = new HashMap<>();
+    /** The order in which each library was visited. */
+    private final Map<String, Integer> indices = new HashMap<>();
+    /** The lowest index of a library on the stack that each library reaches. */
+    private final Map<String, Integer> lowLinks = new HashMap<>();
+    /** Visited libraries whose component is not complete yet. */
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Set<String> onStack = new HashSet<>();
+
+    private DependencyClosures(Map<String, Library> map) {
+      this.map = map;
+    }
+
+    private Map<String, List<String>> compute() {
+      for (Library library : map.values()) {
+        if (!indices.containsKey(library.getId())) {
+          visit(library);
+        }
+      }
+      return closures;
+    }
+
+    private void visit(Library library) {
+      String id = library.getId();
+      int index = indices.size();
+      indices.put(id, index);
+      lowLinks.put(id, index);
+      stack.push(id);
+      onStack.add(id);
+
+      for (String dependencyId : library.getLibraryDependencies()) {
+        Library dependency = map.get(dependencyId);
+        if (dependency == null) {
+          logger.log(Level.WARNING,
+              id + " depends on unknown library " + dependencyId); //$NON-NLS-1$
+        } else if (!indices.containsKey(dependencyId)) {
+          visit(dependency);
+          lowLinks.put(id, Math.min(lowLinks.get(id), lowLinks.get(dependencyId)));
+        } else if (onStack.contains(dependencyId)) {
+          lowLinks.put(id, Math.min(lowLinks.get(id), indices.get(dependencyId)));
+        }
+      }
+
+      if (lowLinks.get(id) == index) {
+        // id is the first library visited of its component, which is now complete
+        List<Library> component = new ArrayList<>();
+        String memberId;
+        do {
+          memberId = stack.pop();
+          onStack.remove(memberId);
+          component.add(0, map.get(memberId));
+        } while (!memberId.equals(id));
+        closeComponent(component);
+      }
+    }
+
+    /**
+     * Computes the closures of the libraries of {@code component}, whose dependencies outside the
+     * component all have their closures already.
+     */
+    private void closeComponent(List<Library> component) {
+      Set<String> componentClosure = new LinkedHashSet<>();
+      for (Library member : component) {
+        componentClosure.addAll(member.getLibraryDependencies());
+      }
+      for (Library member : component) {
+        for (String dependencyId : member.getLibraryDependencies()) {
+          // null for unknown libraries and for members of the component
+          List<String> closure = closures.get(dependencyId);
+          if (closure != null) {
+            componentClosure.addAll(closure);
           }
         }
       }
-      library.setLibraryDependencies(transitiveDependencies);
+
+      Library first = component.get(0);
+      if (component.size() > 1 || first.getLibraryDependencies().contains(first.getId())) {
+        List<String> memberIds = new ArrayList<>();
+        for (Library member : component) {
+          memberIds.add(member.getId());
+        }
+        logger.log(Level.WARNING, "Library dependency cycle: " + memberIds); //$NON-NLS-1$
+      }
+
+      for (Library member : component) {
+        // a library's own dependencies come first
+        Set<String> dependencyIds = new LinkedHashSet<>(member.getLibraryDependencies());
+        dependencyIds.addAll(componentClosure);
+        dependencyIds.remove(member.getId());
+        closures.put(member.getId(), new ArrayList<>(dependencyIds));
+      }
     }
   }
 }
@@ -22,10 +22,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.eclipse.core.runtime.CoreException;
 
 /**
@@ -41,14 +41,15 @@ public final class Library {
   private String toolTip;
   private URI siteUri;
   private boolean export = true;
-  private List<LibraryFile> transitiveDependencies = null;
-  private List<LibraryFile> directDependencies = Collections.emptyList();
+  // unmodifiable snapshots, replaced rather than changed, so readers need no lock
+  private volatile List<LibraryFile> transitiveDependencies = null;
+  private volatile List<LibraryFile> directDependencies = Collections.emptyList();
   private String group;
   private String javaVersion="1.7";
   private String transport = "http";
 
   // IDs of other libraries that also need to be added to the build path with this library
-  private List<String> libraryDependencies = new ArrayList<>();
+  private List<String> libraryDependencies = Collections.emptyList();
 
   public Library(String id) {
     Preconditions.checkNotNull(id, "id null");
@@ -97,13 +98,23 @@ public final class Library {
 
   /**
    * Returns the complete list of all transitive dependencies for this library.
-   * This can generate large amounts of network traffic.
+   * The first call can generate large amounts of network traffic; later calls return the same
+   * list without locking.
+   *
+   * @return an unmodifiable list
    */
-  public synchronized List<LibraryFile> getAllDependencies() {
-    if (transitiveDependencies == null) {
-      transitiveDependencies = resolveDependencies();
+  public List<LibraryFile> getAllDependencies() {
+    List<LibraryFile> dependencies = transitiveDependencies;
+    if (dependencies == null) {
+      synchronized (this) {
+        dependencies = transitiveDependencies;
+        if (dependencies == null) {
+          dependencies = Collections.unmodifiableList(resolveDependencies());
+          transitiveDependencies = dependencies;
+        }
+      }
     }
-    return new ArrayList<>(transitiveDependencies);
+    return dependencies;
   }
 
   /**
@@ -111,7 +122,7 @@ public final class Library {
    */
   public synchronized void setLibraryFiles(List<LibraryFile> libraryFiles) {
     Preconditions.checkNotNull(libraryFiles);
-    directDependencies = new ArrayList<>(libraryFiles);
+    directDependencies = Collections.unmodifiableList(new ArrayList<>(libraryFiles));
   }
 
   public boolean isExport() {
@@ -123,11 +134,11 @@ public final class Library {
   }
 
   /**
-   * @return list of library IDs that are dependencies of this library
+   * @return unmodifiable list of library IDs that are dependencies of this library
    *     and should be added to the classpath, cannot be <code>null</code>
    */
   public List<String> getLibraryDependencies() {
-    return new ArrayList<>(libraryDependencies);
+    return libraryDependencies;
   }
 
   /**
@@ -136,7 +147,8 @@ public final class Library {
    */
   public void setLibraryDependencies(List<String> libraryDependencies) {
     Preconditions.checkNotNull(libraryDependencies);
-    this.libraryDependencies = new ArrayList<>(libraryDependencies);
+    this.libraryDependencies =
+        Collections.unmodifiableList(new ArrayList<>(libraryDependencies));
   }
 
   /**
@@ -183,7 +195,7 @@ public final class Library {
    * local and remote Maven repos and returns a list of all library files in the
    * transitive dependency graph.
    */
-  private synchronized List<LibraryFile> resolveDependencies() {
+  private List<LibraryFile> resolveDependencies() {
     List<LibraryFile> transitiveDependencies = new ArrayList<>();
     
     for (LibraryFile artifact : directDependencies) {
@@ -212,29 +224,23 @@ public final class Library {
    * @return a new list containing the most recent version of each dependency
    */
   public static List<LibraryFile> resolveDuplicates(List<LibraryFile> dependencies) {
-    TreeMap<String, LibraryFile> map = new TreeMap<>();
+    Map<String, LibraryFile> map = new TreeMap<>();
     for (LibraryFile file : dependencies) {
       MavenCoordinates coordinates = file.getMavenCoordinates();
       String key = coordinates.getGroupId() + ":" + coordinates.getArtifactId();
-      if (map.containsKey(key)) {
-        MavenCoordinates previousCoordinates = map.get(key).getMavenCoordinates();
-        if (newer(coordinates, previousCoordinates)) {
-          map.put(key, file);
-        }
-      } else {
+      LibraryFile previous = map.get(key);
+      if (previous == null || newer(coordinates, previous.getMavenCoordinates())) {
         map.put(key, file);
       }
-      
     }
     return new ArrayList<>(map.values());
   }
 
   private static boolean newer(MavenCoordinates coordinates, MavenCoordinates previousCoordinates) {
     try {
-      ComparableVersion version1 = new ComparableVersion(coordinates.getVersion());
-      ComparableVersion version2 = new ComparableVersion(previousCoordinates.getVersion());
-      
-      return version1.compareTo(version2) > 0;
+      // versions are parsed once per coordinates, not once per comparison
+      return coordinates.getComparableVersion()
+          .compareTo(previousCoordinates.getComparableVersion()) > 0;
     } catch (IllegalArgumentException ex) {
       return false;
     }
@@ -35,6 +35,8 @@ public class LibraryFile implements Comparable<LibraryFile> {
 
   private List<Filter> filters = Collections.emptyList();
   private MavenCoordinates mavenCoordinates;
+  /** The coordinates as defined, which {@link #updateVersion()} leaves alone. */
+  private transient MavenCoordinates declaredMavenCoordinates;
   private URI javadocUri;
   private URI sourceUri;
   private boolean export = true;
@@ -47,12 +49,22 @@ public class LibraryFile implements Comparable<LibraryFile> {
   public LibraryFile(MavenCoordinates mavenCoordinates) {
     Preconditions.checkNotNull(mavenCoordinates, "mavenCoordinates is null");
     this.mavenCoordinates = mavenCoordinates;
+    declaredMavenCoordinates = mavenCoordinates;
   }
 
   public MavenCoordinates getMavenCoordinates() {
     return mavenCoordinates;
   }
 
+  /**
+   * Returns the coordinates of this file as defined, before {@link #updateVersion()} may have
+   * replaced the version with the latest release.
+   */
+  public MavenCoordinates getDeclaredMavenCoordinates() {
+    // not set in instances read back by Gson
+    return declaredMavenCoordinates == null ? mavenCoordinates : declaredMavenCoordinates;
+  }
+
   public List<Filter> getFilters() {
     return new ArrayList<>(filters);
   }
@@ -18,6 +18,7 @@ package com.google.cloud.tools.eclipse.appengine.libraries.model;
 
 import com.google.common.base.Preconditions;
 import java.text.MessageFormat;
+import org.apache.maven.artifact.versioning.ComparableVersion;
 
 /**
  * Describes a Maven artifact.
@@ -34,6 +35,8 @@ public class MavenCoordinates {
   private String version = LATEST_VERSION;
   private String type = JAR_TYPE;
   private String classifier;
+  // parsed on first use; coordinates do not change once built
+  private volatile ComparableVersion comparableVersion;
 
   /**
    * @param groupId the Maven group ID, cannot be <code>null</code>
@@ -57,6 +60,18 @@ public class MavenCoordinates {
     return version;
   }
 
+  /**
+   * @return the version parsed for comparison with other versions, never <code>null</code>
+   */
+  ComparableVersion getComparableVersion() {
+    ComparableVersion parsed = comparableVersion;
+    if (parsed == null) {
+      parsed = new ComparableVersion(version);
+      comparableVersion = parsed;
+    }
+    return parsed;
+  }
+
   /**
    * @return the Maven packaging type, defaults to <code>jar</code>, never <code>null</code>
    */
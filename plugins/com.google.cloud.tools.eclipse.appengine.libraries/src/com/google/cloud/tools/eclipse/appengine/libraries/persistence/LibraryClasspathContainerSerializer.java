@@ -33,6 +33,7 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
@@ -60,9 +61,12 @@ public class LibraryClasspathContainerSerializer {
 
   private static final String CONTAINER_LIBRARY_LIST_FILE_ID = "_libraries"; //$NON-NLS-1$
 
+  private static final String WORKSPACE_CONTAINER_FOLDER = "containers"; //$NON-NLS-1$
+
   private final LibraryContainerStateLocationProvider stateLocationProvider;
   private final ArtifactBaseLocationProvider binaryArtifactBaseLocationProvider;
   private final ArtifactBaseLocationProvider sourceBaseLocationProvider;
+  private final ArtifactBaseLocationProvider workspaceStateLocationProvider;
   private final Gson gson;
 
   public LibraryClasspathContainerSerializer() {
@@ -76,9 +80,24 @@ public class LibraryClasspathContainerSerializer {
       LibraryContainerStateLocationProvider stateLocationProvider,
       ArtifactBaseLocationProvider binaryBaseLocationProvider,
       ArtifactBaseLocationProvider sourceBaseLocationProvider) {
+    this(stateLocationProvider, binaryBaseLocationProvider, sourceBaseLocationProvider,
+        new LibrariesBundleStateLocationProvider());
+  }
+
+  /**
+   * @param workspaceStateLocationProvider where containers that do not belong to a project are
+   *     stored
+   */
+  @VisibleForTesting
+  public LibraryClasspathContainerSerializer(
+      LibraryContainerStateLocationProvider stateLocationProvider,
+      ArtifactBaseLocationProvider binaryBaseLocationProvider,
+      ArtifactBaseLocationProvider sourceBaseLocationProvider,
+      ArtifactBaseLocationProvider workspaceStateLocationProvider) {
     this.stateLocationProvider = stateLocationProvider;
     this.binaryArtifactBaseLocationProvider = binaryBaseLocationProvider;
     this.sourceBaseLocationProvider = sourceBaseLocationProvider;
+    this.workspaceStateLocationProvider = workspaceStateLocationProvider;
     gson = new GsonBuilder().setPrettyPrinting().create();
   }
 
@@ -89,13 +108,17 @@ public class LibraryClasspathContainerSerializer {
       logger.warning("Container state file cannot be created, save failed"); //$NON-NLS-1$
       return;
     }
-    try (Writer out = Files.newBufferedWriter(stateFile.toPath(), StandardCharsets.UTF_8)) {
-      SerializableLibraryClasspathContainer serializableContainer =
-          new SerializableLibraryClasspathContainer(container,
-              binaryArtifactBaseLocationProvider.getBaseLocation(),
-              sourceBaseLocationProvider.getBaseLocation());
-      out.write(gson.toJson(serializableContainer));
+    SerializableLibraryClasspathContainer serializableContainer =
+        new SerializableLibraryClasspathContainer(container,
+            binaryArtifactBaseLocationProvider.getBaseLocation(),
+            sourceBaseLocationProvider.getBaseLocation());
+    byte[] json = gson.toJson(serializableContainer).getBytes(StandardCharsets.UTF_8);
+    // projects sharing a container are often resolved again without any change
+    if (stateFile.length() == json.length
+        && Arrays.equals(json, Files.readAllBytes(stateFile.toPath()))) {
+      return;
     }
+    Files.write(stateFile.toPath(), json);
   }
 
   public LibraryClasspathContainer loadContainer(IJavaProject javaProject, IPath containerPath)
@@ -120,6 +143,52 @@ public class LibraryClasspathContainerSerializer {
     }
   }
 
+  /**
+   * Saves a container that is used by the whole workspace rather than a single project, such as
+   * the resolved entries of a library supplied by a server runtime.
+   */
+  public void saveWorkspaceContainer(LibraryClasspathContainer container) throws IOException {
+    File stateFile = getWorkspaceContainerStateFile(container.getPath().lastSegment());
+    Files.createDirectories(stateFile.getParentFile().toPath());
+    SerializableLibraryClasspathContainer serializableContainer =
+        new SerializableLibraryClasspathContainer(container,
+            binaryArtifactBaseLocationProvider.getBaseLocation(),
+            sourceBaseLocationProvider.getBaseLocation());
+    Files.write(stateFile.toPath(),
+        gson.toJson(serializableContainer).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Loads a container saved with {@link #saveWorkspaceContainer}, or returns null if there is
+   * none.
+   */
+  public LibraryClasspathContainer loadWorkspaceContainer(IPath containerPath)
+      throws IOException {
+    File stateFile = getWorkspaceContainerStateFile(containerPath.lastSegment());
+    if (!stateFile.exists()) {
+      return null;
+    }
+    try (Reader reader =
+        Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      SerializableLibraryClasspathContainer fromJson =
+          gson.fromJson(reader, SerializableLibraryClasspathContainer.class);
+      if (fromJson == null) {
+        return null;
+      }
+      return fromJson.toLibraryClasspathContainer(null /* javaProject */,
+          binaryArtifactBaseLocationProvider.getBaseLocation(),
+          sourceBaseLocationProvider.getBaseLocation());
+    } catch (JsonSyntaxException ex) {
+      logger.log(Level.WARNING, "Invalid content in container state file: " + stateFile, ex); //$NON-NLS-1$
+      return null;
+    }
+  }
+
+  private File getWorkspaceContainerStateFile(String id) {
+    return workspaceStateLocationProvider.getBaseLocation()
+        .append(WORKSPACE_CONTAINER_FOLDER).append(id + ".container").toFile(); //$NON-NLS-1$
+  }
+
   public void resetContainer(IJavaProject javaProject, IPath containerPath)
       throws CoreException {
     // delete the container state cache file since the library list has changed
@@ -26,16 +26,24 @@ import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.SharedContainerRegistry.SharedContainer;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineRuntime;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.maven.artifact.Artifact;
 import org.eclipse.core.runtime.CoreException;
@@ -44,10 +52,10 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IAccessRule;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathContainer;
@@ -70,7 +78,24 @@ public class LibraryClasspathContainerResolverService
 
   private ILibraryRepositoryService repositoryService;
   private LibraryClasspathContainerSerializer serializer;
+  private final SharedContainerRegistry sharedContainers = new SharedContainerRegistry();
+  /** Entries resolved by {@link #resolveLibraryAttachSourcesSync}, keyed by library ID. */
+  private final Map<String, LibraryClasspathContainer> resolvedLibraries =
+      new ConcurrentHashMap<>();
 
+  public LibraryClasspathContainerResolverService() {
+  }
+
+  @VisibleForTesting
+  LibraryClasspathContainerResolverService(LibraryClasspathContainerSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  /**
+   * Resolves all library containers of the project. The artifacts of every container are
+   * requested up front, so downloads for later containers overlap with earlier ones, and an
+   * artifact used by several containers is resolved once.
+   */
   @Override
   public IStatus resolveAll(IJavaProject javaProject, IProgressMonitor monitor) {
     try {
@@ -78,12 +103,32 @@ public class LibraryClasspathContainerResolverService
       IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
       SubMonitor subMonitor = SubMonitor.convert(monitor,
           Messages.getString("TaskResolveLibraries"), //$NON-NLS-1$
-          getTotalWork(rawClasspath));
-      for (IClasspathEntry classpathEntry : rawClasspath) {
-        if (classpathEntry.getPath().segment(0)
-            .equals(LibraryClasspathContainer.CONTAINER_PATH_PREFIX)) {
-          IStatus resolveContainerStatus =
-              resolveContainer(javaProject, classpathEntry.getPath(), subMonitor.newChild(1));
+          2 * getTotalWork(rawClasspath));
+      try (ParallelArtifactResolver resolver =
+          new ParallelArtifactResolver(repositoryService, subMonitor)) {
+        Map<IPath, Library> libraries = new LinkedHashMap<>();
+        for (IClasspathEntry classpathEntry : rawClasspath) {
+          IPath containerPath = classpathEntry.getPath();
+          if (containerPath.segment(0).equals(LibraryClasspathContainer.CONTAINER_PATH_PREFIX)) {
+            try {
+              Library library = getLibrary(javaProject, containerPath, subMonitor.newChild(1));
+              if (library != null && !sharedContainers.contains(SharedContainerRegistry.getKey(
+                  containerPath, getLibraryDescription(library), library.getAllDependencies()))) {
+                resolver.prefetch(library.getAllDependencies());
+              }
+              libraries.put(containerPath, library);
+            } catch (CoreException | IOException ex) {
+              status.add(StatusUtil.error(this,
+                  Messages.getString("TaskResolveContainerError", containerPath), ex));
+            }
+          }
+        }
+        for (Entry<IPath, Library> entry : libraries.entrySet()) {
+          IStatus resolveContainerStatus = resolveContainer(javaProject, entry.getKey(),
+              entry.getValue(), resolver, subMonitor.newChild(1));
+          if (resolveContainerStatus.getSeverity() == IStatus.CANCEL) {
+            return resolveContainerStatus;
+          }
           status.add(resolveContainerStatus);
         }
       }
@@ -103,12 +148,74 @@ public class LibraryClasspathContainerResolverService
           StatusUtil.error(this, Messages.getString("InvalidLibraryId", //$NON-NLS-1$
           libraryId)));
     }
+    return resolveLibraryAttachSourcesSync(library);
+  }
+
+  @VisibleForTesting
+  IClasspathEntry[] resolveLibraryAttachSourcesSync(Library library) throws CoreException {
+    String libraryId = library.getId();
+    LibraryClasspathContainer resolved = getResolvedLibrary(library);
+    if (resolved != null) {
+      return resolved.getClasspathEntries();
+    }
 
     List<IClasspathEntry> resolvedEntries = new ArrayList<>();
     for (LibraryFile libraryFile : library.getAllDependencies()) {
       resolvedEntries.add(resolveLibraryFileAttachSourceSync(libraryFile));
     }
-    return resolvedEntries.toArray(new IClasspathEntry[0]);
+    // the library files identify the definition the entries were resolved from
+    resolved = new LibraryClasspathContainer(
+        new Path(LibraryClasspathContainer.CONTAINER_PATH_PREFIX).append(libraryId),
+        getLibraryDescription(library), resolvedEntries, getDeclaredLibraryFiles(library));
+    resolvedLibraries.put(libraryId, resolved);
+    try {
+      serializer.saveWorkspaceContainer(resolved);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not save resolved library " + libraryId, ex); //$NON-NLS-1$
+    }
+    return resolved.getClasspathEntries();
+  }
+
+  /**
+   * Returns the entries resolved for {@code library} earlier in this session or a previous one,
+   * or null if there are none or they are out of date: the library definition has changed or
+   * some of the jars are gone, e.g. because the local repository has changed.
+   * <p>
+   * The definition is compared as declared. Resolving a library updates the versions of its
+   * files that float to the latest release, which differ from a fresh definition's in the next
+   * session. Such a library keeps the versions it was resolved with, including those of its
+   * transitive dependencies, until its jars are gone, as project containers do.
+   */
+  private LibraryClasspathContainer getResolvedLibrary(Library library) {
+    LibraryClasspathContainer resolved = resolvedLibraries.get(library.getId());
+    if (resolved == null) {
+      try {
+        resolved = serializer.loadWorkspaceContainer(
+            new Path(LibraryClasspathContainer.CONTAINER_PATH_PREFIX).append(library.getId()));
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not load resolved library " + library.getId(), ex); //$NON-NLS-1$
+      }
+    }
+    if (resolved == null
+        || !resolved.getLibraryFiles().equals(getDeclaredLibraryFiles(library))
+        || !SharedContainerRegistry.jarsExist(resolved)) {
+      resolvedLibraries.remove(library.getId());
+      return null;
+    }
+    resolvedLibraries.put(library.getId(), resolved);
+    return resolved;
+  }
+
+  /**
+   * Returns the files of {@code library} with the coordinates they were defined with, which
+   * identify the definition across sessions.
+   */
+  private static List<LibraryFile> getDeclaredLibraryFiles(Library library) {
+    List<LibraryFile> declared = new ArrayList<>();
+    for (LibraryFile libraryFile : library.getDirectDependencies()) {
+      declared.add(new LibraryFile(libraryFile.getDeclaredMavenCoordinates()));
+    }
+    return declared;
   }
 
   @Override
@@ -120,38 +227,65 @@ public class LibraryClasspathContainerResolverService
     
     SubMonitor subMonitor = SubMonitor.convert(monitor, 19);
     
-    try {
-      String libraryId = containerPath.segment(1);
-      Library library = null;
-      if (CloudLibraries.MASTER_CONTAINER_ID.equals(libraryId)) {
-        List<String> referencedIds = serializer.loadLibraryIds(javaProject);
-        List<Library> referencedLibraries = new ArrayList<>();
-        for (String referencedId : referencedIds) {
-          Library referencedLibrary = CloudLibraries.getLibrary(referencedId);
-          if (referencedLibrary != null) {
-            referencedLibraries.add(referencedLibrary);
-          } else {
-            // todo this might deserve a non-OK status
-            logger.severe("Referenced library not found: " + referencedId);
-          }
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, subMonitor)) {
+      Library library = getLibrary(javaProject, containerPath, subMonitor.newChild(9));
+      return resolveContainer(javaProject, containerPath, library, resolver,
+          subMonitor.newChild(10));
+    } catch (CoreException | IOException ex) {
+      return StatusUtil.error(this, Messages.getString("TaskResolveContainerError", containerPath),
+          ex);
+    }
+  }
+
+  /**
+   * Returns the library that the container at {@code containerPath} holds, or null if it is
+   * not known.
+   */
+  private Library getLibrary(IJavaProject javaProject, IPath containerPath,
+      IProgressMonitor monitor) throws CoreException, IOException {
+    String libraryId = containerPath.segment(1);
+    if (CloudLibraries.MASTER_CONTAINER_ID.equals(libraryId)) {
+      List<String> referencedIds = serializer.loadLibraryIds(javaProject);
+      List<Library> referencedLibraries = new ArrayList<>();
+      for (String referencedId : referencedIds) {
+        Library referencedLibrary = CloudLibraries.getLibrary(referencedId);
+        if (referencedLibrary != null) {
+          referencedLibraries.add(referencedLibrary);
+        } else {
+          // todo this might deserve a non-OK status
+          logger.severe("Referenced library not found: " + referencedId);
         }
-        library =
-            BuildPath.collectLibraryFiles(javaProject, referencedLibraries, subMonitor.newChild(9));
-      } else {
-        library = CloudLibraries.getLibrary(libraryId);
       }
+      return BuildPath.collectLibraryFiles(javaProject, referencedLibraries, monitor);
+    } else {
+      return CloudLibraries.getLibrary(libraryId);
+    }
+  }
+
+  private IStatus resolveContainer(IJavaProject javaProject, IPath containerPath,
+      Library library, ParallelArtifactResolver resolver, IProgressMonitor monitor) {
+    SubMonitor subMonitor = SubMonitor.convert(monitor, 10);
+    try {
       if (library != null) {
-        List<Job> sourceAttacherJobs = new ArrayList<>();
-        LibraryClasspathContainer container = resolveLibraryFiles(javaProject, containerPath,
-            library, sourceAttacherJobs, subMonitor.newChild(9));
+        SharedContainer shared =
+            getSharedContainer(containerPath, library, resolver, subMonitor.newChild(9));
+        shared.addProject(javaProject);
+        LibraryClasspathContainer container = shared.getContainer();
         JavaCore.setClasspathContainer(containerPath, new IJavaProject[] {javaProject},
             new IClasspathContainer[] {container}, subMonitor.newChild(1));
         serializer.saveContainer(javaProject, container);
-        for (Job job : sourceAttacherJobs) {
-          job.schedule();
+        // sources may have been attached meanwhile without this project being updated
+        LibraryClasspathContainer sourcedContainer = shared.getContainer();
+        if (sourcedContainer != container) {
+          JavaCore.setClasspathContainer(containerPath, new IJavaProject[] {javaProject},
+              new IClasspathContainer[] {sourcedContainer}, null);
+          serializer.saveContainer(javaProject, sourcedContainer);
         }
       }
       return Status.OK_STATUS;
+    } catch (OperationCanceledException ex) {
+      return Status.CANCEL_STATUS;
     } catch (CoreException | IOException ex) {
       return StatusUtil.error(this, Messages.getString("TaskResolveContainerError", containerPath),
           ex);
@@ -185,21 +319,95 @@ public class LibraryClasspathContainerResolverService
     }
   }
 
-  private LibraryClasspathContainer resolveLibraryFiles(IJavaProject javaProject,
-      IPath containerPath, Library library, List<Job> sourceAttacherJobs, IProgressMonitor monitor)
+  /**
+   * Returns the container for {@code library}, shared with other projects that use the same
+   * library files and resolved only if no project has done so yet.
+   */
+  private SharedContainer getSharedContainer(final IPath containerPath, final Library library,
+      final ParallelArtifactResolver resolver, final IProgressMonitor monitor)
+      throws CoreException {
+    String key = SharedContainerRegistry.getKey(containerPath, getLibraryDescription(library),
+        library.getAllDependencies());
+    return sharedContainers.get(key, new Callable<SharedContainer>() {
+      @Override
+      public SharedContainer call() throws CoreException {
+        return resolveSharedContainer(containerPath, library, resolver, monitor);
+      }
+    }, monitor);
+  }
+
+  /**
+   * Resolves the container for {@code library}, and schedules a job that attaches sources to
+   * it once for all the projects that use it.
+   */
+  private SharedContainer resolveSharedContainer(IPath containerPath, Library library,
+      ParallelArtifactResolver resolver, IProgressMonitor monitor) throws CoreException {
+    Map<IPath, Callable<IPath>> sourceArtifactPathProviders = new LinkedHashMap<>();
+    LibraryClasspathContainer container = resolveLibraryFiles(containerPath, library, resolver,
+        sourceArtifactPathProviders, monitor);
+    final SharedContainer shared = new SharedContainer(container, sourceArtifactPathProviders);
+    if (!sourceArtifactPathProviders.isEmpty()) {
+      new SourceAttacherJob(container, sourceArtifactPathProviders) {
+        @Override
+        protected void sourcesAttached(LibraryClasspathContainer sourcedContainer,
+            IProgressMonitor monitor) throws CoreException {
+          installSourcedContainer(shared, sourcedContainer, monitor);
+        }
+      }.schedule();
+    }
+    return shared;
+  }
+
+  /**
+   * Replaces the container of {@code shared} with {@code sourcedContainer}, both in the registry
+   * and in the projects that still use the original container.
+   */
+  private void installSourcedContainer(SharedContainer shared,
+      LibraryClasspathContainer sourcedContainer, IProgressMonitor monitor)
       throws CoreException {
+    LibraryClasspathContainer original = shared.getContainer();
+    shared.setContainer(sourcedContainer);
+    IPath containerPath = sourcedContainer.getPath();
+    List<IJavaProject> javaProjects = new ArrayList<>();
+    for (IJavaProject javaProject : shared.getProjects()) {
+      // a project may have been given another container since
+      if (javaProject.exists()
+          && JavaCore.getClasspathContainer(containerPath, javaProject) == original) {
+        javaProjects.add(javaProject);
+      }
+    }
+    if (javaProjects.isEmpty()) {
+      return;
+    }
+    IClasspathContainer[] containers = new IClasspathContainer[javaProjects.size()];
+    Arrays.fill(containers, sourcedContainer);
+    JavaCore.setClasspathContainer(containerPath,
+        javaProjects.toArray(new IJavaProject[javaProjects.size()]), containers, monitor);
+    for (IJavaProject javaProject : javaProjects) {
+      try {
+        serializer.saveContainer(javaProject, sourcedContainer);
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not save container of " //$NON-NLS-1$
+            + javaProject.getElementName(), ex);
+      }
+    }
+  }
+
+  private LibraryClasspathContainer resolveLibraryFiles(IPath containerPath, Library library,
+      ParallelArtifactResolver resolver, Map<IPath, Callable<IPath>> sourceArtifactPathProviders,
+      IProgressMonitor monitor) throws CoreException {
     
     List<LibraryFile> libraryFiles = library.getAllDependencies();
     SubMonitor subMonitor = SubMonitor.convert(monitor, libraryFiles.size());
     subMonitor.subTask(Messages.getString("TaskResolveArtifacts", getLibraryDescription(library)));
-    SubMonitor child = subMonitor.newChild(libraryFiles.size());
+    List<Artifact> artifacts =
+        resolver.resolve(libraryFiles, subMonitor.newChild(libraryFiles.size()));
 
     List<IClasspathEntry> entries = new ArrayList<>();
-    for (LibraryFile libraryFile : libraryFiles) {
-      IClasspathEntry newLibraryEntry = resolveLibraryFileAttachSourceAsync(javaProject,
-          containerPath, libraryFile, sourceAttacherJobs, monitor);
+    for (int i = 0; i < libraryFiles.size(); i++) {
+      IClasspathEntry newLibraryEntry = createLibraryEntryAttachSourceAsync(libraryFiles.get(i),
+          artifacts.get(i), sourceArtifactPathProviders);
       entries.add(newLibraryEntry);
-      child.worked(1);
     }
     monitor.done();
     LibraryClasspathContainer container = new LibraryClasspathContainer(
@@ -208,16 +416,13 @@ public class LibraryClasspathContainerResolverService
     return container;
   }
 
-  private IClasspathEntry resolveLibraryFileAttachSourceAsync(IJavaProject javaProject,
-      IPath containerPath, LibraryFile libraryFile, List<Job> sourceAttacherJobs,
-      IProgressMonitor monitor) 
+  private IClasspathEntry createLibraryEntryAttachSourceAsync(LibraryFile libraryFile,
+      Artifact artifact, Map<IPath, Callable<IPath>> sourceArtifactPathProviders)
           throws CoreException {
     
-    Artifact artifact = repositoryService.resolveArtifact(libraryFile, monitor);
     IPath artifactPath = new Path(artifact.getFile().getAbsolutePath());
-    Job job = createSourceAttacherJob(javaProject, containerPath, libraryFile,
-                                      monitor, artifact, artifactPath);
-    sourceAttacherJobs.add(job);
+    sourceArtifactPathProviders.put(artifactPath,
+        createSourceArtifactPathProvider(libraryFile, artifact));
     IClasspathEntry newLibraryEntry =
         JavaCore.newLibraryEntry(artifactPath,
                                  null /* sourceAttachmentPath */,
@@ -228,19 +433,16 @@ public class LibraryClasspathContainerResolverService
     return newLibraryEntry;
   }
 
-  private SourceAttacherJob createSourceAttacherJob(IJavaProject javaProject,
-                                                    IPath containerPath,
-                                                    final LibraryFile libraryFile,
-                                                    final IProgressMonitor monitor,
-                                                    final Artifact artifact,
-                                                    IPath libraryPath) {
-    return new SourceAttacherJob(javaProject, containerPath, libraryPath, new Callable<IPath>() {
+  private Callable<IPath> createSourceArtifactPathProvider(final LibraryFile libraryFile,
+                                                           final Artifact artifact) {
+    return new Callable<IPath>() {
       @Override
       public IPath call() throws Exception {
-          return repositoryService.resolveSourceArtifact(libraryFile, artifact.getVersion(),
-                                                         monitor);
+        // runs on a worker thread of the source attacher job, so it gets its own monitor
+        return repositoryService.resolveSourceArtifact(libraryFile, artifact.getVersion(),
+                                                       new NullProgressMonitor());
       }
-    });
+    };
   }
 
   private IClasspathEntry resolveLibraryFileAttachSourceSync(LibraryFile libraryFile)
@@ -344,6 +546,9 @@ public class LibraryClasspathContainerResolverService
   @Reference
   public void setRepositoryService(ILibraryRepositoryService repositoryService) {
     this.repositoryService = repositoryService;
+    // containers resolved by another repository may not match this one
+    sharedContainers.clear();
+    resolvedLibraries.clear();
   }
 
   public void unsetRepositoryService(ILibraryRepositoryService repositoryService) {
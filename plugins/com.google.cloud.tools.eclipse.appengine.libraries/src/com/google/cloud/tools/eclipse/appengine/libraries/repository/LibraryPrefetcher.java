@@ -0,0 +1,372 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.util.io.AtomicFiles;
+import com.google.cloud.tools.eclipse.util.jobs.BoundedExecutor;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Resolves every binary and source artifact of a set of libraries up front, so that projects
+ * using them later never wait for the network. Artifacts land in the local Maven repository and
+ * the libraries bundle's download folder as usual, and can also be copied into a mirror
+ * directory with the standard Maven repository layout, which can be shared between machines and
+ * used as a {@code file:} repository. The mirror holds the POM of every artifact, so that Maven
+ * can read their dependencies, and a {@code maven-metadata.xml} listing the mirrored versions of
+ * each artifact, so that version ranges and {@code LATEST} resolve against it.
+ * <p>
+ * A JSON manifest lists every artifact with its location and SHA-1 checksum, so that an image
+ * built from the result can be checked for completeness before it is used offline.
+ */
+public class LibraryPrefetcher {
+
+  private static final Logger logger = Logger.getLogger(LibraryPrefetcher.class.getName());
+
+  /** Name of the manifest file written to the mirror directory. */
+  public static final String MANIFEST_FILE_NAME = "cloud-libraries-manifest.json"; //$NON-NLS-1$
+
+  private static final String METADATA_FILE_NAME = "maven-metadata.xml"; //$NON-NLS-1$
+  private static final String POM_TYPE = "pom"; //$NON-NLS-1$
+
+  private final ILibraryRepositoryService repositoryService;
+
+  public LibraryPrefetcher(ILibraryRepositoryService repositoryService) {
+    this.repositoryService = repositoryService;
+  }
+
+  /**
+   * Resolves the artifacts and sources of {@code libraries} and all their transitive
+   * dependencies, and writes a manifest of them to {@code manifestFile}.
+   *
+   * @param mirrorDirectory if not null, the artifacts are also copied into this directory using
+   *     the Maven repository layout, and the manifest paths are relative to it
+   * @return an OK status, {@link Status#CANCEL_STATUS}, or an error listing the artifacts that
+   *     could not be resolved; the others are still fetched and listed in the manifest
+   */
+  public IStatus prefetch(Collection<Library> libraries, File mirrorDirectory, File manifestFile,
+      IProgressMonitor monitor) {
+    Map<String, LibraryFile> libraryFiles = new LinkedHashMap<>();
+    for (Library library : libraries) {
+      for (LibraryFile libraryFile : library.getAllDependencies()) {
+        String key = ParallelArtifactResolver.getKey(libraryFile.getMavenCoordinates());
+        if (!libraryFiles.containsKey(key)) {
+          libraryFiles.put(key, libraryFile);
+        }
+      }
+    }
+
+    SubMonitor progress = SubMonitor.convert(monitor,
+        Messages.getString("TaskPrefetchLibraries"), 3 * libraryFiles.size() + 1); //$NON-NLS-1$
+    MultiStatus status = StatusUtil.multi(this, Messages.getString("TaskPrefetchLibrariesError"));
+    List<ManifestEntry> entries = new ArrayList<>();
+    Map<String, MavenCoordinates> mirrored = new LinkedHashMap<>();
+    try (ParallelArtifactResolver resolver =
+        new ParallelArtifactResolver(repositoryService, progress)) {
+      resolver.prefetch(libraryFiles.values());
+      Map<LibraryFile, Future<IPath>> sources = new LinkedHashMap<>();
+      try {
+        Map<LibraryFile, Artifact> artifacts = new LinkedHashMap<>();
+        for (LibraryFile libraryFile : libraryFiles.values()) {
+          try {
+            Artifact artifact = resolver.resolve(Collections.singletonList(libraryFile),
+                progress.newChild(1)).get(0);
+            artifacts.put(libraryFile, artifact);
+            sources.put(libraryFile, BoundedExecutor.submit(
+                resolveSource(libraryFile, artifact.getVersion(), progress)));
+          } catch (CoreException ex) {
+            status.add(StatusUtil.error(this,
+                Messages.getString("PrefetchArtifactError", toString(libraryFile)), ex));
+          }
+        }
+
+        for (Map.Entry<LibraryFile, Artifact> entry : artifacts.entrySet()) {
+          IPath source = waitFor(sources.get(entry.getKey()), progress.newChild(1));
+          try {
+            entries.add(store(entry.getKey(), entry.getValue(), source, mirrorDirectory,
+                progress.newChild(1)));
+            MavenCoordinates coordinates = entry.getKey().getMavenCoordinates();
+            mirrored.put(coordinates.getGroupId() + ':' + coordinates.getArtifactId(),
+                coordinates);
+          } catch (IOException | CoreException ex) {
+            status.add(StatusUtil.error(this,
+                Messages.getString("PrefetchArtifactError", toString(entry.getKey())), ex));
+          }
+        }
+      } finally {
+        BoundedExecutor.cancel(sources.values());
+      }
+    } catch (OperationCanceledException ex) {
+      return Status.CANCEL_STATUS;
+    }
+
+    if (mirrorDirectory != null) {
+      for (MavenCoordinates coordinates : mirrored.values()) {
+        File metadataFile = getMetadataFile(mirrorDirectory, coordinates);
+        try {
+          writeMetadata(metadataFile, coordinates);
+        } catch (IOException ex) {
+          status.add(StatusUtil.error(this,
+              Messages.getString("PrefetchWriteError", metadataFile), ex));
+        }
+      }
+    }
+    try {
+      writeManifest(entries, manifestFile);
+    } catch (IOException ex) {
+      status.add(StatusUtil.error(this,
+          Messages.getString("PrefetchWriteError", manifestFile), ex));
+    }
+    progress.worked(1);
+    return StatusUtil.filter(status);
+  }
+
+  private Callable<IPath> resolveSource(final LibraryFile libraryFile, final String version,
+      final IProgressMonitor monitor) {
+    return new Callable<IPath>() {
+      @Override
+      public IPath call() throws CoreException {
+        return repositoryService.resolveSourceArtifact(libraryFile, version,
+            BoundedExecutor.cancellationMonitor(monitor));
+      }
+    };
+  }
+
+  /** Returns the source path computed by {@code source}, or null if there is none. */
+  private static IPath waitFor(Future<IPath> source, IProgressMonitor monitor) {
+    try {
+      return BoundedExecutor.waitFor(source, monitor);
+    } catch (ExecutionException ex) {
+      // sources are optional, as they are when attaching them to projects
+      logger.log(Level.WARNING, "Could not fetch sources", ex.getCause()); //$NON-NLS-1$
+      return null;
+    }
+  }
+
+  /**
+   * Copies the artifact, its POM, and its sources into {@code mirrorDirectory}, if there is one,
+   * and returns the manifest entry describing them.
+   */
+  private ManifestEntry store(LibraryFile libraryFile, Artifact artifact, IPath source,
+      File mirrorDirectory, IProgressMonitor monitor) throws IOException, CoreException {
+    MavenCoordinates coordinates = libraryFile.getMavenCoordinates();
+    String version = artifact.getVersion();
+    File file = artifact.getFile();
+    File sourceFile = source == null ? null : source.toFile();
+
+    ManifestEntry entry = new ManifestEntry();
+    entry.coordinates = toString(coordinates, version);
+    entry.sha1 = sha1(file).toString();
+    if (mirrorDirectory == null) {
+      entry.path = file.getAbsolutePath();
+      entry.sourcePath = sourceFile == null ? null : sourceFile.getAbsolutePath();
+    } else {
+      entry.path = getRepositoryPath(coordinates, version, coordinates.getClassifier());
+      copy(file, new File(mirrorDirectory, entry.path));
+      MavenCoordinates pomCoordinates = coordinates.toBuilder()
+          .setType(POM_TYPE).setClassifier(null).setVersion(version).build();
+      entry.pomPath = getRepositoryPath(pomCoordinates, version, null);
+      copy(resolvePom(pomCoordinates, file, monitor), new File(mirrorDirectory, entry.pomPath));
+      if (sourceFile != null && sourceFile.isFile()) {
+        entry.sourcePath = getRepositoryPath(coordinates, version, "sources"); //$NON-NLS-1$
+        copy(sourceFile, new File(mirrorDirectory, entry.sourcePath));
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the POM next to {@code file} in the local repository, where resolving the
+   * dependencies of a library usually leaves it, or else resolves it.
+   */
+  private File resolvePom(MavenCoordinates pomCoordinates, File file, IProgressMonitor monitor)
+      throws CoreException {
+    File pom = new File(file.getParentFile(), pomCoordinates.getArtifactId() + '-'
+        + pomCoordinates.getVersion() + '.' + POM_TYPE);
+    if (pom.isFile()) {
+      return pom;
+    }
+    return repositoryService.resolveArtifact(new LibraryFile(pomCoordinates), monitor).getFile();
+  }
+
+  /**
+   * Returns the path of an artifact relative to the root of a repository with the standard Maven
+   * layout, e.g. {@code com/google/guava/guava/20.0/guava-20.0.jar}.
+   */
+  @VisibleForTesting
+  static String getRepositoryPath(MavenCoordinates coordinates, String version,
+      String classifier) {
+    String type = "sources".equals(classifier) ? "jar" : coordinates.getType();
+    return coordinates.getGroupId().replace('.', '/') + '/' + coordinates.getArtifactId() + '/'
+        + version + '/' + coordinates.getArtifactId() + '-' + version
+        + (Strings.isNullOrEmpty(classifier) ? "" : "-" + classifier) //$NON-NLS-1$ //$NON-NLS-2$
+        + '.' + type;
+  }
+
+  private static File getMetadataFile(File mirrorDirectory, MavenCoordinates coordinates) {
+    return new File(mirrorDirectory, coordinates.getGroupId().replace('.', '/') + '/'
+        + coordinates.getArtifactId() + '/' + METADATA_FILE_NAME);
+  }
+
+  /**
+   * Writes the {@code maven-metadata.xml} of an artifact, listing every version in the mirror
+   * that has a POM, including those mirrored by earlier runs.
+   */
+  @VisibleForTesting
+  static void writeMetadata(File metadataFile, MavenCoordinates coordinates) throws IOException {
+    String artifactId = coordinates.getArtifactId();
+    List<ComparableVersion> versions = new ArrayList<>();
+    File[] versionDirectories = metadataFile.getParentFile().listFiles();
+    if (versionDirectories != null) {
+      for (File directory : versionDirectories) {
+        String version = directory.getName();
+        if (new File(directory, artifactId + '-' + version + '.' + POM_TYPE).isFile()) {
+          versions.add(new ComparableVersion(version));
+        }
+      }
+    }
+    if (versions.isEmpty()) {
+      return;
+    }
+    Collections.sort(versions);
+
+    String latest = versions.get(versions.size() - 1).toString();
+    String release = null;
+    for (ComparableVersion version : versions) {
+      if (!version.toString().endsWith("-SNAPSHOT")) { //$NON-NLS-1$
+        release = version.toString();
+      }
+    }
+    SimpleDateFormat timestamp = new SimpleDateFormat("yyyyMMddHHmmss"); //$NON-NLS-1$
+    timestamp.setTimeZone(TimeZone.getTimeZone("UTC")); //$NON-NLS-1$
+
+    StringBuilder metadata = new StringBuilder();
+    metadata.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<metadata>\n"); //$NON-NLS-1$
+    appendElement(metadata, "  ", "groupId", coordinates.getGroupId()); //$NON-NLS-1$ //$NON-NLS-2$
+    appendElement(metadata, "  ", "artifactId", artifactId); //$NON-NLS-1$ //$NON-NLS-2$
+    metadata.append("  <versioning>\n"); //$NON-NLS-1$
+    appendElement(metadata, "    ", "latest", latest); //$NON-NLS-1$ //$NON-NLS-2$
+    if (release != null) {
+      appendElement(metadata, "    ", "release", release); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    metadata.append("    <versions>\n"); //$NON-NLS-1$
+    for (ComparableVersion version : versions) {
+      appendElement(metadata, "      ", "version", version.toString()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    metadata.append("    </versions>\n"); //$NON-NLS-1$
+    appendElement(metadata, "    ", "lastUpdated", //$NON-NLS-1$ //$NON-NLS-2$
+        timestamp.format(new Date()));
+    metadata.append("  </versioning>\n</metadata>\n"); //$NON-NLS-1$
+    AtomicFiles.write(metadataFile, metadata.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void appendElement(StringBuilder xml, String indent, String name,
+      String value) {
+    xml.append(indent).append('<').append(name).append('>').append(value)
+        .append("</").append(name).append(">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static void copy(File from, File to) throws IOException {
+    if (to.isFile() && sha1(to).equals(sha1(from))) {
+      return;  // already mirrored by an earlier run
+    }
+    File parent = to.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent);
+    }
+    Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static HashCode sha1(File file) throws IOException {
+    return com.google.common.io.Files.hash(file, Hashing.sha1());
+  }
+
+  private static void writeManifest(List<ManifestEntry> entries, File manifestFile)
+      throws IOException {
+    File parent = manifestFile.getAbsoluteFile().getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException("Cannot create " + parent);
+    }
+    Manifest manifest = new Manifest();
+    manifest.artifacts = entries;
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    Files.write(manifestFile.toPath(), gson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String toString(LibraryFile libraryFile) {
+    MavenCoordinates coordinates = libraryFile.getMavenCoordinates();
+    return toString(coordinates, coordinates.getVersion());
+  }
+
+  private static String toString(MavenCoordinates coordinates, String version) {
+    String classifier = coordinates.getClassifier();
+    return coordinates.getGroupId() + ':' + coordinates.getArtifactId() + ':'
+        + coordinates.getType() + (Strings.isNullOrEmpty(classifier) ? "" : ":" + classifier)
+        + ':' + version;
+  }
+
+  /** The JSON form of the manifest. */
+  private static class Manifest {
+    private List<ManifestEntry> artifacts;
+  }
+
+  private static class ManifestEntry {
+    private String coordinates;
+    private String path;
+    private String sha1;
+    private String pomPath;
+    private String sourcePath;
+  }
+}
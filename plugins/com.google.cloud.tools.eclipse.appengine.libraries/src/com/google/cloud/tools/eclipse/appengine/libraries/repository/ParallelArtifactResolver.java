@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.util.jobs.BoundedExecutor;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.apache.maven.artifact.Artifact;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Resolves the artifacts of {@link LibraryFile}s on the {@link BoundedExecutor}, so that
+ * downloads from the remote repositories overlap. Each distinct artifact is resolved once per
+ * resolver, however many library files or containers ask for it.
+ * <p>
+ * A resolver is meant for one operation and must be {@link #close() closed} when done.
+ */
+class ParallelArtifactResolver implements AutoCloseable {
+
+  private final ILibraryRepositoryService repositoryService;
+  private final IProgressMonitor workerMonitor;
+  private final Map<String, Future<Artifact>> artifacts = new HashMap<>();
+
+  /**
+   * @param monitor the monitor of the whole operation; the workers stop when it is canceled
+   */
+  ParallelArtifactResolver(ILibraryRepositoryService repositoryService,
+      IProgressMonitor monitor) {
+    this.repositoryService = repositoryService;
+    workerMonitor = BoundedExecutor.cancellationMonitor(monitor);
+  }
+
+  /**
+   * Starts resolving the artifacts of {@code libraryFiles} that have not been requested yet,
+   * without waiting for them.
+   */
+  synchronized void prefetch(Collection<LibraryFile> libraryFiles) {
+    for (final LibraryFile libraryFile : libraryFiles) {
+      String key = getKey(libraryFile.getMavenCoordinates());
+      if (!artifacts.containsKey(key)) {
+        artifacts.put(key, BoundedExecutor.submit(new Callable<Artifact>() {
+          @Override
+          public Artifact call() throws CoreException {
+            if (workerMonitor.isCanceled()) {
+              throw new OperationCanceledException();
+            }
+            return repositoryService.resolveArtifact(libraryFile, workerMonitor);
+          }
+        }));
+      }
+    }
+  }
+
+  /**
+   * Returns the artifacts of {@code libraryFiles}, in the same order, waiting for those still
+   * being resolved.
+   *
+   * @throws CoreException if an artifact cannot be resolved
+   * @throws OperationCanceledException if {@code monitor} is canceled while waiting
+   */
+  List<Artifact> resolve(List<LibraryFile> libraryFiles, IProgressMonitor monitor)
+      throws CoreException {
+    prefetch(libraryFiles);
+    SubMonitor progress = SubMonitor.convert(monitor, libraryFiles.size());
+    List<Artifact> resolved = new ArrayList<>(libraryFiles.size());
+    for (LibraryFile libraryFile : libraryFiles) {
+      Future<Artifact> artifact;
+      synchronized (this) {
+        artifact = artifacts.get(getKey(libraryFile.getMavenCoordinates()));
+      }
+      resolved.add(waitFor(artifact, progress));
+      progress.worked(1);
+    }
+    return resolved;
+  }
+
+  private Artifact waitFor(Future<Artifact> artifact, IProgressMonitor monitor)
+      throws CoreException {
+    try {
+      return BoundedExecutor.waitFor(artifact, monitor);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof CoreException) {
+        throw (CoreException) cause;
+      } else if (cause instanceof OperationCanceledException) {
+        throw (OperationCanceledException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CoreException(StatusUtil.error(this, cause.getMessage(), cause));
+    }
+  }
+
+  /**
+   * Cancels the resolutions that have not finished; their artifacts are abandoned.
+   */
+  @Override
+  public synchronized void close() {
+    BoundedExecutor.cancel(artifacts.values());
+  }
+
+  @VisibleForTesting
+  static String getKey(MavenCoordinates coordinates) {
+    return coordinates.getRepository() + '|' + coordinates.getGroupId() + ':'
+        + coordinates.getArtifactId() + ':' + coordinates.getType() + ':'
+        + coordinates.getClassifier() + ':' + coordinates.getVersion();
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContainer;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.util.jobs.BoundedExecutor;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+
+/**
+ * Library containers resolved in this session, shared by all projects in the workspace that use
+ * the same libraries. Projects with the same library set get the same, immutable container
+ * instance, so its artifacts are resolved once and its classpath entries are held in memory once.
+ * <p>
+ * Containers are keyed by their path and the exact library files, including versions, filters,
+ * and export flags, that their entries are created from. A container is resolved again if any of
+ * its jars has been deleted from the local repository.
+ * <p>
+ * Requests wait for a resolution in progress only as long as their progress monitor is not
+ * canceled.
+ */
+class SharedContainerRegistry {
+
+  private final ConcurrentMap<String, FutureTask<SharedContainer>> containers =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the container stored under {@code key}, calling {@code resolver} to create it if there
+   * is none or it is no longer valid. Concurrent requests for the same key wait for a single
+   * resolution, which runs on the thread of the first request. If that resolution is canceled,
+   * a waiting request resolves the container itself.
+   *
+   * @throws CoreException if {@code resolver} fails
+   * @throws OperationCanceledException if {@code monitor} is canceled, while resolving or while
+   *     waiting for another request's resolution
+   */
+  SharedContainer get(String key, Callable<SharedContainer> resolver, IProgressMonitor monitor)
+      throws CoreException {
+    while (true) {
+      FutureTask<SharedContainer> resolution = containers.get(key);
+      if (resolution != null && resolution.isDone() && !isValid(resolution)) {
+        containers.remove(key, resolution);
+        continue;
+      }
+      boolean resolving = false;
+      if (resolution == null) {
+        FutureTask<SharedContainer> newResolution = new FutureTask<>(resolver);
+        resolution = containers.putIfAbsent(key, newResolution);
+        if (resolution == null) {
+          resolution = newResolution;
+          resolving = true;
+          newResolution.run();
+        }
+      }
+      try {
+        return BoundedExecutor.waitFor(resolution, monitor);
+      } catch (ExecutionException ex) {
+        // failures are not stored
+        containers.remove(key, resolution);
+        Throwable cause = ex.getCause();
+        if (cause instanceof OperationCanceledException && !resolving) {
+          continue;  // the request we were waiting for was canceled
+        } else if (cause instanceof CoreException) {
+          throw (CoreException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new CoreException(StatusUtil.error(this, cause.getMessage(), cause));
+      }
+    }
+  }
+
+  /** Returns true if {@code resolution}, which is done, has produced a valid container. */
+  private static boolean isValid(Future<SharedContainer> resolution) {
+    try {
+      return resolution.get().isValid();
+    } catch (ExecutionException | InterruptedException ex) {
+      return false;
+    }
+  }
+
+  /** Returns true if there is a valid container stored under {@code key}. */
+  boolean contains(String key) {
+    Future<SharedContainer> resolution = containers.get(key);
+    return resolution != null && resolution.isDone() && isValid(resolution);
+  }
+
+  void clear() {
+    containers.clear();
+  }
+
+  /**
+   * Returns the key of a container at {@code containerPath} whose entries are created from
+   * {@code libraryFiles}.
+   */
+  static String getKey(IPath containerPath, String description, List<LibraryFile> libraryFiles) {
+    StringBuilder key = new StringBuilder();
+    key.append(containerPath).append('|').append(description);
+    for (LibraryFile libraryFile : libraryFiles) {
+      key.append('|').append(ParallelArtifactResolver.getKey(libraryFile.getMavenCoordinates()))
+          .append(libraryFile.isExport() ? "+export" : "") //$NON-NLS-1$ //$NON-NLS-2$
+          .append(',').append(libraryFile.getSourceUri())
+          .append(',').append(libraryFile.getJavadocUri());
+      for (Filter filter : libraryFile.getFilters()) {
+        key.append(filter.isExclude() ? ",-" : ",+").append(filter.getPattern()); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * A resolved container, together with what is needed to attach sources to its entries and the
+   * projects it has been installed in. Once sources are attached, the container is replaced with
+   * a copy that has them.
+   */
+  static class SharedContainer {
+    private volatile LibraryClasspathContainer container;
+    private final Map<IPath, Callable<IPath>> sourceArtifactPathProviders;
+    private final Set<IJavaProject> projects =
+        Collections.newSetFromMap(new ConcurrentHashMap<IJavaProject, Boolean>());
+
+    SharedContainer(LibraryClasspathContainer container,
+        Map<IPath, Callable<IPath>> sourceArtifactPathProviders) {
+      this.container = container;
+      this.sourceArtifactPathProviders =
+          Collections.unmodifiableMap(new LinkedHashMap<>(sourceArtifactPathProviders));
+    }
+
+    LibraryClasspathContainer getContainer() {
+      return container;
+    }
+
+    /** Replaces the container with {@code sourcedContainer}, which has sources attached. */
+    void setContainer(LibraryClasspathContainer sourcedContainer) {
+      container = sourcedContainer;
+    }
+
+    Map<IPath, Callable<IPath>> getSourceArtifactPathProviders() {
+      return sourceArtifactPathProviders;
+    }
+
+    /** Records that the container is installed in {@code javaProject}. */
+    void addProject(IJavaProject javaProject) {
+      projects.add(javaProject);
+    }
+
+    /**
+     * Returns the projects the container has been installed in. Some may have been given another
+     * container since.
+     */
+    Collection<IJavaProject> getProjects() {
+      return new ArrayList<>(projects);
+    }
+
+    @VisibleForTesting
+    boolean isValid() {
+      return jarsExist(container);
+    }
+  }
+
+  /** Returns true if all jars of {@code container} still exist. */
+  static boolean jarsExist(IClasspathContainer container) {
+    for (IClasspathEntry entry : container.getClasspathEntries()) {
+      if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY
+          && !entry.getPath().toFile().exists()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
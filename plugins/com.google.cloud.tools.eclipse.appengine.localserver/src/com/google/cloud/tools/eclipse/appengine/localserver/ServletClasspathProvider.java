@@ -72,8 +72,8 @@ public class ServletClasspathProvider extends RuntimeClasspathProviderDelegate {
 
   // This method is called often as the result of user initiated UI actions, e.g. when the user
   // clicks through the project in the Project Explorer to drill down into the libraries
-  // attached to the project. This method resolves the servlet and jsp jars each time instead of
-  // persisting the resolved version the first time and using that later.
+  // attached to the project. The resolver service keeps the resolved servlet and jsp jars across
+  // calls and sessions, so only the first call for a library does any Maven lookups.
   @Override
   public IClasspathEntry[] resolveClasspathContainer(IRuntime runtime) {
     return doResolveClasspathContainer(DEFAULT_DYNAMIC_WEB_VERSION);
@@ -20,6 +20,7 @@ import com.google.cloud.tools.appengine.cloudsdk.AppEngineJavaComponentsNotInsta
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdkNotFoundException;
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdkOutOfDateException;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.CloudLibraries;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineJavaComponentMissingPage;
 import com.google.cloud.tools.eclipse.appengine.ui.CloudSdkMissingPage;
 import com.google.cloud.tools.eclipse.appengine.ui.CloudSdkOutOfDatePage;
@@ -46,6 +47,8 @@ public abstract class AppEngineProjectWizard extends Wizard implements INewWizar
 
   public AppEngineProjectWizard() {
     setNeedsProgressMonitor(true);
+    // the page lists the libraries; load them while the Cloud SDK is being checked
+    CloudLibraries.loadInBackground();
   }
 
   public abstract AppEngineWizardPage createWizardPage();
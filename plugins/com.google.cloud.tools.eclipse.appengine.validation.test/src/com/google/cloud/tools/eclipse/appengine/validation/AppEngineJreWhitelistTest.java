@@ -56,5 +56,33 @@ public class AppEngineJreWhitelistTest {
     Assert.assertFalse(AppEngineJreWhitelist.contains("javax.swing.JFrame"));
   }
   
-}
+  @Test
+  public void testWhitelisted_whitelistedJavaxClass() {
+    Assert.assertTrue(AppEngineJreWhitelist.contains("javax.naming.ldap.Rdn"));
+  }
+
+  @Test
+  public void testWhitelisted_nestedClass() {
+    Assert.assertTrue(AppEngineJreWhitelist.contains("java.util.Locale$Builder"));
+  }
+
+  @Test
+  public void testWhitelisted_comSunClass() {
+    Assert.assertFalse(AppEngineJreWhitelist.contains("com.sun.jmx.remote.util.EnvHelp"));
+    Assert.assertTrue(AppEngineJreWhitelist.contains("com.sun.jersey.api.Foo"));
+  }
+
+  @Test
+  public void testWhitelisted_lastPrefix() {
+    Assert.assertFalse(AppEngineJreWhitelist.contains("sun.util.calendar.Era"));
+    Assert.assertTrue(AppEngineJreWhitelist.contains("sun.misc.Foo"));
+  }
 
+  @Test
+  public void testWhitelisted_notAPackagePrefix() {
+    Assert.assertTrue(AppEngineJreWhitelist.contains("javaxx.swing.JFrame"));
+    Assert.assertTrue(AppEngineJreWhitelist.contains("java"));
+    Assert.assertTrue(AppEngineJreWhitelist.contains(""));
+  }
+
+}
@@ -18,31 +18,26 @@ package com.google.cloud.tools.eclipse.appengine.validation;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.junit.Test;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 public class AppEngineWebXmlValidatorTest {
   
   @Test
-  public void testCheckForElements() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder  = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-    
-    Element element =
-        document.createElementNS("http://appengine.google.com/ns/1.0", "application");
-    element.setUserData("location", new DocumentLocation(3, 15), null);
-    document.appendChild(element);
-    
+  public void testCheckForElements() throws IOException, SAXException {
+    String xml = "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>\n"
+        + "  <application>my-project</application>\n"
+        + "</appengine-web-app>";
     AppEngineWebXmlValidator validator = new AppEngineWebXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(null, document);
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.applicationMarker";
     assertEquals(markerId, blacklist.get(0).getMarkerId());
+    assertEquals(2, blacklist.get(0).getStart().getLineNumber());
+    assertEquals(16, blacklist.get(0).getStart().getColumnNumber());
+    assertEquals("my-project".length(), blacklist.get(0).getLength());
   }
 }
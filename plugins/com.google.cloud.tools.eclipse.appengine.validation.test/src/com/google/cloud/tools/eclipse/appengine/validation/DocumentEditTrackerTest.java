@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DocumentEditTrackerTest {
+
+  private static final String POM =
+      "<project xmlns='http://maven.apache.org/POM/4.0.0'>\n"
+      + "  <name>demo</name>\n"
+      + "  <build><plugins><plugin>\n"
+      + "    <groupId>com.google.appengine</groupId>\n"
+      + "  </plugin></plugins></build>\n"
+      + "</project>";
+
+  private final XmlValidationHelper helper = new PomXmlValidator();
+  private final BannedElement element = new BannedElement("message");
+  private IDocument document;
+  private DocumentEditTracker tracker;
+
+  @Before
+  public void setUp() {
+    document = new Document(POM);
+    tracker = new DocumentEditTracker(document, helper);
+    document.addDocumentListener(tracker);
+    Map<BannedElement, Integer> result = new HashMap<>();
+    result.put(element, POM.indexOf("<groupId>"));
+    tracker.setResult(result, false);
+  }
+
+  @Test
+  public void testGetResult_noResult() {
+    assertNull(new DocumentEditTracker(document, helper).getResult());
+  }
+
+  @Test
+  public void testGetResult_noEdits() {
+    assertEquals(POM.indexOf("<groupId>"), tracker.getResult().get(element).intValue());
+  }
+
+  @Test
+  public void testGetResult_uncheckedTextEditBefore() throws BadLocationException {
+    document.replace(POM.indexOf("demo"), 4, "renamed");
+    assertEquals(POM.indexOf("<groupId>") + 3, tracker.getResult().get(element).intValue());
+  }
+
+  @Test
+  public void testGetResult_uncheckedTextEditAfter() throws BadLocationException {
+    tracker.invalidate();
+    Map<BannedElement, Integer> result = new HashMap<>();
+    result.put(element, 0);
+    tracker.setResult(result, false);
+    document.replace(POM.indexOf("demo"), 4, "renamed");
+    assertEquals(0, tracker.getResult().get(element).intValue());
+  }
+
+  @Test
+  public void testGetResult_checkedTextEdit() throws BadLocationException {
+    document.replace(POM.indexOf("com.google.appengine"), 0, "x");
+    assertNull(tracker.getResult());
+  }
+
+  @Test
+  public void testGetResult_markupEdit() throws BadLocationException {
+    document.replace(POM.indexOf("demo"), 0, "<");
+    assertNull(tracker.getResult());
+  }
+
+  @Test
+  public void testGetResult_staysInvalid() throws BadLocationException {
+    document.replace(POM.indexOf("com.google.appengine"), 0, "x");
+    document.replace(POM.indexOf("demo"), 0, "x");
+    assertNull(tracker.getResult());
+  }
+
+  @Test
+  public void testGetResult_javaChangeKeepsDocumentOnlyResult() {
+    tracker.elementChanged(mock(ElementChangedEvent.class));
+    assertEquals(POM.indexOf("<groupId>"), tracker.getResult().get(element).intValue());
+  }
+
+  @Test
+  public void testGetResult_javaChangeDropsWorkspaceResult() {
+    tracker.setResult(tracker.getResult(), true);
+    tracker.elementChanged(mock(ElementChangedEvent.class));
+    assertNull(tracker.getResult());
+  }
+
+  @Test
+  public void testGetResult_resourceAddedDropsWorkspaceResult() {
+    tracker.setResult(tracker.getResult(), true);
+    IResourceChangeEvent event = mock(IResourceChangeEvent.class);
+    IResourceDelta root = mockDelta();
+    IResourceDelta project = mockDelta();
+    IResourceDelta added = mockDelta();
+    when(root.getAffectedChildren(IResourceDelta.CHANGED))
+        .thenReturn(new IResourceDelta[] {project});
+    when(project.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.REMOVED))
+        .thenReturn(new IResourceDelta[] {added});
+    when(event.getDelta()).thenReturn(root);
+    tracker.resourceChanged(event);
+    assertNull(tracker.getResult());
+  }
+
+  @Test
+  public void testGetResult_resourceContentChangeKeepsWorkspaceResult() {
+    tracker.setResult(tracker.getResult(), true);
+    IResourceChangeEvent event = mock(IResourceChangeEvent.class);
+    IResourceDelta root = mockDelta();
+    IResourceDelta changed = mockDelta();
+    when(root.getAffectedChildren(IResourceDelta.CHANGED))
+        .thenReturn(new IResourceDelta[] {changed});
+    when(event.getDelta()).thenReturn(root);
+    tracker.resourceChanged(event);
+    assertEquals(POM.indexOf("<groupId>"), tracker.getResult().get(element).intValue());
+  }
+
+  private static IResourceDelta mockDelta() {
+    IResourceDelta delta = mock(IResourceDelta.class);
+    when(delta.getAffectedChildren(anyInt())).thenReturn(new IResourceDelta[0]);
+    return delta;
+  }
+
+  @Test
+  public void testIsInertChange_whitespaceBetweenElements() throws BadLocationException {
+    int offset = POM.indexOf("  <build>");
+    assertTrue(DocumentEditTracker.isInertChange(document, offset, 0, "\n ", helper));
+  }
+
+  @Test
+  public void testIsInertChange_textBetweenElements() throws BadLocationException {
+    int offset = POM.indexOf("  <build>");
+    assertFalse(DocumentEditTracker.isInertChange(document, offset, 0, "text", helper));
+  }
+
+  @Test
+  public void testIsInertChange_insideTag() throws BadLocationException {
+    int offset = POM.indexOf("plugins>");
+    assertFalse(DocumentEditTracker.isInertChange(document, offset, 0, "x", helper));
+  }
+
+  @Test
+  public void testIsInertChange_entity() throws BadLocationException {
+    int offset = POM.indexOf("demo");
+    assertFalse(DocumentEditTracker.isInertChange(document, offset, 0, "&amp;", helper));
+  }
+
+  @Test
+  public void testIsInertChange_deleteMarkup() throws BadLocationException {
+    int offset = POM.indexOf("</name>");
+    assertFalse(DocumentEditTracker.isInertChange(document, offset, 2, "", helper));
+  }
+
+  @Test
+  public void testIsInertChange_prefixedElement() throws BadLocationException {
+    IDocument prefixed = new Document(
+        "<m:project xmlns:m='http://maven.apache.org/POM/4.0.0'>"
+        + "<m:groupId>a</m:groupId></m:project>");
+    int offset = prefixed.get().indexOf(">a<") + 1;
+    assertFalse(DocumentEditTracker.isInertChange(prefixed, offset, 1, "b", helper));
+  }
+
+  @Test
+  public void testIsInertChange_comment() throws BadLocationException {
+    IDocument comment = new Document("<project><!-- a --></project>");
+    int offset = comment.get().indexOf(" a ");
+    assertFalse(DocumentEditTracker.isInertChange(comment, offset, 0, "b", helper));
+  }
+
+}
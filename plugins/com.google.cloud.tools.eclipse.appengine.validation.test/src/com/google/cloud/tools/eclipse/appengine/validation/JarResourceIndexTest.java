@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarResourceIndexTest {
+
+  @Rule public TestProjectCreator projectCreator =
+      new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
+  @Rule public TestProjectCreator requiredProjectCreator =
+      new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final JarResourceIndex index = new JarResourceIndex();
+
+  @Test
+  public void testReadResources() throws IOException {
+    File jar = createJar("META-INF/resources/", "META-INF/resources/a.jsp",
+        "META-INF/resources/dir/b.jsp", "META-INF/MANIFEST.MF", "c.jsp");
+    Set<String> resources = JarResourceIndex.readResources(jar);
+    assertEquals(2, resources.size());
+    assertTrue(resources.contains("a.jsp"));
+    assertTrue(resources.contains("dir/b.jsp"));
+  }
+
+  @Test
+  public void testReadResources_notAJar() throws IOException {
+    File file = tempFolder.newFile("not-a.jar");
+    assertTrue(JarResourceIndex.readResources(file).isEmpty());
+  }
+
+  @Test
+  public void testContains() throws IOException, JavaModelException {
+    IJavaProject project = projectCreator.getJavaProject();
+    addToClasspath(project, createJar("META-INF/resources/a.jsp"));
+
+    assertTrue(index.contains(project, "a.jsp"));
+    assertTrue(index.contains(project, "/a.jsp"));
+    assertFalse(index.contains(project, "b.jsp"));
+    assertTrue(index.isCached(project));
+  }
+
+  @Test
+  public void testContains_requiredProject() throws CoreException {
+    IJavaProject project = projectCreator.getJavaProject();
+    IJavaProject requiredProject = requiredProjectCreator.getJavaProject();
+    addToClasspath(project, JavaCore.newProjectEntry(requiredProject.getPath()));
+    assertFalse(index.contains(project, "lib.jsp"));
+
+    IFolder sourceFolder = null;
+    for (IClasspathEntry entry : requiredProject.getRawClasspath()) {
+      if (entry.getEntryKind() == IClasspathEntry.CPE_SOURCE) {
+        sourceFolder = requiredProject.getProject().getWorkspace().getRoot()
+            .getFolder(entry.getPath());
+      }
+    }
+    IFolder resources = sourceFolder.getFolder("META-INF/resources");
+    createFolders(resources);
+    resources.getFile("lib.jsp").create(new ByteArrayInputStream(new byte[0]), true, null);
+    assertTrue(index.contains(project, "lib.jsp"));
+    assertFalse(index.contains(project, "other.jsp"));
+  }
+
+  @Test
+  public void testInvalidate_unusedJarsEvicted() throws IOException, JavaModelException {
+    IJavaProject project = projectCreator.getJavaProject();
+    File jar = createJar("META-INF/resources/a.jsp");
+    IClasspathEntry[] rawClasspath = project.getRawClasspath();
+    addToClasspath(project, jar);
+    assertTrue(index.contains(project, "a.jsp"));
+    assertTrue(index.isCached(jar));
+
+    project.setRawClasspath(rawClasspath, null);
+    index.invalidate(Arrays.asList(project));
+    assertTrue(index.isCached(jar));  // kept until the project's new classpath is known
+    assertFalse(index.contains(project, "a.jsp"));
+    assertFalse(index.isCached(jar));
+  }
+
+  @Test
+  public void testInvalidate() {
+    IJavaProject project = projectCreator.getJavaProject();
+    index.contains(project, "a.jsp");
+    assertTrue(index.isCached(project));
+    index.invalidate(Arrays.asList(project));
+    assertFalse(index.isCached(project));
+  }
+
+  @Test
+  public void testContains_classpathChanged() throws IOException, JavaModelException {
+    IJavaProject project = projectCreator.getJavaProject();
+    JarResourceIndex index = JarResourceIndex.getInstance();
+    assertFalse(index.contains(project, "a.jsp"));
+    addToClasspath(project, createJar("META-INF/resources/a.jsp"));
+    assertTrue(index.contains(project, "a.jsp"));
+  }
+
+  @Test
+  public void testChangesJars_classpathChanged() {
+    IJavaElementDelta delta = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED, IJavaElement.JAVA_PROJECT);
+    assertTrue(JarResourceIndex.changesJars(delta));
+  }
+
+  @Test
+  public void testChangesJars_archiveContentChanged() {
+    IJavaElementDelta root = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED, IJavaElement.PACKAGE_FRAGMENT_ROOT);
+    IJavaElementDelta project = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CHILDREN, IJavaElement.JAVA_PROJECT, root);
+    assertTrue(JarResourceIndex.changesJars(project));
+  }
+
+  @Test
+  public void testChangesJars_sourceChanged() {
+    IJavaElementDelta unit = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CONTENT, IJavaElement.COMPILATION_UNIT);
+    IJavaElementDelta fragment = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CHILDREN, IJavaElement.PACKAGE_FRAGMENT, unit);
+    IJavaElementDelta root = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CHILDREN, IJavaElement.PACKAGE_FRAGMENT_ROOT, fragment);
+    IJavaElementDelta project = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CHILDREN, IJavaElement.JAVA_PROJECT, root);
+    assertFalse(JarResourceIndex.changesJars(project));
+  }
+
+  private File createJar(String... entries) throws IOException {
+    File jar = File.createTempFile("resources", ".jar", tempFolder.getRoot());
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String entry : entries) {
+        out.putNextEntry(new ZipEntry(entry));
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static void addToClasspath(IJavaProject project, File jar) throws JavaModelException {
+    addToClasspath(project, JavaCore.newLibraryEntry(new Path(jar.getAbsolutePath()), null, null));
+  }
+
+  private static void addToClasspath(IJavaProject project, IClasspathEntry entry)
+      throws JavaModelException {
+    IClasspathEntry[] rawClasspath = project.getRawClasspath();
+    IClasspathEntry[] newClasspath = Arrays.copyOf(rawClasspath, rawClasspath.length + 1);
+    newClasspath[rawClasspath.length] = entry;
+    project.setRawClasspath(newClasspath, null);
+  }
+
+  private static void createFolders(IResource resource) throws CoreException {
+    if (resource instanceof IFolder && !resource.exists()) {
+      createFolders(resource.getParent());
+      ((IFolder) resource).create(true, true, null);
+    }
+  }
+
+  private static IJavaElementDelta mockDelta(int kind, int flags, int elementType,
+      IJavaElementDelta... children) {
+    IJavaElement element = mock(IJavaElement.class);
+    when(element.getElementType()).thenReturn(elementType);
+    IJavaElementDelta delta = mock(IJavaElementDelta.class);
+    when(delta.getKind()).thenReturn(kind);
+    when(delta.getFlags()).thenReturn(flags);
+    when(delta.getElement()).thenReturn(element);
+    when(delta.getAffectedChildren()).thenReturn(children);
+    return delta;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.junit.Test;
+
+public class JreReferenceScannerTest {
+
+  private final Set<String> existingTypes = new HashSet<>(Arrays.asList(
+      "java.net.CookieManager", "java.lang.ProcessBuilder", "javax.swing.UIManager",
+      "com.example.ProcessBuilder"));
+  private final List<String> lookups = new ArrayList<>();
+  private final JreReferenceScanner scanner =
+      new JreReferenceScanner(new JreReferenceScanner.TypeLookup() {
+        @Override
+        public boolean exists(String className) {
+          lookups.add(className);
+          return existingTypes.contains(className);
+        }
+      }, "1.7");
+
+  @Test
+  public void testFindBlacklistedTypes_whitelisted() {
+    String source = "import java.util.List;\n"
+        + "class Test { List<String> list = new java.util.ArrayList<>(); }";
+    assertTrue(findBlacklistedTypes(source).isEmpty());
+    assertTrue(lookups.isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_singleTypeImport() {
+    String source = "import java.net.CookieManager;\n"
+        + "class Test {\n"
+        + "  CookieManager manager = new CookieManager();\n"
+        + "}";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    assertEquals(2, problems.size());
+    CategorizedProblem problem = problems.get(0);
+    assertEquals("java.net.CookieManager", problem.getArguments()[0]);
+    assertEquals(3, problem.getSourceLineNumber());
+    assertEquals(source.indexOf("CookieManager manager"), problem.getSourceStart());
+    assertEquals(problem.getSourceStart() + "CookieManager".length() - 1,
+        problem.getSourceEnd());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_onDemandImport() {
+    String source = "import java.net.*;\n"
+        + "class Test { CookieManager manager; URL url; }";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    assertEquals(1, problems.size());
+    assertEquals("java.net.CookieManager", problems.get(0).getArguments()[0]);
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_javaLang() {
+    String source = "class Test { Object o = new ProcessBuilder(); String s; }";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    assertEquals(1, problems.size());
+    assertEquals("java.lang.ProcessBuilder", problems.get(0).getArguments()[0]);
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_samePackageHidesJavaLang() {
+    String source = "package com.example;\n"
+        + "class Test { ProcessBuilder builder; }";
+    assertTrue(findBlacklistedTypes(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_declaredTypeHidesJavaLang() {
+    String source = "class Test { class ProcessBuilder {} ProcessBuilder builder; }";
+    assertTrue(findBlacklistedTypes(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_qualifiedStaticCall() {
+    String source = "class Test { Object o = javax.swing.UIManager.getDefaults(); }";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    assertEquals(1, problems.size());
+    assertEquals("javax.swing.UIManager", problems.get(0).getArguments()[0]);
+    assertEquals(source.indexOf("UIManager"), problems.get(0).getSourceStart());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_memberAccessIgnored() {
+    String source = "class Test { void run(Test other) { other.ProcessBuilder(); } }";
+    assertTrue(findBlacklistedTypes(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_staticImportIgnored() {
+    String source = "import static java.net.CookieManager.foo;\n"
+        + "class Test { }";
+    assertTrue(findBlacklistedTypes(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_lookupsCached() {
+    String source = "class Test { ProcessBuilder a; ProcessBuilder b; }";
+    assertEquals(2, findBlacklistedTypes(source).size());
+    assertEquals(2, findBlacklistedTypes(source).size());
+    // the class itself and the same-package class that would hide it
+    assertEquals(2, lookups.size());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_invalidInput() {
+    String source = "class Test { java.net.CookieManager m; String s = \"unterminated }";
+    assertEquals(1, findBlacklistedTypes(source).size());
+  }
+
+  private List<CategorizedProblem> findBlacklistedTypes(String source) {
+    return scanner.findBlacklistedTypes(source.toCharArray(), "Test.java".toCharArray());
+  }
+}
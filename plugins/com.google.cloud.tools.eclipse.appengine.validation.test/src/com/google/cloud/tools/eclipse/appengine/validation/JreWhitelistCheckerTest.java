@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Google Inc.
+ * Copyright 2017 Google Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,14 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -28,4 +36,121 @@ public class JreWhitelistCheckerTest {
     Assert.assertFalse(checker.isActive(null));
   }
 
+  @Test
+  public void testFindBlacklistedTypes_whitelisted() {
+    String source = "import java.util.List;\n"
+        + "class Test { List<String> list = new java.util.ArrayList<>(); }";
+    Assert.assertTrue(findBlacklistedTypes(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes() {
+    String source = "import java.net.CookieManager;\n"
+        + "class Test {\n"
+        + "  CookieManager manager = new CookieManager();\n"
+        + "}";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    Assert.assertEquals(2, problems.size());
+    CategorizedProblem problem = problems.get(0);
+    Assert.assertEquals(3, problem.getSourceLineNumber());
+    Assert.assertEquals(source.indexOf("CookieManager manager"), problem.getSourceStart());
+    Assert.assertEquals(problem.getSourceStart() + "CookieManager".length() - 1,
+        problem.getSourceEnd());
+    Assert.assertEquals(JreWhitelistProblem.MARKER_ID, problem.getMarkerType());
+    Assert.assertTrue(problem.getMessage().startsWith("java.net.CookieManager "));
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_qualifiedStaticCall() {
+    String source = "class Test { Object o = javax.swing.UIManager.getDefaults(); }";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    Assert.assertEquals(1, problems.size());
+    Assert.assertEquals("javax.swing.UIManager", problems.get(0).getArguments()[0]);
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_arrayAndGenerics() {
+    String source = "class Test<T> { T value; java.net.CookieManager[] managers; }";
+    List<CategorizedProblem> problems = findBlacklistedTypes(source);
+    Assert.assertEquals(1, problems.size());
+    Assert.assertEquals("java.net.CookieManager", problems.get(0).getArguments()[0]);
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_scannerAgrees() {
+    String[] sources = {
+        "import java.net.CookieManager;\n"
+            + "class Test { CookieManager manager = new CookieManager(); }",
+        "import java.net.*;\nclass Test { CookieManager manager; URL url; }",
+        "class Test { Object o = new ProcessBuilder(); String s; }",
+        "class Test { class ProcessBuilder {} ProcessBuilder builder; }",
+        "class Test { Object o = javax.swing.UIManager.getDefaults(); }",
+        "class Test<T> { T value; java.net.CookieManager[] managers; }"};
+    for (String source : sources) {
+      Assert.assertEquals(source, describe(findBlacklistedTypes(source)), describe(scan(source)));
+    }
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_scannerReportsTopLevelClass() {
+    String source = "class Test { javax.swing.UIManager.LookAndFeelInfo info; }";
+    int start = source.indexOf("UIManager");
+    int memberStart = source.indexOf("LookAndFeelInfo");
+    Assert.assertEquals(
+        "[javax.swing.UIManager@" + start
+            + ", javax.swing.UIManager$LookAndFeelInfo@" + memberStart + "]",
+        describe(findBlacklistedTypes(source)));
+    Assert.assertEquals("[javax.swing.UIManager@" + start + "]", describe(scan(source)));
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_scannerIgnoresMemberClassImport() {
+    String source = "import javax.swing.UIManager.*;\nclass Test { LookAndFeelInfo info; }";
+    Assert.assertEquals(1, findBlacklistedTypes(source).size());
+    Assert.assertTrue(scan(source).isEmpty());
+  }
+
+  @Test
+  public void testFindBlacklistedTypes_scannerReportsCapitalizedVariable() {
+    String source = "import java.net.*;\nclass Test { Object CookieManager; }";
+    Assert.assertTrue(findBlacklistedTypes(source).isEmpty());
+    Assert.assertEquals(1, scan(source).size());
+  }
+
+  /** Checks {@code source} as builds do, against the classes of the running JRE. */
+  private static List<CategorizedProblem> scan(String source) {
+    JreReferenceScanner scanner = new JreReferenceScanner(new JreReferenceScanner.TypeLookup() {
+      @Override
+      public boolean exists(String className) {
+        try {
+          Class.forName(className, false, ClassLoader.getSystemClassLoader());
+          return true;
+        } catch (ClassNotFoundException ex) {
+          return false;
+        }
+      }
+    }, JavaCore.VERSION_1_7);
+    return scanner.findBlacklistedTypes(source.toCharArray(), "Test.java".toCharArray());
+  }
+
+  private static String describe(List<CategorizedProblem> problems) {
+    List<String> descriptions = new ArrayList<>();
+    for (CategorizedProblem problem : problems) {
+      descriptions.add(problem.getArguments()[0] + "@" + problem.getSourceStart());
+    }
+    return descriptions.toString();
+  }
+
+  private static List<CategorizedProblem> findBlacklistedTypes(String source) {
+    ASTParser parser = ASTParser.newParser(AST.JLS8);
+    Map<String, String> options = JavaCore.getOptions();
+    JavaCore.setComplianceOptions(JavaCore.VERSION_1_7, options);
+    parser.setCompilerOptions(options);
+    parser.setEnvironment(null, null, null, true);
+    parser.setUnitName("Test.java");
+    parser.setResolveBindings(true);
+    parser.setSource(source.toCharArray());
+    CompilationUnit ast = (CompilationUnit) parser.createAST(null);
+    return JreWhitelistChecker.findBlacklistedTypes(ast, "Test.java".toCharArray());
+  }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class LineOffsetsTest {
+
+  @Test
+  public void testGetOffset_mixedLineEndings() throws IOException {
+    byte[] bytes = "a\nbc\r\ndef\rg".getBytes(StandardCharsets.UTF_8);
+    LineOffsets lineOffsets = LineOffsets.of(bytes, "UTF-8");
+    assertEquals(4, lineOffsets.getLineCount());
+    assertEquals(0, lineOffsets.getOffset(1, 1));
+    assertEquals(2, lineOffsets.getOffset(2, 1));
+    assertEquals(5, lineOffsets.getOffset(3, 1));
+    assertEquals(10, lineOffsets.getOffset(4, 2));
+  }
+
+  @Test
+  public void testGetOffset_multibyteCharacters() throws IOException {
+    byte[] bytes = "\u00e9\u00e9\n<a>".getBytes(StandardCharsets.UTF_8);
+    LineOffsets lineOffsets = LineOffsets.of(bytes, "UTF-8");
+    assertEquals(3, lineOffsets.getOffset(2, 1));
+  }
+
+  @Test
+  public void testGetOffset_emptyDocument() throws IOException {
+    LineOffsets lineOffsets = LineOffsets.of(new byte[0], "UTF-8");
+    assertEquals(1, lineOffsets.getLineCount());
+    assertEquals(0, lineOffsets.getOffset(1, 1));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testGetOffset_lineOutOfRange() throws IOException {
+    LineOffsets lineOffsets = LineOffsets.of("a\nb".getBytes(StandardCharsets.UTF_8), "UTF-8");
+    lineOffsets.getOffset(3, 1);
+  }
+
+}
@@ -18,140 +18,85 @@ package com.google.cloud.tools.eclipse.appengine.validation;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.util.ArrayList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.junit.Test;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 public class PomXmlValidatorTest {
 
-  @Test
-  public void testCheckForElements() throws ParserConfigurationException {
-
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element groupId = document.createElementNS("http://maven.apache.org/POM/4.0.0", "groupId");
-    groupId.setUserData("location", new DocumentLocation(2, 1), null);
-    groupId.setTextContent("com.google.appengine");
-    
-    Element artifactId = document.createElementNS("http://maven.apache.org/POM/4.0.0", "artifactId");
-    artifactId.setUserData("location", new DocumentLocation(3, 1), null);
-    artifactId.setTextContent("appengine-maven-plugin");
-    
-    Element plugin = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugin");
-    plugin.setUserData("location", new DocumentLocation(4, 1), null);
-    plugin.appendChild(groupId);
-    plugin.appendChild(artifactId);
-    
-    Element plugins = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugins");
-    plugins.setUserData("location", new DocumentLocation(5, 1), null);
-    plugins.appendChild(plugin);
-    
-    Element build = document.createElementNS("http://maven.apache.org/POM/4.0.0", "build");
-    build.setUserData("location", new DocumentLocation(6, 1), null);
-    build.appendChild(plugins);
+  private final PomXmlValidator validator = new PomXmlValidator();
 
-    document.appendChild(build);
-  
-    PomXmlValidator validator = new PomXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(null, document);
+  @Test
+  public void testCheckForElements() throws IOException, SAXException {
+    String xml = "<project xmlns='http://maven.apache.org/POM/4.0.0'><build><plugins>\n"
+        + "<plugin>\n"
+        + "<groupId>com.google.appengine</groupId>\n"
+        + "<artifactId>appengine-maven-plugin</artifactId>\n"
+        + "</plugin>\n"
+        + "</plugins></build></project>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.mavenPluginMarker";
     assertEquals(markerId, blacklist.get(0).getMarkerId());
+    assertEquals(3, blacklist.get(0).getStart().getLineNumber());
   }
-  
+
   @Test
-  public void testCheckForElements_noElements() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-    
-    Element plugin = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugin");
-    plugin.setUserData("location", new DocumentLocation(1, 1), null);
-    
-    Element groupId = document.createElementNS("http://maven.apache.org/POM/4.0.0", "groupId");
-    groupId.setUserData("location", new DocumentLocation(2, 1), null);
-    groupId.setTextContent("com.google.cloud.tools");
-    plugin.appendChild(groupId);
-    
-    Element artifactId = document.createElementNS("http://maven.apache.org/POM/4.0.0", "artifactId");
-    artifactId.setUserData("location", new DocumentLocation(3, 1), null);
-    artifactId.setTextContent("appengine-maven-plugin");
-    plugin.appendChild(artifactId);
+  public void testCheckForElements_artifactIdBeforeGroupId() throws IOException, SAXException {
+    String xml = "<project xmlns='http://maven.apache.org/POM/4.0.0'><build><plugins><plugin>"
+        + "<artifactId>gcloud-maven-plugin</artifactId>"
+        + "<groupId>com.google.appengine</groupId>"
+        + "</plugin></plugins></build></project>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
+    assertEquals(1, blacklist.size());
+  }
 
-    document.appendChild(plugin);
-    
-    PomXmlValidator validator = new PomXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(null, document);
-    
+  @Test
+  public void testCheckForElements_noElements() throws IOException, SAXException {
+    String xml = "<plugin xmlns='http://maven.apache.org/POM/4.0.0'>"
+        + "<groupId>com.google.cloud.tools</groupId>"
+        + "<artifactId>appengine-maven-plugin</artifactId>"
+        + "</plugin>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
     assertEquals(0, blacklist.size());
   }
-  
-  @Test
-  public void testCheckForElements_multiplePluginTags() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-    Element rootPlugin = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugins");
-    
-    //plugin #1
-    Element markedPlugin = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugin");
-    markedPlugin.setUserData("location", new DocumentLocation(1, 1), null);
-    
-    Element groupId1 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "groupId");
-    groupId1.setUserData("location", new DocumentLocation(2, 1), null);
-    groupId1.setTextContent("com.google.appengine");
-    markedPlugin.appendChild(groupId1);
-    
-    Element artifactId1 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "artifactId");
-    artifactId1.setUserData("location", new DocumentLocation(3, 1), null);
-    artifactId1.setTextContent("appengine-maven-plugin");
-    markedPlugin.appendChild(artifactId1);
 
-    rootPlugin.appendChild(markedPlugin);
-    
-    //plugin #2
-    Element ignoredPlugin = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugin");
-    ignoredPlugin.setUserData("location", new DocumentLocation(4, 1), null);
-    
-    Element groupId2 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "groupId");
-    groupId2.setUserData("location", new DocumentLocation(5, 1), null);
-    groupId2.setTextContent("com.google.cloud.tools");
-    ignoredPlugin.appendChild(groupId2);
-    
-    Element artifactId2 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "artifactId");
-    artifactId2.setUserData("location", new DocumentLocation(6, 1), null);
-    artifactId2.setTextContent("appengine-maven-plugin");
-    ignoredPlugin.appendChild(artifactId2);
+  @Test
+  public void testCheckForElements_noNamespace() throws IOException, SAXException {
+    String xml = "<plugin>"
+        + "<groupId>com.google.appengine</groupId>"
+        + "<artifactId>appengine-maven-plugin</artifactId>"
+        + "</plugin>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
+    assertEquals(0, blacklist.size());
+  }
 
-    rootPlugin.appendChild(ignoredPlugin);
-    
-    //plugin #3
-    Element ignoredPlugin2 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "plugin");
-    markedPlugin.setUserData("location", new DocumentLocation(7, 1), null);
-    
-    Element groupId3 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "groupId");
-    groupId3.setUserData("location", new DocumentLocation(8, 1), null);
-    groupId3.setTextContent("com.google.appengine");
-    ignoredPlugin2.appendChild(groupId3);
-    
-    Element artifactId3 = document.createElementNS("http://maven.apache.org/POM/4.0.0", "artifactId");
-    artifactId3.setUserData("location", new DocumentLocation(9, 1), null);
-    artifactId3.setTextContent("ignore this case");
-    ignoredPlugin2.appendChild(artifactId3);
-    rootPlugin.appendChild(ignoredPlugin2);
-    
-    document.appendChild(rootPlugin);
-    
-    PomXmlValidator validator = new PomXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(null, document);
-    
+  @Test
+  public void testCheckForElements_multiplePluginTags() throws IOException, SAXException {
+    String xml = "<plugins xmlns='http://maven.apache.org/POM/4.0.0'>"
+        // plugin #1
+        + "<plugin>"
+        + "<groupId>com.google.appengine</groupId>"
+        + "<artifactId>appengine-maven-plugin</artifactId>"
+        + "</plugin>"
+        // plugin #2
+        + "<plugin>"
+        + "<groupId>com.google.cloud.tools</groupId>"
+        + "<artifactId>appengine-maven-plugin</artifactId>"
+        + "</plugin>"
+        // plugin #3
+        + "<plugin>"
+        + "<groupId>com.google.appengine</groupId>"
+        + "<artifactId>ignore this case</artifactId>"
+        + "</plugin>"
+        + "</plugins>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, null, xml);
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.mavenPluginMarker";
     assertEquals(markerId, blacklist.get(0).getMarkerId());
@@ -17,88 +17,107 @@
 package com.google.cloud.tools.eclipse.appengine.validation;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
-import java.util.Stack;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 import org.xml.sax.ext.Locator2;
 import org.xml.sax.helpers.AttributesImpl;
 
 public class PositionalXmlHandlerTest {
 
-  private PositionalXmlHandler handler = new PositionalXmlHandler();
-  
-  @Test
-  public void testStartDocument() {
-    handler.startDocument();
-    assertNotNull(handler.getDocument());
+  private static class RecordingVisitor extends ElementVisitor {
+    private ScannedElement started;
+    private ScannedElement ended;
+    private boolean documentEnded;
+
+    @Override
+    void startElement(ScannedElement element) {
+      started = element;
+    }
+
+    @Override
+    void endElement(ScannedElement element) {
+      ended = element;
+    }
+
+    @Override
+    void endDocument() {
+      documentEnded = true;
+    }
   }
-  
-  @Test
-  public void testStartElement() throws SAXException {
-    handler.startDocument();
-    Locator2 locator = Mockito.mock(Locator2.class);
+
+  private final RecordingVisitor visitor = new RecordingVisitor();
+  private final PositionalXmlHandler handler = new PositionalXmlHandler(visitor);
+  private final Locator2 locator = Mockito.mock(Locator2.class);
+
+  @Before
+  public void setUp() {
     handler.setDocumentLocator(locator);
     Mockito.when(locator.getLineNumber()).thenReturn(1);
     Mockito.when(locator.getColumnNumber()).thenReturn(7);
-    handler.startElement("", "", "element", new AttributesImpl());
-    
+  }
+
+  @Test
+  public void testStartElement() throws SAXException {
+    AttributesImpl attributes = new AttributesImpl();
+    attributes.addAttribute("", "version", "version", "CDATA", "2.5");
+    handler.startElement("", "element", "element", attributes);
+
     assertEquals(1, handler.getElementStack().size());
-    
-    Element element = handler.getElementStack().pop();
-    DocumentLocation location = (DocumentLocation) element.getUserData("location");
+
+    ScannedElement element = handler.getElementStack().peek();
+    assertEquals("element", element.getQName());
+    assertEquals("2.5", element.getAttribute("version"));
+    assertNull(element.getParent());
+    DocumentLocation location = element.getStart();
     assertEquals(1, location.getLineNumber());
     assertEquals(7, location.getColumnNumber());
+    assertSame(element, visitor.started);
+  }
+
+  @Test
+  public void testStartElement_nested() throws SAXException {
+    handler.startElement("", "parent", "parent", new AttributesImpl());
+    ScannedElement parent = handler.getElementStack().peek();
+    handler.startElement("", "child", "child", new AttributesImpl());
+
+    assertEquals(2, handler.getElementStack().size());
+    assertSame(parent, handler.getElementStack().peek().getParent());
   }
-  
+
   @Test
   public void testEndElement() throws SAXException {
-    handler.startDocument();
-    Locator2 locator = Mockito.mock(Locator2.class);
-    handler.setDocumentLocator(locator);
-    Mockito.when(locator.getLineNumber()).thenReturn(1);
-    Mockito.when(locator.getColumnNumber()).thenReturn(7);
-    handler.startElement("", "", "element", new AttributesImpl());
-    
-    assertEquals(1, handler.getElementStack().size());
-    
+    handler.startElement("", "element", "element", new AttributesImpl());
+    ScannedElement element = handler.getElementStack().peek();
+
     Mockito.when(locator.getEncoding()).thenReturn("UTF-8");
-    handler.endElement("", "", "element");
-    
+    handler.endElement("", "element", "element");
+
     assertEquals(0, handler.getElementStack().size());
-    
-    Document document = handler.getDocument();
-    Node node = document.getDocumentElement();
-    DocumentLocation location = (DocumentLocation) node.getUserData("location");
-    assertEquals(1, location.getLineNumber());
-    assertEquals(7, location.getColumnNumber());
+    assertEquals("UTF-8", visitor.getEncoding());
+    assertSame(element, visitor.ended);
   }
-  
+
   @Test
-  public void testAddText() throws SAXException {
+  public void testCharacters() throws SAXException {
     char[] test = "test".toCharArray();
-    
-    handler.startDocument();
-    Locator2 locator = Mockito.mock(Locator2.class);
-    handler.setDocumentLocator(locator);
-    Mockito.when(locator.getLineNumber()).thenReturn(1);
-    Mockito.when(locator.getColumnNumber()).thenReturn(7);
-    handler.startElement("", "", "element", new AttributesImpl());
-    
+    handler.startElement("", "element", "element", new AttributesImpl());
+    handler.characters(test, 0, test.length);
     handler.characters(test, 0, test.length);
-    handler.addText();
-    
-    Stack<Element> elements = handler.getElementStack();
-    Node parent = elements.pop();
-    NodeList childNodes = parent.getChildNodes();
-    assertEquals(1, childNodes.getLength());
-    assertEquals("test", childNodes.item(0).getTextContent());
+
+    ScannedElement element = handler.getElementStack().peek();
+    assertEquals("testtest", element.getText());
+  }
+
+  @Test
+  public void testEndDocument() {
+    handler.endDocument();
+    assertTrue(visitor.documentEnded);
   }
 
 }
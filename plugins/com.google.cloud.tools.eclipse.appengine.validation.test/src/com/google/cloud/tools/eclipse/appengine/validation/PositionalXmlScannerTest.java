@@ -21,30 +21,54 @@ import static org.junit.Assert.assertNull;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 public class PositionalXmlScannerTest {
 
+  private static class RecordingVisitor extends ElementVisitor {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    void startElement(ScannedElement element) {
+      events.add("start " + element.getQName());
+    }
+
+    @Override
+    void endElement(ScannedElement element) {
+      events.add("end " + element.getQName() + " " + element.getText());
+    }
+
+    @Override
+    void endDocument() {
+      events.add("endDocument");
+    }
+  }
+
   @Test
-  public void testParse() throws SAXException, IOException {
-    byte[] bytes = "<root><child></child></root>".getBytes(StandardCharsets.UTF_8);
-    Document document = PositionalXmlScanner.parse(bytes);
-    
-    NodeList rootNode = document.getElementsByTagName("root");
-    assertEquals(1, rootNode.getLength());
-    
-    NodeList childNode = document.getElementsByTagName("child");
-    assertEquals(1, childNode.getLength());
+  public void testScan() throws SAXException, IOException {
+    byte[] bytes = "<root><child>text</child></root>".getBytes(StandardCharsets.UTF_8);
+    RecordingVisitor visitor = new RecordingVisitor();
+    PositionalXmlScanner.scan(bytes, visitor);
+
+    assertEquals(5, visitor.events.size());
+    assertEquals("start root", visitor.events.get(0));
+    assertEquals("start child", visitor.events.get(1));
+    assertEquals("end child text", visitor.events.get(2));
+    assertEquals("end root ", visitor.events.get(3));
+    assertEquals("endDocument", visitor.events.get(4));
+    assertEquals("UTF-8", visitor.getEncoding());
   }
-  
+
   @Test
-  public void testParse_emptyXml() throws SAXException, IOException {
+  public void testScan_emptyXml() throws SAXException, IOException {
     byte[] bytes = "".getBytes(StandardCharsets.UTF_8);
-    Document document = PositionalXmlScanner.parse(bytes);
-    assertNull(document);
+    RecordingVisitor visitor = new RecordingVisitor();
+    PositionalXmlScanner.scan(bytes, visitor);
+    assertEquals(0, visitor.events.size());
+    assertNull(visitor.getEncoding());
   }
 
 }
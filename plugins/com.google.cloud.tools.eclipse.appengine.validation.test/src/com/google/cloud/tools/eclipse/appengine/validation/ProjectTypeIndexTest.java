@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import com.google.cloud.tools.eclipse.util.io.ResourceUtils;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ProjectTypeIndexTest {
+
+  @Rule public TestProjectCreator projectCreator =
+      new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
+
+  private final ProjectTypeIndex index = new ProjectTypeIndex();
+
+  @Test
+  public void testFindMissingTypes() throws CoreException {
+    IProject project = projectCreator.getProject();
+    createFile(project, "src/com/example", "Servlet.java",
+        "package com.example; public class Servlet { public static class Inner {} }");
+    createFile(project, "src/com/example", "Api.java", "package com.example; interface Api {}");
+    IJavaProject javaProject = projectCreator.getJavaProject();
+
+    Set<String> missing = index.findMissingTypes(javaProject, Arrays.asList(
+        "com.example.Servlet", "Servlet", "com.example.Servlet$Inner", "com.other.Servlet",
+        "com.example.Api", "DoesNotExist", ""));
+    assertEquals(4, missing.size());
+    assertTrue(missing.contains("com.other.Servlet"));
+    assertTrue(missing.contains("com.example.Api"));
+    assertTrue(missing.contains("DoesNotExist"));
+    assertTrue(missing.contains(""));
+    assertTrue(index.isCached(javaProject, "com.example.Servlet"));
+    assertTrue(index.isCached(javaProject, "DoesNotExist"));
+  }
+
+  @Test
+  public void testFindMissingTypes_missingTypesBounded() {
+    IJavaProject javaProject = projectCreator.getJavaProject();
+    List<String> typeNames = new ArrayList<>();
+    for (int i = 0; i <= ProjectTypeIndex.MAX_MISSING_TYPES; i++) {
+      typeNames.add("Missing" + i);
+    }
+    assertEquals(typeNames.size(), index.findMissingTypes(javaProject, typeNames).size());
+    assertFalse(index.isCached(javaProject, "Missing0"));
+    assertTrue(index.isCached(javaProject, "Missing1"));
+    assertTrue(index.isCached(javaProject, "Missing" + ProjectTypeIndex.MAX_MISSING_TYPES));
+  }
+
+  @Test
+  public void testInvalidate() throws JavaModelException {
+    IJavaProject changed = mockProject("changed");
+    IJavaProject dependent = mockProject("dependent", "changed");
+    IJavaProject unrelated = mockProject("unrelated", "other");
+    cache(changed, dependent, unrelated);
+
+    index.invalidate(Arrays.asList(changed));
+    assertFalse(index.isCached(changed, ""));
+    assertFalse(index.isCached(dependent, ""));
+    assertTrue(index.isCached(unrelated, ""));
+  }
+
+  @Test
+  public void testChangesTypes_typeAdded() {
+    IJavaElementDelta delta = mockDelta(IJavaElementDelta.ADDED, 0, IJavaElement.TYPE);
+    assertTrue(ProjectTypeIndex.changesTypes(delta));
+  }
+
+  @Test
+  public void testChangesTypes_compilationUnitRemoved() {
+    IJavaElementDelta delta =
+        mockDelta(IJavaElementDelta.REMOVED, 0, IJavaElement.COMPILATION_UNIT);
+    assertTrue(ProjectTypeIndex.changesTypes(delta));
+  }
+
+  @Test
+  public void testChangesTypes_methodAdded() {
+    IJavaElementDelta method = mockDelta(IJavaElementDelta.ADDED, 0, IJavaElement.METHOD);
+    IJavaElementDelta unit = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED
+        | IJavaElementDelta.F_CHILDREN, IJavaElement.COMPILATION_UNIT, method);
+    assertFalse(ProjectTypeIndex.changesTypes(unit));
+  }
+
+  @Test
+  public void testChangesTypes_contentWithoutDetails() {
+    IJavaElementDelta unit = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CONTENT, IJavaElement.COMPILATION_UNIT);
+    assertTrue(ProjectTypeIndex.changesTypes(unit));
+  }
+
+  @Test
+  public void testChangesTypes_classpathChanged() {
+    IJavaElementDelta project = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED, IJavaElement.JAVA_PROJECT);
+    assertTrue(ProjectTypeIndex.changesTypes(project));
+  }
+
+  @Test
+  public void testChangesTypes_nestedTypeAdded() {
+    IJavaElementDelta type = mockDelta(IJavaElementDelta.ADDED, 0, IJavaElement.TYPE);
+    IJavaElementDelta unit = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CONTENT | IJavaElementDelta.F_FINE_GRAINED
+        | IJavaElementDelta.F_CHILDREN, IJavaElement.COMPILATION_UNIT, type);
+    IJavaElementDelta project = mockDelta(IJavaElementDelta.CHANGED,
+        IJavaElementDelta.F_CHILDREN, IJavaElement.JAVA_PROJECT, unit);
+    assertTrue(ProjectTypeIndex.changesTypes(project));
+  }
+
+  private void cache(IJavaProject... projects) {
+    for (IJavaProject project : projects) {
+      // the empty name is never searched for, so this only records an answer
+      index.findMissingTypes(project, Collections.singleton(""));
+    }
+  }
+
+  private static IJavaProject mockProject(String name, String... requiredProjects)
+      throws JavaModelException {
+    IJavaProject project = mock(IJavaProject.class);
+    when(project.getElementName()).thenReturn(name);
+    when(project.getRequiredProjectNames()).thenReturn(requiredProjects);
+    return project;
+  }
+
+  private static IJavaElementDelta mockDelta(int kind, int flags, int elementType,
+      IJavaElementDelta... children) {
+    IJavaElement element = mock(IJavaElement.class);
+    when(element.getElementType()).thenReturn(elementType);
+    IJavaElementDelta delta = mock(IJavaElementDelta.class);
+    when(delta.getKind()).thenReturn(kind);
+    when(delta.getFlags()).thenReturn(flags);
+    when(delta.getElement()).thenReturn(element);
+    when(delta.getAffectedChildren()).thenReturn(children);
+    return delta;
+  }
+
+  private static void createFile(IProject project, String folder, String filename,
+      String contents) throws CoreException {
+    ResourceUtils.createFolders(project.getFolder(folder), null);
+    IFile file = project.getFile(folder + "/" + filename);
+    file.create(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)), true, null);
+  }
+}
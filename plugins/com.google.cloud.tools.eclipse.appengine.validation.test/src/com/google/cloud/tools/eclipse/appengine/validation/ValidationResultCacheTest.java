@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ValidationResultCacheTest {
+
+  @Rule public TestProjectCreator projectCreator =
+      new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
+
+  private final ValidationResultCache cache =
+      new ValidationResultCache(new AppEngineWebXmlValidator());
+  private IFile file;
+
+  @Before
+  public void setUp() throws CoreException {
+    file = projectCreator.getProject().getFile("appengine-web.xml");
+    file.create(new ByteArrayInputStream(new byte[0]), true, null);
+  }
+
+  @Test
+  public void testGetKey() {
+    String key = ValidationResultCache.getKey(file, bytes("<a/>"));
+    assertEquals(key, ValidationResultCache.getKey(file, bytes("<a/>")));
+    assertNotEquals(key, ValidationResultCache.getKey(file, bytes("<b/>")));
+  }
+
+  @Test
+  public void testGet_nothingStored() throws CoreException {
+    assertNull(cache.get(file, "key"));
+  }
+
+  @Test
+  public void testPut() throws CoreException {
+    BannedElement element = new BannedElement("a \\n\tmessage\nwith\\ escapes",
+        "com.example.marker", IMarker.SEVERITY_ERROR, 1, new DocumentLocation(3, 7), 5, null);
+    cache.put(file, "key", Arrays.asList(element, new BannedElement("other")));
+
+    List<BannedElement> elements = cache.get(file, "key");
+    assertEquals(2, elements.size());
+    BannedElement restored = elements.get(0);
+    assertEquals(element, restored);
+    assertEquals(element.getMessage(), restored.getMessage());
+    assertEquals(IMarker.SEVERITY_ERROR, restored.getIMarkerSeverity());
+    assertEquals(1, restored.getIMessageSeverity());
+    assertEquals(5, restored.getLength());
+    assertEquals("other", elements.get(1).getMessage());
+  }
+
+  @Test
+  public void testPut_noElements() throws CoreException {
+    cache.put(file, "key", Collections.<BannedElement>emptyList());
+    assertTrue(cache.get(file, "key").isEmpty());
+  }
+
+  @Test
+  public void testGet_differentKey() throws CoreException {
+    cache.put(file, "key", Collections.<BannedElement>emptyList());
+    assertNull(cache.get(file, "other key"));
+  }
+
+  @Test
+  public void testPut_tooLarge() throws CoreException {
+    cache.put(file, "key", Collections.<BannedElement>emptyList());
+    String message = Strings.repeat("x", ValidationResultCache.MAX_VALUE_LENGTH);
+    cache.put(file, "key", Arrays.asList(new BannedElement(message)));
+    assertNull(cache.get(file, "key"));
+  }
+
+  @Test
+  public void testRemove() throws CoreException {
+    cache.put(file, "key", Collections.<BannedElement>emptyList());
+    cache.remove(file);
+    assertNull(cache.get(file, "key"));
+  }
+
+  @Test
+  public void testHelpersStoredSeparately() throws CoreException {
+    cache.put(file, "key", Collections.<BannedElement>emptyList());
+    ValidationResultCache pomCache = new ValidationResultCache(new PomXmlValidator());
+    assertNull(pomCache.get(file, "key"));
+  }
+
+  private static byte[] bytes(String xml) {
+    return xml.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -18,9 +18,12 @@ package com.google.cloud.tools.eclipse.appengine.validation;
 
 import com.google.cloud.tools.eclipse.ui.util.WorkbenchUtil;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
@@ -30,6 +33,7 @@ import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.ide.ResourceUtil;
+import org.xml.sax.SAXException;
 
 public class ValidationTestUtils {
 
@@ -57,4 +61,14 @@ public class ValidationTestUtils {
     return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
   }
 
+  /**
+   * Scans {@code xml} with a visitor from {@code helper} and returns the banned elements found.
+   */
+  static ArrayList<BannedElement> checkForElements(XmlValidationHelper helper,
+      IResource resource, String xml) throws IOException, SAXException {
+    ElementVisitor visitor = helper.createVisitor(resource);
+    PositionalXmlScanner.scan(xml.getBytes(StandardCharsets.UTF_8), visitor);
+    return visitor.getBlacklist();
+  }
+
 }
\ No newline at end of file
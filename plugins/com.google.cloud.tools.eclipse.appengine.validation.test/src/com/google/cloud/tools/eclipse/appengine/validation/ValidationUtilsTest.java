@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.jface.text.Document;
 import org.eclipse.wst.validation.internal.provisional.core.IMessage;
 import org.junit.Test;
 
@@ -132,6 +133,36 @@ public class ValidationUtilsTest {
     assertEquals(9, (int) map.get(version));
   }
   
+  @Test
+  public void testGetOffsetMap_document() {
+    DocumentLocation applicationLocation = new DocumentLocation(3, 14);
+    BannedElement application =
+        new AppEngineBlacklistElement("application", applicationLocation, 0);
+    ArrayList<BannedElement> blacklist = new ArrayList<>(Arrays.asList(application));
+
+    Document document = new Document("<version>   </version>\r\n\r\n<application>   </application>");
+    Map<BannedElement, Integer> map = ValidationUtils.getOffsetMap(document, blacklist);
+
+    assertEquals(1, map.size());
+    assertEquals(39, (int) map.get(application));
+  }
+
+  @Test
+  public void testGetOffsetMap_manyElements() {
+    StringBuilder xml = new StringBuilder();
+    ArrayList<BannedElement> blacklist = new ArrayList<>();
+    for (int i = 1; i <= 1000; i++) {
+      xml.append("<application>").append(i).append("</application>\n");
+      blacklist.add(new AppEngineBlacklistElement("application", new DocumentLocation(i, 14), 0));
+    }
+    byte[] bytes = xml.toString().getBytes(StandardCharsets.UTF_8);
+    Map<BannedElement, Integer> map = ValidationUtils.getOffsetMap(bytes, blacklist, "UTF-8");
+
+    assertEquals(1000, map.size());
+    assertEquals(13, (int) map.get(blacklist.get(0)));
+    assertEquals(29 + 13, (int) map.get(blacklist.get(1)));
+  }
+
   @Test
   public void testConvertStreamToString() throws IOException {
     String test = "test string";
@@ -17,31 +17,38 @@
 package com.google.cloud.tools.eclipse.appengine.validation;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
 import com.google.cloud.tools.eclipse.util.io.ResourceUtils;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jst.common.project.facet.core.JavaFacet;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
 
 public class WebXmlValidatorPluginTest {
 
@@ -49,6 +56,7 @@ public class WebXmlValidatorPluginTest {
   private IResource resource;
   @Rule public TestProjectCreator projectCreator = new TestProjectCreator().withFacetVersions(
       JavaFacet.VERSION_1_7, WebFacetUtils.WEB_25, AppEngineStandardFacet.JRE7);
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
 
   @Before
   public void setUp() throws CoreException {
@@ -79,23 +87,13 @@ public class WebXmlValidatorPluginTest {
   }
 
   @Test
-  public void testCheckForElements_servletClass() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element root = document.createElement("web-app");
-    root.setUserData("version", "2.5", null);
-    root.setUserData("location", new DocumentLocation(1, 1), null);
-
-    Element element = document.createElement("servlet-class");
-    element.setTextContent("DoesNotExist");
-    element.setUserData("location", new DocumentLocation(2, 1), null);
-    root.appendChild(element);
-    document.appendChild(root);
-
+  public void testCheckForElements_servletClass() throws IOException, SAXException {
+    String xml = "<web-app version='2.5'>"
+        + "<servlet-class>DoesNotExist</servlet-class>"
+        + "</web-app>";
     WebXmlValidator validator = new WebXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.undefinedServletMarker";
@@ -103,60 +101,32 @@ public class WebXmlValidatorPluginTest {
   }
 
   @Test
-  public void testCheckForElements_servletClassExists() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element root = document.createElement("web-app");
-    root.setUserData("version", "2.5", null);
-    root.setUserData("location", new DocumentLocation(1, 1), null);
-
-    Element element = document.createElement("servlet-class");
-    element.setTextContent("ServletClass");
-    element.setUserData("location", new DocumentLocation(2, 1), null);
-    root.appendChild(element);
-    document.appendChild(root);
-
+  public void testCheckForElements_servletClassExists() throws IOException, SAXException {
+    String xml = "<web-app version='2.5'>"
+        + "<servlet-class>ServletClass</servlet-class>"
+        + "</web-app>";
     WebXmlValidator validator = new WebXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
     assertTrue(blacklist.isEmpty());
   }
 
   @Test
-  public void testValidateJsp() throws ParserConfigurationException {
+  public void testValidateJsp() throws IOException, SAXException {
     // For a typical dynamic web project:
     //     /           -> WebContent
     // WEB-INF         -> WebContent/WEB-INF
     // WEB-INF/classes -> src
 
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element root = document.createElement("web-app");
-    root.setUserData("location", new DocumentLocation(1, 1), null);
-    root.setUserData("version", "2.5", null);
-
-    Element element = document.createElement("jsp-file");
-    element.setTextContent("InWebContent.jsp");
-    element.setUserData("location", new DocumentLocation(2, 1), null);
-    root.appendChild(element);
-
-    Element element2 = document.createElement("jsp-file");
-    element2.setTextContent("InSrc.jsp");
-    element2.setUserData("location", new DocumentLocation(3, 1), null);
-    root.appendChild(element2);
-
-    Element element3 = document.createElement("jsp-file");
-    element3.setTextContent("DoesNotExist.jsp");
-    element3.setUserData("location", new DocumentLocation(4, 1), null);
-    root.appendChild(element3);
-    document.appendChild(root);
-
+    String xml = "<web-app version='2.5'>"
+        + "<jsp-file>InWebContent.jsp</jsp-file>"
+        + "<jsp-file>InSrc.jsp</jsp-file>"
+        + "<jsp-file>DoesNotExist.jsp</jsp-file>"
+        + "</web-app>";
     WebXmlValidator validator = new WebXmlValidator();
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.jspFileMarker";
@@ -165,16 +135,36 @@ public class WebXmlValidatorPluginTest {
   }
 
   @Test
-  public void testClassExists() {
-    assertFalse(WebXmlValidator.classExists(javaProject, "DoesNotExist"));
-    assertFalse(WebXmlValidator.classExists(null, null));
-    assertFalse(WebXmlValidator.classExists(null, ""));
-    assertTrue(WebXmlValidator.classExists(javaProject, "ServletClass"));
+  public void testValidateJsp_servlet30() throws IOException, SAXException, CoreException {
+    File jar = tempFolder.newFile("resources.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("META-INF/resources/InJar.jsp"));
+      out.closeEntry();
+    }
+    IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
+    IClasspathEntry[] newClasspath = Arrays.copyOf(rawClasspath, rawClasspath.length + 1);
+    newClasspath[rawClasspath.length] =
+        JavaCore.newLibraryEntry(new Path(jar.getAbsolutePath()), null, null);
+    javaProject.setRawClasspath(newClasspath, null);
+
+    String xml = "<web-app version='3.0'>"
+        + "<jsp-file>InWebContent.jsp</jsp-file>"
+        + "<jsp-file>/InJar.jsp</jsp-file>"
+        + "<jsp-file>DoesNotExist.jsp</jsp-file>"
+        + "</web-app>";
+    WebXmlValidator validator = new WebXmlValidator();
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
+
+    assertEquals(1, blacklist.size());
+    assertEquals("DoesNotExist.jsp could not be resolved", blacklist.get(0).getMessage());
   }
 
   @Test
-  public void testClassExists_inPackage() {
-    assertTrue(WebXmlValidator.classExists(javaProject, "com.example.ServletClassInPackage"));
+  public void testFindMissingTypes() {
+    Set<String> missing = new ProjectTypeIndex().findMissingTypes(javaProject,
+        Arrays.asList("DoesNotExist", "ServletClass", "com.example.ServletClassInPackage"));
+    assertEquals(Collections.singleton("DoesNotExist"), missing);
   }
 
 }
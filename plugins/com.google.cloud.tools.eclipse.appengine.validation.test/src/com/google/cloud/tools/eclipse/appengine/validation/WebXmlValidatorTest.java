@@ -20,18 +20,16 @@ import static org.junit.Assert.assertEquals;
 
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.IOException;
 import java.util.ArrayList;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.jst.common.project.facet.core.JavaFacet;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mockito;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 public class WebXmlValidatorTest {
 
@@ -40,21 +38,19 @@ public class WebXmlValidatorTest {
       WebFacetUtils.WEB_25, JavaFacet.VERSION_1_7, AppEngineStandardFacet.JRE7);
 
   private final WebXmlValidator validator = new WebXmlValidator();
+  private IResource resource;
 
-  @Test
-  public void testValidateJavaServlet() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element element = document.createElementNS("http://xmlns.jcp.org/xml/ns/javaee", "web-app");
-    element.setUserData("version", "3.1", null);
-    element.setUserData("location", new DocumentLocation(1, 1), null);
-    document.appendChild(element);
-
-    IResource resource = Mockito.mock(IResource.class);
+  @Before
+  public void setUp() {
+    resource = Mockito.mock(IResource.class);
     Mockito.when(resource.getProject()).thenReturn(projectCreator.getProject());
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
+  }
+
+  @Test
+  public void testValidateJavaServlet() throws IOException, SAXException {
+    String xml = "<web-app xmlns='http://xmlns.jcp.org/xml/ns/javaee' version='3.1'/>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
     assertEquals(1, blacklist.size());
     String markerId = "com.google.cloud.tools.eclipse.appengine.validation.servletMarker";
@@ -62,57 +58,41 @@ public class WebXmlValidatorTest {
   }
 
   @Test
-  public void testCheckForElements_noElements() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element element = document.createElementNS("http://java.sun.com/xml/ns/javaee", "web-app");
-    element.setUserData("version", "2.5", null);
-    element.setUserData("location", new DocumentLocation(1, 1), null);
-    document.appendChild(element);
-
-    IResource resource = Mockito.mock(IResource.class);
-    Mockito.when(resource.getProject()).thenReturn(projectCreator.getProject());
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
+  public void testCheckForElements_noElements() throws IOException, SAXException {
+    String xml = "<web-app xmlns='http://java.sun.com/xml/ns/javaee' version='2.5'/>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
     assertEquals(0, blacklist.size());
   }
 
   @Test
-  public void testValidateServletMapping() throws ParserConfigurationException {
-    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-    Document document = documentBuilder.newDocument();
-
-    Element webApp = document.createElementNS("http://java.sun.com/xml/ns/javaee", "web-app");
-    webApp.setUserData("version", "2.5", null);
-    webApp.setUserData("location", new DocumentLocation(1, 1), null);
+  public void testValidateServletMapping() throws IOException, SAXException {
+    String xml = "<web-app xmlns='http://java.sun.com/xml/ns/javaee' version='2.5'>\n"
+        + "<servlet>\n"
+        + "<servlet-name>ServletName</servlet-name>\n"
+        + "</servlet>\n"
+        + "<servlet-mapping>\n"
+        + "<servlet-name>NotServletName</servlet-name>\n"
+        + "</servlet-mapping>\n"
+        + "</web-app>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
-    Element servlet = document.createElementNS("http://java.sun.com/xml/ns/javaee", "servlet");
-    servlet.setUserData("location", new DocumentLocation(2, 1), null);
-
-    Element servletName = document.createElementNS("http://java.sun.com/xml/ns/javaee", "servlet-name");
-    servletName.setTextContent("ServletName");
-    servletName.setUserData("location", new DocumentLocation(3, 1), null);
-    servlet.appendChild(servletName);
-    webApp.appendChild(servlet);
-
-    Element servletMapping = document.createElementNS("http://java.sun.com/xml/ns/javaee", "servlet-mapping");
-    servletMapping.setUserData("location", new DocumentLocation(4, 1), null);
-
-    Element servletMappingName = document.createElementNS("http://java.sun.com/xml/ns/javaee", "servlet-name");
-    servletMappingName.setTextContent("NotServletName");
-    servletMappingName.setUserData("location", new DocumentLocation(2, 1), null);
-    servletMapping.appendChild(servletMappingName);
-    webApp.appendChild(servletMapping);
+    assertEquals(1, blacklist.size());
+    assertEquals(6, blacklist.get(0).getStart().getLineNumber());
+  }
 
-    document.appendChild(webApp);
+  @Test
+  public void testValidateServletMapping_mappingBeforeServlet() throws IOException, SAXException {
+    String xml = "<web-app xmlns='http://java.sun.com/xml/ns/javaee' version='2.5'>"
+        + "<servlet-mapping><servlet-name>ServletName</servlet-name></servlet-mapping>"
+        + "<servlet><servlet-name>ServletName</servlet-name></servlet>"
+        + "</web-app>";
+    ArrayList<BannedElement> blacklist =
+        ValidationTestUtils.checkForElements(validator, resource, xml);
 
-    IResource resource = Mockito.mock(IResource.class);
-    Mockito.when(resource.getProject()).thenReturn(projectCreator.getProject());
-    ArrayList<BannedElement> blacklist = validator.checkForElements(resource, document);
-    assertEquals(1, blacklist.size());
+    assertEquals(0, blacklist.size());
   }
 
 }
@@ -30,7 +30,9 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Region;
 import org.eclipse.jst.common.project.facet.core.JavaFacet;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
 import org.eclipse.wst.sse.ui.internal.reconcile.validator.IncrementalHelper;
@@ -98,6 +100,34 @@ public class XmlSourceValidatorTest {
     assertTrue(reporter.getMessages().isEmpty());
   }
 
+  @Test
+  public void testValidate_dirtyRegionReusesMessages()
+      throws CoreException, ValidationException, BadLocationException {
+    IProject project = appEngineStandardProject.getProject();
+    IFile file = project.getFile("testdata.xml");
+    file.create(ValidationTestUtils.stringToInputStream(APPLICATION_XML), 0, null);
+
+    IDocument document = ValidationTestUtils.getDocument(file);
+    IncrementalHelper helper = new IncrementalHelper(document, project);
+    helper.setURI(file.getFullPath().toString());
+
+    XmlSourceValidator validator = new XmlSourceValidator();
+    validator.setHelper(new AppEngineWebXmlValidator());
+    validator.connect(document);
+    validator.validate(helper, reporter);
+    int offset = reporter.getMessages().get(0).getOffset();
+
+    // whitespace between elements leaves the banned element in place, one character later
+    int insertAt = APPLICATION_XML.indexOf("<application>");
+    document.replace(insertAt, 0, " ");
+    IncrementalReporter secondReporter = new IncrementalReporter(null);
+    validator.validate(new Region(insertAt, 1), helper, secondReporter);
+    List<IMessage> messages = secondReporter.getMessages();
+    assertEquals(1, messages.size());
+    assertEquals(offset + 1, messages.get(0).getOffset());
+    validator.disconnect(document);
+  }
+
   @Test
   public void testValidate_noBannedElements() throws IOException {
     XmlSourceValidator validator = new XmlSourceValidator();
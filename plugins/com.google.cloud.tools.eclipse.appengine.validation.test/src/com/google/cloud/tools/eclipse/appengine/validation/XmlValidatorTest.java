@@ -26,6 +26,7 @@ import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -138,6 +139,60 @@ public class XmlValidatorTest {
     assertEquals("line 1", markers[0].getAttribute(IMarker.LOCATION));
   }
 
+  @Test
+  public void testValidate_keepsUnchangedMarkers() throws IOException, CoreException {
+    byte[] bytes = XML.getBytes(StandardCharsets.UTF_8);
+    XmlValidator validator = new XmlValidator();
+    validator.setHelper(new AppEngineWebXmlValidator());
+    validator.validate(resource, bytes);
+    IMarker[] markers = resource.findMarkers(APPLICATION_MARKER, true, IResource.DEPTH_ZERO);
+
+    validator.validate(resource, bytes);
+    IMarker[] revalidated = resource.findMarkers(APPLICATION_MARKER, true, IResource.DEPTH_ZERO);
+    assertEquals(1, revalidated.length);
+    assertEquals(markers[0].getId(), revalidated[0].getId());
+  }
+
+  @Test
+  public void testValidate_removesStaleMarkers() throws IOException, CoreException {
+    XmlValidator validator = new XmlValidator();
+    validator.setHelper(new AppEngineWebXmlValidator());
+    validator.validate(resource, XML.getBytes(StandardCharsets.UTF_8));
+    validator.validate(resource, XML_NO_BANNED_ELEMENTS.getBytes(StandardCharsets.UTF_8));
+    IMarker[] markers = resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+    assertEquals(0, markers.length);
+  }
+
+  @Test
+  public void testValidate_restoresCachedResult() throws IOException, CoreException {
+    byte[] bytes = XML.getBytes(StandardCharsets.UTF_8);
+    CountingHelper helper = new CountingHelper();
+    XmlValidator validator = new XmlValidator();
+    validator.setHelper(helper);
+    validator.validate(resource, bytes);
+    resource.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+
+    validator.validate(resource, bytes);
+    assertEquals(1, helper.visitorCount);
+    IMarker[] markers = resource.findMarkers(APPLICATION_MARKER, true, IResource.DEPTH_ZERO);
+    assertEquals(1, markers.length);
+    assertEquals(Messages.getString("application.element"),
+        markers[0].getAttribute(IMarker.MESSAGE));
+    assertEquals(1, markers[0].getAttribute(IMarker.LINE_NUMBER));
+
+    validator.validate(resource, XML_NO_BANNED_ELEMENTS.getBytes(StandardCharsets.UTF_8));
+    assertEquals(2, helper.visitorCount);
+  }
+
+  @Test
+  public void testUpdateMarkers_duplicateElements() throws CoreException {
+    BannedElement element = new BannedElement("message");
+    XmlValidator.updateMarkers(resource, Arrays.asList(element, element));
+    assertEquals(2, resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO).length);
+    XmlValidator.updateMarkers(resource, Arrays.asList(element));
+    assertEquals(1, resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO).length);
+  }
+
   @Test
   public void testXsdValidation_appengineWebXml() throws CoreException {
     String xml = "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
@@ -165,4 +220,13 @@ public class XmlValidatorTest {
     assertEquals(message, markers[0].getAttribute(IMarker.MESSAGE));
   }
 
+  private static class CountingHelper extends AppEngineWebXmlValidator {
+    private int visitorCount;
+
+    @Override
+    public ElementVisitor createVisitor(IResource resource) {
+      visitorCount++;
+      return super.createVisitor(resource);
+    }
+  }
 }
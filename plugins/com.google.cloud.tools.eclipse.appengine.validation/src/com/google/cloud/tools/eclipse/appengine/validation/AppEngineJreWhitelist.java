@@ -17,8 +17,6 @@
 package com.google.cloud.tools.eclipse.appengine.validation;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Utility to check whether a given class is directly accessible in Java programs that run
@@ -32,9 +30,64 @@ import java.util.Set;
  */
 public class AppEngineJreWhitelist {
 
-  private static Set<String> WHITELIST =
-      new HashSet<String>(
-          Arrays.asList(
+  /**
+   * Package prefixes of the classes bundled with the JRE. No prefix is a prefix of another,
+   * so the only candidate for a class name is the greatest prefix sorted before it.
+   */
+  private static final String[] JRE_PACKAGES = sorted(
+      "java.",
+      "sun.util.",
+      "org.xml.sax.",
+      "org.w3c.dom.",
+      "org.omg.",
+      "org.ietf.jgss.",
+      // com.sun and com.oracle packages are tricky. Some are in the JRE. Some aren't.
+      "com.sun.jmx.",
+      "com.sun.jndi.",
+      "com.sun.media.",
+      "com.sun.management.",
+      "com.sun.beans.",
+      "com.sun.corba.",
+      "com.sun.awt.",
+      "com.sun.swing.",
+      "com.sun.rmi.",
+      "com.sun.xml.",
+      "com.sun.java.",
+      "com.sun.org.",
+      "com.sun.rowset.",
+      "com.oracle.net.",
+      "com.oracle.nio.",
+      "com.oracle.util.",
+      // javax packages are tricky. Some are in the JRE. Some aren't.
+      "javax.accessibility.",
+      "javax.activation.",
+      "javax.activity.",
+      "javax.annotation.",
+      "javax.crypto.",
+      "javax.imageio.",
+      "javax.jws.",
+      "javax.lang.model.",
+      "javax.management.",
+      "javax.naming.",
+      "javax.net.",
+      "javax.print.",
+      "javax.rmi.",
+      "javax.script.",
+      "javax.security.",
+      "javax.sound.",
+      "javax.sql.",
+      "javax.swing.",
+      "javax.tools.",
+      "javax.transaction.",
+      "javax.xml.");
+
+  /**
+   * Holds the whitelisted JRE classes, so that they are only loaded once a JRE class is
+   * looked up.
+   */
+  private static class Whitelist {
+
+    private static final String[] CLASSES = sorted(
               "java.beans.Transient",
               "java.lang.BootstrapMethodError",
               "java.lang.Character$UnicodeScript",
@@ -1923,73 +1976,34 @@ public class AppEngineJreWhitelist {
               "javax.naming.directory.Attribute",
               "javax.naming.directory.Attributes",
               "javax.naming.ldap.LdapName",
-              "javax.naming.ldap.Rdn"
-              ));
-  
-  
+              "javax.naming.ldap.Rdn");
+
+    private static boolean contains(String className) {
+      return Arrays.binarySearch(CLASSES, className) >= 0;
+    }
+  }
+
   /**
    * @param className fully package qualified class name
    * @return true if this class is allowed in Java 7 on App Engine Standard, false otherwise
    */
   public static boolean contains(String className) {
-    if (className.startsWith("javax.") ){
-      return !isBundledInJre(className) || WHITELIST.contains(className);
-    } else if (className.startsWith("java.") 
-        || className.startsWith("sun.util.") 
-        || className.startsWith("org.xml.sax.") 
-        || className.startsWith("org.w3c.dom.") 
-        || className.startsWith("org.omg.") 
-        || className.startsWith("org.ietf.jgss.") 
-        // com.sun and com.oracle packages are tricky. Some are in the JRE. Some aren't. 
-        || className.startsWith("com.sun.jmx.") 
-        || className.startsWith("com.sun.jndi.") 
-        || className.startsWith("com.sun.media.") 
-        || className.startsWith("com.sun.management.") 
-        || className.startsWith("com.sun.beans.") 
-        || className.startsWith("com.sun.corba.") 
-        || className.startsWith("com.sun.awt.") 
-        || className.startsWith("com.sun.swing.") 
-        || className.startsWith("com.sun.rmi.") 
-        || className.startsWith("com.sun.xml.") 
-        || className.startsWith("com.sun.java.") 
-        || className.startsWith("com.sun.org.") 
-        || className.startsWith("com.sun.rowset.") 
-        || className.startsWith("com.oracle.net.") 
-        || className.startsWith("com.oracle.nio.") 
-        || className.startsWith("com.oracle.util.")) {
-      return WHITELIST.contains(className);
-    } else { // not a JRE class
-      return true;
-    }
+    // Lookups compare against sorted arrays in place and do not allocate
+    return !isBundledInJre(className) || Whitelist.contains(className);
   }
 
-  // javax packages are tricky. Some are in the JRE. Some aren't. 
   private static boolean isBundledInJre(String className) {
-    if (className.startsWith("javax.accessibility.")
-        || className.startsWith("javax.activation.")
-        || className.startsWith("javax.activity.")
-        || className.startsWith("javax.annotation.")
-        || className.startsWith("javax.crypto.")
-        || className.startsWith("javax.imageio.")
-        || className.startsWith("javax.jws.")
-        || className.startsWith("javax.lang.model.")
-        || className.startsWith("javax.management.")
-        || className.startsWith("javax.naming.")
-        || className.startsWith("javax.net.")
-        || className.startsWith("javax.print.")
-        || className.startsWith("javax.rmi.")
-        || className.startsWith("javax.script.")
-        || className.startsWith("javax.security.")
-        || className.startsWith("javax.sound.")
-        || className.startsWith("javax.sql.")
-        || className.startsWith("javax.swing.")
-        || className.startsWith("javax.tools.")
-        || className.startsWith("javax.transaction.")
-        || className.startsWith("javax.xml.")) {
+    int index = Arrays.binarySearch(JRE_PACKAGES, className);
+    if (index >= 0) {
       return true;
     }
-    return false;
+    int floor = -index - 2;  // the greatest prefix sorted before className
+    return floor >= 0 && className.startsWith(JRE_PACKAGES[floor]);
+  }
+
+  private static String[] sorted(String... strings) {
+    Arrays.sort(strings);
+    return strings;
   }
-  
-}
 
+}
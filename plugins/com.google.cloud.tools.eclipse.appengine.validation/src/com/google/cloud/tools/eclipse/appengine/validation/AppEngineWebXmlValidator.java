@@ -16,11 +16,7 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
-import java.util.ArrayList;
 import org.eclipse.core.resources.IResource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Validator for appengine-web.xml
@@ -28,21 +24,24 @@ import org.w3c.dom.NodeList;
 public class AppEngineWebXmlValidator implements XmlValidationHelper {
 
   @Override
-  public ArrayList<BannedElement> checkForElements(IResource resource, Document document) {
-    ArrayList<BannedElement> blacklist = new ArrayList<>();
-    ArrayList<String> blacklistedElements = AppEngineWebBlacklist.getBlacklistElements();
-    for (String elementName : blacklistedElements) {
-      NodeList nodeList = document.getElementsByTagName(elementName);
-      for (int i = 0; i < nodeList.getLength(); i++) {
-        Node node = nodeList.item(i);
-        DocumentLocation userData = (DocumentLocation) node.getUserData("location");
-        AppEngineBlacklistElement element = new AppEngineBlacklistElement(
-            elementName,
-            userData,
-            node.getTextContent().length());
-        blacklist.add(element);
+  public ElementVisitor createVisitor(IResource resource) {
+    return new ElementVisitor() {
+      @Override
+      void endElement(ScannedElement element) {
+        String elementName = element.getQName();
+        if (AppEngineWebBlacklist.contains(elementName)) {
+          addBannedElement(new AppEngineBlacklistElement(
+              elementName,
+              element.getStart(),
+              element.getText().length()));
+        }
       }
-    }
-    return blacklist;
+    };
+  }
+
+  @Override
+  public boolean checksText(String localName) {
+    // the text length is the length of the marker
+    return AppEngineWebBlacklist.contains(localName);
   }
 }
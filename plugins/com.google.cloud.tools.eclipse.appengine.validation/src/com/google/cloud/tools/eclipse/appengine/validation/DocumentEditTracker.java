@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+
+/**
+ * Follows the edits made to a document between two validations, to tell whether the
+ * {@link BannedElement}s found by the last validation still hold and where they now are.
+ * An edit leaves them valid when it stays inside a single run of character data, changes no
+ * markup, and the run is not text that any rule of the {@link XmlValidationHelper} checks.
+ * Deciding this only looks at the text around the edit, not at the whole document.
+ * <p>
+ * A result that depends on workspace state, such as which servlet classes or JSP files
+ * exist, is also dropped when Java elements change or resources are added or removed, even
+ * if the document is not edited.
+ */
+class DocumentEditTracker
+    implements IDocumentListener, IElementChangedListener, IResourceChangeListener {
+
+  private final IDocument document;
+  private final XmlValidationHelper helper;
+
+  /** Banned elements from the last validation and their current offsets. */
+  private Map<BannedElement, Integer> offsets;
+  private boolean usesWorkspaceState;
+
+  DocumentEditTracker(IDocument document, XmlValidationHelper helper) {
+    this.document = Preconditions.checkNotNull(document);
+    this.helper = Preconditions.checkNotNull(helper);
+  }
+
+  /**
+   * Records the result of a full validation of the document.
+   *
+   * @param usesWorkspaceState whether the result depends on workspace state other than the
+   *     document, as told by {@link ElementVisitor#usesWorkspaceState()}
+   */
+  synchronized void setResult(Map<BannedElement, Integer> bannedElementOffsetMap,
+      boolean usesWorkspaceState) {
+    offsets = new LinkedHashMap<>(bannedElementOffsetMap);
+    this.usesWorkspaceState = usesWorkspaceState;
+  }
+
+  /**
+   * Returns the banned elements of the last validation with their offsets adjusted to the
+   * current document, or null if an edit since then may have changed the result.
+   */
+  synchronized Map<BannedElement, Integer> getResult() {
+    return offsets == null ? null : new LinkedHashMap<>(offsets);
+  }
+
+  synchronized void invalidate() {
+    offsets = null;
+  }
+
+  @Override
+  public void elementChanged(ElementChangedEvent event) {
+    workspaceChanged();
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (addsOrRemovesResources(event.getDelta())) {
+      workspaceChanged();
+    }
+  }
+
+  private synchronized void workspaceChanged() {
+    if (usesWorkspaceState) {
+      offsets = null;
+    }
+  }
+
+  /** Returns true if {@code delta} adds or removes a resource anywhere below it. */
+  @VisibleForTesting
+  static boolean addsOrRemovesResources(IResourceDelta delta) {
+    if (delta == null) {
+      return false;
+    }
+    if (delta.getAffectedChildren(IResourceDelta.ADDED | IResourceDelta.REMOVED).length > 0) {
+      return true;
+    }
+    // content and marker changes are ignored; they do not change which files exist
+    for (IResourceDelta child : delta.getAffectedChildren(IResourceDelta.CHANGED)) {
+      if (addsOrRemovesResources(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+    if (offsets == null) {
+      return;
+    }
+    try {
+      if (!isInertChange(document, event.getOffset(), event.getLength(), event.getText(),
+          helper)) {
+        offsets = null;
+      }
+    } catch (BadLocationException ex) {
+      offsets = null;
+    }
+  }
+
+  @Override
+  public synchronized void documentChanged(DocumentEvent event) {
+    if (offsets == null) {
+      return;
+    }
+    int editStart = event.getOffset();
+    int editEnd = editStart + event.getLength();
+    int delta = (event.getText() == null ? 0 : event.getText().length()) - event.getLength();
+    for (Map.Entry<BannedElement, Integer> entry : offsets.entrySet()) {
+      int offset = entry.getValue();
+      // text typed right where an element's start tag ends stays after the marker
+      if (offset >= editEnd && offset > editStart) {
+        entry.setValue(offset + delta);
+      }
+    }
+  }
+
+  /**
+   * Returns true if replacing {@code length} characters at {@code offset} with {@code text}
+   * cannot change what {@code helper} finds in {@code document}.
+   */
+  @VisibleForTesting
+  static boolean isInertChange(IDocument document, int offset, int length, String text,
+      XmlValidationHelper helper) throws BadLocationException {
+    String replaced = document.get(offset, length);
+    if (containsMarkup(replaced) || (text != null && containsMarkup(text))) {
+      return false;
+    }
+    int previousTag = findPreviousTagChar(document, offset);
+    int nextTag = findNextTagChar(document, offset + length);
+    if (previousTag < 0 || document.getChar(previousTag) != '>'
+        || nextTag < 0 || document.getChar(nextTag) != '<') {
+      return false;  // inside a tag, a comment, or outside the root element
+    }
+    String elementName = getEnclosingElement(document, previousTag, nextTag);
+    if (elementName == null) {
+      // between sibling elements; text there is only ever formatting
+      return isWhitespace(replaced) && (text == null || isWhitespace(text));
+    }
+    int colon = elementName.indexOf(':');
+    return !helper.checksText(elementName.substring(colon + 1));
+  }
+
+  /**
+   * Returns the name of the element whose character data lies between the tag ending at
+   * {@code previousTag} and the tag starting at {@code nextTag}, or null if that cannot be
+   * told from those two tags alone.
+   */
+  private static String getEnclosingElement(IDocument document, int previousTag, int nextTag)
+      throws BadLocationException {
+    if (nextTag + 1 < document.getLength() && document.getChar(nextTag + 1) == '/') {
+      return readName(document, nextTag + 2);
+    }
+    int tagStart = previousTag;
+    while (tagStart >= 0 && document.getChar(tagStart) != '<') {
+      tagStart--;
+    }
+    if (tagStart < 0 || previousTag == tagStart + 1) {
+      return null;
+    }
+    char first = document.getChar(tagStart + 1);
+    boolean emptyElement = document.getChar(previousTag - 1) == '/';
+    if (first == '/' || first == '!' || first == '?' || emptyElement) {
+      return null;  // an end tag, comment, processing instruction, or empty element
+    }
+    return readName(document, tagStart + 1);
+  }
+
+  private static String readName(IDocument document, int start) throws BadLocationException {
+    int end = start;
+    while (end < document.getLength()) {
+      char c = document.getChar(end);
+      if (Character.isWhitespace(c) || c == '>' || c == '/') {
+        break;
+      }
+      end++;
+    }
+    return document.get(start, end - start);
+  }
+
+  private static int findPreviousTagChar(IDocument document, int offset)
+      throws BadLocationException {
+    for (int i = offset - 1; i >= 0; i--) {
+      char c = document.getChar(i);
+      if (c == '<' || c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int findNextTagChar(IDocument document, int offset)
+      throws BadLocationException {
+    for (int i = offset; i < document.getLength(); i++) {
+      char c = document.getChar(i);
+      if (c == '<' || c == '>') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean containsMarkup(String text) {
+    return text.indexOf('<') >= 0 || text.indexOf('>') >= 0 || text.indexOf('&') >= 0;
+  }
+
+  private static boolean isWhitespace(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
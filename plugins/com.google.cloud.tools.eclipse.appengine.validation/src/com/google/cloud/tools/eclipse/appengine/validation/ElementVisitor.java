@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import java.util.ArrayList;
+
+/**
+ * Receives the elements of an XML document in document order during a single streaming
+ * scan, and collects the {@link BannedElement}s found. A visitor is used for one scan only.
+ */
+abstract class ElementVisitor {
+
+  private final ArrayList<BannedElement> blacklist = new ArrayList<>();
+  private String encoding;
+  private boolean usesWorkspaceState;
+
+  /**
+   * Called when the start tag of an element has been read. The element's text is not yet
+   * available.
+   */
+  void startElement(ScannedElement element) {
+  }
+
+  /**
+   * Called when the end tag of an element has been read.
+   */
+  void endElement(ScannedElement element) {
+  }
+
+  /**
+   * Called once the whole document has been scanned, for rules that need to see every
+   * element before deciding.
+   */
+  void endDocument() {
+  }
+
+  void addBannedElement(BannedElement element) {
+    blacklist.add(element);
+  }
+
+  ArrayList<BannedElement> getBlacklist() {
+    return blacklist;
+  }
+
+  /**
+   * Returns the encoding of the scanned document, or null if nothing has been scanned.
+   */
+  String getEncoding() {
+    return encoding;
+  }
+
+  void setEncoding(String encoding) {
+    this.encoding = encoding;
+  }
+
+  /**
+   * Returns true if the result depends on workspace state other than the document itself,
+   * such as the classes or files in the project, and so cannot be reused for the same bytes.
+   */
+  boolean usesWorkspaceState() {
+    return usesWorkspaceState;
+  }
+
+  void setUsesWorkspaceState() {
+    usesWorkspaceState = true;
+  }
+
+}
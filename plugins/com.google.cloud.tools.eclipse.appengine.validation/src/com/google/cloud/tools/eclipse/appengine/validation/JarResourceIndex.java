@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Remembers, per Java project, the web resources that the jars on the project's classpath
+ * provide under {@code META-INF/resources}, which Servlet 3.0 containers serve as if they were
+ * in the web application's root. A project's resources are collected when first asked for,
+ * reading only jars that are new or modified since they were last read, and are dropped when
+ * the project's classpath or the contents of one of its jars change. A jar is forgotten once
+ * no project's last known classpath includes it.
+ * <p>
+ * Projects on the classpath, e.g., workspace modules of a Maven project, are packaged as jars
+ * only when the application is deployed. Their resources are looked up in their source and
+ * output folders in the workspace instead, every time, so they need no invalidation.
+ */
+class JarResourceIndex implements IElementChangedListener {
+
+  private static final Logger logger = Logger.getLogger(JarResourceIndex.class.getName());
+
+  @VisibleForTesting
+  static final String RESOURCES_FOLDER = "META-INF/resources/";
+
+  /** Delta flags that can change the jars on a project's classpath or their contents. */
+  private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+      | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+      | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+      | IJavaElementDelta.F_OPENED
+      | IJavaElementDelta.F_CLOSED;
+
+  private static JarResourceIndex instance;
+
+  private final Map<IJavaProject, Set<String>> projectResources = new HashMap<>();
+  private final Map<File, JarResources> jarResources = new HashMap<>();
+  /** The jars on each project's classpath when its resources were last collected. */
+  private final Map<IJavaProject, List<File>> projectJars = new HashMap<>();
+  /** Incremented whenever project resources are dropped, so stale results are not stored. */
+  private int generation;
+
+  static synchronized JarResourceIndex getInstance() {
+    if (instance == null) {
+      instance = new JarResourceIndex();
+      JavaCore.addElementChangedListener(instance, ElementChangedEvent.POST_CHANGE);
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  JarResourceIndex() {
+  }
+
+  /**
+   * Returns true if a jar or project on the classpath of {@code project} contains
+   * {@code path}, relative to the web application root, under {@code META-INF/resources}.
+   */
+  boolean contains(IJavaProject project, String path) {
+    Preconditions.checkNotNull(project);
+    String relativePath = path.startsWith("/") ? path.substring(1) : path;
+    return getResources(project).contains(relativePath)
+        || isInRequiredProject(project, relativePath);
+  }
+
+  private Set<String> getResources(IJavaProject project) {
+    int buildGeneration;
+    synchronized (this) {
+      Set<String> resources = projectResources.get(project);
+      if (resources != null) {
+        return resources;
+      }
+      buildGeneration = generation;
+    }
+
+    List<File> jars = getJars(project);
+    Set<String> resources = new HashSet<>();
+    for (File jar : jars) {
+      resources.addAll(getJarResources(jar));
+    }
+    synchronized (this) {
+      if (buildGeneration == generation) {
+        projectResources.put(project, resources);
+      }
+      projectJars.put(project, jars);
+      evictUnusedJars();
+    }
+    return resources;
+  }
+
+  private static List<File> getJars(IJavaProject project) {
+    List<File> jars = new ArrayList<>();
+    if (!project.exists()) {
+      return jars;
+    }
+    try {
+      for (IClasspathEntry entry : project.getResolvedClasspath(true)) {
+        if (entry.getEntryKind() == IClasspathEntry.CPE_LIBRARY) {
+          IPath path = entry.getPath();
+          // workspace jars have workspace paths; other jars are already absolute
+          IResource resource = project.getProject().getWorkspace().getRoot().findMember(path);
+          IPath location = resource == null ? path : resource.getLocation();
+          File jar = location == null ? null : location.toFile();
+          if (jar != null && jar.isFile()) {
+            jars.add(jar);
+          }
+        }
+      }
+    } catch (JavaModelException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+    return jars;
+  }
+
+  /**
+   * Returns true if a project on the classpath of {@code project} has {@code relativePath}
+   * under {@code META-INF/resources} in one of its source folders or output folders.
+   */
+  private static boolean isInRequiredProject(IJavaProject project, String relativePath) {
+    if (!project.exists()) {
+      return false;
+    }
+    IWorkspaceRoot root = project.getProject().getWorkspace().getRoot();
+    String resourcePath = RESOURCES_FOLDER + relativePath;
+    try {
+      for (String name : project.getRequiredProjectNames()) {
+        IJavaProject required = JavaCore.create(root.getProject(name));
+        if (!required.exists()) {
+          continue;
+        }
+        if (root.exists(required.getOutputLocation().append(resourcePath))) {
+          return true;
+        }
+        for (IClasspathEntry entry : required.getRawClasspath()) {
+          if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE) {
+            continue;
+          }
+          IPath outputLocation = entry.getOutputLocation();
+          if (root.exists(entry.getPath().append(resourcePath))
+              || (outputLocation != null && root.exists(outputLocation.append(resourcePath)))) {
+            return true;
+          }
+        }
+      }
+    } catch (JavaModelException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * Returns the resources of {@code jar}, reading it only if it has not been read since it
+   * was last modified.
+   */
+  private Set<String> getJarResources(File jar) {
+    long lastModified = jar.lastModified();
+    long length = jar.length();
+    synchronized (this) {
+      JarResources known = jarResources.get(jar);
+      if (known != null && known.lastModified == lastModified && known.length == length) {
+        return known.resources;
+      }
+    }
+    Set<String> resources = readResources(jar);
+    synchronized (this) {
+      jarResources.put(jar, new JarResources(lastModified, length, resources));
+    }
+    return resources;
+  }
+
+  /**
+   * Returns the paths of the files in {@code jar} under {@code META-INF/resources}, relative
+   * to that folder. Only the zip directory is read.
+   */
+  @VisibleForTesting
+  static Set<String> readResources(File jar) {
+    Set<String> resources = new HashSet<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (!entry.isDirectory() && name.startsWith(RESOURCES_FOLDER)
+            && name.length() > RESOURCES_FOLDER.length()) {
+          resources.add(name.substring(RESOURCES_FOLDER.length()));
+        }
+      }
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, jar + ": " + ex.getMessage());
+    }
+    return resources;
+  }
+
+  @Override
+  public void elementChanged(ElementChangedEvent event) {
+    List<IJavaProject> changed = new ArrayList<>();
+    for (IJavaElementDelta projectDelta : event.getDelta().getAffectedChildren()) {
+      if (projectDelta.getElement() instanceof IJavaProject && changesJars(projectDelta)) {
+        changed.add((IJavaProject) projectDelta.getElement());
+      }
+    }
+    if (!changed.isEmpty()) {
+      invalidate(changed);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized void invalidate(List<IJavaProject> changed) {
+    projectResources.keySet().removeAll(changed);
+    for (IJavaProject project : changed) {
+      // the jars of a changed project are kept, as most of them are likely still on its
+      // classpath; those of a deleted or closed project are not
+      if (!project.exists()) {
+        projectJars.remove(project);
+      }
+    }
+    evictUnusedJars();
+    generation++;
+  }
+
+  /** Forgets the jars that are not on the last known classpath of any project. */
+  private void evictUnusedJars() {
+    Set<File> used = new HashSet<>();
+    for (List<File> jars : projectJars.values()) {
+      used.addAll(jars);
+    }
+    jarResources.keySet().retainAll(used);
+  }
+
+  /**
+   * Returns true if the delta may change which jars are on a project's classpath, or what
+   * one of those jars contains.
+   */
+  @VisibleForTesting
+  static boolean changesJars(IJavaElementDelta delta) {
+    int kind = delta.getKind();
+    if (kind == IJavaElementDelta.ADDED || kind == IJavaElementDelta.REMOVED) {
+      int type = delta.getElement().getElementType();
+      return type == IJavaElement.JAVA_PROJECT || type == IJavaElement.PACKAGE_FRAGMENT_ROOT;
+    }
+    if ((delta.getFlags() & CLASSPATH_FLAGS) != 0) {
+      return true;
+    }
+    for (IJavaElementDelta child : delta.getAffectedChildren()) {
+      // jars are package fragment roots; there is nothing to learn further down
+      if (child.getElement().getElementType() == IJavaElement.PACKAGE_FRAGMENT_ROOT
+          && changesJars(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @VisibleForTesting
+  synchronized boolean isCached(IJavaProject project) {
+    return projectResources.containsKey(project);
+  }
+
+  @VisibleForTesting
+  synchronized boolean isCached(File jar) {
+    return jarResources.containsKey(jar);
+  }
+
+  private static class JarResources {
+    private final long lastModified;
+    private final long length;
+    private final Set<String> resources;
+
+    private JarResources(long lastModified, long length, Set<String> resources) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.resources = resources;
+    }
+  }
+}
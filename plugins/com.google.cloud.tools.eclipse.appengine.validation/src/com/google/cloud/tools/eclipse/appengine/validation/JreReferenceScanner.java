@@ -0,0 +1,301 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+
+/**
+ * Finds references to JRE classes outside the App Engine whitelist by reading the tokens of
+ * a source file with the JDT scanner. The source is neither parsed nor are bindings resolved,
+ * so checking a file costs about as much as reading it once.
+ * <p>
+ * Type names are resolved in the compiler's order, as far as a single file can tell: classes
+ * declared in the file and single-type imports, then classes of the same package, then
+ * on-demand imports and {@code java.lang}. Only top-level classes are checked. Whether a class
+ * exists is asked of the {@link TypeLookup}, and only for names that would otherwise be
+ * reported; the answers are kept for the lifetime of this scanner.
+ * <p>
+ * Without bindings, the results differ from those of {@link JreWhitelistChecker} while
+ * reconciling in these cases:
+ * <ul>
+ * <li>A qualified class name is reported once, as its top-level class. Member classes, such as
+ *     those imported on demand from a class, are not reported on their own.
+ * <li>Capitalized names are taken for classes and names starting in lower case for packages,
+ *     so a capitalized variable named like a blacklisted class is reported.
+ * <li>Member classes inherited from supertypes declared in other files do not hide imported
+ *     classes or {@code java.lang}.
+ * </ul>
+ */
+class JreReferenceScanner {
+
+  /** Tells whether a class exists on the classpath. */
+  interface TypeLookup {
+    boolean exists(String className);
+  }
+
+  private static final String JAVA_LANG = "java.lang"; //$NON-NLS-1$
+
+  private final TypeLookup lookup;
+  private final String sourceLevel;
+  private final Map<String, Boolean> existingTypes = new HashMap<>();
+
+  /**
+   * @param sourceLevel the Java source level of the files, e.g. {@code "1.7"}
+   */
+  JreReferenceScanner(TypeLookup lookup, String sourceLevel) {
+    this.lookup = lookup;
+    this.sourceLevel = sourceLevel;
+  }
+
+  /**
+   * Returns a problem for every type name in {@code source} that refers to a JRE class
+   * outside the App Engine JRE whitelist.
+   */
+  List<CategorizedProblem> findBlacklistedTypes(char[] source, char[] fileName) {
+    IScanner scanner = ToolFactory.createScanner(false, false, true, sourceLevel);
+    scanner.setSource(source);
+    List<Token> tokens = tokenize(scanner);
+
+    String packageName = "";
+    Map<String, String> singleImports = new HashMap<>();
+    List<String> onDemandImports = new ArrayList<>();
+    Set<String> declaredTypes = new HashSet<>();
+    List<Token> body = new ArrayList<>();
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (token.kind == ITerminalSymbols.TokenNamepackage
+          || token.kind == ITerminalSymbols.TokenNameimport) {
+        int end = i + 1;
+        while (end < tokens.size() && tokens.get(end).kind != ITerminalSymbols.TokenNameSEMICOLON) {
+          end++;
+        }
+        List<Token> declaration = tokens.subList(i + 1, end);
+        if (token.kind == ITerminalSymbols.TokenNamepackage) {
+          packageName = joinNames(declaration);
+        } else {
+          addImport(declaration, singleImports, onDemandImports);
+        }
+        i = end;
+      } else {
+        if (token.kind == ITerminalSymbols.TokenNameIdentifier && i > 0
+            && isTypeDeclarationKeyword(tokens.get(i - 1))) {
+          declaredTypes.add(token.name);
+        }
+        body.add(token);
+      }
+    }
+    onDemandImports.add(JAVA_LANG);
+
+    List<CategorizedProblem> problems = new ArrayList<>();
+    for (int i = 0; i < body.size(); i++) {
+      Token token = body.get(i);
+      Token previous = i > 0 ? body.get(i - 1) : null;
+      if (token.kind != ITerminalSymbols.TokenNameIdentifier || (previous != null
+          && (previous.kind == ITerminalSymbols.TokenNameDOT
+              || isTypeDeclarationKeyword(previous)))) {
+        continue;  // not the start of a name, or the name of a declared class
+      }
+      List<Token> name = new ArrayList<>();
+      name.add(token);
+      int next = i + 1;
+      while (next + 1 < body.size() && body.get(next).kind == ITerminalSymbols.TokenNameDOT
+          && body.get(next + 1).kind == ITerminalSymbols.TokenNameIdentifier) {
+        name.add(body.get(next + 1));
+        next += 2;
+      }
+
+      Token classToken = null;
+      String className = null;
+      if (isCapitalized(token.name)) {
+        boolean invocation = name.size() == 1 && next < body.size()
+            && body.get(next).kind == ITerminalSymbols.TokenNameLPAREN
+            && (previous == null || previous.kind != ITerminalSymbols.TokenNamenew);
+        if (!invocation) {
+          classToken = token;
+          className = resolveSimpleName(token.name, packageName, singleImports, onDemandImports,
+              declaredTypes);
+        }
+      } else {
+        // a qualified name; its class is the first capitalized segment
+        StringBuilder qualifiedName = new StringBuilder(token.name);
+        for (Token segment : name.subList(1, name.size())) {
+          qualifiedName.append('.').append(segment.name);
+          if (isCapitalized(segment.name)) {
+            classToken = segment;
+            className = qualifiedName.toString();
+            break;
+          }
+        }
+        if (className != null && !isBlacklisted(className)) {
+          className = null;
+        }
+      }
+      if (className != null) {
+        problems.add(new JreWhitelistProblem(className, fileName, classToken.start,
+            classToken.end, scanner.getLineNumber(classToken.start)));
+      }
+      i = next - 1;
+    }
+    return problems;
+  }
+
+  /**
+   * Returns the blacklisted class that {@code simpleName} refers to, or null if it refers to
+   * a whitelisted class or to none.
+   */
+  private String resolveSimpleName(String simpleName, String packageName,
+      Map<String, String> singleImports, List<String> onDemandImports,
+      Set<String> declaredTypes) {
+    if (declaredTypes.contains(simpleName)) {
+      return null;
+    }
+    String imported = singleImports.get(simpleName);
+    if (imported != null) {
+      return AppEngineJreWhitelist.contains(imported) ? null : imported;
+    }
+    for (String onDemandImport : onDemandImports) {
+      String className = onDemandImport + '.' + simpleName;
+      if (isBlacklisted(className)) {
+        // a class of the same package hides on-demand imports
+        String samePackageClass =
+            packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+        return exists(samePackageClass) ? null : className;
+      }
+    }
+    return null;
+  }
+
+  private boolean isBlacklisted(String className) {
+    // the whitelist is consulted first, since it answers most names without a lookup
+    return !AppEngineJreWhitelist.contains(className) && exists(className);
+  }
+
+  private boolean exists(String className) {
+    Boolean exists = existingTypes.get(className);
+    if (exists == null) {
+      exists = lookup.exists(className);
+      existingTypes.put(className, exists);
+    }
+    return exists;
+  }
+
+  private static void addImport(List<Token> declaration, Map<String, String> singleImports,
+      List<String> onDemandImports) {
+    if (declaration.isEmpty()
+        || declaration.get(0).kind == ITerminalSymbols.TokenNamestatic) {
+      return;  // static imports name members, not classes
+    }
+    String importName = joinNames(declaration);
+    String topLevelClass = getTopLevelClass(importName);
+    Token last = declaration.get(declaration.size() - 1);
+    if (last.kind == ITerminalSymbols.TokenNameMULTIPLY) {
+      if (topLevelClass == null) {
+        onDemandImports.add(importName);
+      }
+      // the member classes of an imported class are not checked
+    } else if (topLevelClass != null) {
+      singleImports.put(last.name, topLevelClass);
+    }
+  }
+
+  /**
+   * Returns the top-level class of a qualified class name, by the convention that package
+   * names are not capitalized, or null if no segment is capitalized.
+   */
+  private static String getTopLevelClass(String qualifiedName) {
+    int start = 0;
+    while (start < qualifiedName.length()) {
+      int end = qualifiedName.indexOf('.', start);
+      if (end < 0) {
+        end = qualifiedName.length();
+      }
+      if (isCapitalized(qualifiedName.substring(start, end))) {
+        return qualifiedName.substring(0, end);
+      }
+      start = end + 1;
+    }
+    return null;
+  }
+
+  private static String joinNames(List<Token> tokens) {
+    StringBuilder name = new StringBuilder();
+    for (Token token : tokens) {
+      if (token.kind == ITerminalSymbols.TokenNameIdentifier) {
+        if (name.length() > 0) {
+          name.append('.');
+        }
+        name.append(token.name);
+      }
+    }
+    return name.toString();
+  }
+
+  private static boolean isTypeDeclarationKeyword(Token token) {
+    return token.kind == ITerminalSymbols.TokenNameclass
+        || token.kind == ITerminalSymbols.TokenNameinterface
+        || token.kind == ITerminalSymbols.TokenNameenum;
+  }
+
+  private static boolean isCapitalized(String name) {
+    return !name.isEmpty() && Character.isUpperCase(name.charAt(0));
+  }
+
+  /**
+   * Returns the tokens of the scanner's source up to the first one it cannot read, which the
+   * compiler reports itself.
+   */
+  private static List<Token> tokenize(IScanner scanner) {
+    List<Token> tokens = new ArrayList<>();
+    try {
+      int kind;
+      while ((kind = scanner.getNextToken()) != ITerminalSymbols.TokenNameEOF) {
+        String name = kind == ITerminalSymbols.TokenNameIdentifier
+            ? new String(scanner.getCurrentTokenSource()) : null;
+        tokens.add(new Token(kind, scanner.getCurrentTokenStartPosition(),
+            scanner.getCurrentTokenEndPosition(), name));
+      }
+    } catch (InvalidInputException ex) {
+      // check what could be read
+    }
+    return tokens;
+  }
+
+  private static class Token {
+    private final int kind;
+    private final int start;
+    private final int end;
+    /** The identifier, or null if this is not an identifier. */
+    private final String name;
+
+    private Token(int kind, int start, int end, String name) {
+      this.kind = kind;
+      this.start = start;
+      this.end = end;
+      this.name = name;
+    }
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Google Inc.
+ * Copyright 2017 Google Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,15 +16,198 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.compiler.BuildContext;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.CompilationParticipant;
+import org.eclipse.jdt.core.compiler.ReconcileContext;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.PackageDeclaration;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
 
+/**
+ * Reports references to JRE classes that are not on the App Engine JRE whitelist in projects
+ * targeting the App Engine Standard Java 7 runtime. Only the compilation units being built or
+ * reconciled are checked. Reconciling reuses the AST that the reconciler already built, and
+ * builds scan the tokens of the compiled files with {@link JreReferenceScanner}, which may
+ * report a file slightly differently; its documentation lists where.
+ */
 // see JavaCompilationParticipant.java in old plugin
 public class JreWhitelistChecker extends CompilationParticipant {
 
+  private static final Logger logger = Logger.getLogger(JreWhitelistChecker.class.getName());
+
+  /** {@code ReconcileContext.getAST(int)}, which only newer versions of JDT have. */
+  private static final Method getAstMethod = findGetAstMethod();
+
   @Override
   public boolean isActive(IJavaProject project) {
-    return false;
+    if (project == null) {
+      return false;
+    }
+    IProjectFacetVersion facetVersion =
+        AppEngineStandardFacet.getProjectFacetVersion(project.getProject());
+    return AppEngineStandardFacet.JRE7.equals(facetVersion);
+  }
+
+  @Override
+  public void reconcile(ReconcileContext context) {
+    // Asking for bindings the reconciler did not resolve would parse the working copy a
+    // second time; the next build checks the file instead.
+    if (!context.isResolvingBindings()) {
+      return;
+    }
+    try {
+      CompilationUnit ast = getReconcilerAst(context);
+      if (ast != null) {
+        char[] fileName = context.getWorkingCopy().getPath().toString().toCharArray();
+        List<CategorizedProblem> problems = findBlacklistedTypes(ast, fileName);
+        context.putProblems(JreWhitelistProblem.MARKER_ID,
+            problems.toArray(new CategorizedProblem[problems.size()]));
+      }
+    } catch (JavaModelException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+  }
+
+  /**
+   * Returns the AST that the reconciler built, at whatever level it uses, or null if it built
+   * none that this version of JDT hands out without parsing again.
+   */
+  @SuppressWarnings("deprecation")
+  private static CompilationUnit getReconcilerAst(ReconcileContext context)
+      throws JavaModelException {
+    int level = context.getASTLevel();
+    if (level == ICompilationUnit.NO_AST) {
+      return null;
+    }
+    if (getAstMethod != null) {
+      try {
+        return (CompilationUnit) getAstMethod.invoke(context, level);
+      } catch (InvocationTargetException ex) {
+        Throwables.propagateIfPossible(ex.getCause(), JavaModelException.class);
+        throw new RuntimeException(ex.getCause());
+      } catch (IllegalAccessException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+    switch (level) {
+      case AST.JLS8:
+        return context.getAST8();
+      case AST.JLS4:
+        return context.getAST4();
+      case AST.JLS3:
+        return context.getAST3();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Checks the files about to be compiled. Their tokens are scanned for class names; nothing is
+   * parsed and no bindings are resolved. Batch builds are checked too, since JDT deletes the
+   * markers of every file it compiles, and they are only recreated here.
+   */
+  @Override
+  public void buildStarting(BuildContext[] files, boolean isBatch) {
+    if (files.length == 0) {
+      return;
+    }
+    final IJavaProject project = JavaCore.create(files[0].getFile().getProject());
+    JreReferenceScanner scanner = new JreReferenceScanner(new JreReferenceScanner.TypeLookup() {
+      @Override
+      public boolean exists(String className) {
+        try {
+          return project.findType(className) != null;
+        } catch (JavaModelException ex) {
+          return false;
+        }
+      }
+    }, project.getOption(JavaCore.COMPILER_SOURCE, true));
+    for (BuildContext file : files) {
+      char[] fileName = file.getFile().getFullPath().toString().toCharArray();
+      List<CategorizedProblem> problems = scanner.findBlacklistedTypes(file.getContents(),
+          fileName);
+      if (!problems.isEmpty()) {
+        file.recordNewProblems(problems.toArray(new CategorizedProblem[problems.size()]));
+      }
+    }
+  }
+
+  private static Method findGetAstMethod() {
+    try {
+      return ReconcileContext.class.getMethod("getAST", int.class); //$NON-NLS-1$
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a problem for every name in {@code ast} that refers to a class outside the
+   * App Engine JRE whitelist.
+   */
+  @VisibleForTesting
+  static List<CategorizedProblem> findBlacklistedTypes(final CompilationUnit ast,
+      final char[] fileName) {
+    final List<CategorizedProblem> problems = new ArrayList<>();
+    ast.accept(new ASTVisitor() {
+      @Override
+      public boolean visit(PackageDeclaration node) {
+        return false;
+      }
+
+      @Override
+      public boolean visit(ImportDeclaration node) {
+        return false;  // the uses of the import are reported
+      }
+
+      @Override
+      public boolean visit(SimpleName node) {
+        IBinding binding = node.resolveBinding();
+        if (binding instanceof ITypeBinding) {
+          String className = getClassName((ITypeBinding) binding);
+          if (className != null && !AppEngineJreWhitelist.contains(className)) {
+            int start = node.getStartPosition();
+            int end = start + node.getLength() - 1;
+            problems.add(new JreWhitelistProblem(className, fileName, start, end,
+                ast.getLineNumber(start)));
+          }
+        }
+        return false;
+      }
+    });
+    return problems;
+  }
+
+  /**
+   * Returns the binary name of the class named by {@code binding}, or null if it does not
+   * name a class.
+   */
+  private static String getClassName(ITypeBinding binding) {
+    ITypeBinding type = binding.isArray() ? binding.getElementType() : binding;
+    type = type.getErasure();
+    if (type.isPrimitive() || type.isTypeVariable() || type.isCapture() || type.isWildcardType()
+        || type.isRecovered()) {
+      return null;
+    }
+    return type.getBinaryName();
   }
-  
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Character offsets of the start of every line in a document, built in a single pass so
+ * that any line and column can be turned into a document offset in constant time.
+ * Each of "\n", "\r" and "\r\n" ends a line and counts as a single character.
+ */
+class LineOffsets {
+
+  private final int[] lineStarts;
+  private final int lineCount;
+
+  private LineOffsets(int[] lineStarts, int lineCount) {
+    this.lineStarts = lineStarts;
+    this.lineCount = lineCount;
+  }
+
+  /**
+   * Decodes {@code bytes} with {@code encoding} and records where each line starts.
+   */
+  static LineOffsets of(byte[] bytes, String encoding) throws IOException {
+    int[] lineStarts = new int[64];
+    int lineCount = 1;  // line 1 starts at offset 0
+    int offset = 0;
+    boolean previousWasCr = false;
+    char[] buffer = new char[8192];
+    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), encoding)) {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        for (int i = 0; i < read; i++) {
+          char c = buffer[i];
+          if (c == '\n' && previousWasCr) {
+            // second half of "\r\n"; the line start was recorded at the '\r'
+            previousWasCr = false;
+            continue;
+          }
+          offset++;
+          previousWasCr = c == '\r';
+          if (c == '\n' || c == '\r') {
+            if (lineCount == lineStarts.length) {
+              lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount++] = offset;
+          }
+        }
+      }
+    }
+    return new LineOffsets(lineStarts, lineCount);
+  }
+
+  int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Returns the document offset of a 1-based line and column.
+   */
+  int getOffset(int lineNumber, int columnNumber) {
+    Preconditions.checkElementIndex(lineNumber - 1, lineCount, "lineNumber");
+    return lineStarts[lineNumber - 1] + columnNumber - 1;
+  }
+
+  int getOffset(DocumentLocation location) {
+    return getOffset(location.getLineNumber(), location.getColumnNumber());
+  }
+
+}
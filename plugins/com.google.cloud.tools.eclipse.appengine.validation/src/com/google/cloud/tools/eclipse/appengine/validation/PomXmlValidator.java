@@ -16,46 +16,73 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import java.util.Deque;
+import java.util.List;
 import org.eclipse.core.resources.IResource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 public class PomXmlValidator implements XmlValidationHelper {
 
-  private static final XPathFactory FACTORY = XPathFactory.newInstance();
+  private static final String MAVEN_NAMESPACE = "http://maven.apache.org/POM/4.0.0";
+  private static final String APPENGINE_GROUP_ID = "com.google.appengine";
+  private static final ImmutableSet<String> BANNED_ARTIFACT_IDS =
+      ImmutableSet.of("appengine-maven-plugin", "gcloud-maven-plugin");
 
   /**
    * Selects all the <groupId> elements with value "com.google.appengine" whose <artifactId>
-   * sibling has the value "appengine-maven-plugin" or "gcloud-maven-plugin".
+   * sibling has the value "appengine-maven-plugin" or "gcloud-maven-plugin". As the
+   * <artifactId> may follow the <groupId>, the decision is made when the <plugin> ends.
    */
   @Override
-  public ArrayList<BannedElement> checkForElements(IResource resource, Document document) {
-    ArrayList<BannedElement> blacklist = new ArrayList<>();
-    try {
-      XPath xPath = FACTORY.newXPath();
-      NamespaceContext nsContext = new MavenContext();
-      xPath.setNamespaceContext(nsContext);
-      String selectGroupId = "//prefix:plugin/prefix:groupId[.='com.google.appengine']"
-          + "[../prefix:artifactId[text()='appengine-maven-plugin'"
-          + " or text()='gcloud-maven-plugin']]";
-      NodeList groupIdElements =
-          (NodeList) xPath.compile(selectGroupId).evaluate(document, XPathConstants.NODESET);
-      for (int i = 0; i < groupIdElements.getLength(); i++) {
-        Node child = groupIdElements.item(i);
-        DocumentLocation location = (DocumentLocation) child.getUserData("location");
-        BannedElement element = new MavenPluginElement(location, child.getTextContent().length());
-        blacklist.add(element);
+  public ElementVisitor createVisitor(IResource resource) {
+    return new ElementVisitor() {
+      private final Deque<Plugin> plugins = new ArrayDeque<>();
+
+      @Override
+      void startElement(ScannedElement element) {
+        if (element.is(MAVEN_NAMESPACE, "plugin")) {
+          plugins.push(new Plugin());
+        }
+      }
+
+      @Override
+      void endElement(ScannedElement element) {
+        if (element.is(MAVEN_NAMESPACE, "plugin")) {
+          Plugin plugin = plugins.pop();
+          if (plugin.bannedArtifactId) {
+            for (ScannedElement groupId : plugin.appEngineGroupIds) {
+              addBannedElement(
+                  new MavenPluginElement(groupId.getStart(), groupId.getText().length()));
+            }
+          }
+        } else if (isPluginChild(element, "groupId")) {
+          if (APPENGINE_GROUP_ID.equals(element.getText())) {
+            plugins.peek().appEngineGroupIds.add(element);
+          }
+        } else if (isPluginChild(element, "artifactId")) {
+          if (BANNED_ARTIFACT_IDS.contains(element.getText())) {
+            plugins.peek().bannedArtifactId = true;
+          }
+        }
       }
-    } catch (XPathExpressionException ex) {
-      throw new RuntimeException("Invalid XPath expression");
-    }
-    return blacklist;
+    };
+  }
+
+  @Override
+  public boolean checksText(String localName) {
+    return "groupId".equals(localName) || "artifactId".equals(localName);
+  }
+
+  private static boolean isPluginChild(ScannedElement element, String qName) {
+    ScannedElement parent = element.getParent();
+    return element.is(MAVEN_NAMESPACE, qName)
+        && parent != null && parent.is(MAVEN_NAMESPACE, "plugin");
+  }
+
+  private static class Plugin {
+    private final List<ScannedElement> appEngineGroupIds = new ArrayList<>();
+    private boolean bannedArtifactId;
   }
-}
\ No newline at end of file
+}
@@ -19,15 +19,13 @@ package com.google.cloud.tools.eclipse.appengine.validation;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 
-import java.util.Stack;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -35,91 +33,79 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.ext.Locator2;
 
 /**
- * Builds a DOM tree that maintains element line and column numbers.
+ * Streams elements, along with their line and column numbers, to an {@link ElementVisitor}
+ * without building a DOM tree.
  */
 class PositionalXmlHandler extends DefaultHandler {
-  
-    private Document document;
-    private StringBuilder textBuffer = new StringBuilder();
+
+    private final ElementVisitor visitor;
+    private final Deque<ScannedElement> elementStack = new ArrayDeque<>();
     private Locator2 locator;
-    private final Stack<Element> elementStack = new Stack<>();
 
-    @Override
-    public void startDocument() {
-      try {
-        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-        document = documentBuilder.newDocument();  
-      } catch (ParserConfigurationException ex) {
-        throw new RuntimeException("Cannot create document", ex);
-      }
+    PositionalXmlHandler(ElementVisitor visitor) {
+      this.visitor = Preconditions.checkNotNull(visitor);
     }
-    
+
     @Override
     public void setDocumentLocator(Locator locator) {
       this.locator = (Locator2) locator;
     }
-      
+
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes)
-        throws SAXException {               
-      addText();
-      Element element = document.createElementNS(uri, qName);
-      for (int i = 0; i < attributes.getLength(); i++) {
-        element.setUserData(attributes.getQName(i), attributes.getValue(i), null);
-      }
+        throws SAXException {
       DocumentLocation location = new DocumentLocation(
           locator.getLineNumber(), locator.getColumnNumber());
-      element.setUserData("location", location, null);
+      ScannedElement element = new ScannedElement(
+          elementStack.peek(), uri, localName, qName, copyAttributes(attributes), location);
       elementStack.push(element);
+      visitor.startElement(element);
     }
-      
+
     @Override
     public void endElement(String uri, String localName, String qName){
-      addText();
-      Element closedElement = elementStack.pop();
+      ScannedElement closedElement = elementStack.pop();
       if (elementStack.isEmpty()) { // If this is the root element
-        closedElement.setUserData("encoding", locator.getEncoding(), null);
-        document.appendChild(closedElement);
-      } else {
-        Element parentElement = elementStack.peek();
-        parentElement.appendChild(closedElement);                   
+        visitor.setEncoding(locator.getEncoding());
       }
+      visitor.endElement(closedElement);
     }
-      
+
     @Override
-    public void characters (char ch[], int start, int length) throws SAXException {
-      textBuffer.append(ch, start, length);
-    }
-    
-    /**
-     *  Returns the text inside the current tag
-     */
-    @VisibleForTesting
-    void addText() {
-      if (textBuffer.length() > 0) {
-        Element element = elementStack.peek();
-        Node textNode = document.createTextNode(textBuffer.toString());
-        element.appendChild(textNode);
-        textBuffer = new StringBuilder();
+    public void characters(char ch[], int start, int length) throws SAXException {
+      ScannedElement element = elementStack.peek();
+      if (element != null) {
+        element.appendText(ch, start, length);
       }
     }
-    
-    Document getDocument() {
-      return document;
+
+    @Override
+    public void endDocument() {
+      visitor.endDocument();
     }
-    
+
+    private static Map<String, String> copyAttributes(Attributes attributes) {
+      if (attributes.getLength() == 0) {
+        return null;
+      }
+      ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+      for (int i = 0; i < attributes.getLength(); i++) {
+        builder.put(attributes.getQName(i), attributes.getValue(i));
+      }
+      return builder.build();
+    }
+
     @VisibleForTesting
-    Stack<Element> getElementStack() {
+    Deque<ScannedElement> getElementStack() {
       return elementStack;
     }
-    
+
     @Override
     public void error(SAXParseException ex) throws SAXException {
       //nests ex to conserve exception line number
       throw new SAXException(ex.getMessage(), ex);
     }
-    
+
     @Override
     public void fatalError(SAXParseException ex) throws SAXException {
       throw new SAXException(ex.getMessage(), ex);
@@ -128,5 +114,5 @@ class PositionalXmlHandler extends DefaultHandler {
     @Override
     public void warning(SAXParseException exception) throws SAXException { //do nothing
     }
-    
+
 }
@@ -16,29 +16,25 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
-import org.xml.sax.helpers.XMLReaderFactory;
-
+import com.google.cloud.tools.eclipse.util.XmlParsers;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 class PositionalXmlScanner {
-  
-  static Document parse(byte[] bytes) throws SAXException, IOException {
+
+  /**
+   * Runs every rule of {@code visitor} over the document in a single pass. Nothing is
+   * reported for an empty document.
+   */
+  static void scan(byte[] bytes, ElementVisitor visitor) throws SAXException, IOException {
     if (bytes.length == 0) { //file is empty
-      return null;
+      return;
     }
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
     InputSource is = new InputSource(bais);
-    XMLReader reader = XMLReaderFactory.createXMLReader();     
-    PositionalXmlHandler handler = new PositionalXmlHandler();
-    reader.setContentHandler(handler);
-    reader.setErrorHandler(handler);
-    reader.parse(is);
-    return handler.getDocument();
+    XmlParsers.parse(is, new PositionalXmlHandler(visitor));
   }
-    
+
 }
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+
+/**
+ * Remembers, per Java project, which class names resolve to a class on the project's
+ * classpath. Names not known yet are looked up together in a single query of the JDT type
+ * name index. Java element deltas drop only the projects whose set of types may have changed;
+ * edits inside method bodies keep the cached answers. Names that are not classes, such as the
+ * partial names seen while a class name is typed into web.xml, are remembered up to a limit.
+ */
+class ProjectTypeIndex implements IElementChangedListener {
+
+  private static final Logger logger = Logger.getLogger(ProjectTypeIndex.class.getName());
+
+  /** Delta flags that can add or remove types visible to a project. */
+  private static final int CLASSPATH_FLAGS = IJavaElementDelta.F_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED
+      | IJavaElementDelta.F_ADDED_TO_CLASSPATH
+      | IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+      | IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED
+      | IJavaElementDelta.F_OPENED
+      | IJavaElementDelta.F_CLOSED;
+
+  /** How many names that are not classes are remembered per project. */
+  @VisibleForTesting
+  static final int MAX_MISSING_TYPES = 256;
+
+  private static ProjectTypeIndex instance;
+
+  private final Map<IJavaProject, KnownTypes> cache = new HashMap<>();
+  /** Incremented whenever cached answers are dropped, so stale searches are not stored. */
+  private int generation;
+
+  static synchronized ProjectTypeIndex getInstance() {
+    if (instance == null) {
+      instance = new ProjectTypeIndex();
+      JavaCore.addElementChangedListener(instance, ElementChangedEvent.POST_CHANGE);
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  ProjectTypeIndex() {
+  }
+
+  /**
+   * Returns those of {@code typeNames} that are not classes on the classpath of
+   * {@code project}. A name without a package matches a class of that name in any package.
+   */
+  Set<String> findMissingTypes(IJavaProject project, Collection<String> typeNames) {
+    Preconditions.checkNotNull(project);
+    Set<String> missing = new LinkedHashSet<>();
+    Set<String> unknown = new LinkedHashSet<>();
+    int searchGeneration;
+    synchronized (this) {
+      KnownTypes known = cache.get(project);
+      for (String typeName : typeNames) {
+        Boolean exists = known == null ? null : known.exists(typeName);
+        if (exists == null) {
+          unknown.add(typeName);
+        } else if (!exists) {
+          missing.add(typeName);
+        }
+      }
+      searchGeneration = generation;
+    }
+    if (unknown.isEmpty()) {
+      return missing;
+    }
+
+    Set<String> found = findExistingTypes(project, unknown);
+    synchronized (this) {
+      KnownTypes known = null;
+      if (searchGeneration == generation) {
+        known = cache.get(project);
+        if (known == null) {
+          known = new KnownTypes();
+          cache.put(project, known);
+        }
+      }
+      for (String typeName : unknown) {
+        boolean exists = found.contains(typeName);
+        if (!exists) {
+          missing.add(typeName);
+        }
+        if (known != null) {
+          known.put(typeName, exists);
+        }
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Returns those of {@code typeNames} that are classes on the classpath of
+   * {@code project}, found with one query of the type name index.
+   */
+  @VisibleForTesting
+  static Set<String> findExistingTypes(IJavaProject project, Collection<String> typeNames) {
+    Set<String> simpleNames = new HashSet<>();
+    for (String typeName : typeNames) {
+      if (!Strings.isNullOrEmpty(typeName)) {
+        simpleNames.add(getSimpleName(typeName));
+      }
+    }
+    if (simpleNames.isEmpty()) {
+      return new HashSet<>();
+    }
+    char[][] simpleNameChars = new char[simpleNames.size()][];
+    int i = 0;
+    for (String simpleName : simpleNames) {
+      simpleNameChars[i++] = simpleName.toCharArray();
+    }
+
+    final Set<String> qualifiedNames = new HashSet<>();
+    final Set<String> foundSimpleNames = new HashSet<>();
+    TypeNameRequestor requestor = new TypeNameRequestor() {
+      @Override
+      public void acceptType(int modifiers, char[] packageName, char[] simpleTypeName,
+          char[][] enclosingTypeNames, String path) {
+        if (Flags.isInterface(modifiers)) {
+          return;
+        }
+        StringBuilder name = new StringBuilder();
+        if (packageName.length > 0) {
+          name.append(packageName).append('.');
+        }
+        for (char[] enclosingTypeName : enclosingTypeNames) {
+          name.append(enclosingTypeName).append('$');
+        }
+        name.append(simpleTypeName);
+        qualifiedNames.add(name.toString());
+        if (enclosingTypeNames.length == 0) {
+          foundSimpleNames.add(new String(simpleTypeName));
+        }
+      }
+    };
+    try {
+      IJavaElement[] elements = new IJavaElement[] {project};
+      new SearchEngine().searchAllTypeNames(null, simpleNameChars,
+          SearchEngine.createJavaSearchScope(elements), requestor,
+          IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+    } catch (JavaModelException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+
+    Set<String> existing = new HashSet<>();
+    for (String typeName : typeNames) {
+      if (qualifiedNames.contains(typeName)
+          || (typeName.indexOf('.') < 0 && foundSimpleNames.contains(typeName))) {
+        existing.add(typeName);
+      }
+    }
+    return existing;
+  }
+
+  private static String getSimpleName(String typeName) {
+    int separator = Math.max(typeName.lastIndexOf('.'), typeName.lastIndexOf('$'));
+    return typeName.substring(separator + 1);
+  }
+
+  @Override
+  public void elementChanged(ElementChangedEvent event) {
+    List<IJavaProject> changed = new ArrayList<>();
+    for (IJavaElementDelta projectDelta : event.getDelta().getAffectedChildren()) {
+      if (projectDelta.getElement() instanceof IJavaProject && changesTypes(projectDelta)) {
+        changed.add((IJavaProject) projectDelta.getElement());
+      }
+    }
+    if (!changed.isEmpty()) {
+      invalidate(changed);
+    }
+  }
+
+  /**
+   * Drops what is known for the changed projects and for projects that require them.
+   */
+  @VisibleForTesting
+  synchronized void invalidate(List<IJavaProject> changed) {
+    Set<String> changedNames = new HashSet<>();
+    for (IJavaProject project : changed) {
+      changedNames.add(project.getElementName());
+    }
+    for (Iterator<IJavaProject> iterator = cache.keySet().iterator(); iterator.hasNext();) {
+      IJavaProject project = iterator.next();
+      if (changedNames.contains(project.getElementName()) || requiresAny(project, changedNames)) {
+        iterator.remove();
+      }
+    }
+    generation++;
+  }
+
+  private static boolean requiresAny(IJavaProject project, Set<String> projectNames) {
+    try {
+      for (String required : project.getRequiredProjectNames()) {
+        if (projectNames.contains(required)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (JavaModelException ex) {
+      return true;  // closed or deleted; forget it
+    }
+  }
+
+  /**
+   * Returns true if the delta may add, remove, or rename a type.
+   */
+  @VisibleForTesting
+  static boolean changesTypes(IJavaElementDelta delta) {
+    int kind = delta.getKind();
+    if (kind == IJavaElementDelta.ADDED || kind == IJavaElementDelta.REMOVED) {
+      int type = delta.getElement().getElementType();
+      // new or removed methods and fields do not change which types exist
+      return type != IJavaElement.METHOD && type != IJavaElement.FIELD
+          && type != IJavaElement.INITIALIZER && type != IJavaElement.IMPORT_DECLARATION
+          && type != IJavaElement.IMPORT_CONTAINER && type != IJavaElement.PACKAGE_DECLARATION;
+    }
+    int flags = delta.getFlags();
+    if ((flags & CLASSPATH_FLAGS) != 0) {
+      return true;
+    }
+    if (delta.getElement().getElementType() == IJavaElement.COMPILATION_UNIT
+        && (flags & IJavaElementDelta.F_CONTENT) != 0
+        && (flags & IJavaElementDelta.F_FINE_GRAINED) == 0) {
+      return true;  // no details of what changed in the source
+    }
+    if (delta.getElement().getElementType() == IJavaElement.CLASS_FILE
+        && (flags & IJavaElementDelta.F_CONTENT) != 0) {
+      return true;
+    }
+    for (IJavaElementDelta child : delta.getAffectedChildren()) {
+      if (changesTypes(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @VisibleForTesting
+  synchronized boolean isCached(IJavaProject project, String typeName) {
+    KnownTypes known = cache.get(project);
+    return known != null && known.exists(typeName) != null;
+  }
+
+  /** What is known about class names on the classpath of one project. */
+  private static class KnownTypes {
+    /** Names of classes; there are no more of them than classes on the classpath. */
+    private final Set<String> existing = new HashSet<>();
+    /** Names that are not classes, oldest first. */
+    private final Set<String> missing = Collections.newSetFromMap(
+        new LinkedHashMap<String, Boolean>() {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_MISSING_TYPES;
+          }
+        });
+
+    /** Returns whether {@code typeName} is a class, or null if that is not known. */
+    private Boolean exists(String typeName) {
+      if (existing.contains(typeName)) {
+        return true;
+      }
+      return missing.contains(typeName) ? false : null;
+    }
+
+    private void put(String typeName, boolean exists) {
+      if (exists) {
+        existing.add(typeName);
+      } else {
+        missing.add(typeName);
+      }
+    }
+  }
+}
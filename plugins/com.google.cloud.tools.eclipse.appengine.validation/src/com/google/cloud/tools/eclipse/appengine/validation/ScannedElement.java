@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+
+/**
+ * An element seen while streaming through an XML document, used in place of a DOM node.
+ */
+class ScannedElement {
+
+  private final ScannedElement parent;
+  private final String namespaceUri;
+  private final String localName;
+  private final String qName;
+  private final Map<String, String> attributes;
+  private final DocumentLocation start;
+  private StringBuilder text;
+
+  ScannedElement(ScannedElement parent, String namespaceUri, String localName, String qName,
+      Map<String, String> attributes, DocumentLocation start) {
+    Preconditions.checkNotNull(qName, "qName is null");
+    Preconditions.checkNotNull(start, "start is null");
+    this.parent = parent;
+    this.namespaceUri = namespaceUri;
+    this.localName = localName;
+    this.qName = qName;
+    this.attributes = attributes == null ? ImmutableMap.<String, String>of() : attributes;
+    this.start = start;
+  }
+
+  /**
+   * Returns the enclosing element, or null if this is the root element.
+   */
+  ScannedElement getParent() {
+    return parent;
+  }
+
+  String getNamespaceUri() {
+    return namespaceUri;
+  }
+
+  String getLocalName() {
+    return localName;
+  }
+
+  /**
+   * Returns the tag name, including any namespace prefix.
+   */
+  String getQName() {
+    return qName;
+  }
+
+  /**
+   * Returns true if this element has the given namespace and local name.
+   */
+  boolean is(String namespaceUri, String localName) {
+    return localName.equals(this.localName) && namespaceUri.equals(this.namespaceUri);
+  }
+
+  /**
+   * Returns the value of the attribute with the given qualified name, or null.
+   */
+  String getAttribute(String qName) {
+    return attributes.get(qName);
+  }
+
+  DocumentLocation getStart() {
+    return start;
+  }
+
+  void appendText(char[] chars, int start, int length) {
+    if (text == null) {
+      text = new StringBuilder(length);
+    }
+    text.append(chars, start, length);
+  }
+
+  /**
+   * Returns the character data found directly inside this element. Complete only once
+   * the element has ended.
+   */
+  String getText() {
+    return text == null ? "" : text.toString();
+  }
+
+}
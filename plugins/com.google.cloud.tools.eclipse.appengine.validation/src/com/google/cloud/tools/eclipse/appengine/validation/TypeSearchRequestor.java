@@ -1,36 +0,0 @@
-/*
- * Copyright 2017 Google Inc.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.google.cloud.tools.eclipse.appengine.validation;
-
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.search.SearchMatch;
-import org.eclipse.jdt.core.search.SearchRequestor;
-
-class TypeSearchRequestor extends SearchRequestor {
-
-  private int matchCount;
-  
-  @Override
-  public void acceptSearchMatch(SearchMatch match) throws CoreException {
-    matchCount++;
-  }
-  
-  boolean foundMatch() {
-    return matchCount > 0;
-  }
-
-}
\ No newline at end of file
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.validation;
+
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.QualifiedName;
+import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Remembers the {@link BannedElement}s found in a file, so that validating the same bytes
+ * again can restore them without parsing. Results are kept in a persistent property of the
+ * file, which the workspace saves across sessions and discards with the file.
+ * <p>
+ * A result is reused only if the file contents, this bundle's version and the project's
+ * App Engine facet version are all unchanged. Results that depend on other workspace state,
+ * such as which classes exist, must not be stored.
+ */
+class ValidationResultCache {
+
+  private static final String QUALIFIER = "com.google.cloud.tools.eclipse.appengine.validation";
+
+  /** Persistent property values longer than this are rejected by the workspace. */
+  @VisibleForTesting
+  static final int MAX_VALUE_LENGTH = 2 * 1024;
+
+  private static final Splitter LINES = Splitter.on('\n');
+  private static final Splitter FIELDS = Splitter.on('\t').limit(7);
+
+  private final QualifiedName property;
+
+  /**
+   * @param helper the validation helper whose results are cached; each helper has its own
+   *     entry
+   */
+  ValidationResultCache(XmlValidationHelper helper) {
+    property = new QualifiedName(QUALIFIER, "result." + helper.getClass().getName());
+  }
+
+  /**
+   * Returns a key identifying {@code bytes} validated under the current validator version
+   * and project state.
+   */
+  static String getKey(IResource resource, byte[] bytes) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(getValidatorVersion(), StandardCharsets.UTF_8).putByte((byte) 0);
+    IProjectFacetVersion facetVersion =
+        AppEngineStandardFacet.getProjectFacetVersion(resource.getProject());
+    if (facetVersion != null) {
+      hasher.putString(facetVersion.getVersionString(), StandardCharsets.UTF_8);
+    }
+    hasher.putByte((byte) 0).putBytes(bytes);
+    return hasher.hash().toString();
+  }
+
+  private static String getValidatorVersion() {
+    Bundle bundle = FrameworkUtil.getBundle(ValidationResultCache.class);
+    return bundle == null ? "" : bundle.getVersion().toString();
+  }
+
+  /**
+   * Returns the elements stored for {@code key}, or null if the stored result is missing or
+   * was computed for different contents.
+   */
+  List<BannedElement> get(IResource resource, String key) throws CoreException {
+    String value = resource.getPersistentProperty(property);
+    if (value == null) {
+      return null;
+    }
+    List<String> lines = LINES.splitToList(value);
+    if (!key.equals(lines.get(0))) {
+      return null;
+    }
+    List<BannedElement> elements = new ArrayList<>();
+    for (String line : lines.subList(1, lines.size())) {
+      BannedElement element = decode(line);
+      if (element == null) {
+        return null;
+      }
+      elements.add(element);
+    }
+    return elements;
+  }
+
+  /**
+   * Stores {@code elements} as the result for {@code key}, or forgets the file's result if
+   * they are too large to store.
+   */
+  void put(IResource resource, String key, Collection<BannedElement> elements)
+      throws CoreException {
+    StringBuilder value = new StringBuilder(key);
+    for (BannedElement element : elements) {
+      value.append('\n');
+      encode(element, value);
+    }
+    resource.setPersistentProperty(property,
+        value.length() <= MAX_VALUE_LENGTH ? value.toString() : null);
+  }
+
+  void remove(IResource resource) throws CoreException {
+    resource.setPersistentProperty(property, null);
+  }
+
+  private static void encode(BannedElement element, StringBuilder out) {
+    DocumentLocation start = element.getStart();
+    out.append(element.getMarkerId()).append('\t')
+        .append(element.getIMarkerSeverity()).append('\t')
+        .append(element.getIMessageSeverity()).append('\t')
+        .append(start.getLineNumber()).append('\t')
+        .append(start.getColumnNumber()).append('\t')
+        .append(element.getLength()).append('\t');
+    String message = element.getMessage();
+    for (int i = 0; i < message.length(); i++) {
+      char c = message.charAt(i);
+      if (c == '\\') {
+        out.append("\\\\");
+      } else if (c == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  private static BannedElement decode(String line) {
+    List<String> fields = FIELDS.splitToList(line);
+    if (fields.size() != 7) {
+      return null;
+    }
+    try {
+      String markerId = fields.get(0);
+      int markerSeverity = Integer.parseInt(fields.get(1));
+      int messageSeverity = Integer.parseInt(fields.get(2));
+      DocumentLocation start = new DocumentLocation(
+          Integer.parseInt(fields.get(3)), Integer.parseInt(fields.get(4)));
+      int length = Integer.parseInt(fields.get(5));
+      String message = unescape(fields.get(6));
+      return new BannedElement(message, markerId, markerSeverity, messageSeverity, start,
+          length, null);
+    } catch (IllegalArgumentException ex) {
+      return null;  // written by an incompatible version
+    }
+  }
+
+  private static String unescape(String text) {
+    StringBuilder message = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\' && i + 1 < text.length()) {
+        c = text.charAt(++i) == 'n' ? '\n' : text.charAt(i);
+      }
+      message.append(c);
+    }
+    return message.toString();
+  }
+}
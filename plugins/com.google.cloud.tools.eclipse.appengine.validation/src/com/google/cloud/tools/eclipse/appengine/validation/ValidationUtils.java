@@ -17,8 +17,6 @@
 package com.google.cloud.tools.eclipse.appengine.validation;
 
 import com.google.common.io.CharStreams;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -27,6 +25,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
 
 /**
  * Utility methods for validating XML files.
@@ -37,23 +37,38 @@ public class ValidationUtils {
 
   /**
    * Creates a {@link Map} of {@link BannedElement}s and their respective document-relative
-   * character offsets.
+   * character offsets. The document is decoded once, however many elements there are.
    */
   public static Map<BannedElement, Integer> getOffsetMap(byte[] bytes,
       ArrayList<BannedElement> blacklist, String encoding) {
     Map<BannedElement, Integer> bannedElementOffsetMap = new HashMap<>();
+    if (blacklist.isEmpty()) {
+      return bannedElementOffsetMap;
+    }
+    try {
+      LineOffsets lineOffsets = LineOffsets.of(bytes, encoding);
+      for (BannedElement element : blacklist) {
+        bannedElementOffsetMap.put(element, lineOffsets.getOffset(element.getStart()));
+      }
+    } catch (IOException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+    return bannedElementOffsetMap;
+  }
+
+  /**
+   * Creates a {@link Map} of {@link BannedElement}s and their respective document-relative
+   * character offsets, using the line information the {@link IDocument} already maintains.
+   */
+  static Map<BannedElement, Integer> getOffsetMap(IDocument document,
+      ArrayList<BannedElement> blacklist) {
+    Map<BannedElement, Integer> bannedElementOffsetMap = new HashMap<>();
     for (BannedElement element : blacklist) {
-      ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-      try (BufferedReader reader =
-        new BufferedReader(new InputStreamReader(bais, encoding))) {
-        int charOffset = 0;
-        for (int i = 1; i < element.getStart().getLineNumber(); i++) {
-          String line = reader.readLine();
-          charOffset += line.length() + 1;
-        }
-        int start = charOffset + element.getStart().getColumnNumber() - 1;
-        bannedElementOffsetMap.put(element, start);
-      } catch (IOException ex) {
+      DocumentLocation start = element.getStart();
+      try {
+        int lineOffset = document.getLineOffset(start.getLineNumber() - 1);
+        bannedElementOffsetMap.put(element, lineOffset + start.getColumnNumber() - 1);
+      } catch (BadLocationException ex) {
         logger.log(Level.SEVERE, ex.getMessage());
       }
     }
@@ -17,157 +17,174 @@
 package com.google.cloud.tools.eclipse.appengine.validation;
 
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.namespace.NamespaceContext;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.search.IJavaSearchConstants;
-import org.eclipse.jdt.core.search.IJavaSearchScope;
-import org.eclipse.jdt.core.search.SearchEngine;
-import org.eclipse.jdt.core.search.SearchParticipant;
-import org.eclipse.jdt.core.search.SearchPattern;
 import org.eclipse.wst.common.componentcore.ComponentCore;
 import org.eclipse.wst.common.componentcore.resources.IVirtualComponent;
 import org.eclipse.wst.common.componentcore.resources.IVirtualFile;
 import org.eclipse.wst.common.componentcore.resources.IVirtualFolder;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 /**
  * Validator for web.xml.
  */
 public class WebXmlValidator implements XmlValidationHelper {
 
-  private static final Logger logger = Logger.getLogger(WebXmlValidator.class.getName());
-  private static final XPathFactory FACTORY = XPathFactory.newInstance();
-  private Document document;
-  private IResource resource;
-  private ArrayList<BannedElement> blacklist;
+  private static final String JAVAEE_NAMESPACE = "http://java.sun.com/xml/ns/javaee";
+  private static final String JCP_NAMESPACE = "http://xmlns.jcp.org/xml/ns/javaee";
+  private static final ImmutableSet<String> TEXT_CHECKED_ELEMENTS =
+      ImmutableSet.of("servlet-class", "servlet-name", "jsp-file");
+  /** Versions whose JSP files are checked; 3.0 and later also serve them from jars. */
+  private static final ImmutableSet<String> JSP_CHECKED_VERSIONS =
+      ImmutableSet.of("2.5", "3.0", "3.1");
 
   @Override
-  public ArrayList<BannedElement> checkForElements(IResource resource, Document document) {
-    this.document = document;
-    this.resource = resource;
-    this.blacklist = new ArrayList<>();
-    validateServletVersion();
-    validateServletClass();
-    validateServletMapping();
-    validateJsp();
-    return blacklist;
+  public ElementVisitor createVisitor(IResource resource) {
+    return new WebXmlVisitor(resource);
+  }
+
+  @Override
+  public boolean checksText(String localName) {
+    return TEXT_CHECKED_ELEMENTS.contains(localName);
   }
 
   /**
-   * Validates that web.xml specifies a compatible deployment descriptor version.
+   * Gathers everything the web.xml rules need in a single pass, then evaluates the rules
+   * that depend on the whole document once it has been scanned.
    */
-  private void validateServletVersion() {
-    NodeList webAppList = document.getElementsByTagName("web-app");
-    for (int i = 0; i < webAppList.getLength(); i++) {
-      Element webApp = (Element) webAppList.item(i);
-      String namespace = webApp.getNamespaceURI();
-      String version = (String) webApp.getUserData("version");
-      if ("http://xmlns.jcp.org/xml/ns/javaee".equals(namespace)
-          || "http://java.sun.com/xml/ns/javaee".equals(namespace)) {
+  private static class WebXmlVisitor extends ElementVisitor {
+
+    private final IResource resource;
+    private String rootVersion;
+    private final List<ScannedElement> servletClasses = new ArrayList<>();
+    private final Set<String> servletNames = new HashSet<>();
+    private final List<ScannedElement> servletMappingNames = new ArrayList<>();
+    private final List<ScannedElement> jspFiles = new ArrayList<>();
+
+    private WebXmlVisitor(IResource resource) {
+      this.resource = resource;
+    }
+
+    @Override
+    void startElement(ScannedElement element) {
+      if (element.getParent() == null) {
+        rootVersion = element.getAttribute("version");
+      }
+      if ("web-app".equals(element.getQName())) {
+        validateServletVersion(element);
+      }
+    }
+
+    @Override
+    void endElement(ScannedElement element) {
+      String qName = element.getQName();
+      if ("servlet-class".equals(qName)) {
+        servletClasses.add(element);
+      } else if ("jsp-file".equals(qName)) {
+        jspFiles.add(element);
+      } else if (element.is(JAVAEE_NAMESPACE, "servlet-name")) {
+        ScannedElement parent = element.getParent();
+        if (parent != null && parent.is(JAVAEE_NAMESPACE, "servlet")) {
+          servletNames.add(element.getText());
+        } else if (parent != null && parent.is(JAVAEE_NAMESPACE, "servlet-mapping")) {
+          servletMappingNames.add(element);
+        }
+      }
+    }
+
+    @Override
+    void endDocument() {
+      validateServletClass();
+      validateServletMapping();
+      validateJsp();
+    }
+
+    /**
+     * Validates that web.xml specifies a compatible deployment descriptor version.
+     */
+    private void validateServletVersion(ScannedElement webApp) {
+      String namespace = webApp.getNamespaceUri();
+      String version = webApp.getAttribute("version");
+      if (JCP_NAMESPACE.equals(namespace) || JAVAEE_NAMESPACE.equals(namespace)) {
         // Check that web.xml version is compatible with our supported Dynamic Web Project versions
         if (!AppEngineStandardFacet.checkServletApiSupport(resource.getProject(), version)) {
-          DocumentLocation location = (DocumentLocation) webApp.getUserData("location");
-          BannedElement element = new JavaServletElement(location, 0);
-          blacklist.add(element);
+          BannedElement element = new JavaServletElement(webApp.getStart(), 0);
+          addBannedElement(element);
         }
       }
     }
-  }
 
-  /**
-   * Validates that all <servlet-class> elements exist in the project.
-   */
-  private void validateServletClass() {
-    NodeList servletClassList = document.getElementsByTagName("servlet-class");
-    for (int i = 0; i < servletClassList.getLength(); i++) {
-      Node servletClassNode = servletClassList.item(i);
-      String servletClassName = servletClassNode.getTextContent();
+    /**
+     * Validates that all <servlet-class> elements exist in the project.
+     */
+    private void validateServletClass() {
+      if (servletClasses.isEmpty()) {
+        return;
+      }
+      setUsesWorkspaceState();
       IJavaProject project = getProject(resource);
-      if (project != null && !classExists(project, servletClassName)) {
-        DocumentLocation location = (DocumentLocation) servletClassNode.getUserData("location");
-        BannedElement element =
-            new UndefinedServletElement(servletClassName, location, servletClassName.length());
-        blacklist.add(element);
+      if (project == null) {
+        return;
+      }
+      Set<String> servletClassNames = new HashSet<>();
+      for (ScannedElement servletClass : servletClasses) {
+        servletClassNames.add(servletClass.getText());
+      }
+      // one index query answers every servlet class not seen since the project last changed
+      Set<String> missingClasses =
+          ProjectTypeIndex.getInstance().findMissingTypes(project, servletClassNames);
+      for (ScannedElement servletClass : servletClasses) {
+        String servletClassName = servletClass.getText();
+        if (missingClasses.contains(servletClassName)) {
+          BannedElement element = new UndefinedServletElement(
+              servletClassName, servletClass.getStart(), servletClassName.length());
+          addBannedElement(element);
+        }
       }
     }
-  }
 
-  /**
-   * Adds all defined servlet names to a set, then adds a
-   * {@link ServletMappingElement} to the blacklist for all
-   * <servlet-mapping> elements whose <servlet-name> is undefined.
-   */
-  private void validateServletMapping() {
-    try {
-      XPath xPath = FACTORY.newXPath();
-      NamespaceContext nsContext = new JavaContext();
-      xPath.setNamespaceContext(nsContext);
-      String selectServletNames = "//prefix:servlet/prefix:servlet-name";
-      NodeList servletNameNodes = (NodeList) xPath
-          .compile(selectServletNames)
-          .evaluate(document, XPathConstants.NODESET);
-      Set<String> servletNames = new HashSet<>();
-      for (int i = 0; i < servletNameNodes.getLength(); i++) {
-        String servletName = servletNameNodes.item(i).getTextContent();
-        servletNames.add(servletName);
-      }
-      String selectServletMappings = "//prefix:servlet-mapping/prefix:servlet-name";
-      NodeList servletMappings = (NodeList) xPath
-          .compile(selectServletMappings)
-          .evaluate(document, XPathConstants.NODESET);
-      for (int i = 0; i < servletMappings.getLength(); i++) {
-        Node servletMapping = servletMappings.item(i);
-        String textContent = servletMapping.getTextContent();
+    /**
+     * Adds a {@link ServletMappingElement} to the blacklist for all <servlet-mapping>
+     * elements whose <servlet-name> is not defined by any <servlet>.
+     */
+    private void validateServletMapping() {
+      for (ScannedElement servletMapping : servletMappingNames) {
+        String textContent = servletMapping.getText();
         if (!servletNames.contains(textContent)) {
-          DocumentLocation location = (DocumentLocation) servletMapping.getUserData("location");
-          BannedElement element =
-              new ServletMappingElement(textContent, location, textContent.length());
-          blacklist.add(element);
+          BannedElement element = new ServletMappingElement(
+              textContent, servletMapping.getStart(), textContent.length());
+          addBannedElement(element);
         }
       }
-    } catch (XPathExpressionException ex) {
-      throw new RuntimeException("Invalid XPath expression");
     }
-  }
 
-  /**
-   * Verifies that every <jsp-file> element exists in the project.
-   */
-  private void validateJsp() {
-    if (isVersion25()) {
+    /**
+     * Verifies that every <jsp-file> element exists in the project or, for Servlet 3.0 and
+     * later, under {@code META-INF/resources} in a jar on the project's classpath.
+     */
+    private void validateJsp() {
+      if (jspFiles.isEmpty() || !JSP_CHECKED_VERSIONS.contains(rootVersion)) {
+        return;
+      }
+      setUsesWorkspaceState();
       IProject project = resource.getProject();
       IVirtualComponent component = ComponentCore.createComponent(project);
       if (component != null && component.exists()) {
         IVirtualFolder root = component.getRootFolder();
         if (root.exists()) {
-          NodeList jspList = document.getElementsByTagName("jsp-file");
-          for (int i = 0; i < jspList.getLength(); i++) {
-            Node jspNode = jspList.item(i);
-            String jspName = jspNode.getTextContent();
-            if (!resolveJsp(root, jspName)) {
-              DocumentLocation location = (DocumentLocation) jspNode.getUserData("location");
-              BannedElement element = new JspFileElement(jspName, location, jspName.length());
-              blacklist.add(element);
+          IJavaProject javaProject = "2.5".equals(rootVersion) ? null : getProject(resource);
+          for (ScannedElement jspFile : jspFiles) {
+            String jspName = jspFile.getText();
+            if (!resolveJsp(root, jspName) && !resolveJspInJars(javaProject, jspName)) {
+              BannedElement element =
+                  new JspFileElement(jspName, jspFile.getStart(), jspName.length());
+              addBannedElement(element);
             }
           }
         }
@@ -193,16 +210,16 @@ public class WebXmlValidator implements XmlValidationHelper {
     if (file.exists()) {
       return true;
     }
-    // TODO: Search for JSP files in jars if web.xml is version 3.0+.
-    // JSP file META-INF/resources/test.jsp in a jar should be able to be referenced
-    // as test.jsp in web.xml.
     return false;
   }
 
-  private boolean isVersion25() {
-    Node node = document.getFirstChild();
-    String versionString = (String) node.getUserData("version");
-    return "2.5".equals(versionString);
+  /**
+   * Returns true if a jar on the classpath of {@code project} provides {@code fileName} as
+   * META-INF/resources/{@code fileName}. The jar contents come from an index, so no jar is
+   * opened unless it is new or has changed.
+   */
+  private static boolean resolveJspInJars(IJavaProject project, String fileName) {
+    return project != null && JarResourceIndex.getInstance().contains(project, fileName);
   }
 
   private static IJavaProject getProject(IResource resource) {
@@ -211,37 +228,4 @@ public class WebXmlValidator implements XmlValidationHelper {
     }
     return null;
   }
-
-  @VisibleForTesting
-  static boolean classExists(IJavaProject project, String typeName) {
-    if (Strings.isNullOrEmpty(typeName)) {
-      return false;
-    }
-    SearchPattern pattern = SearchPattern.createPattern(typeName,
-        IJavaSearchConstants.CLASS,
-        IJavaSearchConstants.DECLARATIONS,
-        SearchPattern.R_EXACT_MATCH | SearchPattern.R_ERASURE_MATCH);
-    IJavaSearchScope scope = project == null ? SearchEngine.createWorkspaceScope()
-        : SearchEngine.createJavaSearchScope(new IJavaElement[] {project});
-    return performSearch(pattern, scope, null);
-  }
-
-  /**
-   * Searches for a class that matches a pattern.
-   */
-  @VisibleForTesting
-  static boolean performSearch(SearchPattern pattern, IJavaSearchScope scope,
-      IProgressMonitor monitor) {
-    try {
-      SearchEngine searchEngine = new SearchEngine();
-      TypeSearchRequestor requestor = new TypeSearchRequestor();
-      searchEngine.search(pattern,
-          new SearchParticipant[] { SearchEngine.getDefaultSearchParticipant() },
-          scope, requestor, monitor);
-      return requestor.foundMatch();
-    } catch (CoreException ex) {
-      logger.log(Level.SEVERE, ex.getMessage());
-      return false;
-    }
-  }
 }
@@ -23,11 +23,13 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -35,6 +37,9 @@ import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExecutableExtension;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.quickassist.IQuickAssistProcessor;
@@ -49,7 +54,6 @@ import org.eclipse.wst.validation.internal.provisional.core.IMessage;
 import org.eclipse.wst.validation.internal.provisional.core.IReporter;
 import org.eclipse.wst.validation.internal.provisional.core.IValidationContext;
 import org.eclipse.wst.validation.internal.provisional.core.IValidator;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 /**
@@ -62,6 +66,7 @@ public class XmlSourceValidator implements ISourceValidator, IValidator, IExecut
 
   private IDocument document;
   private XmlValidationHelper helper;
+  private DocumentEditTracker tracker;
 
   /**
    * Validates a given {@link IDocument} if the project has the App Engine Standard facet.
@@ -71,7 +76,7 @@ public class XmlSourceValidator implements ISourceValidator, IValidator, IExecut
     IProject project = getProject(helper);
     try {
       IFacetedProject facetedProject = ProjectFacetsManager.create(project);
-      if (AppEngineStandardFacet.hasFacet(facetedProject)) {
+      if (AppEngineStandardFacet.hasFacet(facetedProject) && !reportTrackedResult(reporter)) {
         String encoding = getDocumentEncoding(document);
         byte[] bytes = document.get().getBytes(encoding);
         IFile source = getFile(helper);
@@ -82,25 +87,75 @@ public class XmlSourceValidator implements ISourceValidator, IValidator, IExecut
     }
   }
 
+  /**
+   * Validates only what the edits since the last validation may have changed. Edits within
+   * text that no rule checks leave the previous messages valid, so they are reported again
+   * at their shifted offsets; any other edit revalidates the whole document, since rules
+   * such as servlet mappings relate elements far from the dirty region. Messages of rules
+   * that look at the workspace are not reused once the workspace has changed.
+   */
+  @Override
+  public void validate(IRegion dirtyRegion, IValidationContext helper, IReporter reporter) {
+    try {
+      validate(helper, reporter);
+    } catch (ValidationException ex) {
+      logger.log(Level.SEVERE, ex.getMessage());
+    }
+  }
+
+  /**
+   * Reports the messages of the last validation again if no edit since then can have changed
+   * them. Returns false if the document has to be validated.
+   */
+  private boolean reportTrackedResult(IReporter reporter) {
+    if (tracker == null) {
+      return false;
+    }
+    Map<BannedElement, Integer> bannedElementOffsetMap = tracker.getResult();
+    if (bannedElementOffsetMap == null) {
+      return false;
+    }
+    try {
+      for (Map.Entry<BannedElement, Integer> entry : bannedElementOffsetMap.entrySet()) {
+        int offset = entry.getValue();
+        int lineNumber = document.getLineOfOffset(offset) + 1;
+        createMessage(reporter, entry.getKey(), offset, lineNumber);
+      }
+      return true;
+    } catch (BadLocationException ex) {
+      tracker.invalidate();
+      return false;
+    }
+  }
+
   /**
    * Adds an {@link IMessage} to the XML file for every
    * {@link BannedElement} found in the file.
    */
   void validate(IReporter reporter, IFile source, byte[] bytes) throws IOException {
     try {
-      Document document = PositionalXmlScanner.parse(bytes);
-      if (document != null) {
-        ArrayList<BannedElement> blacklist = helper.checkForElements(source, document);
-        String encoding = (String) document.getDocumentElement().getUserData("encoding");
-        Map<BannedElement, Integer> bannedElementOffsetMap =
-            ValidationUtils.getOffsetMap(bytes, blacklist, encoding);
+      ElementVisitor visitor = helper.createVisitor(source);
+      PositionalXmlScanner.scan(bytes, visitor);
+      ArrayList<BannedElement> blacklist = visitor.getBlacklist();
+      Map<BannedElement, Integer> bannedElementOffsetMap = Collections.emptyMap();
+      if (!blacklist.isEmpty()) {
+        // The connected document already tracks its lines; only decode the bytes without one
+        bannedElementOffsetMap = document != null
+            ? ValidationUtils.getOffsetMap(document, blacklist)
+            : ValidationUtils.getOffsetMap(bytes, blacklist, visitor.getEncoding());
         for (Map.Entry<BannedElement, Integer> entry : bannedElementOffsetMap.entrySet()) {
           createMessage(reporter, entry.getKey(), entry.getValue());
         }
       }
+      if (tracker != null) {
+        tracker.setResult(bannedElementOffsetMap, visitor.usesWorkspaceState());
+      }
     } catch (SAXException ex) {
       // Do nothing
       // Default Eclipse parser flags syntax errors
+      if (tracker != null) {
+        tracker.invalidate();
+      }
     }
   }
 
@@ -136,10 +191,15 @@ public class XmlSourceValidator implements ISourceValidator, IValidator, IExecut
    * Creates a message from a given {@link BannedElement}.
    */
   void createMessage(IReporter reporter, BannedElement element, int elementOffset) {
+    createMessage(reporter, element, elementOffset, element.getStart().getLineNumber());
+  }
+
+  private void createMessage(IReporter reporter, BannedElement element, int elementOffset,
+      int lineNumber) {
     IMessage message = new LocalizedMessage(element.getIMessageSeverity(), element.getMessage());
     message.setTargetObject(this);
     message.setMarkerId(element.getMarkerId());
-    message.setLineNo(element.getStart().getLineNumber());
+    message.setLineNo(lineNumber);
     message.setOffset(elementOffset);
     message.setLength(element.getLength());
     message.setAttribute(IQuickAssistProcessor.class.getName(), element.getQuickAssistProcessor());
@@ -197,15 +257,24 @@ public class XmlSourceValidator implements ISourceValidator, IValidator, IExecut
   @Override
   public void connect(IDocument document) {
     this.document = document;
+    if (helper != null) {
+      tracker = new DocumentEditTracker(document, helper);
+      document.addDocumentListener(tracker);
+      JavaCore.addElementChangedListener(tracker, ElementChangedEvent.POST_CHANGE);
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(tracker,
+          IResourceChangeEvent.POST_CHANGE);
+    }
   }
 
   @Override
   public void disconnect(IDocument document) {
+    if (tracker != null) {
+      document.removeDocumentListener(tracker);
+      JavaCore.removeElementChangedListener(tracker);
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(tracker);
+      tracker = null;
+    }
     this.document = null;
   }
 
-  @Override
-  public void validate(IRegion dirtyRegion, IValidationContext helper, IReporter reporter) {
-  }
-
 }
\ No newline at end of file
@@ -16,16 +16,20 @@
 
 package com.google.cloud.tools.eclipse.appengine.validation;
 
-import java.util.ArrayList;
 import org.eclipse.core.resources.IResource;
-import org.w3c.dom.Document;
 
 interface XmlValidationHelper {
 
   /**
-   * Searches the {@link Document} for banned elements and returns them
-   * as a list of {@link BannedElement}s.
+   * Returns a new {@link ElementVisitor} that searches a single scan of the resource's
+   * contents for banned elements and collects them as {@link BannedElement}s.
    */
-  ArrayList<BannedElement> checkForElements(IResource resource, Document document);
+  ElementVisitor createVisitor(IResource resource);
+
+  /**
+   * Returns true if a rule looks at the text inside elements with the given local name, so
+   * that editing only that text may change the banned elements found.
+   */
+  boolean checksText(String localName);
 
 }
@@ -24,12 +24,19 @@ import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExecutableExtension;
@@ -38,7 +45,6 @@ import org.eclipse.wst.validation.AbstractValidator;
 import org.eclipse.wst.validation.ValidationEvent;
 import org.eclipse.wst.validation.ValidationResult;
 import org.eclipse.wst.validation.ValidationState;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 /**
@@ -49,6 +55,7 @@ public class XmlValidator extends AbstractValidator implements IExecutableExtens
   private static final Logger logger = Logger.getLogger(XmlValidator.class.getName());
 
   private XmlValidationHelper helper;
+  private ValidationResultCache resultCache;
 
   /**
    * Extracts byte[] from XML.
@@ -67,24 +74,37 @@ public class XmlValidator extends AbstractValidator implements IExecutableExtens
   }
 
   /**
-   * Clears all problem markers from the resource, then adds a marker to
-   * the resource for every {@link BannedElement} found in the file.
+   * Makes the problem markers of the resource match the {@link BannedElement}s found in the
+   * file, leaving markers that are still valid untouched. If the same bytes were validated
+   * before under the same conditions, the earlier result is used without parsing.
    */
   void validate(IFile resource, byte[] bytes) throws CoreException, IOException {
+    String key = ValidationResultCache.getKey(resource, bytes);
+    List<BannedElement> cached = resultCache.get(resource, key);
+    if (cached != null) {
+      updateMarkers(resource, cached);
+      return;
+    }
+
+    Collection<BannedElement> elements = Collections.emptyList();
+    boolean reusable = true;
     try {
-      deleteMarkers(resource);
-      Document document = PositionalXmlScanner.parse(bytes);
-      if (document != null) {
-        ArrayList<BannedElement> blacklist = helper.checkForElements(resource, document);
-        String encoding = (String) document.getDocumentElement().getUserData("encoding");
-        Map<BannedElement, Integer> bannedElementOffsetMap =
-            ValidationUtils.getOffsetMap(bytes, blacklist, encoding);
-        for (Map.Entry<BannedElement, Integer> entry : bannedElementOffsetMap.entrySet()) {
-          createMarker(resource, entry.getKey());
-        }
+      ElementVisitor visitor = helper.createVisitor(resource);
+      PositionalXmlScanner.scan(bytes, visitor);
+      reusable = !visitor.usesWorkspaceState();
+      ArrayList<BannedElement> blacklist = visitor.getBlacklist();
+      if (!blacklist.isEmpty()) {
+        // markers only carry line numbers, so no character offsets are needed
+        elements = new LinkedHashSet<>(blacklist);
       }
     } catch (SAXException ex) {
-      // Do nothing; Eclipse notifies users of general SAX errors.
+      // No markers of our own; Eclipse notifies users of general SAX errors.
+    }
+    updateMarkers(resource, elements);
+    if (reusable) {
+      resultCache.put(resource, key, elements);
+    } else {
+      resultCache.remove(resource);
     }
   }
 
@@ -114,10 +134,67 @@ public class XmlValidator extends AbstractValidator implements IExecutableExtens
   @VisibleForTesting
   void setHelper(XmlValidationHelper helper) {
     this.helper = helper;
+    resultCache = new ValidationResultCache(helper);
+  }
+
+  /**
+   * Replaces the problem markers of {@code resource} with markers for {@code elements}.
+   * Markers that already describe one of the elements are kept, and all changes are made in
+   * a single workspace operation, so an unchanged file causes no resource change events.
+   */
+  @VisibleForTesting
+  static void updateMarkers(final IResource resource, Collection<BannedElement> elements)
+      throws CoreException {
+    final Map<String, List<IMarker>> existing = new HashMap<>();
+    for (IMarker marker : resource.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO)) {
+      String key = getMarkerKey(marker.getType(), marker.getAttribute(IMarker.SEVERITY, -1),
+          marker.getAttribute(IMarker.LINE_NUMBER, -1), marker.getAttribute(IMarker.MESSAGE, ""));
+      List<IMarker> markers = existing.get(key);
+      if (markers == null) {
+        markers = new ArrayList<>();
+        existing.put(key, markers);
+      }
+      markers.add(marker);
+    }
+
+    final List<BannedElement> added = new ArrayList<>();
+    for (BannedElement element : elements) {
+      String key = getMarkerKey(element.getMarkerId(), element.getIMarkerSeverity(),
+          element.getStart().getLineNumber(), element.getMessage());
+      List<IMarker> markers = existing.get(key);
+      if (markers != null && !markers.isEmpty()) {
+        markers.remove(markers.size() - 1);  // still valid
+      } else {
+        added.add(element);
+      }
+    }
+    final List<IMarker> removed = new ArrayList<>();
+    for (List<IMarker> markers : existing.values()) {
+      removed.addAll(markers);
+    }
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+
+    IWorkspace workspace = resource.getWorkspace();
+    IWorkspaceRunnable update = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        if (!removed.isEmpty()) {
+          resource.getWorkspace().deleteMarkers(removed.toArray(new IMarker[removed.size()]));
+        }
+        for (BannedElement element : added) {
+          createMarker(resource, element);
+        }
+      }
+    };
+    workspace.run(update, workspace.getRuleFactory().markerRule(resource),
+        IWorkspace.AVOID_UPDATE, null);
   }
 
-  static void deleteMarkers(IResource resource) throws CoreException {
-    resource.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+  private static String getMarkerKey(String type, int severity, int lineNumber,
+      String message) {
+    return type + '\n' + severity + '\n' + lineNumber + '\n' + message;
   }
 
   /**
@@ -22,9 +22,11 @@ import com.google.common.base.Preconditions;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.MultipartConfigElement;
@@ -42,6 +44,12 @@ import org.junit.rules.ExternalResource;
  * <p>
  * Use {@link #getAddress()} to obtain the server's address after it has been started via the
  * {@link #before()} method.
+ * <p>
+ * By default the server expects exactly one request. A server created with response headers
+ * behaves like a static file server instead: it answers any number of requests, and answers a
+ * request whose {@code If-None-Match} header matches its {@code ETag} with 304 Not Modified, and
+ * a request with a {@code Range: bytes=<start>-} header with the remaining content only, unless
+ * its {@code If-Range} header matches neither its {@code ETag} nor its {@code Last-Modified}.
  */
 public class TestHttpServer extends ExternalResource {
 
@@ -50,6 +58,7 @@ public class TestHttpServer extends ExternalResource {
   private Server server;
 
   private boolean requestHandled = false;
+  private int requestCount;
 
   private String requestMethod;
   private Map<String, String[]> requestParameters;
@@ -57,6 +66,7 @@ public class TestHttpServer extends ExternalResource {
 
   private final String expectedPath;
   private final byte[] responseBytes;
+  private final Map<String, String> responseHeaders;
 
   // Examples: new TestHttpServer("folder/sample.txt", "arbitrary file content");
   //           new TestHttpServer("", "<html><body>root</body></html>");
@@ -65,8 +75,24 @@ public class TestHttpServer extends ExternalResource {
   }
 
   public TestHttpServer(String expectedPath, byte[] responseBytes) {
+    this(expectedPath, responseBytes, null);
+  }
+
+  /**
+   * Creates a server that answers any number of requests with {@code responseContent} and
+   * {@code responseHeaders}.
+   */
+  public TestHttpServer(String expectedPath, String responseContent,
+      Map<String, String> responseHeaders) {
+    this(expectedPath, responseContent.getBytes(StandardCharsets.UTF_8),
+        Preconditions.checkNotNull(responseHeaders));
+  }
+
+  private TestHttpServer(String expectedPath, byte[] responseBytes,
+      Map<String, String> responseHeaders) {
     this.expectedPath = expectedPath;
     this.responseBytes = responseBytes;
+    this.responseHeaders = responseHeaders;
   }
 
   @Override
@@ -127,17 +153,36 @@ public class TestHttpServer extends ExternalResource {
     return requestParameters;
   }
 
+  /**
+   * Returns the headers of the last request.
+   */
   public Map<String, String> getRequestHeaders() {
     Preconditions.checkState(requestHandled);
     return requestHeaders;
   }
 
+  /**
+   * Returns the number of requests for the expected path, including those answered with 304 Not
+   * Modified.
+   */
+  public synchronized int getRequestCount() {
+    return requestCount;
+  }
+
+  /** Returns the start of a {@code bytes=<start>-} range, or -1 for any other range. */
+  private static int getRangeStart(String range) {
+    if (range == null || !range.matches("bytes=\\d+-")) {
+      return -1;
+    }
+    return Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+  }
+
   private class RequestHandler extends AbstractHandler {
 
     @Override
     public void handle(String target, Request baseRequest, HttpServletRequest request,
         HttpServletResponse response) throws IOException, ServletException {
-      Preconditions.checkState(!requestHandled);
+      Preconditions.checkState(responseHeaders != null || !requestHandled);
 
       if (request.getContentType() != null
           && request.getContentType().startsWith("multipart/form-data")) {
@@ -146,17 +191,42 @@ public class TestHttpServer extends ExternalResource {
       }
 
       if (target.equals("/" + expectedPath)) {
+        synchronized (TestHttpServer.this) {
+          requestCount++;
+        }
         requestHandled = true;
         requestMethod = request.getMethod();
         requestParameters = request.getParameterMap();
+        requestHeaders.clear();
         for (Enumeration<String> headers = request.getHeaderNames(); headers.hasMoreElements(); ) {
           String header = headers.nextElement();
           requestHeaders.put(header, request.getHeader(header));
         }
 
         baseRequest.setHandled(true);
-        response.getOutputStream().write(responseBytes);
+        Map<String, String> headers =
+            responseHeaders == null ? Collections.<String, String>emptyMap() : responseHeaders;
+        for (Entry<String, String> header : headers.entrySet()) {
+          response.setHeader(header.getKey(), header.getValue());
+        }
+        String etag = headers.get("ETag");
+        if (etag != null && etag.equals(request.getHeader("If-None-Match"))) {
+          response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          return;
+        }
+        int start = getRangeStart(request.getHeader("Range"));
+        String ifRange = request.getHeader("If-Range");
+        boolean rangeValid = ifRange == null || ifRange.equals(etag)
+            || ifRange.equals(headers.get("Last-Modified"));
+        if (responseHeaders != null && rangeValid && start > 0 && start < responseBytes.length) {
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          response.setHeader("Content-Range",
+              "bytes " + start + "-" + (responseBytes.length - 1) + "/" + responseBytes.length);
+          response.getOutputStream().write(responseBytes, start, responseBytes.length - start);
+          return;
+        }
         response.setStatus(HttpServletResponse.SC_OK);
+        response.getOutputStream().write(responseBytes);
       }
     }
   }
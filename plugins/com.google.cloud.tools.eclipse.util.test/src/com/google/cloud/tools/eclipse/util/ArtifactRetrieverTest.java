@@ -21,9 +21,13 @@ import java.net.URISyntaxException;
 import java.net.URL;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class ArtifactRetrieverTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
   
   @Test
   public void testGetInstance() throws URISyntaxException {
@@ -40,6 +44,19 @@ public class ArtifactRetrieverTest {
         ArtifactRetriever.DEFAULT.getMetadataUrl("com.google.foo", "bar-baz"));
   }
 
+  @Test
+  public void testGetLatestVersion_offlineWithoutStoredMetadata() {
+    MetadataCache metadataCache = new MetadataCache(temporaryFolder.getRoot(), 0);
+    ArtifactRetriever retriever =
+        new ArtifactRetriever("http://example.invalid/", metadataCache) {
+          @Override
+          boolean isOffline() {
+            return true;
+          }
+        };
+    Assert.assertNull(retriever.getLatestVersion("com.example", "artifact"));
+  }
+
   @Test
   public void testIdToKey() {
     Assert.assertEquals(
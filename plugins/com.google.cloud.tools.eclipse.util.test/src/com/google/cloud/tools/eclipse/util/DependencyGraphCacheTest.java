@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DependencyGraphCacheTest {
+
+  private static final String KEY = "com.example:root:1.0|https://repo.example.com/";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<Artifact> graph = Arrays.<Artifact>asList(
+      new DefaultArtifact("com.example:root:1.0"),
+      new DefaultArtifact("com.example:dependency:jar:tests:2.0"));
+
+  @Test
+  public void testGet_resolvesOnce() throws CoreException {
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    CountingResolver resolver = new CountingResolver(graph);
+    List<Artifact> first = cache.get(KEY, "1.0", false, resolver);
+    assertSame(first, cache.get(KEY, "1.0", false, resolver));
+    assertEquals(graph, first);
+    assertEquals(1, resolver.calls);
+  }
+
+  @Test
+  public void testGet_storedAcrossInstances() throws CoreException, IOException {
+    File directory = temporaryFolder.newFolder();
+    File jar = temporaryFolder.newFile("root-1.0.jar");
+    List<Artifact> withFile = Arrays.asList(graph.get(0).setFile(jar), graph.get(1));
+    new DependencyGraphCache(directory, 0).get(KEY, "1.0", false, new CountingResolver(withFile));
+
+    CountingResolver resolver = new CountingResolver(graph);
+    List<Artifact> stored =
+        new DependencyGraphCache(directory, 0).get(KEY, "1.0", false, resolver);
+    assertEquals(0, resolver.calls);
+    assertEquals(withFile, stored);
+    assertEquals(jar, stored.get(0).getFile());
+    assertNull(stored.get(1).getFile());
+  }
+
+  @Test
+  public void testGet_filesDeleted() throws CoreException, IOException {
+    File directory = temporaryFolder.newFolder();
+    File jar = temporaryFolder.newFile("root-1.0.jar");
+    List<Artifact> withFile = Arrays.asList(graph.get(0).setFile(jar), graph.get(1));
+    DependencyGraphCache cache = new DependencyGraphCache(directory, 0);
+    cache.get(KEY, "1.0", false, new CountingResolver(withFile));
+    assertTrue(jar.delete());
+
+    CountingResolver resolver = new CountingResolver(graph);
+    assertEquals(graph, cache.get(KEY, "1.0", false, resolver));
+    assertEquals(1, resolver.calls);
+  }
+
+  @Test
+  public void testGet_filesDeletedAndResolutionFails() throws IOException, CoreException {
+    File jar = temporaryFolder.newFile("root-1.0.jar");
+    List<Artifact> withFile = Arrays.asList(graph.get(0).setFile(jar), graph.get(1));
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    cache.get(KEY, "1.0", true, new CountingResolver(withFile));
+    assertTrue(jar.delete());
+
+    try {
+      cache.get(KEY, "1.0", true, new FailingResolver());
+      fail();
+    } catch (CoreException ex) {
+      assertEquals(IStatus.ERROR, ex.getStatus().getSeverity());
+    }
+  }
+
+  @Test
+  public void testGet_mutableVersionResolvedAgain() throws CoreException {
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    CountingResolver resolver = new CountingResolver(graph);
+    cache.get(KEY, "[1.0,2.0)", false, resolver);
+    cache.get(KEY, "[1.0,2.0)", false, resolver);
+    assertEquals(2, resolver.calls);
+  }
+
+  @Test
+  public void testGet_mutableVersionWithinMaxAge() throws CoreException {
+    DependencyGraphCache cache = new DependencyGraphCache(null, Long.MAX_VALUE);
+    CountingResolver resolver = new CountingResolver(graph);
+    cache.get(KEY, "1.0-SNAPSHOT", false, resolver);
+    cache.get(KEY, "1.0-SNAPSHOT", false, resolver);
+    assertEquals(1, resolver.calls);
+  }
+
+  @Test
+  public void testGet_offlineUsesOldGraph() throws CoreException {
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    CountingResolver resolver = new CountingResolver(graph);
+    cache.get(KEY, "LATEST", false, resolver);
+    assertEquals(graph, cache.get(KEY, "LATEST", true, resolver));
+    assertEquals(1, resolver.calls);
+  }
+
+  @Test
+  public void testGet_failureUsesOldGraph() throws CoreException {
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    cache.get(KEY, "LATEST", false, new CountingResolver(graph));
+    assertEquals(graph, cache.get(KEY, "LATEST", false, new FailingResolver()));
+  }
+
+  @Test
+  public void testGet_failureWithoutGraph() {
+    DependencyGraphCache cache = new DependencyGraphCache(null, 0);
+    try {
+      cache.get(KEY, "1.0", false, new FailingResolver());
+      fail();
+    } catch (CoreException ex) {
+      assertEquals(IStatus.ERROR, ex.getStatus().getSeverity());
+    }
+  }
+
+  @Test
+  public void testIsMutable() {
+    assertFalse(DependencyGraphCache.isMutable("1.0"));
+    assertFalse(DependencyGraphCache.isMutable("1.0-beta"));
+    assertTrue(DependencyGraphCache.isMutable("[1.0,2.0)"));
+    assertTrue(DependencyGraphCache.isMutable("(,2.0]"));
+    assertTrue(DependencyGraphCache.isMutable("1.0-SNAPSHOT"));
+    assertTrue(DependencyGraphCache.isMutable("LATEST"));
+    assertTrue(DependencyGraphCache.isMutable("RELEASE"));
+  }
+
+  @Test
+  public void testGetEntryFile() {
+    File directory = temporaryFolder.getRoot();
+    DependencyGraphCache cache = new DependencyGraphCache(directory, 0);
+    File entryFile = cache.getEntryFile(KEY);
+    assertEquals(directory, entryFile.getParentFile());
+    assertNotEquals(entryFile,
+        cache.getEntryFile("com.example:root:2.0|https://repo.example.com/"));
+    assertNull(new DependencyGraphCache(null, 0).getEntryFile(KEY));
+  }
+
+  private static class CountingResolver implements DependencyGraphCache.Resolver {
+    private final List<Artifact> graph;
+    private int calls;
+
+    private CountingResolver(List<Artifact> graph) {
+      this.graph = graph;
+    }
+
+    @Override
+    public List<Artifact> resolve() {
+      calls++;
+      return graph;
+    }
+  }
+
+  private static class FailingResolver implements DependencyGraphCache.Resolver {
+    @Override
+    public List<Artifact> resolve() throws CoreException {
+      throw new CoreException(new Status(IStatus.ERROR, "test", "cannot resolve"));
+    }
+  }
+}
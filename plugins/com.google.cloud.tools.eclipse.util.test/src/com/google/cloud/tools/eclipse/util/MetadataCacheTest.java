@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetadataCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testGetEntryFile() throws IOException {
+    File directory = temporaryFolder.getRoot();
+    MetadataCache cache = new MetadataCache(directory, 0);
+    File entryFile = cache.getEntryFile(new URL("http://example.com/a/maven-metadata.xml"));
+    assertEquals(directory, entryFile.getParentFile());
+    assertEquals(entryFile, cache.getEntryFile(new URL("http://example.com/a/maven-metadata.xml")));
+    assertNotEquals(entryFile,
+        cache.getEntryFile(new URL("http://example.com/b/maven-metadata.xml")));
+  }
+
+  @Test
+  public void testGetEntryFile_noDirectory() throws IOException {
+    MetadataCache cache = new MetadataCache(null, 0);
+    assertNull(cache.getEntryFile(new URL("http://example.com/a/maven-metadata.xml")));
+  }
+
+  @Test
+  public void testGet_offlineWithoutStoredCopy() throws IOException {
+    MetadataCache cache = new MetadataCache(temporaryFolder.getRoot(), Long.MAX_VALUE);
+    try {
+      cache.get(new URL("http://example.invalid/maven-metadata.xml"), true);
+      fail();
+    } catch (IOException ex) {
+      // expected; the server must not be contacted
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.test.util.http.TestHttpServer;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that use an HTTP server acting as a Maven repository. Separate from
+ * {@link MetadataCacheTest} to avoid unnecessary test server launching in cases when not
+ * required.
+ */
+public class MetadataCacheWithServerTest {
+
+  private static final String METADATA_PATH = "com/example/artifact/maven-metadata.xml";
+  private static final String METADATA = "<metadata><versioning><versions>"
+      + "<version>1.0</version></versions></versioning></metadata>";
+  private static final String ETAG = "\"metadata-1\"";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public TestHttpServer server = new TestHttpServer(METADATA_PATH, METADATA,
+      ImmutableMap.of("ETag", ETAG, "Last-Modified", "Mon, 02 Oct 2017 10:00:00 GMT"));
+
+  private File directory;
+  private URL url;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = temporaryFolder.newFolder("metadata");
+    url = new URL(server.getAddress() + METADATA_PATH);
+  }
+
+  @Test
+  public void testGet_freshCopyIsReused() throws IOException {
+    MetadataCache cache = new MetadataCache(directory, Long.MAX_VALUE);
+    assertEquals(METADATA, get(cache));
+    assertEquals(METADATA, get(cache));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testGet_storedCopySurvivesRestart() throws IOException {
+    assertEquals(METADATA, get(new MetadataCache(directory, Long.MAX_VALUE)));
+    assertEquals(METADATA, get(new MetadataCache(directory, Long.MAX_VALUE)));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testGet_oldCopyIsRevalidated() throws IOException {
+    MetadataCache cache = new MetadataCache(directory, 0);
+    assertEquals(METADATA, get(cache));
+    assertFalse(server.getRequestHeaders().containsKey("If-None-Match"));
+
+    assertEquals(METADATA, get(cache));
+    assertEquals(2, server.getRequestCount());
+    assertEquals(ETAG, server.getRequestHeaders().get("If-None-Match"));
+    assertEquals("Mon, 02 Oct 2017 10:00:00 GMT",
+        server.getRequestHeaders().get("If-Modified-Since"));
+  }
+
+  @Test
+  public void testGet_offlineUsesOldCopy() throws IOException {
+    MetadataCache cache = new MetadataCache(directory, 0);
+    assertEquals(METADATA, get(cache));
+    assertEquals(METADATA, new String(cache.get(url, true), StandardCharsets.UTF_8));
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testGet_noDirectory() throws IOException {
+    MetadataCache cache = new MetadataCache(null, Long.MAX_VALUE);
+    assertEquals(METADATA, get(cache));
+    assertEquals(METADATA, get(cache));
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void testGet_entryReplacedAtomically() throws IOException {
+    MetadataCache cache = new MetadataCache(directory, 0);
+    get(cache);
+    get(cache);
+    File[] files = directory.listFiles();
+    assertEquals(1, files.length);
+    assertEquals(cache.getEntryFile(url), files[0]);
+    assertTrue(Files.size(files[0].toPath()) > METADATA.length());
+  }
+
+  private String get(MetadataCache cache) throws IOException {
+    return new String(cache.get(url, false), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class XmlParsersTest {
+
+  private static final String XML = "<a xmlns='urn:test'><b/></a>";
+
+  @Test
+  public void testParseDocument() throws IOException, SAXException {
+    Document document =
+        XmlParsers.parseDocument(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)));
+    assertEquals("urn:test", document.getDocumentElement().getNamespaceURI());
+    assertEquals("a", document.getDocumentElement().getLocalName());
+  }
+
+  @Test
+  public void testParseDocumentIgnoringNamespaces() throws IOException, SAXException {
+    Document document = XmlParsers.parseDocumentIgnoringNamespaces(source(XML));
+    assertNull(document.getDocumentElement().getNamespaceURI());
+    assertEquals("a", document.getDocumentElement().getNodeName());
+  }
+
+  @Test
+  public void testParseDocument_reusedAfterError() throws IOException, SAXException {
+    try {
+      XmlParsers.parseDocument(source("<a>"));
+      fail();
+    } catch (SAXException ex) {
+      // expected
+    }
+    assertEquals("a", XmlParsers.parseDocument(source(XML)).getDocumentElement().getLocalName());
+  }
+
+  @Test
+  public void testParse() throws IOException, SAXException {
+    ElementRecorder recorder = new ElementRecorder();
+    XmlParsers.parse(source(XML), recorder);
+    assertEquals(2, recorder.elements.size());
+    assertEquals("urn:test a", recorder.elements.get(0));
+    assertEquals("urn:test b", recorder.elements.get(1));
+  }
+
+  @Test
+  public void testParse_errorsGoToHandler() throws IOException {
+    ElementRecorder recorder = new ElementRecorder();
+    try {
+      XmlParsers.parse(source("<a><b></a>"), recorder);
+      fail();
+    } catch (SAXException ex) {
+      assertEquals(1, recorder.fatalErrors);
+    }
+  }
+
+  @Test
+  public void testParse_nested() throws IOException, SAXException {
+    final ElementRecorder inner = new ElementRecorder();
+    ElementRecorder outer = new ElementRecorder() {
+      @Override
+      public void startElement(String uri, String localName, String qName,
+          Attributes attributes) throws SAXException {
+        super.startElement(uri, localName, qName, attributes);
+        try {
+          XmlParsers.parse(source("<c/>"), inner);
+        } catch (IOException ex) {
+          throw new SAXException(ex);
+        }
+      }
+    };
+    XmlParsers.parse(source(XML), outer);
+    assertEquals(2, outer.elements.size());
+    assertEquals(2, inner.elements.size());
+  }
+
+  private static InputSource source(String xml) {
+    return new InputSource(new StringReader(xml));
+  }
+
+  private static class ElementRecorder extends DefaultHandler {
+    private final List<String> elements = new ArrayList<>();
+    private int fatalErrors;
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+        Attributes attributes) throws SAXException {
+      elements.add(uri + " " + localName);
+    }
+
+    @Override
+    public void fatalError(SAXParseException ex) throws SAXException {
+      fatalErrors++;
+      throw ex;
+    }
+  }
+}
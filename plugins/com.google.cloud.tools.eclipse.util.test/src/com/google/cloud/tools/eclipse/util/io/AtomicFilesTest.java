@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AtomicFilesTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testWrite_createsDirectory() throws IOException {
+    File file = new File(temporaryFolder.getRoot(), "sub/file");
+    AtomicFiles.write(file, bytes("content"));
+    assertArrayEquals(bytes("content"), Files.readAllBytes(file.toPath()));
+  }
+
+  @Test
+  public void testWrite_replaces() throws IOException {
+    File file = temporaryFolder.newFile();
+    AtomicFiles.write(file, bytes("old"));
+    AtomicFiles.write(file, bytes("new"));
+    assertArrayEquals(bytes("new"), Files.readAllBytes(file.toPath()));
+    assertEquals(1, temporaryFolder.getRoot().list().length);
+  }
+
+  @Test
+  public void testWrite_failureLeavesNoTemporaryFile() throws IOException {
+    File directory = temporaryFolder.newFolder();
+    // a non-empty directory in the way cannot be replaced
+    File blocked = new File(directory, "blocked");
+    assertTrue(new File(blocked, "child").mkdirs());
+    try {
+      AtomicFiles.write(blocked, bytes("new"));
+      fail();
+    } catch (IOException ex) {
+      assertArrayEquals(new String[] {"blocked"}, directory.list());
+    }
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.test.util.http.TestHttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests against a server that answers any number of requests and supports range requests.
+ */
+public class FileDownloaderResumeTest {
+
+  private static final String FILE_TO_DOWNLOAD = "index.html";
+  private static final String FILE_CONTENT = "<html><body>hello</body></html>";
+  private static final String ETAG = "\"v1\"";
+  private static final Map<String, String> HEADERS = Collections.singletonMap("ETag", ETAG);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public TestHttpServer server =
+      new TestHttpServer(FILE_TO_DOWNLOAD, FILE_CONTENT, HEADERS);
+
+  private File downloadFolder;
+  private File partFile;
+  private File validatorFile;
+  private URL url;
+
+  @Before
+  public void setUp() throws IOException {
+    downloadFolder = temporaryFolder.newFolder();
+    partFile = new File(downloadFolder, FILE_TO_DOWNLOAD + FileDownloader.PART_FILE_EXTENSION);
+    validatorFile = new File(partFile.getPath() + FileDownloader.VALIDATOR_FILE_EXTENSION);
+    url = new URL(server.getAddress() + FILE_TO_DOWNLOAD);
+  }
+
+  @Test
+  public void testDownload_resumesPartialDownload() throws IOException {
+    Files.write(partFile.toPath(), FILE_CONTENT.substring(0, 10).getBytes(StandardCharsets.UTF_8));
+    Files.write(validatorFile.toPath(), ETAG.getBytes(StandardCharsets.UTF_8));
+
+    IPath downloadPath = download();
+    assertEquals(FILE_CONTENT, read(downloadPath));
+    assertEquals("bytes=10-", server.getRequestHeaders().get("Range"));
+    assertEquals(ETAG, server.getRequestHeaders().get("If-Range"));
+    assertFalse(partFile.exists());
+    assertFalse(validatorFile.exists());
+  }
+
+  @Test
+  public void testDownload_restartsWhenRemoteFileChanged() throws IOException {
+    Files.write(partFile.toPath(), "stale bytes".getBytes(StandardCharsets.UTF_8));
+    Files.write(validatorFile.toPath(), "\"v0\"".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(FILE_CONTENT, read(download()));
+    assertEquals("\"v0\"", server.getRequestHeaders().get("If-Range"));
+  }
+
+  @Test
+  public void testDownload_restartsWithoutValidator() throws IOException {
+    String stale = FILE_CONTENT + " and some stale bytes";
+    Files.write(partFile.toPath(), stale.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(FILE_CONTENT, read(download()));
+    assertFalse(server.getRequestHeaders().containsKey("Range"));
+  }
+
+  @Test
+  public void testDownload_canceledKeepsPartFile() throws IOException {
+    IProgressMonitor monitor = new NullProgressMonitor() {
+      @Override
+      public boolean isCanceled() {
+        // cancel once the transfer has started
+        return partFile.exists();
+      }
+    };
+    assertNull(new FileDownloader(new Path(downloadFolder.getAbsolutePath()))
+        .download(url, monitor));
+    assertTrue(partFile.exists());
+    assertEquals(ETAG, read(new Path(validatorFile.getAbsolutePath())));
+
+    assertEquals(FILE_CONTENT, read(download()));
+  }
+
+  @Test
+  public void testDownload_concurrentRequestsDownloadOnce()
+      throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<IPath>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        results.add(executor.submit(new Callable<IPath>() {
+          @Override
+          public IPath call() throws IOException {
+            return download();
+          }
+        }));
+      }
+      for (Future<IPath> result : results) {
+        assertEquals(results.get(0).get(), result.get());
+      }
+      assertEquals(1, server.getRequestCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private IPath download() throws IOException {
+    return new FileDownloader(new Path(downloadFolder.getAbsolutePath()))
+        .download(url, new NullProgressMonitor());
+  }
+
+  private static String read(IPath path) throws IOException {
+    return new String(Files.readAllBytes(path.toFile().toPath()), StandardCharsets.UTF_8);
+  }
+}
@@ -16,8 +16,17 @@
 
 package com.google.cloud.tools.eclipse.util.io;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.junit.Rule;
@@ -49,4 +58,56 @@ public class FileDownloaderTest {
     FileDownloader fileDownloader = new FileDownloader(new Path("/dev/null/foo"));
     fileDownloader.download(new URL("http://example.com/dummy.zip"), new NullProgressMonitor());
   }
+
+  @Test
+  public void testLock() {
+    Lock lock = new ReentrantLock();
+    assertTrue(FileDownloader.lock(lock, new NullProgressMonitor()));
+    lock.unlock();
+  }
+
+  @Test
+  public void testLock_canceledWhileWaiting() throws InterruptedException {
+    final Lock lock = new ReentrantLock();
+    Thread holder = new Thread() {
+      @Override
+      public void run() {
+        lock.lock();
+      }
+    };
+    holder.start();
+    holder.join();
+
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    assertFalse(FileDownloader.lock(lock, monitor));
+  }
+
+  @Test
+  public void testMatchesChecksum_sha1() throws IOException {
+    File file = newFile("hello");
+    assertTrue(FileDownloader.matchesChecksum(file, "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d"));
+    assertTrue(FileDownloader.matchesChecksum(file, "AAF4C61DDCC5E8A2DABEDE0F3B482CD9AEA9434D"));
+    assertFalse(FileDownloader.matchesChecksum(file, "0000000000000000000000000000000000000000"));
+  }
+
+  @Test
+  public void testMatchesChecksum_sha256() throws IOException {
+    File file = newFile("hello");
+    assertTrue(FileDownloader.matchesChecksum(file,
+        "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824"));
+    assertFalse(FileDownloader.matchesChecksum(file,
+        "0000000000000000000000000000000000000000000000000000000000000000"));
+  }
+
+  @Test
+  public void testMatchesChecksum_unrecognizedDigestIgnored() throws IOException {
+    assertTrue(FileDownloader.matchesChecksum(newFile("hello"), "5d41402abc4b2a76"));
+  }
+
+  private File newFile(String content) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.cloud.tools.eclipse.util.io;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -57,4 +58,13 @@ public class FileDownloaderWithServerTest {
     assertThat(new String(Files.readAllBytes(downloadedFile.toPath()), StandardCharsets.UTF_8),
                is(FILE_CONTENT));
   }
+
+  @Test
+  public void testDownload_noPartFileLeft() throws IOException {
+    File downloadFolder = temporaryFolder.newFolder();
+    new FileDownloader(new Path(downloadFolder.getAbsolutePath()))
+        .download(new URL(server.getAddress() + FILE_TO_DOWNLOAD), new NullProgressMonitor());
+    assertFalse(new File(downloadFolder, FILE_TO_DOWNLOAD + FileDownloader.PART_FILE_EXTENSION)
+        .exists());
+  }
 }
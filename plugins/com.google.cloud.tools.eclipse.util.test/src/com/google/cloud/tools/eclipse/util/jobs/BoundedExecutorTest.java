@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedExecutorTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void tearDown() {
+    release.countDown();
+  }
+
+  @Test
+  public void testWaitFor() throws ExecutionException {
+    Future<String> future = BoundedExecutor.submit(new Callable<String>() {
+      @Override
+      public String call() {
+        return "result";
+      }
+    });
+    assertEquals("result", BoundedExecutor.waitFor(future, new NullProgressMonitor()));
+  }
+
+  @Test
+  public void testWaitFor_failure() {
+    Future<String> future = BoundedExecutor.submit(new Callable<String>() {
+      @Override
+      public String call() throws IOException {
+        throw new IOException("failed");
+      }
+    });
+    try {
+      BoundedExecutor.waitFor(future, new NullProgressMonitor());
+      fail();
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof IOException);
+    }
+  }
+
+  @Test
+  public void testWaitFor_canceledWhileWaiting() throws ExecutionException {
+    Future<String> future = BoundedExecutor.submit(blockingTask());
+    final IProgressMonitor monitor = new NullProgressMonitor();
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException ex) {
+          // cancel now
+        }
+        monitor.setCanceled(true);
+      }
+    }.start();
+
+    try {
+      BoundedExecutor.waitFor(future, monitor);
+      fail();
+    } catch (OperationCanceledException ex) {
+      assertFalse(future.isDone());  // only the wait is canceled
+    } finally {
+      future.cancel(true);
+    }
+  }
+
+  @Test
+  public void testCancel() {
+    Future<String> future = BoundedExecutor.submit(blockingTask());
+    BoundedExecutor.cancel(Arrays.asList(future));
+    assertTrue(future.isCancelled());
+  }
+
+  @Test
+  public void testCancel_runningTaskNotInterrupted() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch finished = new CountDownLatch(1);
+    final AtomicBoolean interrupted = new AtomicBoolean();
+    Future<String> future = BoundedExecutor.submit(new Callable<String>() {
+      @Override
+      public String call() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ex) {
+          interrupted.set(true);
+        }
+        finished.countDown();
+        return "released";
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    BoundedExecutor.cancel(Arrays.asList(future));
+    assertTrue(future.isCancelled());
+
+    release.countDown();
+    assertTrue(finished.await(5, TimeUnit.SECONDS));
+    assertFalse(interrupted.get());
+  }
+
+  @Test
+  public void testInvokeAll_timeout() throws InterruptedException, ExecutionException {
+    Callable<String> fast = new Callable<String>() {
+      @Override
+      public String call() {
+        return "fast";
+      }
+    };
+    List<Future<String>> futures =
+        BoundedExecutor.invokeAll(Arrays.asList(fast, blockingTask()), 200, TimeUnit.MILLISECONDS);
+    assertEquals("fast", futures.get(0).get());
+    assertTrue(futures.get(1).isCancelled());
+  }
+
+  @Test
+  public void testCancellationMonitor() {
+    IProgressMonitor monitor = new NullProgressMonitor();
+    IProgressMonitor workerMonitor = BoundedExecutor.cancellationMonitor(monitor);
+    assertFalse(workerMonitor.isCanceled());
+    monitor.setCanceled(true);
+    assertTrue(workerMonitor.isCanceled());
+  }
+
+  @Test
+  public void testCancellationMonitor_nullMonitor() {
+    assertFalse(BoundedExecutor.cancellationMonitor(null).isCanceled());
+  }
+
+  /** Returns a task that runs until the test ends. */
+  private Callable<String> blockingTask() {
+    return new Callable<String>() {
+      @Override
+      public String call() throws InterruptedException {
+        release.await();
+        return "released";
+      }
+    };
+  }
+}
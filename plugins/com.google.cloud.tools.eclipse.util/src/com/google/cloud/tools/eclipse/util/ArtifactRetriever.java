@@ -24,6 +24,8 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.ImmutableSortedSet.Builder;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -35,16 +37,19 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathFactory;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.apache.maven.artifact.versioning.VersionRange;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.m2e.core.MavenPlugin;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -54,13 +59,19 @@ import org.xml.sax.SAXException;
  * may change between versions.
  *
  * <p>The artifact retriever reads Maven Central metadata XML files to retrieve available and latest
- * versions.
+ * versions. The metadata files are kept in the bundle's state location across restarts and are
+ * revalidated with conditional requests; when Maven is configured to work offline, only the kept
+ * copies are used.
  */
 public class ArtifactRetriever {
 
   private static final Logger logger = Logger.getLogger(ArtifactRetriever.class.getName());
 
+  /** How long metadata is used without asking the repository whether it changed. */
+  private static final long METADATA_MAX_AGE_HOURS = 4;
+
   private final String repositoryUrl;
+  private final MetadataCache metadataCache;
 
   // see https://maven.apache.org/ref/3.5.0/maven-repository-metadata/repository-metadata.html
   @VisibleForTesting
@@ -77,7 +88,7 @@ public class ArtifactRetriever {
 
   private final LoadingCache<String, NavigableSet<ArtifactVersion>> availableVersions =
       CacheBuilder.newBuilder()
-          .refreshAfterWrite(4, TimeUnit.HOURS)
+          .refreshAfterWrite(METADATA_MAX_AGE_HOURS, TimeUnit.HOURS)
           .build(
               new CacheLoader<String, NavigableSet<ArtifactVersion>>() {
 
@@ -127,7 +138,22 @@ public class ArtifactRetriever {
    *     "https://repo1.maven.org/maven2/"
    */
   private ArtifactRetriever(String repositoryUrl) {
+    this(repositoryUrl, new MetadataCache(getMetadataCacheDirectory(),
+        TimeUnit.HOURS.toMillis(METADATA_MAX_AGE_HOURS)));
+  }
+
+  @VisibleForTesting
+  ArtifactRetriever(String repositoryUrl, MetadataCache metadataCache) {
     this.repositoryUrl = repositoryUrl;
+    this.metadataCache = metadataCache;
+  }
+
+  private static File getMetadataCacheDirectory() {
+    Bundle bundle = FrameworkUtil.getBundle(ArtifactRetriever.class);
+    if (bundle == null) {
+      return null;
+    }
+    return Platform.getStateLocation(bundle).append("metadata").toFile(); //$NON-NLS-1$
   }
 
   /**
@@ -211,15 +237,20 @@ public class ArtifactRetriever {
     String groupId = x[0];
     String artifactId = x[1];
     try {
-      return DocumentBuilderFactory.newInstance()
-          .newDocumentBuilder()
-          .parse(getMetadataUrl(groupId, artifactId).toString());
-    } catch (ParserConfigurationException | SAXException ex) {
+      byte[] metadata = metadataCache.get(getMetadataUrl(groupId, artifactId), isOffline());
+      InputSource source = new InputSource(new ByteArrayInputStream(metadata));
+      return XmlParsers.parseDocumentIgnoringNamespaces(source);
+    } catch (SAXException ex) {
       // these really shouldn't happen but if they do we'll wrap them
       throw new IOException("Could not configure Document Builder", ex);
     }
   }
 
+  @VisibleForTesting
+  boolean isOffline() {
+    return MavenPlugin.getMavenConfiguration().isOffline();
+  }
+
   @VisibleForTesting
   static String idToKey(String groupId, String artifactId) {
     return groupId + ":" + artifactId;
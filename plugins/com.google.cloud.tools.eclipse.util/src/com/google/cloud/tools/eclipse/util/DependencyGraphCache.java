@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import com.google.cloud.tools.eclipse.util.io.AtomicFiles;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.core.runtime.CoreException;
+
+/**
+ * Keeps resolved dependency graphs in memory and on disk, so that the same root artifact is not
+ * collected from the remote repositories again in this session or after a restart.
+ * <p>
+ * The graph of a release version never changes and is kept for good. The graph of a version
+ * range, snapshot, or {@code LATEST}/{@code RELEASE} version is resolved again once it is older
+ * than the maximum age. A stored graph, however old, is used when working offline or when
+ * resolution fails.
+ * <p>
+ * A graph is only used while the files of its artifacts exist. When one of them is gone, for
+ * example because the local repository was cleaned, the graph is resolved again.
+ */
+class DependencyGraphCache {
+
+  private static final Logger logger = Logger.getLogger(DependencyGraphCache.class.getName());
+
+  /** Changes whenever the entry format changes, so old entries are ignored. */
+  private static final int FORMAT_VERSION = 1;
+
+  /** Resolves a dependency graph. */
+  interface Resolver {
+    List<Artifact> resolve() throws CoreException;
+  }
+
+  private final File directory;
+  private final long mutableMaxAgeMillis;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * @param directory where entries are stored; created when the first entry is stored. If
+   *     null, graphs are only kept in memory.
+   * @param mutableMaxAgeMillis how long the graph of a version that can change is used without
+   *     resolving it again
+   */
+  DependencyGraphCache(File directory, long mutableMaxAgeMillis) {
+    this.directory = directory;
+    this.mutableMaxAgeMillis = mutableMaxAgeMillis;
+  }
+
+  /**
+   * Returns the graph stored under {@code key}, calling {@code resolver} if there is none or
+   * the stored one is out of date.
+   *
+   * @param version the version of the root artifact, which decides whether the graph can change
+   * @param offline if true, a stored graph is used however old it is
+   * @throws CoreException if {@code resolver} fails and there is no stored graph
+   */
+  List<Artifact> get(String key, String version, boolean offline, Resolver resolver)
+      throws CoreException {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      entry = read(key);
+      if (entry != null) {
+        entries.putIfAbsent(key, entry);
+      }
+    }
+    if (entry != null && !entry.filesExist()) {
+      logger.fine("Files of the dependency graph of " + key + " are gone");
+      entries.remove(key, entry);
+      entry = null;
+    }
+    if (entry != null && (offline || !isMutable(version)
+        || System.currentTimeMillis() - entry.resolved < mutableMaxAgeMillis)) {
+      return entry.artifacts;
+    }
+
+    try {
+      Entry resolved = new Entry(System.currentTimeMillis(), resolver.resolve());
+      entries.put(key, resolved);
+      write(key, resolved);
+      return resolved.artifacts;
+    } catch (CoreException ex) {
+      if (entry == null) {
+        throw ex;
+      }
+      // an old graph is better than nothing
+      logger.log(Level.WARNING, "Could not resolve " + key + " again: " + ex.getMessage());
+      return entry.artifacts;
+    }
+  }
+
+  /**
+   * Returns true if the dependencies of {@code version} may change over time: version ranges,
+   * snapshots, and the {@code LATEST} and {@code RELEASE} meta versions.
+   */
+  @VisibleForTesting
+  static boolean isMutable(String version) {
+    return version.startsWith("[") || version.startsWith("(") //$NON-NLS-1$ //$NON-NLS-2$
+        || version.endsWith("-SNAPSHOT") //$NON-NLS-1$
+        || "LATEST".equals(version) || "RELEASE".equals(version); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  @VisibleForTesting
+  File getEntryFile(String key) {
+    if (directory == null) {
+      return null;
+    }
+    String name = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+    return new File(directory, name);
+  }
+
+  private Entry read(String key) {
+    File file = getEntryFile(key);
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+        return null;
+      }
+      long resolved = in.readLong();
+      int count = in.readInt();
+      ImmutableList.Builder<Artifact> artifacts = ImmutableList.builder();
+      for (int i = 0; i < count; i++) {
+        Artifact artifact = new DefaultArtifact(in.readUTF());
+        String path = in.readUTF();
+        if (!path.isEmpty()) {
+          artifact = artifact.setFile(new File(path));
+        }
+        artifacts.add(artifact);
+      }
+      return new Entry(resolved, artifacts.build());
+    } catch (IOException | IllegalArgumentException ex) {
+      logger.log(Level.WARNING, "Ignoring unreadable dependency graph " + file, ex);
+      return null;
+    }
+  }
+
+  private void write(String key, Entry entry) {
+    File file = getEntryFile(key);
+    if (file == null) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeLong(entry.resolved);
+        out.writeInt(entry.artifacts.size());
+        for (Artifact artifact : entry.artifacts) {
+          out.writeUTF(artifact.toString());
+          out.writeUTF(artifact.getFile() == null ? "" : artifact.getFile().getPath());
+        }
+      }
+      AtomicFiles.write(file, bytes.toByteArray());
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not store dependency graph of " + key, ex);
+    }
+  }
+
+  private static class Entry {
+    private final long resolved;
+    private final List<Artifact> artifacts;
+
+    private Entry(long resolved, List<Artifact> artifacts) {
+      this.resolved = resolved;
+      this.artifacts = ImmutableList.copyOf(artifacts);
+    }
+
+    /** Returns false if the file of any artifact has been deleted since it was resolved. */
+    private boolean filesExist() {
+      for (Artifact artifact : artifacts) {
+        if (artifact.getFile() != null && !artifact.getFile().exists()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -17,9 +17,11 @@
 package com.google.cloud.tools.eclipse.util;
 
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.artifact.Artifact;
@@ -35,13 +37,38 @@ import org.eclipse.aether.util.artifact.JavaScopes;
 import org.eclipse.aether.util.filter.DependencyFilterUtils;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.m2e.core.MavenPlugin;
 import org.eclipse.m2e.core.embedder.ICallable;
 import org.eclipse.m2e.core.embedder.IMavenExecutionContext;
 import org.eclipse.m2e.core.internal.MavenPluginActivator;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 
+/**
+ * Resolves transitive dependencies with Aether. Resolved graphs are kept in the bundle's state
+ * location, keyed by the root artifact and the repositories searched: graphs of release versions
+ * are reused for good, graphs of version ranges and snapshots for a day. When Maven is offline or
+ * resolution fails, the last graph resolved is used.
+ */
 public class DependencyResolver {
 
+  /** How long the graph of a version range or snapshot is used before resolving it again. */
+  private static final long MUTABLE_GRAPH_MAX_AGE_HOURS = 24;
+
+  private static final String CENTRAL_URL = "https://repo.maven.apache.org/maven2/"; //$NON-NLS-1$
+
+  private static final DependencyGraphCache graphCache = new DependencyGraphCache(
+      getGraphCacheDirectory(), TimeUnit.HOURS.toMillis(MUTABLE_GRAPH_MAX_AGE_HOURS));
+
+  private static File getGraphCacheDirectory() {
+    Bundle bundle = FrameworkUtil.getBundle(DependencyResolver.class);
+    if (bundle == null) {
+      return null;
+    }
+    return Platform.getStateLocation(bundle).append("dependencies").toFile(); //$NON-NLS-1$
+  }
+
   /**
    * Returns all transitive runtime dependencies of the specified Maven artifact
    * including the artifact itself.
@@ -49,10 +76,25 @@ public class DependencyResolver {
    * @param groupId group ID of the Maven artifact to resolve
    * @param artifactId artifact ID of the Maven artifact to resolve
    * @param version version of the Maven artifact to resolve
-   * @return artifacts in the transitive dependency graph. Order not guaranteed.
+   * @return artifacts in the transitive dependency graph. Order not guaranteed. The collection
+   *     cannot be modified.
    * @throws CoreException if the dependencies could not be resolved
    */
   public static Collection<Artifact> getTransitiveDependencies(
+      final String groupId, final String artifactId, final String version,
+      final IProgressMonitor monitor) throws CoreException {
+    // the graph depends on the repositories searched as well as on the root
+    String key = groupId + ":" + artifactId + ":" + version + "|" + CENTRAL_URL;
+    boolean offline = MavenPlugin.getMavenConfiguration().isOffline();
+    return graphCache.get(key, version, offline, new DependencyGraphCache.Resolver() {
+      @Override
+      public List<Artifact> resolve() throws CoreException {
+        return resolveTransitiveDependencies(groupId, artifactId, version, monitor);
+      }
+    });
+  }
+
+  private static List<Artifact> resolveTransitiveDependencies(
       String groupId, String artifactId, String version, IProgressMonitor monitor)
           throws CoreException {
 
@@ -97,7 +139,7 @@ public class DependencyResolver {
 
   private static List<RemoteRepository> centralRepository(RepositorySystem system) {
     RemoteRepository.Builder builder =
-        new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2/");
+        new RemoteRepository.Builder("central", "default", CENTRAL_URL);
     RemoteRepository repository = builder.build();
     List<RemoteRepository> repositories = new ArrayList<>();
     repositories.add(repository);
@@ -24,8 +24,6 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
@@ -77,10 +75,8 @@ public class MavenUtils {
 
   private static Document parse(InputStream pomXml) throws CoreException {
     try {
-      DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-      documentBuilderFactory.setNamespaceAware(true);
-      return documentBuilderFactory.newDocumentBuilder().parse(pomXml);
-    } catch (IOException | SAXException | ParserConfigurationException exception) {
+      return XmlParsers.parseDocument(pomXml);
+    } catch (IOException | SAXException exception) {
       throw new CoreException(
           StatusUtil.error(MavenUtils.class, "Cannot parse pom.xml", exception));
     }
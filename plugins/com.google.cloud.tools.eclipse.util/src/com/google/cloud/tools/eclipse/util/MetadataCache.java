@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import com.google.cloud.tools.eclipse.util.io.AtomicFiles;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps copies of remote files, such as Maven repository metadata, on disk together with the
+ * {@code ETag} and {@code Last-Modified} validators the server sent, so that they survive
+ * restarts. A copy younger than the maximum age is used as is; an older one is revalidated with a
+ * conditional request, which costs a round trip but no transfer when the file has not changed.
+ * <p>
+ * Entries are written to a temporary file and then moved into place, so readers, including other
+ * Eclipse instances sharing the state location, never see a partially written entry.
+ */
+class MetadataCache {
+
+  private static final Logger logger = Logger.getLogger(MetadataCache.class.getName());
+
+  /** Changes whenever the entry format changes, so old entries are ignored. */
+  private static final int FORMAT_VERSION = 1;
+
+  private final File directory;
+  private final long maxAgeMillis;
+
+  /**
+   * @param directory where entries are stored; created when the first entry is stored. If
+   *     null, nothing is stored and every request goes to the server.
+   * @param maxAgeMillis how long a stored copy is used without revalidating it
+   */
+  MetadataCache(File directory, long maxAgeMillis) {
+    this.directory = directory;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Returns the contents of {@code url}, from the disk if possible.
+   *
+   * @param offline if true, never contact the server, even to revalidate an old copy
+   * @throws IOException if the file cannot be retrieved and there is no stored copy
+   */
+  byte[] get(URL url, boolean offline) throws IOException {
+    File file = getEntryFile(url);
+    Entry entry = file == null ? null : read(file, url);
+    if (entry != null && (offline || System.currentTimeMillis() - entry.fetched < maxAgeMillis)) {
+      return entry.content;
+    }
+    if (offline) {
+      throw new IOException("Offline and no stored copy of " + url);
+    }
+
+    try {
+      Entry fetched = fetch(url, entry);
+      if (file != null) {
+        write(file, url, fetched);
+      }
+      return fetched.content;
+    } catch (IOException ex) {
+      if (entry == null) {
+        throw ex;
+      }
+      // an old copy is better than nothing
+      logger.log(Level.WARNING, "Could not revalidate " + url + ": " + ex.getMessage());
+      return entry.content;
+    }
+  }
+
+  private static Entry fetch(URL url, Entry stored) throws IOException {
+    URLConnection connection = url.openConnection();
+    connection.setRequestProperty("User-Agent", CloudToolsInfo.USER_AGENT);
+    if (stored != null && !stored.etag.isEmpty()) {
+      connection.setRequestProperty("If-None-Match", stored.etag);
+    }
+    if (stored != null && !stored.lastModified.isEmpty()) {
+      connection.setRequestProperty("If-Modified-Since", stored.lastModified);
+    }
+    long now = System.currentTimeMillis();
+    if (stored != null && connection instanceof HttpURLConnection
+        && ((HttpURLConnection) connection).getResponseCode()
+            == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      return new Entry(stored.etag, stored.lastModified, now, stored.content);
+    }
+    try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
+      byte[] content = ByteStreams.toByteArray(in);
+      return new Entry(Strings.nullToEmpty(connection.getHeaderField("ETag")),
+          Strings.nullToEmpty(connection.getHeaderField("Last-Modified")), now, content);
+    }
+  }
+
+  @VisibleForTesting
+  File getEntryFile(URL url) {
+    if (directory == null) {
+      return null;
+    }
+    String name = Hashing.sha256().hashString(url.toString(), StandardCharsets.UTF_8).toString();
+    return new File(directory, name);
+  }
+
+  private static Entry read(File file, URL url) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != FORMAT_VERSION || !url.toString().equals(in.readUTF())) {
+        return null;
+      }
+      String etag = in.readUTF();
+      String lastModified = in.readUTF();
+      long fetched = in.readLong();
+      byte[] content = new byte[in.readInt()];
+      in.readFully(content);
+      return new Entry(etag, lastModified, fetched, content);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Ignoring unreadable cache entry " + file, ex);
+      return null;
+    }
+  }
+
+  private static void write(File file, URL url, Entry entry) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.content.length + 256);
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(url.toString());
+        out.writeUTF(entry.etag);
+        out.writeUTF(entry.lastModified);
+        out.writeLong(entry.fetched);
+        out.writeInt(entry.content.length);
+        out.write(entry.content);
+      }
+      AtomicFiles.write(file, bytes.toByteArray());
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not store " + url, ex);
+    }
+  }
+
+  private static class Entry {
+    private final String etag;
+    private final String lastModified;
+    private final long fetched;
+    private final byte[] content;
+
+    private Entry(String etag, String lastModified, long fetched, byte[] content) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.fetched = fetched;
+      this.content = content;
+    }
+  }
+}
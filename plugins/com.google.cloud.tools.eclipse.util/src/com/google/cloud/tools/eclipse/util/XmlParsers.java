@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Parses XML with reusable parsers, so that the JAXP factory lookup and parser setup are paid
+ * once per thread rather than on every parse. Each thread keeps one parser of each kind; a
+ * parse started while that parser is busy, for example from inside a SAX handler, uses a new
+ * one. All parsers are namespace aware unless stated otherwise.
+ */
+public class XmlParsers {
+
+  private XmlParsers() {}
+
+  private static final DefaultHandler NO_OP_HANDLER = new DefaultHandler();
+
+  private static final DocumentBuilderPool namespaceAwareBuilders = new DocumentBuilderPool(true);
+  private static final DocumentBuilderPool plainBuilders = new DocumentBuilderPool(false);
+
+  private static final SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+  private static final ThreadLocal<XMLReader> xmlReaders = new ThreadLocal<>();
+
+  static {
+    saxParserFactory.setNamespaceAware(true);
+  }
+
+  public static Document parseDocument(InputStream in) throws IOException, SAXException {
+    return parseDocument(new InputSource(in));
+  }
+
+  public static Document parseDocument(InputSource source) throws IOException, SAXException {
+    return namespaceAwareBuilders.parse(source);
+  }
+
+  /**
+   * Parses without namespace processing, as {@link DocumentBuilderFactory} does by default.
+   */
+  public static Document parseDocumentIgnoringNamespaces(InputSource source)
+      throws IOException, SAXException {
+    return plainBuilders.parse(source);
+  }
+
+  /**
+   * Streams {@code source} to {@code handler}, which also receives the parse errors.
+   */
+  public static void parse(InputSource source, DefaultHandler handler)
+      throws IOException, SAXException {
+    Preconditions.checkNotNull(handler);
+    XMLReader reader = xmlReaders.get();
+    xmlReaders.set(null);
+    if (reader == null) {
+      reader = newXmlReader();
+    }
+    try {
+      reader.setContentHandler(handler);
+      reader.setErrorHandler(handler);
+      reader.parse(source);
+    } finally {
+      // do not keep the handler, and whatever it refers to, reachable from the thread
+      reader.setContentHandler(NO_OP_HANDLER);
+      reader.setErrorHandler(NO_OP_HANDLER);
+      xmlReaders.set(reader);
+    }
+  }
+
+  private static XMLReader newXmlReader() throws SAXException {
+    try {
+      synchronized (saxParserFactory) {
+        return saxParserFactory.newSAXParser().getXMLReader();
+      }
+    } catch (ParserConfigurationException ex) {
+      throw new SAXException("Could not configure SAX parser", ex);
+    }
+  }
+
+  private static class DocumentBuilderPool {
+
+    private final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    private final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<>();
+
+    private DocumentBuilderPool(boolean namespaceAware) {
+      factory.setNamespaceAware(namespaceAware);
+    }
+
+    private Document parse(InputSource source) throws IOException, SAXException {
+      DocumentBuilder builder = builders.get();
+      builders.set(null);
+      if (builder == null) {
+        builder = newDocumentBuilder();
+      }
+      try {
+        return builder.parse(source);
+      } finally {
+        builder.reset();
+        builders.set(builder);
+      }
+    }
+
+    private DocumentBuilder newDocumentBuilder() throws SAXException {
+      try {
+        // factories are not guaranteed to be thread-safe
+        synchronized (factory) {
+          return factory.newDocumentBuilder();
+        }
+      } catch (ParserConfigurationException ex) {
+        throw new SAXException("Could not configure Document Builder", ex);
+      }
+    }
+  }
+}
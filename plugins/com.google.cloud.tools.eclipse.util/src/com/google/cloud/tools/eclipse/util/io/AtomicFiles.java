@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes files so that readers, including other processes, see either the old or the new
+ * content, never a partially written file.
+ */
+public class AtomicFiles {
+
+  private AtomicFiles() {
+  }
+
+  /**
+   * Replaces the content of {@code file} with {@code content}. The content is written to a
+   * temporary file in the same directory first, and then moved into place. Where the file system
+   * cannot move atomically, the file is replaced by a plain move.
+   *
+   * @throws IOException if the file cannot be written; its old content, if any, is kept
+   */
+  public static void write(File file, byte[] content) throws IOException {
+    File directory = file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create " + directory);
+    }
+    File temporary = File.createTempFile(file.getName(), ".tmp", directory); //$NON-NLS-1$
+    try {
+      Files.write(temporary.toPath(), content);
+      try {
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary.toPath());
+    }
+  }
+}
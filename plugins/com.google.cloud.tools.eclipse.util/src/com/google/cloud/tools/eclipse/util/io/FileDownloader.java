@@ -17,27 +17,65 @@
 package com.google.cloud.tools.eclipse.util.io;
 
 import com.google.cloud.tools.eclipse.util.CloudToolsInfo;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Striped;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 
 /**
  * Utility class to download files from {@link URL}s.
+ * <p>
+ * Files are first written to a {@code .part} file next to the destination. If a download fails part
+ * way or is canceled, the next download of the same URL asks an HTTP server for the remaining bytes
+ * only, provided the file on the server has not changed since: the {@code ETag} or
+ * {@code Last-Modified} header of the first response is kept in a {@code .part.validator} file and
+ * sent back in an {@code If-Range} header. When the server publishes a {@code .sha1} file next to
+ * the file, the download is verified against it before it is moved into place. Concurrent
+ * downloads of the same URL wait for each other, so the file is fetched once.
  */
 public class FileDownloader {
 
+  private static final Logger logger = Logger.getLogger(FileDownloader.class.getName());
+
   private static final int DEFAULT_CONNECT_TIMEOUT_MS = 3000;
   private static final int DEFAULT_READ_TIMEOUT_MS = 3000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @VisibleForTesting
+  static final String PART_FILE_EXTENSION = ".part"; //$NON-NLS-1$
+  @VisibleForTesting
+  static final String VALIDATOR_FILE_EXTENSION = ".validator"; //$NON-NLS-1$
+  private static final String CHECKSUM_FILE_EXTENSION = ".sha1"; //$NON-NLS-1$
+
+  /** How often a caller waiting for another download checks its monitor for cancellation. */
+  private static final long LOCK_POLL_MILLIS = 100;
+
+  /** Guards the URLs, so that a URL is downloaded by one caller at a time. */
+  private static final Striped<Lock> downloadLocks = Striped.lazyWeakLock(64);
 
   private final IPath downloadFolderPath;
 
@@ -61,12 +99,14 @@ public class FileDownloader {
   /**
    * Downloads the file pointed to by the <code>url</code>
    * <p>
-   * The downloaded file's name will be the last segment of the path of the URL.
+   * The downloaded file's name will be the last segment of the path of the URL. If another
+   * caller is downloading the same URL, waits for it to finish and returns its result. A canceled
+   * download leaves its {@code .part} file behind, so that the next download can resume it.
    *
    * @param url location of the file to download, cannot be <code>null</code>
-   * @return a path pointing to the downloaded file
-   * @throws IOException if the URL cannot be opened, the output file cannot be written or the
-   *         transfer of the remote file fails
+   * @return a path pointing to the downloaded file, or {@code null} if the download was canceled
+   * @throws IOException if the URL cannot be opened, the output file cannot be written, the
+   *         transfer of the remote file fails, or the downloaded file does not match its checksum
    */
   public IPath download(URL url, IProgressMonitor monitor) throws IOException {
     Preconditions.checkNotNull(url, "url is null");
@@ -79,28 +119,212 @@ public class FileDownloader {
       return new Path(downloadedFile.getAbsolutePath());
     }
 
-    ensureDownloadFolderExists();
+    // URL.equals() may resolve host names, so key on the string form
+    Lock lock = downloadLocks.get(url.toExternalForm());
+    if (!lock(lock, monitor)) {
+      return null;
+    }
+    try {
+      // another caller may have downloaded it while we waited
+      if (downloadedFile.exists()) {
+        return new Path(downloadedFile.getAbsolutePath());
+      }
+      ensureDownloadFolderExists();
+      File partFile = new File(downloadedFile.getPath() + PART_FILE_EXTENSION);
+      File validatorFile = new File(partFile.getPath() + VALIDATOR_FILE_EXTENSION);
+      String checksum = fetchChecksum(new URL(url, url.getPath() + CHECKSUM_FILE_EXTENSION));
+      if (!transfer(url, partFile, validatorFile, monitor)) {
+        return null;
+      }
+      Files.deleteIfExists(validatorFile.toPath());
+      if (checksum != null && !matchesChecksum(partFile, checksum)) {
+        // start from scratch next time
+        Files.deleteIfExists(partFile.toPath());
+        throw new IOException("Checksum mismatch for " + url);
+      }
+      Files.move(partFile.toPath(), downloadedFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      return new Path(downloadedFile.getAbsolutePath());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Acquires {@code lock}, giving up when {@code monitor} is canceled.
+   *
+   * @return false if {@code monitor} was canceled, or the thread interrupted, before the lock
+   *     became available
+   */
+  @VisibleForTesting
+  static boolean lock(Lock lock, IProgressMonitor monitor) {
+    try {
+      while (!lock.tryLock(LOCK_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (monitor.isCanceled()) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Copies the content of {@code url} into {@code partFile}, continuing after the bytes already
+   * in {@code partFile} if the server supports range requests and the remote file still matches
+   * the validator in {@code validatorFile}.
+   *
+   * @return false if the download was canceled, in which case {@code partFile} is kept
+   */
+  private static boolean transfer(URL url, File partFile, File validatorFile,
+      IProgressMonitor monitor) throws IOException {
+    String validator = readValidator(validatorFile);
+    // without a validator, the bytes we have may belong to an older version of the file
+    long offset = validator == null ? 0 : partFile.length();
+    URLConnection connection = openConnection(url, offset, validator);
+    if (offset > 0 && !isResumed(connection, offset)) {
+      if (getResponseCode(connection) == 416) {  // Requested Range Not Satisfiable
+        // the part file is corrupt; start over
+        disconnect(connection);
+        connection = openConnection(url, 0, null);
+      }
+      offset = 0;
+    }
+    if (offset == 0) {
+      writeValidator(validatorFile, connection);
+    }
+
+    StandardOpenOption mode =
+        offset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+    try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream());
+        FileChannel out = FileChannel.open(partFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      while (in.read(buffer) != -1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          out.write(buffer);
+        }
+        buffer.clear();
+        if (monitor.isCanceled()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Returns the validator that {@code If-Range} needs to resume the download, or {@code null}
+   * if there is none.
+   */
+  private static String readValidator(File validatorFile) {
+    try {
+      if (validatorFile.isFile()) {
+        String validator =
+            new String(Files.readAllBytes(validatorFile.toPath()), StandardCharsets.UTF_8).trim();
+        return validator.isEmpty() ? null : validator;
+      }
+    } catch (IOException ex) {
+      logger.log(Level.FINE, "Cannot read " + validatorFile, ex);
+    }
+    return null;
+  }
+
+  /**
+   * Keeps the strong {@code ETag}, or else the {@code Last-Modified} date, of the response that
+   * starts the download, so that a later download can resume it. Weak entity tags cannot be used
+   * with {@code If-Range}.
+   */
+  private static void writeValidator(File validatorFile, URLConnection connection)
+      throws IOException {
+    String validator = connection.getHeaderField("ETag"); //$NON-NLS-1$
+    if (validator == null || validator.startsWith("W/")) { //$NON-NLS-1$
+      validator = connection.getHeaderField("Last-Modified"); //$NON-NLS-1$
+    }
+    if (validator == null || !(connection instanceof HttpURLConnection)) {
+      Files.deleteIfExists(validatorFile.toPath());
+    } else {
+      Files.write(validatorFile.toPath(), validator.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static URLConnection openConnection(URL url, long offset, String validator)
+      throws IOException {
     URLConnection connection = url.openConnection();
     connection.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT_MS);
     connection.setReadTimeout(DEFAULT_READ_TIMEOUT_MS);
     connection.setRequestProperty("User-Agent", CloudToolsInfo.USER_AGENT);
-    try (InputStream inputStream = new BufferedInputStream(connection.getInputStream());
-         OutputStream outputStream = 
-             new BufferedOutputStream(Files.newOutputStream(downloadedFile.toPath()))) {
-      byte[] buffer = new byte[4096];
-      int read = 0;
-      while ((read = inputStream.read(buffer)) != -1) {
-        if (monitor.isCanceled()) {
-          return null;
-        }
-        outputStream.write(buffer, 0, read);
+    if (offset > 0 && connection instanceof HttpURLConnection) {
+      connection.setRequestProperty("Range", "bytes=" + offset + "-"); //$NON-NLS-1$ //$NON-NLS-2$
+      // the server sends the whole file instead if it changed
+      connection.setRequestProperty("If-Range", validator); //$NON-NLS-1$
+    }
+    return connection;
+  }
+
+  /** Returns true if {@code connection} serves the remote file starting at {@code offset}. */
+  private static boolean isResumed(URLConnection connection, long offset) throws IOException {
+    String contentRange = connection.getHeaderField("Content-Range"); //$NON-NLS-1$
+    return getResponseCode(connection) == HttpURLConnection.HTTP_PARTIAL
+        && contentRange != null
+        && contentRange.startsWith("bytes " + offset + "-"); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static int getResponseCode(URLConnection connection) throws IOException {
+    if (connection instanceof HttpURLConnection) {
+      return ((HttpURLConnection) connection).getResponseCode();
+    }
+    return -1;
+  }
+
+  private static void disconnect(URLConnection connection) {
+    if (connection instanceof HttpURLConnection) {
+      ((HttpURLConnection) connection).disconnect();
+    }
+  }
+
+  /**
+   * Returns the checksum in the sidecar file at {@code checksumUrl}, or {@code null} if there is
+   * none. Sidecar files hold the hex digest, optionally followed by the file name.
+   */
+  private static String fetchChecksum(URL checksumUrl) {
+    try {
+      URLConnection connection = openConnection(checksumUrl, 0, null);
+      int responseCode = getResponseCode(connection);
+      if (responseCode != -1 && responseCode != HttpURLConnection.HTTP_OK) {
+        disconnect(connection);
+        return null;
       }
-      return new Path(downloadedFile.getAbsolutePath());
-    } finally {
-      if (monitor.isCanceled()) {
-        Files.delete(downloadedFile.toPath());
+      try (InputStream in = connection.getInputStream()) {
+        byte[] content = ByteStreams.toByteArray(ByteStreams.limit(in, 1024));
+        String[] tokens = new String(content, StandardCharsets.US_ASCII).trim().split("\\s+");
+        return tokens[0].isEmpty() ? null : tokens[0];
       }
+    } catch (IOException ex) {
+      logger.log(Level.FINE, "No checksum available at " + checksumUrl, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Returns true if the SHA-1 or SHA-256 digest of {@code file} is {@code expected}. The
+   * algorithm is chosen by the length of {@code expected}; unrecognized digests are not checked.
+   */
+  @VisibleForTesting
+  static boolean matchesChecksum(File file, String expected) throws IOException {
+    HashFunction function;
+    if (expected.length() == 40) {
+      function = Hashing.sha1();
+    } else if (expected.length() == 64) {
+      function = Hashing.sha256();
+    } else {
+      logger.warning("Ignoring unrecognized checksum " + expected);
+      return true;
     }
+    HashCode actual = com.google.common.io.Files.hash(file, function);
+    return actual.toString().equalsIgnoreCase(expected);
   }
 
   private void ensureDownloadFolderExists() throws IOException {
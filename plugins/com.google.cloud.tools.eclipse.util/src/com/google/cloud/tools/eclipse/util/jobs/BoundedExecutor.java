@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.jobs;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * A pool of daemon threads shared by the operations that mostly wait for the network, such as
+ * resolving artifacts or looking up their latest versions. Sharing one pool bounds the number of
+ * connections that all these operations open together; tasks beyond the bound wait in line.
+ * <p>
+ * The pool is never shut down. Operations {@link #cancel(Collection) cancel} the tasks they no
+ * longer need instead, and idle threads end by themselves. Running tasks are never interrupted:
+ * an interrupt can leave a partially written file in Aether's local repository. Tasks notice
+ * cancellation through a {@link #cancellationMonitor(IProgressMonitor) cancellation monitor}
+ * instead.
+ */
+public class BoundedExecutor {
+
+  /** Enough to hide network latency without flooding a repository with connections. */
+  @VisibleForTesting
+  static final int THREADS = 8;
+
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  /** How often a waiting caller checks its progress monitor for cancellation. */
+  private static final long POLL_MILLIS = 100;
+
+  private static final ThreadPoolExecutor executor = createExecutor();
+
+  private static ThreadPoolExecutor createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactoryBuilder().setNameFormat("bounded-executor-%d") //$NON-NLS-1$
+            .setDaemon(true).build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private BoundedExecutor() {
+  }
+
+  /** Runs {@code task} on the shared pool. */
+  public static <T> Future<T> submit(Callable<T> task) {
+    return executor.submit(task);
+  }
+
+  /**
+   * Runs {@code tasks} on the shared pool and waits until they are done or {@code timeout} has
+   * passed, whichever comes first; the tasks that are not done by then are canceled as by
+   * {@link #cancel(Collection)}.
+   *
+   * @see java.util.concurrent.ExecutorService#invokeAll(Collection, long, TimeUnit)
+   */
+  public static <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks,
+      long timeout, TimeUnit unit) throws InterruptedException {
+    // ExecutorService.invokeAll would interrupt the tasks that run late
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<T> future : futures) {
+        try {
+          future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+          break;
+        } catch (ExecutionException | CancellationException ex) {
+          // the caller sees the failure in the future
+        }
+      }
+      return futures;
+    } finally {
+      cancel(futures);
+    }
+  }
+
+  /**
+   * Waits for the result of {@code future}, checking {@code monitor} for cancellation while
+   * waiting. The future itself is not canceled.
+   *
+   * @throws ExecutionException if the task failed
+   * @throws OperationCanceledException if {@code monitor} is canceled, or the thread is
+   *     interrupted, before the result is available
+   */
+  public static <T> T waitFor(Future<T> future, IProgressMonitor monitor)
+      throws ExecutionException {
+    try {
+      while (true) {
+        if (monitor != null && monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        try {
+          return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          // check for cancellation again
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    }
+  }
+
+  /**
+   * Cancels those of {@code futures} that are not done. Tasks that have not started are dropped;
+   * running ones are left to finish, or to stop when their cancellation monitor is canceled.
+   */
+  public static void cancel(Collection<? extends Future<?>> futures) {
+    for (Future<?> future : futures) {
+      future.cancel(false);
+    }
+  }
+
+  /**
+   * Returns a monitor for tasks on the pool that only reports whether {@code monitor} is
+   * canceled. Progress monitors are not thread-safe, so tasks must not report progress to the
+   * monitor of the operation that started them.
+   */
+  public static IProgressMonitor cancellationMonitor(final IProgressMonitor monitor) {
+    return new NullProgressMonitor() {
+      @Override
+      public boolean isCanceled() {
+        return monitor != null && monitor.isCanceled();
+      }
+    };
+  }
+}